@@ -20,10 +20,8 @@ import androidx.benchmark.macro.createTempFileFromAsset
 import androidx.benchmark.macro.perfetto.FrameTimingQuery.SubMetric.FrameCpuTime
 import androidx.benchmark.macro.perfetto.FrameTimingQuery.SubMetric.FrameOverrunTime
 import androidx.benchmark.macro.perfetto.FrameTimingQuery.SubMetric.FrameUiTime
-import androidx.benchmark.perfetto.PerfettoHelper.Companion.isAbiSupported
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.filters.MediumTest
-import org.junit.Assume.assumeTrue
 import org.junit.Test
 import org.junit.runner.RunWith
 import kotlin.test.assertEquals
@@ -33,7 +31,6 @@ class FrameTimingQueryTest {
     @MediumTest
     @Test
     fun fixedTrace28() {
-        assumeTrue(isAbiSupported())
         val traceFile = createTempFileFromAsset("api28_scroll", ".perfetto-trace")
 
         val frameSubMetrics = FrameTimingQuery.getFrameSubMetrics(
@@ -61,7 +58,6 @@ class FrameTimingQueryTest {
     @MediumTest
     @Test
     fun fixedTrace31() {
-        assumeTrue(isAbiSupported())
         val traceFile = createTempFileFromAsset("api31_scroll", ".perfetto-trace")
 
         val frameSubMetrics = FrameTimingQuery.getFrameSubMetrics(
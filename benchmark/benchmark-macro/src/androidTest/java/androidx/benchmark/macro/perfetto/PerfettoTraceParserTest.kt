@@ -0,0 +1,151 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.benchmark.macro.perfetto
+
+import androidx.benchmark.Outputs
+import androidx.benchmark.macro.createTempFileFromAsset
+import androidx.benchmark.perfetto.PerfettoHelper.Companion.isAbiSupported
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.MediumTest
+import androidx.tracing.InProcessTracing
+import androidx.tracing.trace
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.File
+import kotlin.test.assertEquals
+
+@MediumTest
+@RunWith(AndroidJUnit4::class)
+class PerfettoTraceParserTest {
+    @Test
+    fun querySlices() {
+        val traceFile = createTempFileFromAsset("api31_startup_cold", ".perfetto-trace")
+        assertEquals(
+            expected = listOf(
+                Slice(
+                    name = "activityStart",
+                    ts = 186975009436431,
+                    dur = 29580628
+                ),
+                Slice(
+                    name = "activityResume",
+                    ts = 186975039764298,
+                    dur = 6570418
+                )
+            ),
+            actual = PerfettoTraceParser.querySlices(
+                traceFile.absolutePath,
+                "activityStart",
+                "activityResume"
+            )
+        )
+    }
+
+    @Test
+    fun querySlices_matchesTraceProcessor() {
+        assumeTrue(isAbiSupported())
+        for (fixture in FIXTURES) {
+            val traceFile = createTempFileFromAsset(fixture, ".perfetto-trace")
+            for (sliceNames in SLICE_NAMES) {
+                assertEquals(
+                    expected = PerfettoTraceProcessor.querySlices(
+                        traceFile.absolutePath,
+                        *sliceNames
+                    ).sortedWith(SLICE_ORDER),
+                    actual = PerfettoTraceParser.querySlices(
+                        traceFile.absolutePath,
+                        *sliceNames
+                    ).sortedWith(SLICE_ORDER),
+                    message = "Slices ${sliceNames.toList()} of $fixture"
+                )
+            }
+        }
+    }
+
+    @Test
+    fun querySlices_inProcessTracingDump() {
+        InProcessTracing.clear()
+        InProcessTracing.setEnabled(true)
+        try {
+            trace("PerfettoTraceParserTest_outer") {
+                trace("PerfettoTraceParserTest_inner") {
+                    Thread.sleep(1)
+                }
+            }
+        } finally {
+            InProcessTracing.setEnabled(false)
+        }
+        val traceFile = File.createTempFile(
+            "in_process",
+            ".perfetto-trace",
+            Outputs.outputDirectory
+        )
+        try {
+            traceFile.outputStream().use { InProcessTracing.dump(it) }
+
+            val slices = PerfettoTraceParser.querySlices(
+                traceFile.absolutePath,
+                "PerfettoTraceParserTest_%"
+            )
+            assertEquals(
+                listOf("PerfettoTraceParserTest_outer", "PerfettoTraceParserTest_inner"),
+                slices.map { it.name }
+            )
+            val (outer, inner) = slices
+            assertTrue(inner.dur >= 1_000_000)
+            assertTrue(outer.contains(inner.ts) && outer.contains(inner.endTs))
+        } finally {
+            traceFile.delete()
+            InProcessTracing.clear()
+        }
+    }
+
+    @Test
+    fun likePattern() {
+        val doFrame = LikePattern("Choreographer#doFrame%")
+        assertTrue(doFrame.matches("Choreographer#doFrame"))
+        assertTrue(doFrame.matches("Choreographer#doFrame 1234"))
+        assertTrue(doFrame.matches("choreographer#DOFRAME"))
+        assertFalse(doFrame.matches("Choreographer#doFram"))
+        assertFalse(doFrame.matches(null))
+
+        assertTrue(LikePattern("com.a_b").matches("com.a.b"))
+        assertFalse(LikePattern("com.a.b").matches("com_a_b"))
+    }
+
+    companion object {
+        private val FIXTURES = listOf(
+            "api24_startup_cold",
+            "api28_scroll",
+            "api31_scroll",
+            "api31_startup_cold",
+            "api31_startup_hot"
+        )
+
+        private val SLICE_NAMES = listOf(
+            arrayOf("activityStart", "activityResume"),
+            arrayOf("Choreographer#doFrame%", "DrawFrame%"),
+            arrayOf("launching%", "startActivityAndWait"),
+            arrayOf("reportFullyDrawn%")
+        )
+
+        private val SLICE_ORDER = compareBy<Slice>({ it.ts }, { it.name }, { it.dur })
+    }
+}
@@ -18,9 +18,7 @@ package androidx.benchmark.macro.perfetto
 
 import androidx.benchmark.macro.StartupMode
 import androidx.benchmark.macro.createTempFileFromAsset
-import androidx.benchmark.perfetto.PerfettoHelper.Companion.isAbiSupported
 import androidx.test.ext.junit.runners.AndroidJUnit4
-import org.junit.Assume.assumeTrue
 import org.junit.Test
 import org.junit.runner.RunWith
 import java.util.Locale
@@ -33,7 +31,6 @@ class StartupTimingQueryTest {
         startupMode: StartupMode,
         expectedMetrics: StartupTimingQuery.SubMetrics
     ) {
-        assumeTrue(isAbiSupported())
         val traceFile = createTempFileFromAsset(
             prefix = "api${api}_startup_${startupMode.name.lowercase(Locale.getDefault())}",
             suffix = ".perfetto-trace"
@@ -24,6 +24,7 @@ import androidx.benchmark.Shell
 import androidx.benchmark.macro.perfetto.FrameTimingQuery
 import androidx.benchmark.macro.perfetto.FrameTimingQuery.SubMetric
 import androidx.benchmark.macro.perfetto.PerfettoResultsParser.parseStartupResult
+import androidx.benchmark.macro.perfetto.PerfettoTraceParser
 import androidx.benchmark.macro.perfetto.PerfettoTraceProcessor
 import androidx.benchmark.macro.perfetto.StartupTimingQuery
 import androidx.test.platform.app.InstrumentationRegistry
@@ -292,7 +293,7 @@ public class TraceSectionMetric(
 
     @SuppressLint("SyntheticAccessor")
     internal override fun getMetrics(captureInfo: CaptureInfo, tracePath: String): IterationResult {
-        val slice = PerfettoTraceProcessor.querySlices(tracePath, sectionName).firstOrNull()
+        val slice = PerfettoTraceParser.querySlices(tracePath, sectionName).firstOrNull()
         return if (slice == null) {
             IterationResult.EMPTY
         } else IterationResult(
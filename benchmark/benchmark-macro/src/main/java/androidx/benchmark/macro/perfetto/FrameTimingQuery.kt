@@ -16,43 +16,39 @@
 
 package androidx.benchmark.macro.perfetto
 
+import androidx.benchmark.macro.perfetto.TraceSlice.Kind
+
 internal object FrameTimingQuery {
-    private fun getFullQuery(processName: String) = """
-        ------ Select all frame-relevant slices from slice table
-        SELECT
-            slice.name as name,
-            slice.ts as ts,
-            slice.dur as dur
-        FROM slice
-            INNER JOIN thread_track on slice.track_id = thread_track.id
-            INNER JOIN thread USING(utid)
-            INNER JOIN process USING(upid)
-        WHERE (
-            ( slice.name LIKE "Choreographer#doFrame%" AND process.pid LIKE thread.tid ) OR
-            ( slice.name LIKE "DrawFrame%" AND thread.name like "RenderThread" )
-        ) AND (process.name LIKE "$processName")
-        ------ Add in actual frame slices (prepended with "actual " to differentiate)
-        UNION
-        SELECT
-            "actual " || actual_frame_timeline_slice.name as name,
-            actual_frame_timeline_slice.ts as ts,
-            actual_frame_timeline_slice.dur as dur
-        FROM actual_frame_timeline_slice
-            INNER JOIN process USING(upid)
-        WHERE
-            process.name LIKE "$processName"
-        ------ Add in expected time slices (prepended with "expected " to differentiate)
-        UNION
-        SELECT
-            "expected " || expected_frame_timeline_slice.name as name,
-            expected_frame_timeline_slice.ts as ts,
-            expected_frame_timeline_slice.dur as dur
-        FROM expected_frame_timeline_slice
-            INNER JOIN process USING(upid)
-        WHERE
-            process.name LIKE "$processName"
-        ORDER BY ts ASC
-    """.trimIndent()
+    private val DO_FRAME = LikePattern("Choreographer#doFrame%")
+    private val DRAW_FRAME = LikePattern("DrawFrame%")
+    private val RENDER_THREAD = LikePattern("RenderThread")
+
+    /**
+     * Selects the frame-relevant slices of the process: UI thread and RenderThread frame slices,
+     * and actual and expected frame timeline slices prepended with "actual " and "expected ",
+     * sorted by timestamp.
+     */
+    private fun queryFrameSlices(absoluteTracePath: String, processName: String): List<Slice> {
+        val process = LikePattern(processName)
+        val trace = PerfettoTraceParser.parse(absoluteTracePath, includeFrameTimeline = true) {
+            DO_FRAME.matches(it) || DRAW_FRAME.matches(it)
+        }
+        return trace.slices.mapNotNull { slice ->
+            if (!process.matches(trace.processName(slice.pid))) {
+                return@mapNotNull null
+            }
+            when (slice.kind) {
+                Kind.Thread -> slice.takeIf {
+                    (DO_FRAME.matches(it.name) && it.isMainThread) ||
+                        (DRAW_FRAME.matches(it.name) &&
+                            RENDER_THREAD.matches(trace.threadName(it.tid)))
+                }?.toSlice()
+                Kind.ActualFrame -> slice.toSlice("actual " + slice.name)
+                Kind.ExpectedFrame -> slice.toSlice("expected " + slice.name)
+                else -> null
+            }
+        }
+    }
 
     enum class SubMetric {
         FrameCpuTime,
@@ -139,11 +135,7 @@ internal object FrameTimingQuery {
         captureApiLevel: Int,
         packageName: String,
     ): Map<SubMetric, List<Long>> {
-        val queryResult = PerfettoTraceProcessor.rawQuery(
-            absoluteTracePath = absoluteTracePath,
-            query = getFullQuery(packageName)
-        )
-        val slices = Slice.parseListFromQueryResult(queryResult).let { list ->
+        val slices = queryFrameSlices(absoluteTracePath, packageName).let { list ->
             list.map { it.copy(ts = it.ts - list.first().ts) }
         }
 
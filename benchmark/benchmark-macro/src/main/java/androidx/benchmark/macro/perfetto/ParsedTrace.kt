@@ -0,0 +1,107 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.benchmark.macro.perfetto
+
+/**
+ * Slices, process names and thread names of a trace, as extracted by [PerfettoTraceParser].
+ *
+ * Names are the last ones seen in the trace, like in trace processor tables.
+ */
+internal class ParsedTrace(
+    /**
+     * Slices sorted by timestamp.
+     */
+    val slices: List<TraceSlice>,
+    private val processNames: Map<Int, String>,
+    private val threadNames: Map<Int, String>
+) {
+    fun processName(pid: Int): String? = processNames[pid]
+
+    fun threadName(tid: Int): String? = threadNames[tid]
+}
+
+/**
+ * Slice of a [ParsedTrace], with the track it was recorded on.
+ *
+ * Like in trace processor, [dur] is -1 for slices that didn't end before the end of the trace.
+ */
+internal data class TraceSlice(
+    val name: String,
+    val ts: Long,
+    val dur: Long,
+    val kind: Kind,
+    /**
+     * Process of the slice, or 0 if it isn't known.
+     */
+    val pid: Int,
+    /**
+     * Thread of [Kind.Thread] slices, 0 for other kinds.
+     */
+    val tid: Int
+) {
+    enum class Kind {
+        /**
+         * Synchronous slice of a thread, such as `Trace.beginSection`.
+         */
+        Thread,
+        /**
+         * Asynchronous slice of a process, such as `Trace.beginAsyncSection`.
+         */
+        ProcessAsync,
+        /**
+         * Track event slice of a track that isn't a thread or process.
+         */
+        Track,
+        /**
+         * Expected frame timeline slice, named after the frame token. Requires API 31.
+         */
+        ExpectedFrame,
+        /**
+         * Actual frame timeline slice, named after the frame token. Requires API 31.
+         */
+        ActualFrame
+    }
+
+    val isMainThread: Boolean
+        get() = kind == Kind.Thread && tid == pid
+
+    fun toSlice(name: String = this.name) = Slice(name = name, ts = ts, dur = dur)
+}
+
+/**
+ * Matches strings like the `LIKE` operator of trace processor queries: `%` matches any sequence
+ * of characters, `_` matches any character, and ASCII letters are case insensitive.
+ */
+internal class LikePattern(pattern: String) {
+    private val regex = Regex(
+        buildString {
+            for (char in pattern) {
+                when (char) {
+                    '%' -> append(".*")
+                    '_' -> append('.')
+                    else -> append(Regex.escape(char.toString()))
+                }
+            }
+        },
+        setOf(RegexOption.IGNORE_CASE, RegexOption.DOT_MATCHES_ALL)
+    )
+
+    /**
+     * Returns whether [value] matches, false if it is null like in SQL.
+     */
+    fun matches(value: String?): Boolean = value != null && regex.matches(value)
+}
@@ -0,0 +1,995 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.benchmark.macro.perfetto
+
+import androidx.benchmark.macro.perfetto.TraceSlice.Kind
+import androidx.benchmark.userspaceTrace
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.InputStream
+import java.util.zip.Inflater
+
+/**
+ * Parses the slices of a Perfetto trace in process, without `trace_processor_shell`.
+ *
+ * The trace is streamed one packet at a time, so time is linear in the size of the trace, and
+ * memory is bounded by the slices that are kept, not by the size of the trace. It decodes:
+ * * atrace slices, from ftrace print events: `B|pid|name` and `E` slices of threads, and
+ * `S|pid|name|cookie` and `F|pid|name|cookie` asynchronous slices of processes.
+ * * track event slices, such as the ones of benchmark userspace tracing.
+ * * frame timeline slices, from API 31, if [includeFrameTimeline] is true.
+ * * process names from process trees, and thread names from process trees and sched switches.
+ *
+ * Only the slices whose name matches [sliceFilter] are kept, which is what keeps memory low.
+ *
+ * Ftrace events are written in per-CPU bundles, so the events of a thread that moved between CPUs
+ * aren't in order in the trace. Like trace processor, they are sorted within a window of
+ * [SORTING_WINDOW_NS] before begins and ends are matched.
+ */
+internal class PerfettoTraceParser(
+    private val includeFrameTimeline: Boolean = false,
+    private val sliceFilter: (String) -> Boolean
+) {
+    private val processNames = HashMap<Int, String>()
+    private val threadNames = HashMap<Int, String>()
+    private val slices = ArrayList<TraceSlice>()
+
+    // Slices with CLOCK_MONOTONIC timestamps, converted to the trace clock at the end.
+    private val monotonicSlices = ArrayList<TraceSlice>()
+    // Pairs of CLOCK_MONOTONIC and CLOCK_BOOTTIME timestamps of the clock snapshots.
+    private val clockSnapshots = ArrayList<Pair<Long, Long>>()
+
+    private val threads = HashMap<Int, ThreadSlices>()
+    private var pendingThreadEvents = 0
+    private var maxFtraceTimestamp = Long.MIN_VALUE
+
+    private val openAsyncSlices = HashMap<AsyncSliceKey, Long>()
+    // Ends of asynchronous slices read before their begin, from another CPU.
+    private val earlyAsyncSliceEnds = HashMap<AsyncSliceKey, Long>()
+
+    private val sequences = HashMap<Int, SequenceState>()
+    private val tracks = HashMap<Long, TrackInfo>()
+    private val openTrackSlices = HashMap<TrackKey, ArrayList<OpenSlice>>()
+    private val openFrames = HashMap<Long, OpenFrame>()
+
+    private val packetDecoder = ProtoDecoder()
+    private val messageDecoder = ProtoDecoder()
+    private val eventDecoder = ProtoDecoder()
+    private val payloadDecoder = ProtoDecoder()
+
+    private val internTable = ArrayList<String>()
+    private val switchNextPids = IntList()
+    private val switchNextCommIndexes = IntList()
+    private val wakingPids = IntList()
+    private val wakingCommIndexes = IntList()
+
+    fun parse(input: InputStream): ParsedTrace {
+        var buffer = ByteArray(64 * 1024)
+        while (true) {
+            val tag = readRawVarint(input)
+            if (tag < 0) {
+                break
+            }
+            val fieldNumber = (tag ushr 3).toInt()
+            val size = when ((tag and 0x7).toInt()) {
+                ProtoDecoder.WIRE_TYPE_VARINT -> {
+                    readRawVarint(input)
+                    0
+                }
+                ProtoDecoder.WIRE_TYPE_FIXED64 -> 8
+                ProtoDecoder.WIRE_TYPE_LENGTH_DELIMITED -> readRawVarint(input).toInt()
+                ProtoDecoder.WIRE_TYPE_FIXED32 -> 4
+                else -> throw IllegalStateException("Unsupported wire type in $tag")
+            }
+            if (size < 0) {
+                break
+            }
+            if (buffer.size < size) {
+                buffer = ByteArray(maxOf(size, buffer.size * 2))
+            }
+            // A truncated last packet ends the trace.
+            if (!readFully(input, buffer, size)) {
+                break
+            }
+            if (fieldNumber == TRACE_PACKET) {
+                parsePacket(packetDecoder.reset(buffer, 0, size))
+            }
+        }
+        return finish()
+    }
+
+    private fun parsePacket(packet: ProtoDecoder) {
+        var timestamp = 0L
+        var clockId = 0
+        var sequenceId = 0
+        var incrementalStateCleared = false
+        // Nested messages, parsed after the fields they depend on.
+        var ftraceEvents: IntRange? = null
+        var processTree: IntRange? = null
+        var clockSnapshot: IntRange? = null
+        var trackEvent: IntRange? = null
+        var internedData: IntRange? = null
+        var packetDefaults: IntRange? = null
+        var trackDescriptor: IntRange? = null
+        var frameTimelineEvent: IntRange? = null
+        var compressedPackets: IntRange? = null
+        while (packet.next()) {
+            when (packet.fieldNumber) {
+                TRACE_PACKET_TIMESTAMP -> timestamp = packet.longValue
+                TRACE_PACKET_TIMESTAMP_CLOCK_ID -> clockId = packet.intValue
+                TRACE_PACKET_TRUSTED_PACKET_SEQUENCE_ID -> sequenceId = packet.intValue
+                TRACE_PACKET_SEQUENCE_FLAGS -> {
+                    if (packet.longValue and SEQ_INCREMENTAL_STATE_CLEARED != 0L) {
+                        incrementalStateCleared = true
+                    }
+                }
+                TRACE_PACKET_INCREMENTAL_STATE_CLEARED -> {
+                    incrementalStateCleared = incrementalStateCleared || packet.booleanValue
+                }
+                TRACE_PACKET_FTRACE_EVENTS -> ftraceEvents = packet.valueRange()
+                TRACE_PACKET_PROCESS_TREE -> processTree = packet.valueRange()
+                TRACE_PACKET_CLOCK_SNAPSHOT -> clockSnapshot = packet.valueRange()
+                TRACE_PACKET_TRACK_EVENT -> trackEvent = packet.valueRange()
+                TRACE_PACKET_INTERNED_DATA -> internedData = packet.valueRange()
+                TRACE_PACKET_TRACE_PACKET_DEFAULTS -> packetDefaults = packet.valueRange()
+                TRACE_PACKET_TRACK_DESCRIPTOR -> trackDescriptor = packet.valueRange()
+                TRACE_PACKET_FRAME_TIMELINE_EVENT -> frameTimelineEvent = packet.valueRange()
+                TRACE_PACKET_COMPRESSED_PACKETS -> compressedPackets = packet.valueRange()
+            }
+        }
+        val bytes = packet.bytes
+
+        val sequence = sequences[sequenceId].takeUnless { incrementalStateCleared }
+            ?: SequenceState().also { sequences[sequenceId] = it }
+        packetDefaults?.let { parsePacketDefaults(messageDecoder.reset(bytes, it), sequence) }
+        internedData?.let { parseInternedData(messageDecoder.reset(bytes, it), sequence) }
+        if (clockId == 0) {
+            clockId = sequence.defaultClockId
+        }
+
+        ftraceEvents?.let { parseFtraceEvents(messageDecoder.reset(bytes, it)) }
+        processTree?.let { parseProcessTree(messageDecoder.reset(bytes, it)) }
+        clockSnapshot?.let { parseClockSnapshot(messageDecoder.reset(bytes, it)) }
+        trackDescriptor?.let { parseTrackDescriptor(messageDecoder.reset(bytes, it)) }
+        trackEvent?.let {
+            val decoder = messageDecoder.reset(bytes, it)
+            parseTrackEvent(decoder, timestamp, clockId, sequenceId, sequence)
+        }
+        if (includeFrameTimeline) {
+            frameTimelineEvent?.let {
+                parseFrameTimelineEvent(messageDecoder.reset(bytes, it), timestamp, clockId)
+            }
+        }
+        compressedPackets?.let { parseCompressedPackets(bytes, it) }
+    }
+
+    private fun parseFtraceEvents(bundle: ProtoDecoder) {
+        while (bundle.next()) {
+            when (bundle.fieldNumber) {
+                FTRACE_EVENT_BUNDLE_EVENT -> parseFtraceEvent(bundle.decodeMessage(eventDecoder))
+                FTRACE_EVENT_BUNDLE_COMPACT_SCHED -> {
+                    parseCompactSched(bundle.decodeMessage(eventDecoder))
+                }
+            }
+        }
+        if (pendingThreadEvents > MAX_PENDING_THREAD_EVENTS) {
+            processThreadEvents(maxFtraceTimestamp - SORTING_WINDOW_NS)
+        }
+    }
+
+    private fun parseFtraceEvent(event: ProtoDecoder) {
+        var timestamp = 0L
+        var tid = 0
+        var print: IntRange? = null
+        while (event.next()) {
+            when (event.fieldNumber) {
+                FTRACE_EVENT_TIMESTAMP -> timestamp = event.longValue
+                FTRACE_EVENT_PID -> tid = event.intValue
+                FTRACE_EVENT_PRINT -> print = event.valueRange()
+                FTRACE_EVENT_SCHED_SWITCH -> parseSchedSwitch(event.decodeMessage(payloadDecoder))
+            }
+        }
+        if (timestamp > maxFtraceTimestamp) {
+            maxFtraceTimestamp = timestamp
+        }
+        print?.let {
+            val printEvent = payloadDecoder.reset(event.bytes, it)
+            while (printEvent.next()) {
+                if (printEvent.fieldNumber == PRINT_FTRACE_EVENT_BUF) {
+                    parseAtraceEvent(
+                        printEvent.bytes,
+                        printEvent.valueStart,
+                        printEvent.valueEnd,
+                        timestamp,
+                        tid
+                    )
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses the `B|pid|name`, `E|pid`, `S|pid|name|cookie` and `F|pid|name|cookie` events
+     * written to trace_marker by `android.os.Trace`. Counters are ignored.
+     */
+    private fun parseAtraceEvent(
+        bytes: ByteArray,
+        start: Int,
+        end: Int,
+        timestamp: Long,
+        tid: Int
+    ) {
+        var limit = end
+        while (limit > start && (bytes[limit - 1] == NEWLINE || bytes[limit - 1] == NUL)) {
+            limit--
+        }
+        if (limit == start || (limit > start + 1 && bytes[start + 1] != PIPE)) {
+            return
+        }
+        val type = bytes[start]
+        if (type == END) {
+            thread(tid).add(timestamp, end = true, name = null)
+            return
+        }
+        var index = start + 2
+        var pid = 0
+        while (index < limit && bytes[index] != PIPE) {
+            val digit = bytes[index] - ZERO
+            if (digit < 0 || digit > 9) {
+                return
+            }
+            pid = pid * 10 + digit
+            index++
+        }
+        // The name starts after the pipe following the pid.
+        val nameStart = index + 1
+        if (nameStart > limit) {
+            return
+        }
+        when (type) {
+            BEGIN -> {
+                val name = String(bytes, nameStart, limit - nameStart, Charsets.UTF_8)
+                val thread = thread(tid)
+                thread.pid = pid
+                thread.add(timestamp, end = false, name = name.takeIf(sliceFilter))
+            }
+            ASYNC_BEGIN, ASYNC_END -> {
+                var cookieStart = limit
+                while (cookieStart > nameStart && bytes[cookieStart - 1] != PIPE) {
+                    cookieStart--
+                }
+                if (cookieStart <= nameStart) {
+                    return
+                }
+                val name = String(bytes, nameStart, cookieStart - 1 - nameStart, Charsets.UTF_8)
+                if (!sliceFilter(name)) {
+                    return
+                }
+                val cookie = String(bytes, cookieStart, limit - cookieStart, Charsets.US_ASCII)
+                    .toLongOrNull() ?: return
+                val key = AsyncSliceKey(pid, name, cookie)
+                if (type == ASYNC_BEGIN) {
+                    val earlyEnd = earlyAsyncSliceEnds.remove(key)
+                    if (earlyEnd != null && earlyEnd >= timestamp) {
+                        val dur = earlyEnd - timestamp
+                        slices.add(TraceSlice(name, timestamp, dur, Kind.ProcessAsync, pid, 0))
+                    } else {
+                        openAsyncSlices[key] = timestamp
+                    }
+                } else {
+                    val begin = openAsyncSlices.remove(key)
+                    if (begin != null) {
+                        val dur = timestamp - begin
+                        slices.add(TraceSlice(name, begin, dur, Kind.ProcessAsync, pid, 0))
+                    } else {
+                        earlyAsyncSliceEnds[key] = timestamp
+                    }
+                }
+            }
+        }
+    }
+
+    private fun parseSchedSwitch(event: ProtoDecoder) {
+        var prevComm: String? = null
+        var prevPid = 0
+        var nextComm: String? = null
+        var nextPid = 0
+        while (event.next()) {
+            when (event.fieldNumber) {
+                SCHED_SWITCH_PREV_COMM -> prevComm = event.stringValue()
+                SCHED_SWITCH_PREV_PID -> prevPid = event.intValue
+                SCHED_SWITCH_NEXT_COMM -> nextComm = event.stringValue()
+                SCHED_SWITCH_NEXT_PID -> nextPid = event.intValue
+            }
+        }
+        // The pid 0 is the idle task of each CPU.
+        if (prevComm != null && prevPid != 0) {
+            threadNames[prevPid] = prevComm
+        }
+        if (nextComm != null && nextPid != 0) {
+            threadNames[nextPid] = nextComm
+        }
+    }
+
+    private fun parseCompactSched(compactSched: ProtoDecoder) {
+        internTable.clear()
+        switchNextPids.clear()
+        switchNextCommIndexes.clear()
+        wakingPids.clear()
+        wakingCommIndexes.clear()
+        while (compactSched.next()) {
+            when (compactSched.fieldNumber) {
+                COMPACT_SCHED_INTERN_TABLE -> internTable.add(compactSched.stringValue())
+                COMPACT_SCHED_SWITCH_NEXT_PID -> {
+                    compactSched.forEachVarint { switchNextPids.add(it.toInt()) }
+                }
+                COMPACT_SCHED_SWITCH_NEXT_COMM_INDEX -> {
+                    compactSched.forEachVarint { switchNextCommIndexes.add(it.toInt()) }
+                }
+                COMPACT_SCHED_WAKING_PID -> {
+                    compactSched.forEachVarint { wakingPids.add(it.toInt()) }
+                }
+                COMPACT_SCHED_WAKING_COMM_INDEX -> {
+                    compactSched.forEachVarint { wakingCommIndexes.add(it.toInt()) }
+                }
+            }
+        }
+        addCompactSchedNames(switchNextPids, switchNextCommIndexes)
+        addCompactSchedNames(wakingPids, wakingCommIndexes)
+    }
+
+    private fun addCompactSchedNames(pids: IntList, commIndexes: IntList) {
+        for (i in 0 until minOf(pids.size, commIndexes.size)) {
+            val pid = pids[i]
+            val commIndex = commIndexes[i]
+            if (pid != 0 && commIndex >= 0 && commIndex < internTable.size) {
+                threadNames[pid] = internTable[commIndex]
+            }
+        }
+    }
+
+    private fun parseProcessTree(processTree: ProtoDecoder) {
+        while (processTree.next()) {
+            when (processTree.fieldNumber) {
+                PROCESS_TREE_PROCESSES -> {
+                    val process = processTree.decodeMessage(eventDecoder)
+                    var pid = 0
+                    var cmdline: String? = null
+                    while (process.next()) {
+                        when (process.fieldNumber) {
+                            PROCESS_PID -> pid = process.intValue
+                            // The first argument of the command line is the process name.
+                            PROCESS_CMDLINE -> if (cmdline == null) cmdline = process.stringValue()
+                        }
+                    }
+                    if (!cmdline.isNullOrEmpty()) {
+                        processNames[pid] = cmdline
+                    }
+                }
+                PROCESS_TREE_THREADS -> {
+                    val thread = processTree.decodeMessage(eventDecoder)
+                    var tid = 0
+                    var name: String? = null
+                    while (thread.next()) {
+                        when (thread.fieldNumber) {
+                            THREAD_TID -> tid = thread.intValue
+                            THREAD_NAME -> name = thread.stringValue()
+                        }
+                    }
+                    if (!name.isNullOrEmpty()) {
+                        threadNames[tid] = name
+                    }
+                }
+            }
+        }
+    }
+
+    private fun parseClockSnapshot(clockSnapshot: ProtoDecoder) {
+        var monotonic: Long? = null
+        var boottime: Long? = null
+        while (clockSnapshot.next()) {
+            if (clockSnapshot.fieldNumber != CLOCK_SNAPSHOT_CLOCKS) {
+                continue
+            }
+            val clock = clockSnapshot.decodeMessage(eventDecoder)
+            var clockId = 0
+            var timestamp = 0L
+            while (clock.next()) {
+                when (clock.fieldNumber) {
+                    CLOCK_CLOCK_ID -> clockId = clock.intValue
+                    CLOCK_TIMESTAMP -> timestamp = clock.longValue
+                }
+            }
+            when (clockId) {
+                CLOCK_MONOTONIC -> monotonic = timestamp
+                CLOCK_BOOTTIME -> boottime = timestamp
+            }
+        }
+        if (monotonic != null && boottime != null) {
+            clockSnapshots.add(monotonic to boottime)
+        }
+    }
+
+    private fun parsePacketDefaults(packetDefaults: ProtoDecoder, sequence: SequenceState) {
+        while (packetDefaults.next()) {
+            when (packetDefaults.fieldNumber) {
+                TRACE_PACKET_DEFAULTS_TIMESTAMP_CLOCK_ID -> {
+                    sequence.defaultClockId = packetDefaults.intValue
+                }
+                TRACE_PACKET_DEFAULTS_TRACK_EVENT_DEFAULTS -> {
+                    val defaults = packetDefaults.decodeMessage(eventDecoder)
+                    while (defaults.next()) {
+                        if (defaults.fieldNumber == TRACK_EVENT_DEFAULTS_TRACK_UUID) {
+                            sequence.defaultTrackUuid = defaults.longValue
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private fun parseInternedData(internedData: ProtoDecoder, sequence: SequenceState) {
+        while (internedData.next()) {
+            if (internedData.fieldNumber != INTERNED_DATA_EVENT_NAMES) {
+                continue
+            }
+            val eventName = internedData.decodeMessage(eventDecoder)
+            var iid = 0L
+            var name: String? = null
+            while (eventName.next()) {
+                when (eventName.fieldNumber) {
+                    EVENT_NAME_IID -> iid = eventName.longValue
+                    EVENT_NAME_NAME -> name = eventName.stringValue()
+                }
+            }
+            if (name != null) {
+                sequence.eventNames[iid] = name
+            }
+        }
+    }
+
+    private fun parseTrackDescriptor(trackDescriptor: ProtoDecoder) {
+        var uuid = 0L
+        var pid = 0
+        var tid = 0
+        while (trackDescriptor.next()) {
+            when (trackDescriptor.fieldNumber) {
+                TRACK_DESCRIPTOR_UUID -> uuid = trackDescriptor.longValue
+                TRACK_DESCRIPTOR_PROCESS -> {
+                    val process = trackDescriptor.decodeMessage(eventDecoder)
+                    var name: String? = null
+                    while (process.next()) {
+                        when (process.fieldNumber) {
+                            PROCESS_DESCRIPTOR_PID -> pid = process.intValue
+                            PROCESS_DESCRIPTOR_PROCESS_NAME -> name = process.stringValue()
+                        }
+                    }
+                    if (!name.isNullOrEmpty() && pid !in processNames) {
+                        processNames[pid] = name
+                    }
+                }
+                TRACK_DESCRIPTOR_THREAD -> {
+                    val thread = trackDescriptor.decodeMessage(eventDecoder)
+                    var name: String? = null
+                    while (thread.next()) {
+                        when (thread.fieldNumber) {
+                            THREAD_DESCRIPTOR_PID -> pid = thread.intValue
+                            THREAD_DESCRIPTOR_TID -> tid = thread.intValue
+                            THREAD_DESCRIPTOR_THREAD_NAME -> name = thread.stringValue()
+                        }
+                    }
+                    if (!name.isNullOrEmpty() && tid !in threadNames) {
+                        threadNames[tid] = name
+                    }
+                }
+            }
+        }
+        if (uuid != 0L) {
+            tracks[uuid] = TrackInfo(pid, tid)
+        }
+    }
+
+    private fun parseTrackEvent(
+        trackEvent: ProtoDecoder,
+        timestamp: Long,
+        clockId: Int,
+        sequenceId: Int,
+        sequence: SequenceState
+    ) {
+        var type = 0
+        var trackUuid = sequence.defaultTrackUuid
+        var name: String? = null
+        var nameIid = 0L
+        while (trackEvent.next()) {
+            when (trackEvent.fieldNumber) {
+                TRACK_EVENT_TYPE -> type = trackEvent.intValue
+                TRACK_EVENT_TRACK_UUID -> trackUuid = trackEvent.longValue
+                TRACK_EVENT_NAME -> name = trackEvent.stringValue()
+                TRACK_EVENT_NAME_IID -> nameIid = trackEvent.longValue
+            }
+        }
+        if (name == null && nameIid != 0L) {
+            name = sequence.eventNames[nameIid]
+        }
+        // Events without a track are on the default track of their sequence.
+        val key = TrackKey(trackUuid, if (trackUuid == 0L) sequenceId else 0)
+        when (type) {
+            TYPE_SLICE_BEGIN -> {
+                openTrackSlices.getOrPut(key) { ArrayList() }
+                    .add(OpenSlice(name?.takeIf(sliceFilter), timestamp, clockId))
+            }
+            TYPE_SLICE_END -> {
+                val openSlices = openTrackSlices[key]
+                if (openSlices != null && openSlices.isNotEmpty()) {
+                    val openSlice = openSlices.removeAt(openSlices.size - 1)
+                    if (openSlice.name != null) {
+                        addTrackSlice(
+                            trackUuid,
+                            openSlice.name,
+                            openSlice.timestamp,
+                            timestamp - openSlice.timestamp,
+                            openSlice.clockId
+                        )
+                    }
+                }
+            }
+            TYPE_INSTANT -> {
+                if (name != null && sliceFilter(name)) {
+                    addTrackSlice(trackUuid, name, timestamp, 0, clockId)
+                }
+            }
+        }
+    }
+
+    private fun addTrackSlice(trackUuid: Long, name: String, ts: Long, dur: Long, clockId: Int) {
+        val track = tracks[trackUuid]
+        val slice = when {
+            track == null -> TraceSlice(name, ts, dur, Kind.Track, 0, 0)
+            track.tid != 0 -> TraceSlice(name, ts, dur, Kind.Thread, track.pid, track.tid)
+            track.pid != 0 -> TraceSlice(name, ts, dur, Kind.ProcessAsync, track.pid, 0)
+            else -> TraceSlice(name, ts, dur, Kind.Track, 0, 0)
+        }
+        addSlice(slice, clockId)
+    }
+
+    private fun parseFrameTimelineEvent(event: ProtoDecoder, timestamp: Long, clockId: Int) {
+        while (event.next()) {
+            val fieldNumber = event.fieldNumber
+            val kind = when (fieldNumber) {
+                FRAME_TIMELINE_EXPECTED_DISPLAY_FRAME_START,
+                FRAME_TIMELINE_EXPECTED_SURFACE_FRAME_START -> Kind.ExpectedFrame
+                FRAME_TIMELINE_ACTUAL_DISPLAY_FRAME_START,
+                FRAME_TIMELINE_ACTUAL_SURFACE_FRAME_START -> Kind.ActualFrame
+                else -> null
+            }
+            if (kind == null && fieldNumber != FRAME_TIMELINE_FRAME_END) {
+                continue
+            }
+            // The pid follows the display frame token in surface frames.
+            val pidFieldNumber = if (
+                fieldNumber == FRAME_TIMELINE_EXPECTED_SURFACE_FRAME_START ||
+                fieldNumber == FRAME_TIMELINE_ACTUAL_SURFACE_FRAME_START
+            ) {
+                SURFACE_FRAME_START_PID
+            } else {
+                DISPLAY_FRAME_START_PID
+            }
+            val frame = event.decodeMessage(payloadDecoder)
+            var cookie = 0L
+            var token = 0L
+            var pid = 0
+            while (frame.next()) {
+                when (frame.fieldNumber) {
+                    FRAME_COOKIE -> cookie = frame.longValue
+                    FRAME_TOKEN -> token = frame.longValue
+                    pidFieldNumber -> pid = frame.intValue
+                }
+            }
+            if (kind != null) {
+                openFrames[cookie] = OpenFrame(token.toString(), timestamp, kind, pid)
+            } else {
+                openFrames.remove(cookie)?.let {
+                    val dur = timestamp - it.timestamp
+                    addSlice(TraceSlice(it.name, it.timestamp, dur, it.kind, it.pid, 0), clockId)
+                }
+            }
+        }
+    }
+
+    private fun parseCompressedPackets(bytes: ByteArray, range: IntRange) {
+        val inflater = Inflater()
+        val output = ByteArrayOutputStream(range.last + 1 - range.first)
+        try {
+            inflater.setInput(bytes, range.first, range.last + 1 - range.first)
+            val buffer = ByteArray(16 * 1024)
+            while (!inflater.finished()) {
+                val count = inflater.inflate(buffer)
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break
+                }
+                output.write(buffer, 0, count)
+            }
+        } finally {
+            inflater.end()
+        }
+        val packets = output.toByteArray()
+        // Nested in the packet being parsed, so with decoders of its own.
+        val decoder = ProtoDecoder().reset(packets, 0, packets.size)
+        val packetDecoder = ProtoDecoder()
+        while (decoder.next()) {
+            if (decoder.fieldNumber == TRACE_PACKET) {
+                parsePacket(decoder.decodeMessage(packetDecoder))
+            }
+        }
+    }
+
+    private fun addSlice(slice: TraceSlice, clockId: Int) {
+        if (clockId == CLOCK_MONOTONIC) {
+            monotonicSlices.add(slice)
+        } else {
+            slices.add(slice)
+        }
+    }
+
+    private fun thread(tid: Int): ThreadSlices = threads.getOrPut(tid) { ThreadSlices(tid) }
+
+    private fun processThreadEvents(untilTimestamp: Long) {
+        for (thread in threads.values) {
+            pendingThreadEvents -= thread.process(untilTimestamp)
+        }
+    }
+
+    private fun finish(): ParsedTrace {
+        processThreadEvents(Long.MAX_VALUE)
+        for (thread in threads.values) {
+            thread.finishOpenSlices()
+        }
+        for ((key, begin) in openAsyncSlices) {
+            slices.add(TraceSlice(key.name, begin, -1, Kind.ProcessAsync, key.pid, 0))
+        }
+        for ((key, openSlices) in openTrackSlices) {
+            for (openSlice in openSlices) {
+                if (openSlice.name != null) {
+                    val timestamp = openSlice.timestamp
+                    addTrackSlice(key.uuid, openSlice.name, timestamp, -1, openSlice.clockId)
+                }
+            }
+        }
+        clockSnapshots.sortBy { it.first }
+        for (slice in monotonicSlices) {
+            slices.add(slice.copy(ts = slice.ts + boottimeOffsetAt(slice.ts)))
+        }
+        slices.sortBy { it.ts }
+        return ParsedTrace(slices, processNames, threadNames)
+    }
+
+    /**
+     * Returns the offset of CLOCK_BOOTTIME from CLOCK_MONOTONIC at the given CLOCK_MONOTONIC
+     * timestamp, which grows while the device is suspended.
+     */
+    private fun boottimeOffsetAt(monotonicTimestamp: Long): Long {
+        if (clockSnapshots.isEmpty()) {
+            return 0
+        }
+        val index = clockSnapshots.binarySearch { it.first.compareTo(monotonicTimestamp) }
+        val snapshot = clockSnapshots[if (index >= 0) index else maxOf(0, -index - 2)]
+        return snapshot.second - snapshot.first
+    }
+
+    /**
+     * Atrace events of a thread, sorted before the begins and ends are matched into slices.
+     */
+    private inner class ThreadSlices(val tid: Int) {
+        var pid = 0
+
+        // Events not processed yet, sorted by timestamp. Names are null for ends, and for
+        // begins of slices that aren't kept.
+        private var timestamps = LongArray(16)
+        private var ends = BooleanArray(16)
+        private var names = arrayOfNulls<String>(16)
+        private var size = 0
+        // Older events are out of the sorting window, and dropped.
+        private var processedTimestamp = Long.MIN_VALUE
+
+        // Slices that began and haven't ended yet.
+        private var openTimestamps = LongArray(16)
+        private var openNames = arrayOfNulls<String>(16)
+        private var depth = 0
+
+        fun add(timestamp: Long, end: Boolean, name: String?) {
+            if (timestamp < processedTimestamp) {
+                return
+            }
+            pendingThreadEvents++
+            if (size == timestamps.size) {
+                timestamps = timestamps.copyOf(size * 2)
+                ends = ends.copyOf(size * 2)
+                names = names.copyOf(size * 2)
+            }
+            // Insertion sort, as events are sorted except when the thread moved between CPUs.
+            var index = size
+            while (index > 0 && timestamps[index - 1] > timestamp) {
+                timestamps[index] = timestamps[index - 1]
+                ends[index] = ends[index - 1]
+                names[index] = names[index - 1]
+                index--
+            }
+            timestamps[index] = timestamp
+            ends[index] = end
+            names[index] = name
+            size++
+        }
+
+        /**
+         * Matches the events up to the given timestamp, and returns how many were processed.
+         */
+        fun process(untilTimestamp: Long): Int {
+            var count = 0
+            while (count < size && timestamps[count] <= untilTimestamp) {
+                val timestamp = timestamps[count]
+                if (ends[count]) {
+                    if (depth > 0) {
+                        depth--
+                        val name = openNames[depth]
+                        if (name != null) {
+                            val begin = openTimestamps[depth]
+                            val dur = timestamp - begin
+                            slices.add(TraceSlice(name, begin, dur, Kind.Thread, pid, tid))
+                            openNames[depth] = null
+                        }
+                    }
+                } else {
+                    if (depth == openTimestamps.size) {
+                        openTimestamps = openTimestamps.copyOf(depth * 2)
+                        openNames = openNames.copyOf(depth * 2)
+                    }
+                    openTimestamps[depth] = timestamp
+                    openNames[depth] = names[count]
+                    depth++
+                }
+                count++
+            }
+            if (count > 0) {
+                processedTimestamp = timestamps[count - 1]
+                timestamps.copyInto(timestamps, 0, count, size)
+                ends.copyInto(ends, 0, count, size)
+                names.copyInto(names, 0, count, size)
+                names.fill(null, size - count, size)
+                size -= count
+            }
+            return count
+        }
+
+        fun finishOpenSlices() {
+            for (i in 0 until depth) {
+                val name = openNames[i] ?: continue
+                slices.add(TraceSlice(name, openTimestamps[i], -1, Kind.Thread, pid, tid))
+            }
+            depth = 0
+        }
+    }
+
+    private data class AsyncSliceKey(val pid: Int, val name: String, val cookie: Long)
+
+    private data class TrackKey(val uuid: Long, val sequenceId: Int)
+
+    private class TrackInfo(val pid: Int, val tid: Int)
+
+    private class OpenSlice(val name: String?, val timestamp: Long, val clockId: Int)
+
+    private class OpenFrame(val name: String, val timestamp: Long, val kind: Kind, val pid: Int)
+
+    /**
+     * Incremental state of a packet sequence, reset when the sequence clears it.
+     */
+    private class SequenceState {
+        val eventNames = HashMap<Long, String>()
+        var defaultTrackUuid = 0L
+        var defaultClockId = CLOCK_BOOTTIME
+    }
+
+    private class IntList {
+        private var values = IntArray(64)
+        var size = 0
+            private set
+
+        fun add(value: Int) {
+            if (size == values.size) {
+                values = values.copyOf(size * 2)
+            }
+            values[size++] = value
+        }
+
+        operator fun get(index: Int): Int = values[index]
+
+        fun clear() {
+            size = 0
+        }
+    }
+
+    companion object {
+        /**
+         * Window in which ftrace events are sorted before being matched.
+         */
+        const val SORTING_WINDOW_NS = 5_000_000_000L
+
+        // Number of unmatched ftrace events after which the ones out of the window are matched.
+        private const val MAX_PENDING_THREAD_EVENTS = 64 * 1024
+
+        // Field numbers of perfetto_trace.proto.
+        private const val TRACE_PACKET = 1
+        private const val TRACE_PACKET_FTRACE_EVENTS = 1
+        private const val TRACE_PACKET_PROCESS_TREE = 2
+        private const val TRACE_PACKET_CLOCK_SNAPSHOT = 6
+        private const val TRACE_PACKET_TIMESTAMP = 8
+        private const val TRACE_PACKET_TRUSTED_PACKET_SEQUENCE_ID = 10
+        private const val TRACE_PACKET_TRACK_EVENT = 11
+        private const val TRACE_PACKET_INTERNED_DATA = 12
+        private const val TRACE_PACKET_SEQUENCE_FLAGS = 13
+        private const val TRACE_PACKET_INCREMENTAL_STATE_CLEARED = 41
+        private const val TRACE_PACKET_COMPRESSED_PACKETS = 50
+        private const val TRACE_PACKET_TIMESTAMP_CLOCK_ID = 58
+        private const val TRACE_PACKET_TRACE_PACKET_DEFAULTS = 59
+        private const val TRACE_PACKET_TRACK_DESCRIPTOR = 60
+        private const val TRACE_PACKET_FRAME_TIMELINE_EVENT = 76
+        private const val SEQ_INCREMENTAL_STATE_CLEARED = 1L
+
+        private const val FTRACE_EVENT_BUNDLE_EVENT = 2
+        private const val FTRACE_EVENT_BUNDLE_COMPACT_SCHED = 4
+        private const val FTRACE_EVENT_TIMESTAMP = 1
+        private const val FTRACE_EVENT_PID = 2
+        private const val FTRACE_EVENT_PRINT = 3
+        private const val FTRACE_EVENT_SCHED_SWITCH = 4
+        private const val PRINT_FTRACE_EVENT_BUF = 2
+        private const val SCHED_SWITCH_PREV_COMM = 1
+        private const val SCHED_SWITCH_PREV_PID = 2
+        private const val SCHED_SWITCH_NEXT_COMM = 5
+        private const val SCHED_SWITCH_NEXT_PID = 6
+        private const val COMPACT_SCHED_SWITCH_NEXT_PID = 3
+        private const val COMPACT_SCHED_INTERN_TABLE = 5
+        private const val COMPACT_SCHED_SWITCH_NEXT_COMM_INDEX = 6
+        private const val COMPACT_SCHED_WAKING_PID = 8
+        private const val COMPACT_SCHED_WAKING_COMM_INDEX = 11
+
+        private const val PROCESS_TREE_PROCESSES = 1
+        private const val PROCESS_TREE_THREADS = 2
+        private const val PROCESS_PID = 1
+        private const val PROCESS_CMDLINE = 3
+        private const val THREAD_TID = 1
+        private const val THREAD_NAME = 2
+
+        private const val CLOCK_SNAPSHOT_CLOCKS = 1
+        private const val CLOCK_CLOCK_ID = 1
+        private const val CLOCK_TIMESTAMP = 2
+        private const val CLOCK_MONOTONIC = 3
+        private const val CLOCK_BOOTTIME = 6
+
+        private const val TRACE_PACKET_DEFAULTS_TRACK_EVENT_DEFAULTS = 11
+        private const val TRACE_PACKET_DEFAULTS_TIMESTAMP_CLOCK_ID = 58
+        private const val TRACK_EVENT_DEFAULTS_TRACK_UUID = 11
+        private const val INTERNED_DATA_EVENT_NAMES = 2
+        private const val EVENT_NAME_IID = 1
+        private const val EVENT_NAME_NAME = 2
+
+        private const val TRACK_DESCRIPTOR_UUID = 1
+        private const val TRACK_DESCRIPTOR_PROCESS = 3
+        private const val TRACK_DESCRIPTOR_THREAD = 4
+        private const val PROCESS_DESCRIPTOR_PID = 1
+        private const val PROCESS_DESCRIPTOR_PROCESS_NAME = 6
+        private const val THREAD_DESCRIPTOR_PID = 1
+        private const val THREAD_DESCRIPTOR_TID = 2
+        private const val THREAD_DESCRIPTOR_THREAD_NAME = 5
+
+        private const val TRACK_EVENT_TYPE = 9
+        private const val TRACK_EVENT_NAME_IID = 10
+        private const val TRACK_EVENT_TRACK_UUID = 11
+        private const val TRACK_EVENT_NAME = 23
+        private const val TYPE_SLICE_BEGIN = 1
+        private const val TYPE_SLICE_END = 2
+        private const val TYPE_INSTANT = 3
+
+        private const val FRAME_TIMELINE_EXPECTED_DISPLAY_FRAME_START = 1
+        private const val FRAME_TIMELINE_ACTUAL_DISPLAY_FRAME_START = 2
+        private const val FRAME_TIMELINE_EXPECTED_SURFACE_FRAME_START = 3
+        private const val FRAME_TIMELINE_ACTUAL_SURFACE_FRAME_START = 4
+        private const val FRAME_TIMELINE_FRAME_END = 5
+        private const val FRAME_COOKIE = 1
+        private const val FRAME_TOKEN = 2
+        private const val DISPLAY_FRAME_START_PID = 3
+        private const val SURFACE_FRAME_START_PID = 4
+
+        // Characters of atrace events.
+        private const val BEGIN: Byte = 0x42 // 'B'
+        private const val END: Byte = 0x45 // 'E'
+        private const val ASYNC_BEGIN: Byte = 0x53 // 'S'
+        private const val ASYNC_END: Byte = 0x46 // 'F'
+        private const val PIPE: Byte = 0x7C // '|'
+        private const val ZERO: Byte = 0x30 // '0'
+        private const val NEWLINE: Byte = 0x0A // '\n'
+        private const val NUL: Byte = 0
+
+        /**
+         * Parses the trace at the given path, keeping the slices whose name matches
+         * [sliceFilter].
+         */
+        fun parse(
+            absoluteTracePath: String,
+            includeFrameTimeline: Boolean = false,
+            sliceFilter: (String) -> Boolean
+        ): ParsedTrace {
+            return userspaceTrace("PerfettoTraceParser") {
+                File(absoluteTracePath).inputStream().buffered(BUFFER_SIZE).use {
+                    PerfettoTraceParser(includeFrameTimeline, sliceFilter).parse(it)
+                }
+            }
+        }
+
+        /**
+         * Query a trace for a list of slices - name, timestamp, and duration, sorted by
+         * timestamp.
+         *
+         * Note that sliceNames may include wildcard matches, such as `foo%`, like with
+         * [PerfettoTraceProcessor.querySlices].
+         */
+        fun querySlices(absoluteTracePath: String, vararg sliceNames: String): List<Slice> {
+            val patterns = sliceNames.map { LikePattern(it) }
+            return parse(absoluteTracePath) { name -> patterns.any { it.matches(name) } }
+                .slices
+                .map { it.toSlice() }
+        }
+
+        private const val BUFFER_SIZE = 256 * 1024
+
+        /**
+         * Reads a varint, or returns -1 at the end of the stream.
+         */
+        private fun readRawVarint(input: InputStream): Long {
+            var result = 0L
+            var shift = 0
+            while (true) {
+                val byte = input.read()
+                if (byte < 0) {
+                    return -1
+                }
+                result = result or ((byte and 0x7F).toLong() shl shift)
+                if ((byte and 0x80) == 0) {
+                    return result
+                }
+                shift += 7
+                check(shift < 64) { "Malformed varint" }
+            }
+        }
+
+        private fun readFully(input: InputStream, buffer: ByteArray, size: Int): Boolean {
+            var offset = 0
+            while (offset < size) {
+                val count = input.read(buffer, offset, size - offset)
+                if (count < 0) {
+                    return false
+                }
+                offset += count
+            }
+            return true
+        }
+
+        private fun ProtoDecoder.valueRange(): IntRange = valueStart until valueEnd
+
+        private fun ProtoDecoder.reset(bytes: ByteArray, range: IntRange): ProtoDecoder {
+            return reset(bytes, range.first, range.last + 1)
+        }
+    }
+}
@@ -74,6 +74,8 @@ internal object PerfettoTraceProcessor {
      * Query a trace for a list of slices - name, timestamp, and duration.
      *
      * Note that sliceNames may include wildcard matches, such as `foo%`
+     *
+     * Metrics use [PerfettoTraceParser.querySlices] instead, which doesn't start a process.
      */
     fun querySlices(
         absoluteTracePath: String,
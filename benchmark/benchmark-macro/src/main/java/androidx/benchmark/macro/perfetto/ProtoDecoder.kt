@@ -0,0 +1,155 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.benchmark.macro.perfetto
+
+/**
+ * Reads the fields of a protobuf message encoded in a byte array, one at a time and without
+ * allocating, for parsing large traces.
+ *
+ * After [next] returns true, the current field is described by [fieldNumber] and [wireType], and
+ * its value is in [longValue] for numeric fields, or between [valueStart] and [valueEnd] in
+ * [bytes] for length delimited ones.
+ */
+internal class ProtoDecoder {
+    var bytes: ByteArray = EMPTY_BYTES
+        private set
+    private var position = 0
+    private var end = 0
+
+    var fieldNumber = 0
+        private set
+    var wireType = 0
+        private set
+    var longValue = 0L
+        private set
+    var valueStart = 0
+        private set
+    var valueEnd = 0
+        private set
+
+    // End of the last varint read by readVarintAt.
+    internal var varintEnd = 0
+
+    val intValue: Int
+        get() = longValue.toInt()
+
+    val booleanValue: Boolean
+        get() = longValue != 0L
+
+    fun reset(bytes: ByteArray, start: Int, end: Int): ProtoDecoder {
+        this.bytes = bytes
+        position = start
+        this.end = end
+        return this
+    }
+
+    /**
+     * Decodes the message in the value of the current field with [decoder].
+     */
+    fun decodeMessage(decoder: ProtoDecoder): ProtoDecoder {
+        return decoder.reset(bytes, valueStart, valueEnd)
+    }
+
+    fun next(): Boolean {
+        if (position >= end) {
+            return false
+        }
+        val tag = readVarintAt(position)
+        position = varintEnd
+        fieldNumber = (tag ushr 3).toInt()
+        wireType = (tag and 0x7).toInt()
+        when (wireType) {
+            WIRE_TYPE_VARINT -> {
+                longValue = readVarintAt(position)
+                position = varintEnd
+            }
+            WIRE_TYPE_FIXED64 -> {
+                longValue = readFixed(8)
+            }
+            WIRE_TYPE_LENGTH_DELIMITED -> {
+                val length = readVarintAt(position)
+                position = varintEnd
+                check(length >= 0 && length <= end - position) {
+                    "Truncated field $fieldNumber"
+                }
+                valueStart = position
+                position += length.toInt()
+                valueEnd = position
+            }
+            WIRE_TYPE_FIXED32 -> {
+                longValue = readFixed(4)
+            }
+            else -> throw IllegalStateException("Unsupported wire type $wireType")
+        }
+        return true
+    }
+
+    fun stringValue(): String {
+        return String(bytes, valueStart, valueEnd - valueStart, Charsets.UTF_8)
+    }
+
+    /**
+     * Calls [action] with the values of a repeated varint field, packed or not.
+     */
+    inline fun forEachVarint(action: (Long) -> Unit) {
+        if (wireType != WIRE_TYPE_LENGTH_DELIMITED) {
+            action(longValue)
+            return
+        }
+        var offset = valueStart
+        while (offset < valueEnd) {
+            action(readVarintAt(offset))
+            offset = varintEnd
+        }
+    }
+
+    internal fun readVarintAt(offset: Int): Long {
+        var result = 0L
+        var shift = 0
+        var index = offset
+        while (true) {
+            check(index < end) { "Truncated varint" }
+            val byte = bytes[index++].toInt()
+            result = result or ((byte and 0x7F).toLong() shl shift)
+            if ((byte and 0x80) == 0) {
+                varintEnd = index
+                return result
+            }
+            shift += 7
+            check(shift < 64) { "Malformed varint" }
+        }
+    }
+
+    private fun readFixed(size: Int): Long {
+        check(size <= end - position) { "Truncated field $fieldNumber" }
+        var result = 0L
+        for (i in 0 until size) {
+            result = result or ((bytes[position + i].toLong() and 0xFF) shl (8 * i))
+        }
+        position += size
+        return result
+    }
+
+    companion object {
+        const val WIRE_TYPE_VARINT = 0
+        const val WIRE_TYPE_FIXED64 = 1
+        const val WIRE_TYPE_LENGTH_DELIMITED = 2
+        const val WIRE_TYPE_FIXED32 = 5
+
+        private val EMPTY_BYTES = ByteArray(0)
+    }
+}
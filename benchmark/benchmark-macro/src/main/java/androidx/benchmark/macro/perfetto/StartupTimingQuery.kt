@@ -17,51 +17,76 @@
 package androidx.benchmark.macro.perfetto
 
 import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.perfetto.TraceSlice.Kind
 
 internal object StartupTimingQuery {
 
-    private fun getFullQuery(testProcessName: String, targetProcessName: String) = """
-        ------ Select all startup-relevant slices from slice table
-        SELECT
-            slice.name as name,
-            slice.ts as ts,
-            slice.dur as dur
-        FROM slice
-            INNER JOIN thread_track on slice.track_id = thread_track.id
-            INNER JOIN thread USING(utid)
-            INNER JOIN process USING(upid)
-        WHERE (
-            (process.name LIKE "$testProcessName" AND slice.name LIKE "startActivityAndWait") OR
-            (
-                process.name LIKE "$targetProcessName" AND (
-                    (slice.name LIKE "activityResume" AND process.pid LIKE thread.tid) OR
-                    (slice.name LIKE "Choreographer#doFrame%" AND process.pid LIKE thread.tid) OR
-                    (slice.name LIKE "reportFullyDrawn() for %" AND process.pid LIKE thread.tid) OR
-                    (slice.name LIKE "DrawFrame%" AND thread.name LIKE "RenderThread")
-                )
-            ) OR
-            (
-                -- Signals beginning of launch event, only present in API 29+
-                process.name LIKE "system_server" AND
-                slice.name LIKE "MetricsLogger:launchObserverNotifyIntentStarted"
-            )
-        )
-        ------ Add in async slices
-        UNION
-        SELECT
-            slice.name as name,
-            slice.ts as ts,
-            slice.dur as dur
-        FROM slice
-            INNER JOIN process_track on slice.track_id = process_track.id
-            INNER JOIN process USING(upid)
-        WHERE (
-            -- API 23+:   "launching: <target>"
-            -- API 19-22: "launching"
-            slice.name LIKE "launching%" AND process.name LIKE "system_server"
-        )
-        ORDER BY ts ASC
-    """.trimIndent()
+    private val START_ACTIVITY_AND_WAIT = LikePattern("startActivityAndWait")
+    private val ACTIVITY_RESUME = LikePattern("activityResume")
+    private val DO_FRAME = LikePattern("Choreographer#doFrame%")
+    private val REPORT_FULLY_DRAWN = LikePattern("reportFullyDrawn() for %")
+    private val DRAW_FRAME = LikePattern("DrawFrame%")
+    private val RENDER_THREAD = LikePattern("RenderThread")
+    // Signals beginning of launch event, only present in API 29+
+    private val NOTIFY_STARTED = LikePattern("MetricsLogger:launchObserverNotifyIntentStarted")
+    // API 23+:   "launching: <target>"
+    // API 19-22: "launching"
+    private val LAUNCHING = LikePattern("launching%")
+    private val SYSTEM_SERVER = LikePattern("system_server")
+
+    // Slices of the main thread of the target process.
+    private val MAIN_THREAD_NAMES = listOf(ACTIVITY_RESUME, DO_FRAME, REPORT_FULLY_DRAWN)
+
+    private val SLICE_NAMES = listOf(
+        START_ACTIVITY_AND_WAIT,
+        ACTIVITY_RESUME,
+        DO_FRAME,
+        REPORT_FULLY_DRAWN,
+        DRAW_FRAME,
+        NOTIFY_STARTED,
+        LAUNCHING
+    )
+
+    /**
+     * Selects the startup-relevant slices of the test process, the target process and
+     * system_server, sorted by timestamp.
+     */
+    private fun queryStartupSlices(
+        absoluteTracePath: String,
+        testProcessName: String,
+        targetProcessName: String
+    ): List<Slice> {
+        val testProcess = LikePattern(testProcessName)
+        val targetProcess = LikePattern(targetProcessName)
+        val trace = PerfettoTraceParser.parse(absoluteTracePath) { name ->
+            SLICE_NAMES.any { it.matches(name) }
+        }
+        return trace.slices.filter { slice ->
+            val processName = trace.processName(slice.pid)
+            val name = slice.name
+            when (slice.kind) {
+                Kind.Thread -> {
+                    val testProcessSlice = testProcess.matches(processName) &&
+                        START_ACTIVITY_AND_WAIT.matches(name)
+                    val targetProcessSlice = targetProcess.matches(processName) && (
+                        (slice.isMainThread && MAIN_THREAD_NAMES.any { it.matches(name) }) ||
+                            (
+                                DRAW_FRAME.matches(name) &&
+                                    RENDER_THREAD.matches(trace.threadName(slice.tid))
+                                )
+                        )
+                    val systemServerSlice = SYSTEM_SERVER.matches(processName) &&
+                        NOTIFY_STARTED.matches(name)
+                    testProcessSlice || targetProcessSlice || systemServerSlice
+                }
+                // Async slices
+                Kind.ProcessAsync -> {
+                    LAUNCHING.matches(name) && SYSTEM_SERVER.matches(processName)
+                }
+                else -> false
+            }
+        }.map { it.toSlice() }
+    }
 
     enum class StartupSliceType {
         StartActivityAndWait,
@@ -111,14 +136,11 @@ internal object StartupTimingQuery {
         testPackageName: String,
         startupMode: StartupMode
     ): SubMetrics? {
-        val queryResult = PerfettoTraceProcessor.rawQuery(
+        val slices = queryStartupSlices(
             absoluteTracePath = absoluteTracePath,
-            query = getFullQuery(
-                testProcessName = testPackageName,
-                targetProcessName = targetPackageName
-            )
+            testProcessName = testPackageName,
+            targetProcessName = targetPackageName
         )
-        val slices = Slice.parseListFromQueryResult(queryResult)
 
         val groupedData = slices
             .filter { it.dur > 0 } // drop non-terminated slices
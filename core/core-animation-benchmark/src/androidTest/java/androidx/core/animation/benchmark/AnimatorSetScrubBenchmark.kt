@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.core.animation.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.core.animation.AnimatorSet
+import androidx.core.animation.FloatProperty
+import androidx.core.animation.LinearInterpolator
+import androidx.core.animation.ObjectAnimator
+import androidx.test.filters.LargeTest
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Measures scrubbing an [AnimatorSet] of staggered animators, like one driven by a scroll
+ * position, by the number of animators in the set.
+ */
+@RunWith(Parameterized::class)
+@LargeTest
+class AnimatorSetScrubBenchmark(private val childCount: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @Test
+    fun scrubForward() {
+        val set = createStaggeredSet()
+        val duration = set.totalDuration
+        var playTime = 0L
+        benchmarkRule.measureRepeated {
+            playTime = (playTime + FRAME_TIME) % duration
+            set.currentPlayTime = playTime
+        }
+    }
+
+    @Test
+    fun scrubBackAndForth() {
+        val set = createStaggeredSet()
+        val duration = set.totalDuration
+        var frame = 0L
+        benchmarkRule.measureRepeated {
+            frame++
+            // Moves back and forth by a few frames, like a finger on a list.
+            val playTime = (frame * FRAME_TIME + (frame % 8 - 4) * 3 * FRAME_TIME) % duration
+            set.currentPlayTime = playTime.coerceAtLeast(0)
+        }
+    }
+
+    private fun createStaggeredSet(): AnimatorSet {
+        val target = Target()
+        val set = AnimatorSet()
+        set.playTogether(
+            List(childCount) { index ->
+                ObjectAnimator.ofFloat(target, Target.VALUE, 0f, 100f).apply {
+                    setDuration(CHILD_DURATION)
+                    startDelay = index * STAGGER
+                }
+            }
+        )
+        set.interpolator = LinearInterpolator()
+        return set
+    }
+
+    class Target {
+        var value = 0f
+
+        companion object {
+            val VALUE = object : FloatProperty<Target>("value") {
+                override fun setValue(target: Target, value: Float) {
+                    target.value = value
+                }
+
+                override fun get(target: Target): Float = target.value
+            }
+        }
+    }
+
+    companion object {
+        const val CHILD_DURATION = 300L
+        const val STAGGER = 10L
+        const val FRAME_TIME = 16L
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "childCount={0}")
+        fun parameters() = listOf(10, 100, 500)
+    }
+}
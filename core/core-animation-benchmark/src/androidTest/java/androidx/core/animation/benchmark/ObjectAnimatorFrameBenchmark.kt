@@ -0,0 +1,102 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.core.animation.benchmark
+
+import android.content.Context
+import android.view.View
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.core.animation.FloatProperty
+import androidx.core.animation.ObjectAnimator
+import androidx.core.animation.PropertyValuesHolder
+import androidx.test.annotation.UiThreadTest
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measures the cost of a frame of [ANIMATOR_COUNT] concurrent animators that set their values
+ * through a property name.
+ */
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class ObjectAnimatorFrameBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @UiThreadTest
+    @Test
+    fun viewProperty() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        measureFrames(List(ANIMATOR_COUNT) { View(context) }, "translationX")
+    }
+
+    @UiThreadTest
+    @Test
+    fun reflectiveSetter() {
+        measureFrames(List(ANIMATOR_COUNT) { Target() }, "value")
+    }
+
+    @UiThreadTest
+    @Test
+    fun registeredProperty() {
+        PropertyValuesHolder.registerProperty(
+            RegisteredTarget::class.java,
+            object : FloatProperty<RegisteredTarget>("value") {
+                override fun setValue(target: RegisteredTarget, value: Float) {
+                    target.value = value
+                }
+
+                override fun get(target: RegisteredTarget): Float = target.value
+            }
+        )
+        measureFrames(List(ANIMATOR_COUNT) { RegisteredTarget() }, "value")
+    }
+
+    private fun measureFrames(targets: List<Any>, propertyName: String) {
+        val animators = targets.map { target ->
+            ObjectAnimator.ofPropertyValuesHolder(
+                target,
+                PropertyValuesHolder.ofFloat(propertyName, 0f, 100f)
+            ).setDuration(DURATION)
+        }
+        var frame = 0L
+        benchmarkRule.measureRepeated {
+            frame = (frame + FRAME_TIME) % DURATION
+            for (animator in animators) {
+                animator.currentPlayTime = frame
+            }
+        }
+    }
+
+    open class Target {
+        var value = 0f
+    }
+
+    class RegisteredTarget : Target()
+
+    private companion object {
+        const val ANIMATOR_COUNT = 100
+        const val DURATION = 1000L
+        const val FRAME_TIME = 16L
+
+    }
+}
@@ -864,6 +864,145 @@ public class AnimatorSetTest {
         assertEquals(500f, target.mValue, delta);
     }
 
+    @UiThreadTest
+    @Test
+    public void testSeekRepeatedly() {
+        final long[] playTimes = {350, 120, 120, 579, 10, 560, 450, 0, 580, 249, 250, 251};
+        final AnimatorSet scrubbedSet = createStaggeredSet();
+        for (long playTime : playTimes) {
+            scrubbedSet.setCurrentPlayTime(playTime);
+
+            // A new set seeked once to the same play time.
+            final AnimatorSet set = createStaggeredSet();
+            set.setCurrentPlayTime(playTime);
+
+            final List<Animator> expected = set.getChildAnimations();
+            final List<Animator> actual = scrubbedSet.getChildAnimations();
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals("Animator " + i + " at " + playTime,
+                        (float) ((ValueAnimator) expected.get(i)).getAnimatedValue(),
+                        (float) ((ValueAnimator) actual.get(i)).getAnimatedValue(), EPSILON);
+            }
+        }
+    }
+
+    @UiThreadTest
+    @Test
+    public void testSeekRepeatedlySingleProperty() {
+        final long[] playTimes = {50, 150, 350, 450, 250, 50, 550, 150, 0, 300, 199, 200, 500};
+        final SampleTarget scrubbedTarget = new SampleTarget();
+        final AnimatorSet scrubbedSet = createGappedSet(scrubbedTarget);
+        for (long playTime : playTimes) {
+            scrubbedSet.setCurrentPlayTime(playTime);
+
+            // A new set seeked once to the same play time.
+            final SampleTarget target = new SampleTarget();
+            createGappedSet(target).setCurrentPlayTime(playTime);
+
+            assertEquals("Value at " + playTime, target.mValue, scrubbedTarget.mValue, EPSILON);
+        }
+    }
+
+    @UiThreadTest
+    @Test
+    public void testSeekRepeatedlyMultipleTargets() {
+        final long[] playTimes = {50, 150, 350, 450, 250, 50, 550, 150, 0, 300, 199, 200, 500};
+        final SampleTarget[] scrubbedTargets = {new SampleTarget(), new SampleTarget()};
+        final AnimatorSet scrubbedSet = createInterleavedSet(scrubbedTargets);
+        for (long playTime : playTimes) {
+            scrubbedSet.setCurrentPlayTime(playTime);
+
+            // A new set seeked once to the same play time.
+            final SampleTarget[] targets = {new SampleTarget(), new SampleTarget()};
+            createInterleavedSet(targets).setCurrentPlayTime(playTime);
+
+            for (int i = 0; i < targets.length; i++) {
+                assertEquals("Value " + i + " at " + playTime, targets[i].mValue,
+                        scrubbedTargets[i].mValue, EPSILON);
+            }
+        }
+    }
+
+    @UiThreadTest
+    @Test
+    public void testSeekOnlySkipsTargetsThatChanged() {
+        final SampleTarget changedTarget = new SampleTarget();
+        final SampleTarget otherTarget = new SampleTarget();
+        final ObjectAnimator changedAnimator =
+                ObjectAnimator.ofFloat(changedTarget, SampleTarget.VALUE, 0f, 100f);
+        changedAnimator.setDuration(100);
+        final ObjectAnimator otherAnimator =
+                ObjectAnimator.ofFloat(otherTarget, SampleTarget.VALUE, 200f, 300f);
+        otherAnimator.setDuration(100);
+        otherAnimator.setStartDelay(500);
+        final AnimatorSet set = new AnimatorSet();
+        set.playTogether(changedAnimator, otherAnimator);
+        set.setInterpolator(new LinearInterpolator());
+
+        set.setCurrentPlayTime(50);
+        assertEquals(200f, otherTarget.mValue, EPSILON);
+        otherTarget.mValue = -1f;
+
+        // Only the end of changedAnimator is crossed, otherAnimator isn't skipped again.
+        set.setCurrentPlayTime(150);
+        assertEquals(100f, changedTarget.mValue, EPSILON);
+        assertEquals(-1f, otherTarget.mValue, EPSILON);
+    }
+
+    /**
+     * Creates a set of gapped animators that alternate between the given targets.
+     */
+    private static AnimatorSet createInterleavedSet(SampleTarget[] targets) {
+        final AnimatorSet set = new AnimatorSet();
+        final List<Animator> animators = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            ObjectAnimator animator = ObjectAnimator.ofFloat(targets[i % targets.length],
+                    SampleTarget.VALUE, i * 1000f, i * 1000f + 100f);
+            animator.setDuration(100);
+            animator.setStartDelay(i * 100);
+            animators.add(animator);
+        }
+        set.playTogether(animators);
+        set.setInterpolator(new LinearInterpolator());
+        return set;
+    }
+
+    /**
+     * Creates a set of animators on a single property, each starting 100ms after the previous one
+     * ends.
+     */
+    private static AnimatorSet createGappedSet(SampleTarget target) {
+        final AnimatorSet set = new AnimatorSet();
+        final List<Animator> animators = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ObjectAnimator animator = ObjectAnimator.ofFloat(target, SampleTarget.VALUE,
+                    i * 1000f, i * 1000f + 100f);
+            animator.setDuration(100);
+            animator.setStartDelay(i * 200);
+            animators.add(animator);
+        }
+        set.playTogether(animators);
+        set.setInterpolator(new LinearInterpolator());
+        return set;
+    }
+
+    /**
+     * Creates a set of overlapping animators, each starting 50ms after the previous one.
+     */
+    private static AnimatorSet createStaggeredSet() {
+        final AnimatorSet set = new AnimatorSet();
+        final List<Animator> animators = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ValueAnimator animator = ValueAnimator.ofFloat(i * 100f, i * 100f + 100f);
+            animator.setDuration(i % 3 == 0 ? 0 : 100 + i * 10);
+            animator.setStartDelay(i * 50);
+            animators.add(animator);
+        }
+        set.playTogether(animators);
+        set.setInterpolator(new LinearInterpolator());
+        return set;
+    }
+
     static class SampleTarget {
 
         static final Property<SampleTarget, Float> VALUE = new FloatProperty<SampleTarget>() {
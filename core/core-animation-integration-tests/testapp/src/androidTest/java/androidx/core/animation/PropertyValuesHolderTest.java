@@ -19,6 +19,10 @@ package androidx.core.animation;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.MediumTest;
 
@@ -54,6 +58,39 @@ public class PropertyValuesHolderTest {
         assertThat(sample.getNumber(), is(5));
     }
 
+    @Test
+    public void registeredProperty_usedInsteadOfSetter() {
+        RegisteredSample sample = new RegisteredSample();
+        ObjectAnimator animator = ObjectAnimator
+                .ofPropertyValuesHolder(sample, PropertyValuesHolder.ofInt("number", 0, 10))
+                .setDuration(100);
+        animator.setCurrentPlayTime(50);
+        assertThat(sample.getNumber(), is(5));
+        assertThat(sample.mPropertySetCount, is(1));
+    }
+
+    @Test
+    public void registeredProperty_usedForSubclass() {
+        RegisteredSample sample = new RegisteredSample() {};
+        ObjectAnimator animator = ObjectAnimator
+                .ofPropertyValuesHolder(sample, PropertyValuesHolder.ofInt("number", 10))
+                .setDuration(100);
+        sample.setNumber(20);
+        animator.setCurrentPlayTime(50);
+        // The start value is read with the registered property too.
+        assertThat(sample.getNumber(), is(15));
+        assertThat(sample.mPropertySetCount, is(1));
+    }
+
+    @Test
+    public void viewProperty_registeredByDefault() {
+        View view = new View(ApplicationProvider.getApplicationContext());
+        ObjectAnimator animator = ObjectAnimator.ofFloat(view, "translationX", 0f, 100f)
+                .setDuration(100);
+        animator.setCurrentPlayTime(50);
+        assertThat(view.getTranslationX(), is(50f));
+    }
+
     private static class Sample {
 
         private int mNumber;
@@ -69,4 +106,25 @@ public class PropertyValuesHolderTest {
             return mNumber;
         }
     }
+
+    private static class RegisteredSample extends Sample {
+
+        static {
+            PropertyValuesHolder.registerProperty(RegisteredSample.class,
+                    new IntProperty<RegisteredSample>("number") {
+                        @Override
+                        public void setValue(@NonNull RegisteredSample sample, int value) {
+                            sample.mPropertySetCount++;
+                            sample.setNumber(value);
+                        }
+
+                        @Override
+                        public Integer get(RegisteredSample sample) {
+                            return sample.getNumber();
+                        }
+                    });
+        }
+
+        int mPropertySetCount;
+    }
 }
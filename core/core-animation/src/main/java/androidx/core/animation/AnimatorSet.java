@@ -32,6 +32,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 
 /**
@@ -155,6 +156,25 @@ public final class AnimatorSet extends Animator implements AnimationHandler.Anim
     // SeekState stores the last seeked play time as well as seek direction.
     private SeekState mSeekState = new SeekState();
 
+    // The play time that setCurrentPlayTime() last seeked the children to while this set wasn't
+    // running, or -1 if the children may have changed since. Seeking from that play time only
+    // updates the children that are active or change state, see seekFromLastPlayTime().
+    private long mLastSeekPlayTime = -1;
+
+    // The nodes active at mLastSeekPlayTime, sorted by the index of their delay ended event in
+    // mEvents.
+    private ArrayList<Node> mSeekActiveNodes = new ArrayList<>();
+
+    // The groups of the nodes that changed state in the current seek, see seekFromLastPlayTime().
+    private ArrayList<SeekGroup> mSeekChangedGroups = new ArrayList<>();
+
+    // Incremented for each seek, to add each group to mSeekChangedGroups once.
+    private int mSeekCount = 0;
+
+    // The index in mEvents of the last delay ended event of a node that may write to any target,
+    // see updateSeekActiveNodes(), or -1 if there is none.
+    private int mSeekLastUnknownEventId = -1;
+
     // Indicates where children animators are all initialized with their start values captured.
     private boolean mChildrenInitialized = false;
 
@@ -289,6 +309,7 @@ public final class AnimatorSet extends Animator implements AnimationHandler.Anim
      */
     @Override
     public void setTarget(@Nullable Object target) {
+        mLastSeekPlayTime = -1;
         int size = mNodes.size();
         for (int i = 1; i < size; i++) {
             Node node = mNodes.get(i);
@@ -590,6 +611,7 @@ public final class AnimatorSet extends Animator implements AnimationHandler.Anim
         }
         boolean previouslyPaused = mPaused;
         super.resume();
+        mLastSeekPlayTime = -1;
         if (previouslyPaused && !mPaused) {
             if (mPauseTime >= 0) {
                 if (mSelfPulse) {
@@ -639,6 +661,7 @@ public final class AnimatorSet extends Animator implements AnimationHandler.Anim
         mSelfPulse = selfPulse;
         mPaused = false;
         mPauseTime = -1;
+        mLastSeekPlayTime = -1;
 
         int size = mNodes.size();
         for (int i = 0; i < size; i++) {
@@ -716,6 +739,7 @@ public final class AnimatorSet extends Animator implements AnimationHandler.Anim
 
         // This makes sure the animation events are sorted an up to date.
         initAnimation();
+        mLastSeekPlayTime = -1;
 
         // Calling skip to the end in the sequence that they would be called in a forward/reverse
         // run, such that the sequential animations modifying the same property would have
@@ -750,6 +774,7 @@ public final class AnimatorSet extends Animator implements AnimationHandler.Anim
         if (currentPlayTime < 0 || lastPlayTime < 0) {
             throw new UnsupportedOperationException("Error: Play time should never be negative.");
         }
+        mLastSeekPlayTime = -1;
         // TODO: take into account repeat counts and repeat callback when repeat is implemented.
         // Clamp currentPlayTime and lastPlayTime
 
@@ -812,6 +837,204 @@ public final class AnimatorSet extends Animator implements AnimationHandler.Anim
         }
     }
 
+    /**
+     * Seeks the children from mLastSeekPlayTime to the given play time in the forward direction,
+     * with the same result as {@link #animateBasedOnPlayTime(long, long, boolean)}.
+     * <p>
+     * The children that don't change state between the two play times already have the right
+     * values, so only the events between the two play times are handled, and the children that
+     * are active at the new play time are seeked. mEvents is sorted by time, which makes finding
+     * these events a binary search. When a child changes state, the children of its target that
+     * haven't started yet are skipped to their start values again, as it may have overwritten
+     * them. Children of a target that all animate the same property only need the last of them to
+     * be skipped, so a staggered set on a single property is seeked in constant time per frame
+     * besides its active children.
+     */
+    private void seekFromLastPlayTime(long currentPlayTime, long lastPlayTime) {
+        final long previousPlayTime = mLastSeekPlayTime;
+        if (currentPlayTime != previousPlayTime) {
+            final boolean forward = currentPlayTime > previousPlayTime;
+            final int fromId = findFirstEventIdAfter(Math.min(previousPlayTime, currentPlayTime));
+            final int toId = findFirstEventIdAfter(Math.max(previousPlayTime, currentPlayTime));
+            final int seekCount = ++mSeekCount;
+            boolean unknownChanged = false;
+            for (int i = fromId; i < toId; i++) {
+                AnimationEvent event = mEvents.get(i);
+                Node node = event.mNode;
+                if (event.mEvent == AnimationEvent.ANIMATION_DELAY_ENDED) {
+                    if (!forward) {
+                        // Not started anymore, skipped to its start value below.
+                        removeSeekActiveNode(node);
+                    } else if (node.mEndTime == DURATION_INFINITE
+                            || node.mEndTime > currentPlayTime) {
+                        // Started, and not finished before the play time.
+                        addSeekActiveNode(node);
+                    }
+                } else if (event.mEvent == AnimationEvent.ANIMATION_END) {
+                    if (forward) {
+                        // Finished, in the sequence that they would in a normal run.
+                        removeSeekActiveNode(node);
+                        node.mAnimation.skipToEndValue(false);
+                    } else if (mEvents.get(node.mDelayEndedEventId).getTime()
+                            <= currentPlayTime) {
+                        // Not finished anymore, and started before the play time.
+                        addSeekActiveNode(node);
+                    }
+                } else {
+                    continue;
+                }
+                if (node.mSeekGroup != null) {
+                    if (node.mSeekGroup.mSeekCount != seekCount) {
+                        node.mSeekGroup.mSeekCount = seekCount;
+                        mSeekChangedGroups.add(node.mSeekGroup);
+                    }
+                } else if (node.mSeekWritesUnknown) {
+                    unknownChanged = true;
+                }
+            }
+            if (fromId < toId) {
+                // Children that share a target with the ones that changed state may have been
+                // overwritten, so like in animateBasedOnPlayTime(), the children of these targets
+                // that haven't started yet are skipped to their start values after the finished
+                // ones. When a child that may write to any target is involved, all of them are.
+                final int notStartedId = forward ? toId : fromId;
+                if (unknownChanged || mSeekLastUnknownEventId >= notStartedId) {
+                    for (int i = notStartedId; i < mEvents.size(); i++) {
+                        AnimationEvent event = mEvents.get(i);
+                        if (event.getTime() == DURATION_INFINITE) {
+                            break;
+                        }
+                        if (event.mEvent == AnimationEvent.ANIMATION_DELAY_ENDED) {
+                            event.mNode.mAnimation.skipToEndValue(true);
+                        }
+                    }
+                } else {
+                    for (int i = 0; i < mSeekChangedGroups.size(); i++) {
+                        mSeekChangedGroups.get(i).skipNotStartedToStartValues(notStartedId);
+                    }
+                }
+                mSeekChangedGroups.clear();
+            }
+        }
+
+        // Like in animateBasedOnPlayTime(), the unfinished animations are seeked last.
+        for (int i = 0; i < mSeekActiveNodes.size(); i++) {
+            Node node = mSeekActiveNodes.get(i);
+            long playTime = getPlayTimeForNode(currentPlayTime, node, false)
+                    - node.mAnimation.getStartDelay();
+            node.mAnimation.animateBasedOnPlayTime(playTime, lastPlayTime, false);
+        }
+    }
+
+    private void addSeekActiveNode(Node node) {
+        int index = findSeekActiveNodeIndex(node.mDelayEndedEventId);
+        if (index >= mSeekActiveNodes.size() || mSeekActiveNodes.get(index) != node) {
+            mSeekActiveNodes.add(index, node);
+        }
+    }
+
+    private void removeSeekActiveNode(Node node) {
+        int index = findSeekActiveNodeIndex(node.mDelayEndedEventId);
+        if (index < mSeekActiveNodes.size() && mSeekActiveNodes.get(index) == node) {
+            mSeekActiveNodes.remove(index);
+        }
+    }
+
+    /**
+     * Returns the index in mSeekActiveNodes of the first node whose delay ended event is at or
+     * after the given index in mEvents.
+     */
+    private int findSeekActiveNodeIndex(int delayEndedEventId) {
+        int low = 0;
+        int high = mSeekActiveNodes.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mSeekActiveNodes.get(mid).mDelayEndedEventId < delayEndedEventId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Sets mSeekActiveNodes to the nodes that are active at the given forward play time, and
+     * groups the nodes by target for seekFromLastPlayTime().
+     * <p>
+     * Only ObjectAnimators with a single property and no update listener are known to write to
+     * their target only. ValueAnimators without update listeners, like the one of the root node,
+     * write nothing. Other nodes may write to any target.
+     */
+    private void updateSeekActiveNodes(long currentPlayTime) {
+        mSeekActiveNodes.clear();
+        mSeekLastUnknownEventId = -1;
+        final IdentityHashMap<Object, SeekGroup> groups = new IdentityHashMap<>();
+        final int toId = findFirstEventIdAfter(currentPlayTime);
+        for (int i = 0; i < mEvents.size(); i++) {
+            AnimationEvent event = mEvents.get(i);
+            if (event.mEvent != AnimationEvent.ANIMATION_DELAY_ENDED) {
+                continue;
+            }
+            Node node = event.mNode;
+            if (i < toId && (node.mEndTime == DURATION_INFINITE
+                    || node.mEndTime > currentPlayTime)) {
+                mSeekActiveNodes.add(node);
+            }
+
+            node.mSeekGroup = null;
+            node.mSeekWritesUnknown = false;
+            if (event.getTime() == DURATION_INFINITE) {
+                // Never seeked to its start value again.
+                continue;
+            }
+            Animator animation = node.mAnimation;
+            if (animation.mUpdateListeners != null && !animation.mUpdateListeners.isEmpty()) {
+                node.mSeekWritesUnknown = true;
+            } else if (animation instanceof ObjectAnimator) {
+                ObjectAnimator objectAnimator = (ObjectAnimator) animation;
+                Object target = objectAnimator.getTarget();
+                PropertyValuesHolder[] values = objectAnimator.getValues();
+                if (target == null || values == null || values.length != 1) {
+                    node.mSeekWritesUnknown = true;
+                } else {
+                    SeekGroup group = groups.get(target);
+                    if (group == null) {
+                        group = new SeekGroup();
+                        groups.put(target, group);
+                    }
+                    group.add(node, values[0]);
+                    node.mSeekGroup = group;
+                }
+            } else if (animation.getClass() != ValueAnimator.class) {
+                node.mSeekWritesUnknown = true;
+            }
+            if (node.mSeekWritesUnknown) {
+                mSeekLastUnknownEventId = i;
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the first event in mEvents that happens after the given forward play
+     * time, or the number of events if there is none.
+     */
+    private int findFirstEventIdAfter(long playTime) {
+        // Events at DURATION_INFINITE are sorted last.
+        int low = 0;
+        int high = mEvents.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            long time = mEvents.get(mid).getTime();
+            if (time != DURATION_INFINITE && time <= playTime) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
     @Override
     boolean isInitialized() {
         if (mChildrenInitialized) {
@@ -868,8 +1091,15 @@ public final class AnimatorSet extends Animator implements AnimationHandler.Anim
                 // Set all the values to start values.
                 initChildren();
                 mSeekState.setPlayTime(0, mReversing);
+                mLastSeekPlayTime = -1;
             }
-            animateBasedOnPlayTime(playTime, 0, mReversing);
+            if (mLastSeekPlayTime >= 0) {
+                seekFromLastPlayTime(playTime, 0);
+            } else {
+                animateBasedOnPlayTime(playTime, 0, mReversing);
+                updateSeekActiveNodes(playTime);
+            }
+            mLastSeekPlayTime = playTime;
             mSeekState.setPlayTime(playTime, mReversing);
             notifyUpdateListeners();
         } else {
@@ -1230,6 +1460,7 @@ public final class AnimatorSet extends Animator implements AnimationHandler.Anim
         mPaused = false;
         mPauseTime = -1;
         mSeekState.reset();
+        mLastSeekPlayTime = -1;
         mPlayingSet.clear();
 
         // No longer receive callbacks
@@ -1278,6 +1509,10 @@ public final class AnimatorSet extends Animator implements AnimationHandler.Anim
         anim.mPaused = false;
         anim.mPauseTime = -1;
         anim.mSeekState = new SeekState();
+        anim.mLastSeekPlayTime = -1;
+        anim.mSeekActiveNodes = new ArrayList<>();
+        anim.mSeekChangedGroups = new ArrayList<>();
+        anim.mSeekLastUnknownEventId = -1;
         anim.mSelfPulse = true;
         anim.mPlayingSet = new ArrayList<Node>();
         anim.mNodeMap = new SimpleArrayMap<Animator, Node>();
@@ -1562,6 +1797,14 @@ public final class AnimatorSet extends Animator implements AnimationHandler.Anim
             throw new UnsupportedOperationException(
                     "Something went wrong, the last event is not an end event");
         }
+
+        for (int i = 0; i < mEvents.size(); i++) {
+            AnimationEvent event = mEvents.get(i);
+            if (event.mEvent == AnimationEvent.ANIMATION_DELAY_ENDED) {
+                event.mNode.mDelayEndedEventId = i;
+            }
+        }
+        mLastSeekPlayTime = -1;
     }
 
     /**
@@ -1661,6 +1904,70 @@ public final class AnimatorSet extends Animator implements AnimationHandler.Anim
         return node;
     }
 
+    /**
+     * The nodes of the ObjectAnimators of a target, sorted by the index of their delay ended event
+     * in mEvents, see seekFromLastPlayTime().
+     */
+    private static class SeekGroup {
+        final ArrayList<Node> mNodes = new ArrayList<>();
+
+        /**
+         * Whether all the nodes animate the same property of the target, in which case the last
+         * node that hasn't started overwrites the start values of the others.
+         */
+        boolean mSingleProperty = true;
+
+        /**
+         * The last seek in which a node of this group changed state.
+         */
+        int mSeekCount = 0;
+
+        private PropertyValuesHolder mFirstValues;
+
+        void add(Node node, PropertyValuesHolder values) {
+            if (mNodes.isEmpty()) {
+                mFirstValues = values;
+            } else if (mSingleProperty && !isSameProperty(mFirstValues, values)) {
+                mSingleProperty = false;
+            }
+            mNodes.add(node);
+        }
+
+        /**
+         * Skips the nodes whose delay ended event is at or after the given index in mEvents to
+         * their start values, in the order of their events.
+         */
+        void skipNotStartedToStartValues(int notStartedId) {
+            if (mSingleProperty) {
+                Node last = mNodes.get(mNodes.size() - 1);
+                if (last.mDelayEndedEventId >= notStartedId) {
+                    last.mAnimation.skipToEndValue(true);
+                }
+                return;
+            }
+            int low = 0;
+            int high = mNodes.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (mNodes.get(mid).mDelayEndedEventId < notStartedId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (int i = low; i < mNodes.size(); i++) {
+                mNodes.get(i).mAnimation.skipToEndValue(true);
+            }
+        }
+
+        private static boolean isSameProperty(PropertyValuesHolder a, PropertyValuesHolder b) {
+            if (a.mProperty != null || b.mProperty != null) {
+                return a.mProperty == b.mProperty;
+            }
+            return a.mPropertyName != null && a.mPropertyName.equals(b.mPropertyName);
+        }
+    }
+
     /**
      * A Node is an embodiment of both the Animator that it wraps as well as
      * any dependencies that are associated with that Animation. This includes
@@ -1706,6 +2013,22 @@ public final class AnimatorSet extends Animator implements AnimationHandler.Anim
         long mEndTime = 0;
         long mTotalDuration = 0;
 
+        /**
+         * The index of the delay ended event of this node in the sorted events of the set.
+         */
+        int mDelayEndedEventId = -1;
+
+        /**
+         * The nodes with the same target as this one, or null if this node doesn't write to a
+         * single target, see updateSeekActiveNodes().
+         */
+        SeekGroup mSeekGroup = null;
+
+        /**
+         * Whether this node may write to any target, see updateSeekActiveNodes().
+         */
+        boolean mSeekWritesUnknown = false;
+
         /**
          * Constructs the Node with the animation that it encapsulates. A Node has no
          * dependencies by default; dependencies are added via the addDependency()
@@ -1733,6 +2056,7 @@ public final class AnimatorSet extends Animator implements AnimationHandler.Anim
                     node.mParents = new ArrayList<>(mParents);
                 }
                 node.mEnded = false;
+                node.mSeekGroup = null;
                 return node;
             } catch (CloneNotSupportedException e) {
                 throw new AssertionError();
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.core.animation;
+
+import android.util.Property;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+
+/**
+ * The {@link Property} objects that string-named {@link PropertyValuesHolder}s are bound to,
+ * instead of the setters and getters found by reflection.
+ * <p>
+ * Properties are registered for a class and used for its subclasses too. The common
+ * {@link View} properties are registered by default.
+ */
+final class PropertyRegistry {
+    // The registered properties by target class and property name.
+    private static final HashMap<Class<?>, HashMap<String, Property<?, ?>>> sProperties =
+            new HashMap<>();
+
+    static {
+        registerViewProperties();
+    }
+
+    private PropertyRegistry() {
+    }
+
+    static void register(@NonNull Class<?> targetClass, @NonNull Property<?, ?> property) {
+        synchronized (sProperties) {
+            HashMap<String, Property<?, ?>> properties = sProperties.get(targetClass);
+            if (properties == null) {
+                properties = new HashMap<>();
+                sProperties.put(targetClass, properties);
+            }
+            properties.put(property.getName(), property);
+        }
+    }
+
+    /**
+     * Finds the property registered for the given class or its closest superclass.
+     *
+     * @param targetClass the class of the animated object
+     * @param propertyName the name of the animated property
+     * @param valueType the type of the animated values, which must be the type of the property
+     * @return the property, or null if there is none of that name and type
+     */
+    @Nullable
+    static Property<?, ?> find(@NonNull Class<?> targetClass, @NonNull String propertyName,
+            @Nullable Class<?> valueType) {
+        if (valueType == null) {
+            return null;
+        }
+        final Class<?> boxedType = valueType == float.class ? Float.class
+                : valueType == int.class ? Integer.class
+                : valueType;
+        synchronized (sProperties) {
+            for (Class<?> c = targetClass; c != null; c = c.getSuperclass()) {
+                final HashMap<String, Property<?, ?>> properties = sProperties.get(c);
+                if (properties != null) {
+                    final Property<?, ?> property = properties.get(propertyName);
+                    if (property != null) {
+                        return property.getType() == boxedType ? property : null;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void registerViewProperties() {
+        register(View.class, new FloatProperty<View>("alpha") {
+            @Override
+            public void setValue(@NonNull View view, float value) {
+                view.setAlpha(value);
+            }
+
+            @Override
+            public Float get(View view) {
+                return view.getAlpha();
+            }
+        });
+        register(View.class, new FloatProperty<View>("translationX") {
+            @Override
+            public void setValue(@NonNull View view, float value) {
+                view.setTranslationX(value);
+            }
+
+            @Override
+            public Float get(View view) {
+                return view.getTranslationX();
+            }
+        });
+        register(View.class, new FloatProperty<View>("translationY") {
+            @Override
+            public void setValue(@NonNull View view, float value) {
+                view.setTranslationY(value);
+            }
+
+            @Override
+            public Float get(View view) {
+                return view.getTranslationY();
+            }
+        });
+        register(View.class, new FloatProperty<View>("x") {
+            @Override
+            public void setValue(@NonNull View view, float value) {
+                view.setX(value);
+            }
+
+            @Override
+            public Float get(View view) {
+                return view.getX();
+            }
+        });
+        register(View.class, new FloatProperty<View>("y") {
+            @Override
+            public void setValue(@NonNull View view, float value) {
+                view.setY(value);
+            }
+
+            @Override
+            public Float get(View view) {
+                return view.getY();
+            }
+        });
+        register(View.class, new FloatProperty<View>("rotation") {
+            @Override
+            public void setValue(@NonNull View view, float value) {
+                view.setRotation(value);
+            }
+
+            @Override
+            public Float get(View view) {
+                return view.getRotation();
+            }
+        });
+        register(View.class, new FloatProperty<View>("rotationX") {
+            @Override
+            public void setValue(@NonNull View view, float value) {
+                view.setRotationX(value);
+            }
+
+            @Override
+            public Float get(View view) {
+                return view.getRotationX();
+            }
+        });
+        register(View.class, new FloatProperty<View>("rotationY") {
+            @Override
+            public void setValue(@NonNull View view, float value) {
+                view.setRotationY(value);
+            }
+
+            @Override
+            public Float get(View view) {
+                return view.getRotationY();
+            }
+        });
+        register(View.class, new FloatProperty<View>("scaleX") {
+            @Override
+            public void setValue(@NonNull View view, float value) {
+                view.setScaleX(value);
+            }
+
+            @Override
+            public Float get(View view) {
+                return view.getScaleX();
+            }
+        });
+        register(View.class, new FloatProperty<View>("scaleY") {
+            @Override
+            public void setValue(@NonNull View view, float value) {
+                view.setScaleY(value);
+            }
+
+            @Override
+            public Float get(View view) {
+                return view.getScaleY();
+            }
+        });
+        register(View.class, new FloatProperty<View>("pivotX") {
+            @Override
+            public void setValue(@NonNull View view, float value) {
+                view.setPivotX(value);
+            }
+
+            @Override
+            public Float get(View view) {
+                return view.getPivotX();
+            }
+        });
+        register(View.class, new FloatProperty<View>("pivotY") {
+            @Override
+            public void setValue(@NonNull View view, float value) {
+                view.setPivotY(value);
+            }
+
+            @Override
+            public Float get(View view) {
+                return view.getPivotY();
+            }
+        });
+        register(View.class, new IntProperty<View>("scrollX") {
+            @Override
+            public void setValue(@NonNull View view, int value) {
+                view.setScrollX(value);
+            }
+
+            @Override
+            public Integer get(View view) {
+                return view.getScrollX();
+            }
+        });
+        register(View.class, new IntProperty<View>("scrollY") {
+            @Override
+            public void setValue(@NonNull View view, int value) {
+                view.setScrollY(value);
+            }
+
+            @Override
+            public Integer get(View view) {
+                return view.getScrollY();
+            }
+        });
+    }
+}
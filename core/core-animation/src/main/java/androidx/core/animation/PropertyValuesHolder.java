@@ -65,6 +65,13 @@ public class PropertyValuesHolder implements Cloneable {
      */
     private Method mGetter = null;
 
+    /**
+     * The property registered for mPropertyName on the class of the target, if any, see
+     * {@link #registerProperty(Class, Property)}. It is used instead of the setter and getter,
+     * and is derived when the animation starts in setupSetterAndGetter().
+     */
+    Property mRegisteredProperty = null;
+
     /**
      * The type of values supplied. This information is used both in deriving the setter/getter
      * functions and in deriving the type of TypeEvaluator.
@@ -625,6 +632,24 @@ public class PropertyValuesHolder implements Cloneable {
         }
     }
 
+    /**
+     * Registers the property that animations of the property of the same name use on instances
+     * of the given class and its subclasses, instead of the setter and getter found by
+     * reflection.
+     * <p>
+     * This applies to the animations created with a property name, including the ones inflated
+     * by {@link AnimatorInflater}, when the type of the property is the type of the animated
+     * values. A {@link FloatProperty} or {@link IntProperty} sets float or int values without
+     * boxing them. The common properties of {@link android.view.View} are registered by default.
+     *
+     * @param targetClass The class of the objects that have the property.
+     * @param property The property, whose name is the name of the animated property.
+     */
+    public static <T> void registerProperty(@NonNull Class<T> targetClass,
+            @NonNull Property<T, ?> property) {
+        PropertyRegistry.register(targetClass, property);
+    }
+
     /**
      * Set the animated values for this object to this set of ints.
      * If there is only one value, it is assumed to be the end value of an animation,
@@ -850,22 +875,11 @@ public class PropertyValuesHolder implements Cloneable {
      * @param target The object on which the setter (and possibly getter) exist.
      */
     void setupSetterAndGetter(Object target) {
+        mRegisteredProperty = null;
         if (mProperty != null) {
             // check to make sure that mProperty is on the class of target
             try {
-                Object testValue = null;
-                List<Keyframe> keyframes = mKeyframes.getKeyframes();
-                int keyframeCount = keyframes == null ? 0 : keyframes.size();
-                for (int i = 0; i < keyframeCount; i++) {
-                    Keyframe kf = keyframes.get(i);
-                    if (!kf.hasValue() || kf.valueWasSetOnStart()) {
-                        if (testValue == null) {
-                            testValue = convertBack(mProperty.get(target));
-                        }
-                        kf.setValue(testValue);
-                        kf.setValueWasSetOnStart(true);
-                    }
-                }
+                setupValuesFromProperty(target, mProperty);
                 return;
             } catch (ClassCastException e) {
                 Log.w("PropertyValuesHolder", "No such property (" + mProperty.getName()
@@ -876,6 +890,14 @@ public class PropertyValuesHolder implements Cloneable {
         // We can't just say 'else' here because the catch statement sets mProperty to null.
         if (mProperty == null) {
             Class<?> targetClass = target.getClass();
+            if (mConverter == null && mPropertyName != null) {
+                mRegisteredProperty = PropertyRegistry.find(targetClass, mPropertyName,
+                        mValueType);
+                if (mRegisteredProperty != null) {
+                    setupValuesFromProperty(target, mRegisteredProperty);
+                    return;
+                }
+            }
             if (mSetter == null) {
                 setupSetter(targetClass);
             }
@@ -905,6 +927,25 @@ public class PropertyValuesHolder implements Cloneable {
         }
     }
 
+    /**
+     * Sets the values of the keyframes that have none to the current value of the property.
+     */
+    private void setupValuesFromProperty(Object target, Property property) {
+        Object testValue = null;
+        List<Keyframe> keyframes = mKeyframes.getKeyframes();
+        int keyframeCount = keyframes == null ? 0 : keyframes.size();
+        for (int i = 0; i < keyframeCount; i++) {
+            Keyframe kf = keyframes.get(i);
+            if (!kf.hasValue() || kf.valueWasSetOnStart()) {
+                if (testValue == null) {
+                    testValue = convertBack(property.get(target));
+                }
+                kf.setValue(testValue);
+                kf.setValueWasSetOnStart(true);
+            }
+        }
+    }
+
     private Object convertBack(Object value) {
         if (mConverter != null) {
             if (!(mConverter instanceof BidirectionalTypeConverter)) {
@@ -928,6 +969,8 @@ public class PropertyValuesHolder implements Cloneable {
         if (mProperty != null) {
             Object value = convertBack(mProperty.get(target));
             kf.setValue(value);
+        } else if (mRegisteredProperty != null) {
+            kf.setValue(mRegisteredProperty.get(target));
         } else {
             try {
                 if (mGetter == null) {
@@ -1006,7 +1049,9 @@ public class PropertyValuesHolder implements Cloneable {
         if (mProperty != null) {
             mProperty.set(target, getAnimatedValue());
         }
-        if (mSetter != null) {
+        if (mRegisteredProperty != null) {
+            mRegisteredProperty.set(target, getAnimatedValue());
+        } else if (mSetter != null) {
             try {
                 mTmpValueArray[0] = getAnimatedValue();
                 mSetter.invoke(target, mTmpValueArray);
@@ -1236,6 +1281,14 @@ public class PropertyValuesHolder implements Cloneable {
                 mProperty.set(target, mIntAnimatedValue);
                 return;
             }
+            if (mRegisteredProperty instanceof IntProperty) {
+                ((IntProperty) mRegisteredProperty).setValue(target, mIntAnimatedValue);
+                return;
+            }
+            if (mRegisteredProperty != null) {
+                mRegisteredProperty.set(target, mIntAnimatedValue);
+                return;
+            }
 
             try {
                 mTmpValueArray[0] = mIntAnimatedValue;
@@ -1335,6 +1388,14 @@ public class PropertyValuesHolder implements Cloneable {
                 mProperty.set(target, mFloatAnimatedValue);
                 return;
             }
+            if (mRegisteredProperty instanceof FloatProperty) {
+                ((FloatProperty) mRegisteredProperty).setValue(target, mFloatAnimatedValue);
+                return;
+            }
+            if (mRegisteredProperty != null) {
+                mRegisteredProperty.set(target, mFloatAnimatedValue);
+                return;
+            }
             if (mSetter != null) {
                 try {
                     mTmpValueArray[0] = mFloatAnimatedValue;
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.core.graphics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+
+@SmallTest
+public final class PathParserTest {
+    @Test public void createNodes() {
+        PathParser.PathDataNode[] nodes =
+                PathParser.createNodesFromPathData("M10,20L30.5-4.25 h 3 z");
+
+        assertEquals(4, nodes.length);
+        assertNode(nodes[0], 'M', 10f, 20f);
+        assertNode(nodes[1], 'L', 30.5f, -4.25f);
+        assertNode(nodes[2], 'h', 3f);
+        assertNode(nodes[3], 'z');
+    }
+
+    @Test public void createNodesWithCompactNumbers() {
+        PathParser.PathDataNode[] nodes =
+                PathParser.createNodesFromPathData(" m1e2-1.5.5,2E-1\n-.25 Z ");
+
+        assertEquals(2, nodes.length);
+        assertNode(nodes[0], 'm', 100f, -1.5f, 0.5f, 0.2f, -0.25f);
+        assertNode(nodes[1], 'Z');
+    }
+
+    @Test public void createNodesWithTrailingCommand() {
+        PathParser.PathDataNode[] nodes = PathParser.createNodesFromPathData("M1 2z");
+
+        assertEquals(2, nodes.length);
+        assertNode(nodes[0], 'M', 1f, 2f);
+        assertNode(nodes[1], 'z');
+    }
+
+    @Test public void createNodesFromNull() {
+        assertNull(PathParser.createNodesFromPathData(null));
+        assertNull(PathParser.getSharedNodesFromPathData(null));
+    }
+
+    @Test public void createNodesWithInvalidNumber() {
+        try {
+            PathParser.createNodesFromPathData("M1 2 L3 1e");
+            fail("The path data should not be parsed");
+        } catch (RuntimeException e) {
+            assertEquals(NumberFormatException.class, e.getCause().getClass());
+        }
+    }
+
+    @Test public void parseFloat() {
+        String[] numbers = {
+                "0", "-0", "1", "-1", "12.5", "0.1", ".1", "-.75", "3.", "1e3", "1E-3", "-2.5e+2",
+                "123456.789", "0.000123", "3.4028235e38", "1.17549435e-38", "16777217",
+                "0.30000001192092896", "123456789012345678", "1.00000000000000000001",
+        };
+        for (String number : numbers) {
+            float expected = Float.parseFloat(number);
+            float actual = PathParser.parseFloat("x" + number + "x", 1, number.length() + 1);
+            assertEquals(number, Float.floatToIntBits(expected), Float.floatToIntBits(actual));
+        }
+    }
+
+    @Test public void sharedNodes() {
+        String pathData = "M0,0 L24,24 L0,24 z";
+        PathParser.PathDataNode[] shared = PathParser.getSharedNodesFromPathData(pathData);
+
+        assertSame(shared, PathParser.getSharedNodesFromPathData(new String(pathData)));
+
+        PathParser.PathDataNode[] nodes = PathParser.createNodesFromPathData(pathData);
+        assertNotSame(shared, nodes);
+        assertEquals(shared.length, nodes.length);
+        for (int i = 0; i < nodes.length; i++) {
+            assertNotSame(shared[i].mParams, nodes[i].mParams);
+            assertNode(nodes[i], shared[i].mType, shared[i].mParams);
+        }
+    }
+
+    private static void assertNode(PathParser.PathDataNode node, char type, float... params) {
+        assertEquals(type, node.mType);
+        assertArrayEquals(params, node.mParams, 0f);
+    }
+}
@@ -21,8 +21,7 @@ import android.graphics.Path;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
-
-import java.util.ArrayList;
+import androidx.collection.LruCache;
 
 /**
  * This class is a duplicate from the PathParser.java of frameworks/base, with slight
@@ -34,6 +33,38 @@ import java.util.ArrayList;
 public class PathParser {
     private static final String LOGTAG = "PathParser";
 
+    // Maximum total number of nodes and params of the cached paths, around 128KB of floats.
+    private static final int NODES_CACHE_SIZE = 32 * 1024;
+
+    // Maximum number of significant digits parsed without Float.parseFloat(), so that the
+    // digits fit exactly in a double.
+    private static final int MAX_FAST_PARSE_DIGITS = 15;
+
+    // Powers of ten that are exactly represented by a double.
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Parsed path data, shared by all the callers of
+     * {@link #getSharedNodesFromPathData(String)}. Vector drawables inflated from the same
+     * resources, or the same drawable inflated again, use the same path data strings.
+     */
+    private static final LruCache<String, PathDataNode[]> sNodesCache =
+            new LruCache<String, PathDataNode[]>(NODES_CACHE_SIZE) {
+                @Override
+                protected int sizeOf(String key, PathDataNode[] nodes) {
+                    int size = nodes.length;
+                    for (PathDataNode node : nodes) {
+                        size += node.mParams.length;
+                    }
+                    return size;
+                }
+            };
+
+    private static final ThreadLocal<ParseBuffer> sParseBuffer = new ThreadLocal<>();
+
     // Copy from Arrays.copyOfRange() which is only available from API level 9.
 
     /**
@@ -91,25 +122,32 @@ public class PathParser {
         if (pathData == null) {
             return null;
         }
-        int start = 0;
-        int end = 1;
-
-        ArrayList<PathDataNode> list = new ArrayList<PathDataNode>();
-        while (end < pathData.length()) {
-            end = nextStart(pathData, end);
-            String s = pathData.substring(start, end).trim();
-            if (s.length() > 0) {
-                float[] val = getFloats(s);
-                addNode(list, s.charAt(0), val);
-            }
+        final PathDataNode[] cached = sNodesCache.get(pathData);
+        if (cached != null) {
+            return deepCopyNodes(cached);
+        }
+        return parseNodes(pathData);
+    }
 
-            start = end;
-            end++;
+    /**
+     * Same as {@link #createNodesFromPathData(String)}, but the returned nodes are cached and
+     * shared with all the callers parsing the same path data. They must not be modified; use
+     * {@link #deepCopyNodes(PathDataNode[])} to get nodes that can be.
+     *
+     * @param pathData The string representing a path, the same as "d" string in svg file.
+     * @return an array of the PathDataNode, shared across callers.
+     * @hide
+     */
+    public static PathDataNode[] getSharedNodesFromPathData(String pathData) {
+        if (pathData == null) {
+            return null;
         }
-        if ((end - start) == 1 && start < pathData.length()) {
-            addNode(list, pathData.charAt(start), new float[0]);
+        PathDataNode[] nodes = sNodesCache.get(pathData);
+        if (nodes == null) {
+            nodes = parseNodes(pathData);
+            sNodesCache.put(pathData, nodes);
         }
-        return list.toArray(new PathDataNode[list.size()]);
+        return nodes;
     }
 
     /**
@@ -186,117 +224,245 @@ public class PathParser {
         return end;
     }
 
-    private static void addNode(ArrayList<PathDataNode> list, char cmd, float[] val) {
-        list.add(new PathDataNode(cmd, val));
-    }
-
-    private static class ExtractFloatResult {
-        // We need to return the position of the next separator and whether the
-        // next float starts with a '-' or a '.'.
-        int mEndPosition;
-        boolean mEndWithNegOrDot;
-
-        ExtractFloatResult() {
-        }
-    }
-
     /**
-     * Parse the floats in the string.
-     * This is an optimized version of parseFloat(s.split(",|\\s"));
-     *
-     * @param s the string containing a command and list of floats
-     * @return array of floats
+     * Parses the path data in a single pass. The commands and their floats are first written to
+     * the packed buffer of this thread, so the only allocations are the returned nodes.
      */
-    private static float[] getFloats(String s) {
-        if (s.charAt(0) == 'z' || s.charAt(0) == 'Z') {
-            return new float[0];
-        }
-        try {
-            float[] results = new float[s.length()];
-            int count = 0;
-            int startPosition = 1;
-            int endPosition = 0;
-
-            ExtractFloatResult result = new ExtractFloatResult();
-            int totalLength = s.length();
-
-            // The startPosition should always be the first character of the
-            // current number, and endPosition is the character after the current
-            // number.
-            while (startPosition < totalLength) {
-                extract(s, startPosition, result);
-                endPosition = result.mEndPosition;
-
-                if (startPosition < endPosition) {
-                    results[count++] = Float.parseFloat(
-                            s.substring(startPosition, endPosition));
-                }
+    private static PathDataNode[] parseNodes(String pathData) {
+        ParseBuffer buffer = sParseBuffer.get();
+        if (buffer == null) {
+            buffer = new ParseBuffer();
+            sParseBuffer.set(buffer);
+        }
+        buffer.reset();
 
-                if (result.mEndWithNegOrDot) {
-                    // Keep the '-' or '.' sign with next number.
-                    startPosition = endPosition;
-                } else {
-                    startPosition = endPosition + 1;
+        final int length = pathData.length();
+        int start = 0;
+        while (start < length) {
+            final int end = nextStart(pathData, start + 1);
+            // Each command is parsed from its letter to the next command letter, trimmed.
+            int commandStart = start;
+            int commandEnd = end;
+            while (commandStart < commandEnd && pathData.charAt(commandStart) <= ' ') {
+                commandStart++;
+            }
+            while (commandEnd > commandStart && pathData.charAt(commandEnd - 1) <= ' ') {
+                commandEnd--;
+            }
+            if (commandStart < commandEnd) {
+                final char type = pathData.charAt(commandStart);
+                buffer.addNode(type);
+                if (type != 'z' && type != 'Z') {
+                    parseFloats(pathData, commandStart, commandEnd, buffer);
                 }
             }
-            return copyOfRange(results, 0, count);
-        } catch (NumberFormatException e) {
-            throw new RuntimeException("error in parsing \"" + s + "\"", e);
+            start = end;
         }
+        return buffer.toNodes();
     }
 
     /**
-     * Calculate the position of the next comma or space or negative sign
+     * Parses the floats of a command, the same way as parseFloat(s.split(",|\\s")) would.
      *
-     * @param s      the string to search
-     * @param start  the position to start searching
-     * @param result the result of the extraction, including the position of the
-     *               the starting position of next number, whether it is ending with a '-'.
+     * @param s            the path data
+     * @param commandStart the position of the command letter
+     * @param commandEnd   the end of the command and of its floats
+     * @param buffer       the buffer to add the floats to
      */
-    private static void extract(String s, int start, ExtractFloatResult result) {
-        // Now looking for ' ', ',', '.' or '-' from the start.
-        int currentIndex = start;
-        boolean foundSeparator = false;
-        result.mEndWithNegOrDot = false;
-        boolean secondDot = false;
-        boolean isExponential = false;
-        for (; currentIndex < s.length(); currentIndex++) {
-            boolean isPrevExponential = isExponential;
-            isExponential = false;
-            char currentChar = s.charAt(currentIndex);
-            switch (currentChar) {
-                case ' ':
-                case ',':
-                    foundSeparator = true;
+    private static void parseFloats(String s, int commandStart, int commandEnd,
+            ParseBuffer buffer) {
+        // The startPosition should always be the first character of the current number, and
+        // endPosition is the character after the current number.
+        int startPosition = commandStart + 1;
+        while (startPosition < commandEnd) {
+            // Now looking for a whitespace, ',', '.' or '-' from the start.
+            int endPosition = startPosition;
+            boolean endWithNegOrDot = false;
+            boolean secondDot = false;
+            boolean isExponential = false;
+            for (; endPosition < commandEnd; endPosition++) {
+                final boolean isPrevExponential = isExponential;
+                isExponential = false;
+                final char c = s.charAt(endPosition);
+                if (c <= ' ' || c == ',') {
                     break;
-                case '-':
+                } else if (c == '-') {
                     // The negative sign following a 'e' or 'E' is not a separator.
-                    if (currentIndex != start && !isPrevExponential) {
-                        foundSeparator = true;
-                        result.mEndWithNegOrDot = true;
+                    if (endPosition != startPosition && !isPrevExponential) {
+                        endWithNegOrDot = true;
+                        break;
                     }
-                    break;
-                case '.':
-                    if (!secondDot) {
-                        secondDot = true;
-                    } else {
+                } else if (c == '.') {
+                    if (secondDot) {
                         // This is the second dot, and it is considered as a separator.
-                        foundSeparator = true;
-                        result.mEndWithNegOrDot = true;
+                        endWithNegOrDot = true;
+                        break;
                     }
-                    break;
-                case 'e':
-                case 'E':
+                    secondDot = true;
+                } else if (c == 'e' || c == 'E') {
                     isExponential = true;
-                    break;
+                }
             }
-            if (foundSeparator) {
+
+            if (startPosition < endPosition) {
+                try {
+                    buffer.addParam(parseFloat(s, startPosition, endPosition));
+                } catch (NumberFormatException e) {
+                    throw new RuntimeException(
+                            "error in parsing \"" + s.substring(commandStart, commandEnd) + "\"",
+                            e);
+                }
+            }
+
+            if (endWithNegOrDot) {
+                // Keep the '-' or '.' sign with next number.
+                startPosition = endPosition;
+            } else {
+                startPosition = endPosition + 1;
+            }
+        }
+    }
+
+    /**
+     * Parses the float between {@code start} and {@code end} without allocating, falling back to
+     * {@link Float#parseFloat(String)} for the numbers it can't parse exactly.
+     */
+    static float parseFloat(String s, int start, int end) {
+        int i = start;
+        final boolean negative = s.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean hasDigits = false;
+        boolean hasDot = false;
+        for (; i < end; i++) {
+            final char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigits = true;
+                if (mantissa == 0 && c == '0') {
+                    // Leading zeros aren't significant digits.
+                    if (hasDot) {
+                        exponent--;
+                    }
+                    continue;
+                }
+                if (digits == MAX_FAST_PARSE_DIGITS) {
+                    return Float.parseFloat(s.substring(start, end));
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (hasDot) {
+                    exponent--;
+                }
+            } else if (c == '.' && !hasDot) {
+                hasDot = true;
+            } else {
                 break;
             }
         }
-        // When there is nothing found, then we put the end position to the end
-        // of the string.
-        result.mEndPosition = currentIndex;
+        if (!hasDigits) {
+            return Float.parseFloat(s.substring(start, end));
+        }
+        if (i < end) {
+            final char c = s.charAt(i);
+            if (c != 'e' && c != 'E') {
+                return Float.parseFloat(s.substring(start, end));
+            }
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+                negativeExponent = s.charAt(i) == '-';
+                i++;
+            }
+            final int exponentStart = i;
+            int value = 0;
+            for (; i < end; i++) {
+                final char d = s.charAt(i);
+                if (d < '0' || d > '9' || value > POWERS_OF_TEN.length * 10) {
+                    return Float.parseFloat(s.substring(start, end));
+                }
+                value = value * 10 + (d - '0');
+            }
+            if (i == exponentStart) {
+                return Float.parseFloat(s.substring(start, end));
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+
+        final double value;
+        if (mantissa == 0) {
+            value = 0;
+        } else if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[exponent];
+        } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            return Float.parseFloat(s.substring(start, end));
+        }
+        // Both the digits and the power of ten are exact, so value is the correctly rounded
+        // double. Rounding it again to a float gives the correctly rounded float, unless value
+        // is exactly halfway between two floats.
+        if ((Double.doubleToRawLongBits(value) & 0x1FFFFFFFL) == 0x10000000L) {
+            return Float.parseFloat(s.substring(start, end));
+        }
+        final float result = (float) value;
+        return negative ? -result : result;
+    }
+
+    /**
+     * Commands and floats of the path being parsed, packed in arrays reused by each thread.
+     */
+    private static class ParseBuffer {
+        char[] mTypes = new char[16];
+        // Index in mParams of the first param of each node.
+        int[] mParamStarts = new int[16];
+        float[] mParams = new float[64];
+        int mNodeCount;
+        int mParamCount;
+
+        ParseBuffer() {
+        }
+
+        void reset() {
+            mNodeCount = 0;
+            mParamCount = 0;
+        }
+
+        void addNode(char type) {
+            if (mNodeCount == mTypes.length) {
+                final int capacity = mNodeCount * 2;
+                final char[] types = new char[capacity];
+                System.arraycopy(mTypes, 0, types, 0, mNodeCount);
+                mTypes = types;
+                final int[] paramStarts = new int[capacity];
+                System.arraycopy(mParamStarts, 0, paramStarts, 0, mNodeCount);
+                mParamStarts = paramStarts;
+            }
+            mTypes[mNodeCount] = type;
+            mParamStarts[mNodeCount] = mParamCount;
+            mNodeCount++;
+        }
+
+        void addParam(float param) {
+            if (mParamCount == mParams.length) {
+                mParams = copyOfRange(mParams, 0, mParamCount * 2);
+            }
+            mParams[mParamCount++] = param;
+        }
+
+        PathDataNode[] toNodes() {
+            final PathDataNode[] nodes = new PathDataNode[mNodeCount];
+            for (int i = 0; i < mNodeCount; i++) {
+                final int paramStart = mParamStarts[i];
+                final int paramEnd = i + 1 < mNodeCount ? mParamStarts[i + 1] : mParamCount;
+                nodes[i] = new PathDataNode(mTypes[i],
+                        copyOfRange(mParams, paramStart, paramEnd));
+            }
+            return nodes;
+        }
     }
 
     /**
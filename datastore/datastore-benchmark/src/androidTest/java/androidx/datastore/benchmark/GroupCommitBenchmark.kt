@@ -0,0 +1,129 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.datastore.core.DataStore
+import androidx.datastore.core.DataStoreFactory
+import androidx.datastore.core.GroupCommit
+import androidx.datastore.core.Serializer
+import androidx.test.filters.LargeTest
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.io.InputStream
+import java.io.OutputStream
+
+/**
+ * Measures a burst of [BURST_SIZE] concurrent updates, against the maximum batch size of
+ * [GroupCommit]. Each update increments the data and is written with a fsync, so the time is
+ * mostly bound by the number of writes.
+ *
+ * This runs on a device rather than with the JVM unit tests. The cost of a fsync depends on the
+ * flash storage and file system of the device, which a host disk and its write cache don't
+ * reproduce, so timings on the host don't tell how much group commit saves on a phone.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+class GroupCommitBenchmark(private val maxBatchSize: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private lateinit var scope: CoroutineScope
+    private lateinit var dataStore: DataStore<Int>
+
+    @Before
+    fun setUp() {
+        scope = CoroutineScope(Dispatchers.IO + Job())
+        val file = tempFolder.newFile()
+        dataStore = DataStoreFactory.create(
+            serializer = IntSerializer,
+            scope = scope,
+            groupCommit = if (maxBatchSize == NO_GROUP_COMMIT) null else GroupCommit(maxBatchSize)
+        ) { file }
+    }
+
+    @After
+    fun tearDown() {
+        scope.cancel()
+    }
+
+    @Test
+    fun updateBurst() {
+        // Read the file before measuring.
+        val initialValue = runBlocking { dataStore.data.first() }
+        var updates = 0
+        benchmarkRule.measureRepeated {
+            runBlocking {
+                List(BURST_SIZE) {
+                    scope.async { dataStore.updateData { it + 1 } }
+                }.awaitAll()
+            }
+            updates += BURST_SIZE
+        }
+        assertThat(runBlocking { dataStore.data.first() }).isEqualTo(initialValue + updates)
+    }
+
+    private object IntSerializer : Serializer<Int> {
+        override val defaultValue = 0
+
+        override suspend fun readFrom(input: InputStream): Int {
+            var value = 0
+            repeat(4) {
+                val byte = input.read()
+                if (byte == -1) {
+                    return defaultValue
+                }
+                value = value shl 8 or byte
+            }
+            return value
+        }
+
+        override suspend fun writeTo(t: Int, output: OutputStream) {
+            for (shift in 24 downTo 0 step 8) {
+                output.write(t ushr shift)
+            }
+        }
+    }
+
+    companion object {
+        private const val BURST_SIZE = 100
+        private const val NO_GROUP_COMMIT = 0
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "maxBatchSize={0}")
+        fun parameters() = listOf(NO_GROUP_COMMIT, 1, 10, 100)
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.datastore.core.DataStore
+import androidx.datastore.preferences.core.PreferenceDataStoreFactory
+import androidx.datastore.preferences.core.Preferences
+import androidx.datastore.preferences.core.edit
+import androidx.datastore.preferences.core.intPreferencesKey
+import androidx.datastore.preferences.core.mutablePreferencesOf
+import androidx.test.filters.LargeTest
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.runBlocking
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.io.File
+
+/**
+ * Measures editing one preference of [Preferences] with [size] keys, in memory and through a
+ * [DataStore] that writes the edited preferences, against copying all the preferences to a
+ * [HashMap].
+ *
+ * This runs on a device rather than with the JVM unit tests. Editing is dominated by allocation
+ * and garbage collection, which behave differently on ART than on a host JVM.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+class PreferencesBenchmark(private val size: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private val keys = List(size) { intPreferencesKey("key$it") }
+
+    @Test
+    fun edit() {
+        var prefs = createPreferences()
+        var i = 0
+        benchmarkRule.measureRepeated {
+            prefs = prefs.toMutablePreferences().apply {
+                this[keys[i % size]] = -i
+            }.toPreferences()
+            i++
+        }
+    }
+
+    @Test
+    fun edit_hashMapCopy() {
+        val map = createPreferences().asMap()
+        var i = 0
+        benchmarkRule.measureRepeated {
+            HashMap(map)[keys[i % size]] = -i
+            i++
+        }
+    }
+
+    @Test
+    fun editAndWrite() {
+        val scope = CoroutineScope(Dispatchers.IO + Job())
+        val file = File(tempFolder.newFolder(), "benchmark.preferences_pb")
+        val dataStore = PreferenceDataStoreFactory.create(scope = scope) { file }
+        val prefs = createPreferences()
+        runBlocking {
+            dataStore.edit { it += prefs }
+        }
+        var i = 0
+        benchmarkRule.measureRepeated {
+            runBlocking {
+                dataStore.edit { it[keys[i % size]] = -i }
+            }
+            i++
+        }
+        scope.cancel()
+    }
+
+    private fun createPreferences(): Preferences {
+        val prefs = mutablePreferencesOf()
+        for (i in 0 until size) {
+            prefs[keys[i]] = i
+        }
+        return prefs.toPreferences()
+    }
+
+    companion object {
+        @JvmStatic
+        @Parameterized.Parameters(name = "size={0}")
+        fun parameters() = listOf(100, 1000, 10000)
+    }
+}
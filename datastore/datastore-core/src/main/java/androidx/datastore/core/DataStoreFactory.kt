@@ -47,6 +47,8 @@ public object DataStoreFactory {
      * @param migrations Migrations are run before any access to data can occur. Migrations must
      * be idempotent.
      * @param scope The scope in which IO operations and transform functions will execute.
+     * @param groupCommit If not null, the updates that are queued while DataStore is busy are
+     * written together, see [GroupCommit]. By default, each update is written separately.
      * @param produceFile Function which returns the file that the new DataStore will act on. The
      * function must return the same path every time. No two instances of DataStore should act on
      * the same file at the same time.
@@ -59,6 +61,7 @@ public object DataStoreFactory {
         corruptionHandler: ReplaceFileCorruptionHandler<T>? = null,
         migrations: List<DataMigration<T>> = listOf(),
         scope: CoroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob()),
+        groupCommit: GroupCommit? = null,
         produceFile: () -> File
     ): DataStore<T> =
         SingleProcessDataStore(
@@ -66,6 +69,62 @@ public object DataStoreFactory {
             serializer = serializer,
             corruptionHandler = corruptionHandler ?: NoOpCorruptionHandler(),
             initTasksList = listOf(DataMigrationInitializer.getInitializer(migrations)),
-            scope = scope
+            scope = scope,
+            groupCommit = groupCommit
         )
+
+    /**
+     * Create an instance of SingleProcessDataStore that stores its data as a snapshot of the
+     * whole data and a journal of the changes made since. Each update appends the changes
+     * serialized by [DeltaSerializer.writeDelta] to the journal, instead of writing the whole
+     * data like the DataStores created with [create], so that the cost of small updates doesn't
+     * grow with the size of the data. Reads apply the journal to the snapshot. Once the journal
+     * exceeds [compactionThresholdBytes], the whole data is written to a new snapshot after the
+     * update that made it exceed the threshold has returned.
+     *
+     * The journal is a file next to the file returned by [produceFile]. The records written to it
+     * are checksummed, so that a record partially written when the process died is ignored.
+     *
+     * Never create more than one instance of DataStore for a given file; doing so can break all
+     * DataStore functionality, see [create].
+     *
+     * @param serializer Serializer for the type T used with DataStore, and for the changes
+     * between two values of T. The type T must be immutable.
+     * @param corruptionHandler The corruptionHandler is invoked if DataStore encounters a
+     * [CorruptionException] when attempting to read data. CorruptionExceptions are thrown by
+     * serializers when data can not be de-serialized.
+     * @param migrations Migrations are run before any access to data can occur. Migrations must
+     * be idempotent.
+     * @param scope The scope in which IO operations and transform functions will execute.
+     * @param compactionThresholdBytes The size of the journal above which it is compacted into a
+     * new snapshot. Must not be negative.
+     * @param produceFile Function which returns the file that the new DataStore will act on. The
+     * function must return the same path every time. No two instances of DataStore should act on
+     * the same file at the same time.
+     *
+     * @return a new DataStore instance with the provided configuration
+     */
+    @JvmOverloads // Generate constructors for default params for java users.
+    public fun <T> createWithJournal(
+        serializer: DeltaSerializer<T>,
+        corruptionHandler: ReplaceFileCorruptionHandler<T>? = null,
+        migrations: List<DataMigration<T>> = listOf(),
+        scope: CoroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob()),
+        compactionThresholdBytes: Long = DEFAULT_COMPACTION_THRESHOLD_BYTES,
+        produceFile: () -> File
+    ): DataStore<T> {
+        require(compactionThresholdBytes >= 0) {
+            "compactionThresholdBytes must not be negative: $compactionThresholdBytes"
+        }
+        return SingleProcessDataStore(
+            produceFile = produceFile,
+            serializer = serializer,
+            corruptionHandler = corruptionHandler ?: NoOpCorruptionHandler(),
+            initTasksList = listOf(DataMigrationInitializer.getInitializer(migrations)),
+            scope = scope,
+            journalCompactionThresholdBytes = compactionThresholdBytes
+        )
+    }
+
+    private const val DEFAULT_COMPACTION_THRESHOLD_BYTES = 64L * 1024
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.core
+
+import java.io.InputStream
+import java.io.OutputStream
+
+/**
+ * A [Serializer] that can also serialize the changes between two values, for the DataStores that
+ * append these changes to a journal instead of writing the whole data on each update, see
+ * [DataStoreFactory.createWithJournal].
+ *
+ * The type T MUST be immutable. Mutable types will result in broken DataStore functionality.
+ */
+public interface DeltaSerializer<T> : Serializer<T> {
+
+    /**
+     * Marshal the changes from one value to another to a stream, such that [readDelta] returns
+     * [newValue] when they are applied to [oldValue]. Closing the provided OutputStream is a
+     * no-op.
+     *
+     * @param oldValue the data before the changes
+     * @param newValue the data after the changes, which is different from oldValue
+     * @param output the OutputStream to serialize the changes to
+     */
+    public suspend fun writeDelta(oldValue: T, newValue: T, output: OutputStream)
+
+    /**
+     * Unmarshal the changes written by [writeDelta] from a stream, and apply them to a value.
+     * Throw [CorruptionException] if the changes can't be applied.
+     *
+     * @param value the data to apply the changes to, which is the oldValue they were written with
+     * @param input the InputStream with the changes to deserialize
+     * @return the data after the changes
+     */
+    public suspend fun readDelta(value: T, input: InputStream): T
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.core
+
+/**
+ * Configuration of the group commits of a DataStore, see [DataStoreFactory.create].
+ *
+ * Without group commits, DataStore writes the whole data to disk once for each call to
+ * [DataStore.updateData]. With group commits, the updates that are queued while DataStore is
+ * busy are applied in order to the data in memory and written together, with a single write.
+ * The callers of all these updates then return together once the write has completed, or all
+ * fail with the exception of the write if it failed.
+ *
+ * The transform of each update still runs in the context of its caller, and an update whose
+ * transform throws fails alone, without affecting the other updates of the group.
+ *
+ * @param maxBatchSize The maximum number of updates written together. Must be positive.
+ * @param maxBatchLatencyMillis How long DataStore waits for more updates to group with the
+ * first one, when fewer than [maxBatchSize] updates are queued. By default, DataStore doesn't
+ * wait and only groups the updates that are already queued. Must not be negative.
+ */
+public class GroupCommit(
+    public val maxBatchSize: Int = 100,
+    public val maxBatchLatencyMillis: Long = 0
+) {
+    init {
+        require(maxBatchSize > 0) { "maxBatchSize must be positive: $maxBatchSize" }
+        require(maxBatchLatencyMillis >= 0) {
+            "maxBatchLatencyMillis must not be negative: $maxBatchLatencyMillis"
+        }
+    }
+}
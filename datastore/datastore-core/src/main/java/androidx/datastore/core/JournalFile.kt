@@ -0,0 +1,253 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.core
+
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.FileNotFoundException
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.util.zip.CRC32
+
+/**
+ * Storage of the data of a DataStore as a snapshot of the whole data, and a journal of the
+ * changes made since the snapshot was written, see [DataStoreFactory.createWithJournal].
+ *
+ * The snapshot is written like the data of a DataStore without a journal: to a scratch file that
+ * is then renamed to [file]. Each later write appends the delta from the previous data to the
+ * journal, as a record prefixed with its length and CRC32. A record that was only partially
+ * written when the process died fails these checks, and the journal is truncated before it when
+ * read, so that the data read is the data of the last complete write.
+ *
+ * The journal starts with the length and CRC32 of the snapshot it applies to, so that a journal
+ * left by a crash while compacting, after the new snapshot was renamed but before the journal
+ * was deleted, isn't applied to the new snapshot.
+ *
+ * This is NOT thread safe, it must only be used by the actor of its DataStore.
+ */
+internal class JournalFile<T>(
+    private val file: File,
+    private val serializer: DeltaSerializer<T>,
+    private val compactionThresholdBytes: Long
+) {
+    private val journalFile = File(file.absolutePath + JOURNAL_SUFFIX)
+
+    // The data of the last read or write, which the next delta is computed from. Only valid if
+    // hasLastData is true.
+    private var lastData: T? = null
+    private var hasLastData = false
+    // The length and CRC32 of the snapshot, only valid if hasLastData is true.
+    private var snapshotLength = 0
+    private var snapshotChecksum = 0
+    // The length of the valid part of the journal, or 0 if there is no journal for the snapshot.
+    private var journalLength = 0L
+
+    /**
+     * Whether the journal exceeds the compaction threshold, and should be compacted into a new
+     * snapshot with [compact].
+     */
+    val needsCompaction: Boolean
+        get() = journalLength > compactionThresholdBytes
+
+    /**
+     * Reads the snapshot and applies the journal to it. The incomplete record at the end of the
+     * journal, if any, is truncated.
+     */
+    suspend fun read(): T {
+        hasLastData = false
+        val snapshot = try {
+            file.readBytes()
+        } catch (ex: FileNotFoundException) {
+            if (file.exists()) {
+                throw ex
+            }
+            null
+        }
+        val data = if (snapshot == null) {
+            serializer.defaultValue
+        } else {
+            serializer.readFrom(ByteArrayInputStream(snapshot))
+        }
+        snapshotLength = snapshot?.size ?: 0
+        snapshotChecksum = checksum(snapshot ?: ByteArray(0), 0, snapshotLength)
+
+        return replayJournal(data).also { setLastData(it) }
+    }
+
+    private suspend fun replayJournal(snapshotData: T): T {
+        journalLength = 0
+        val journal = try {
+            journalFile.readBytes()
+        } catch (ex: FileNotFoundException) {
+            if (journalFile.exists()) {
+                throw ex
+            }
+            return snapshotData
+        }
+
+        val buffer = ByteBuffer.wrap(journal)
+        if (journal.size < HEADER_SIZE ||
+            buffer.getInt() != MAGIC ||
+            buffer.getInt() != snapshotLength ||
+            buffer.getInt() != snapshotChecksum
+        ) {
+            // Either the header was partially written, or the journal was left by a compaction.
+            journalFile.delete()
+            return snapshotData
+        }
+
+        var data = snapshotData
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            val recordStart = buffer.position()
+            val length = buffer.getInt()
+            val checksum = buffer.getInt()
+            if (length < 0 || length > buffer.remaining() ||
+                checksum(journal, buffer.position(), length) != checksum
+            ) {
+                buffer.position(recordStart)
+                break
+            }
+            data = serializer.readDelta(
+                data,
+                ByteArrayInputStream(journal, buffer.position(), length)
+            )
+            buffer.position(buffer.position() + length)
+        }
+
+        journalLength = buffer.position().toLong()
+        if (journalLength < journal.size) {
+            // Drop the incomplete record, so that the next one is appended after the last
+            // complete record.
+            RandomAccessFile(journalFile, "rw").use { stream ->
+                stream.setLength(journalLength)
+                stream.fd.sync()
+            }
+        }
+        return data
+    }
+
+    /**
+     * Writes new data, as a delta appended to the journal if the previous data is known, or as a
+     * new snapshot otherwise.
+     */
+    suspend fun write(newData: T) {
+        if (!hasLastData) {
+            writeSnapshot(newData)
+            return
+        }
+
+        val delta = ByteArrayOutputStream()
+        @Suppress("UNCHECKED_CAST")
+        serializer.writeDelta(lastData as T, newData, delta)
+
+        val isNewJournal = journalLength == 0L
+        val record = ByteBuffer.allocate(
+            (if (isNewJournal) HEADER_SIZE else 0) + RECORD_HEADER_SIZE + delta.size()
+        )
+        if (isNewJournal) {
+            record.putInt(MAGIC).putInt(snapshotLength).putInt(snapshotChecksum)
+        }
+        val deltaBytes = delta.toByteArray()
+        record.putInt(deltaBytes.size)
+            .putInt(checksum(deltaBytes, 0, deltaBytes.size))
+            .put(deltaBytes)
+
+        RandomAccessFile(journalFile, "rw").use { stream ->
+            // Drops what a previous failed write may have left after the last complete record,
+            // or the journal of a previous snapshot.
+            stream.setLength(journalLength)
+            stream.seek(journalLength)
+            stream.write(record.array())
+            stream.fd.sync()
+        }
+
+        journalLength += record.capacity()
+        setLastData(newData)
+    }
+
+    /**
+     * Writes the current data as a new snapshot and deletes the journal, if there is one.
+     */
+    suspend fun compact() {
+        if (hasLastData && journalLength > 0) {
+            @Suppress("UNCHECKED_CAST")
+            writeSnapshot(lastData as T)
+        }
+    }
+
+    private suspend fun writeSnapshot(newData: T) {
+        val output = ByteArrayOutputStream()
+        serializer.writeTo(newData, output)
+        val snapshot = output.toByteArray()
+
+        // If this fails, the snapshot on disk is unknown until the next read.
+        hasLastData = false
+        val scratchFile = File(file.absolutePath + SCRATCH_SUFFIX)
+        try {
+            FileOutputStream(scratchFile).use { stream ->
+                stream.write(snapshot)
+                stream.fd.sync()
+            }
+
+            if (!scratchFile.renameTo(file)) {
+                throw IOException(
+                    "Unable to rename $scratchFile." +
+                        "This likely means that there are multiple instances of DataStore " +
+                        "for this file. Ensure that you are only creating a single instance of " +
+                        "datastore for this file."
+                )
+            }
+        } catch (ex: IOException) {
+            if (scratchFile.exists()) {
+                scratchFile.delete() // Swallow failure to delete
+            }
+            throw ex
+        }
+
+        snapshotLength = snapshot.size
+        snapshotChecksum = checksum(snapshot, 0, snapshot.size)
+        // The journal no longer matches the snapshot, so it is ignored if this fails.
+        journalFile.delete()
+        journalLength = 0
+        setLastData(newData)
+    }
+
+    private fun setLastData(data: T) {
+        lastData = data
+        hasLastData = true
+    }
+
+    private fun checksum(bytes: ByteArray, offset: Int, length: Int): Int {
+        val crc = CRC32()
+        crc.update(bytes, offset, length)
+        return crc.value.toInt()
+    }
+
+    internal companion object {
+        internal const val JOURNAL_SUFFIX = ".journal"
+        private const val SCRATCH_SUFFIX = ".tmp"
+
+        private const val MAGIC = 0x44534A31 // "DSJ1"
+        // The magic number, then the length and checksum of the snapshot.
+        private const val HEADER_SIZE = 12
+        // The length and checksum of the delta.
+        private const val RECORD_HEADER_SIZE = 8
+    }
+}
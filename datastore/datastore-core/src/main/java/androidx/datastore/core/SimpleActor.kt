@@ -55,6 +55,12 @@ internal class SimpleActor<T>(
      */
     private val remainingMessages = AtomicInteger(0)
 
+    /**
+     * Number of messages received by [receiveQueued] while consuming the current message. Only
+     * accessed by the consumer.
+     */
+    private var queuedMessagesReceived = 0
+
     init {
         // If the scope doesn't have a job, it won't be cancelled, so we don't need to register a
         // callback.
@@ -120,8 +126,31 @@ internal class SimpleActor<T>(
                     scope.ensureActive()
 
                     consumeMessage(messageQueue.receive())
-                } while (remainingMessages.decrementAndGet() != 0)
+
+                    val consumedMessages = 1 + queuedMessagesReceived
+                    queuedMessagesReceived = 0
+                } while (remainingMessages.addAndGet(-consumedMessages) != 0)
             }
         }
     }
+
+    /**
+     * Receives the next message that is already queued, or returns null if there is none. Lets
+     * [consumeMessage] process several messages at once.
+     *
+     * Must only be called from [consumeMessage], which must then process the returned message
+     * like the message it was called with.
+     */
+    fun receiveQueued(): T? {
+        // Only receive messages that are counted in remainingMessages: their senders have seen
+        // that there is an active consumer, so the consumer must not stop before consuming
+        // them. There is at least one counted message in the queue when there are more counted
+        // messages than received ones, since messages are queued before being counted.
+        if (remainingMessages.get() <= 1 + queuedMessagesReceived) {
+            return null
+        }
+        val msg = messageQueue.tryReceive().getOrNull() ?: return null
+        queuedMessagesReceived++
+        return msg
+    }
 }
\ No newline at end of file
@@ -23,6 +23,7 @@ import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.SupervisorJob
 import kotlinx.coroutines.completeWith
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.dropWhile
@@ -85,7 +86,17 @@ internal class SingleProcessDataStore<T>(
      */
     initTasksList: List<suspend (api: InitializerApi<T>) -> Unit> = emptyList(),
     private val corruptionHandler: CorruptionHandler<T> = NoOpCorruptionHandler<T>(),
-    private val scope: CoroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob())
+    private val scope: CoroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob()),
+    /**
+     * If not null, the updates that are queued together are written together.
+     */
+    private val groupCommit: GroupCommit? = null,
+    /**
+     * If not null, the data is stored as a snapshot and a journal of deltas, which is compacted
+     * into a new snapshot once it exceeds this many bytes, see [JournalFile]. The serializer must
+     * then be a [DeltaSerializer].
+     */
+    private val journalCompactionThresholdBytes: Long? = null
 ) : DataStore<T> {
 
     override val data: Flow<T> = flow {
@@ -178,6 +189,15 @@ internal class SingleProcessDataStore<T>(
         file
     }
 
+    private val journal: JournalFile<T>? by lazy {
+        journalCompactionThresholdBytes?.let {
+            JournalFile(file, serializer as DeltaSerializer<T>, it)
+        }
+    }
+
+    // Whether a Compact message is queued, so that only one is.
+    private var compactionQueued = false
+
     @Suppress("UNCHECKED_CAST")
     private val downstreamFlow = MutableStateFlow(UnInitialized as State<T>)
 
@@ -206,6 +226,14 @@ internal class SingleProcessDataStore<T>(
             override val lastState: State<T>?,
             val callerContext: CoroutineContext
         ) : Message<T>()
+
+        /**
+         * Represents the compaction of the journal, queued after the write that made it exceed
+         * its threshold so that the caller of this write doesn't wait for it.
+         */
+        class Compact<T> : Message<T>() {
+            override val lastState: State<T>? = null
+        }
     }
 
     private val actor = SimpleActor<Message<T>>(
@@ -239,7 +267,14 @@ internal class SingleProcessDataStore<T>(
                 handleRead(msg)
             }
             is Message.Update -> {
-                handleUpdate(msg)
+                if (groupCommit != null && downstreamFlow.value is Data) {
+                    handleUpdates(msg, groupCommit)
+                } else {
+                    handleUpdate(msg)
+                }
+            }
+            is Message.Compact -> {
+                compactJournal()
             }
         }
     }
@@ -297,6 +332,91 @@ internal class SingleProcessDataStore<T>(
         )
     }
 
+    /**
+     * Applies [first] and the updates queued after it in order, then writes the result once.
+     * downstreamFlow.value must be successfully set to data before calling this.
+     */
+    private suspend fun handleUpdates(first: Message.Update<T>, groupCommit: GroupCommit) {
+        val updates = mutableListOf(first)
+        // The data after each update, or null if its transform failed.
+        val results = mutableListOf<Data<T>?>()
+        // All updates *must* complete their ack either successfully or exceptionally, so this
+        // must *not* throw an exception, just propagate it to the acks.
+        val writeResult = runCatching {
+            receiveQueuedUpdates(updates, groupCommit.maxBatchSize)
+            if (updates.size < groupCommit.maxBatchSize && groupCommit.maxBatchLatencyMillis > 0) {
+                delay(groupCommit.maxBatchLatencyMillis)
+                receiveQueuedUpdates(updates, groupCommit.maxBatchSize)
+            }
+
+            val initialData = downstreamFlow.value as Data<T>
+            var curDataAndHash = initialData
+            for (update in updates) {
+                try {
+                    curDataAndHash = transform(curDataAndHash, update)
+                    results.add(curDataAndHash)
+                } catch (throwable: Throwable) {
+                    // A failed transform doesn't change the data, like without group commits.
+                    update.ack.completeExceptionally(throwable)
+                    results.add(null)
+                }
+            }
+
+            if (curDataAndHash !== initialData) {
+                writeData(curDataAndHash.value)
+                downstreamFlow.value = curDataAndHash
+            }
+        }
+        updates.forEachIndexed { i, update ->
+            if (!update.ack.isCompleted) {
+                val exception = writeResult.exceptionOrNull()
+                if (exception != null) {
+                    update.ack.completeExceptionally(exception)
+                } else {
+                    update.ack.complete(results[i]!!.value)
+                }
+            }
+        }
+    }
+
+    private suspend fun transform(curDataAndHash: Data<T>, update: Message.Update<T>): Data<T> {
+        curDataAndHash.checkHashCode()
+
+        val curData = curDataAndHash.value
+        val newData = withContext(update.callerContext) { update.transform(curData) }
+
+        // Check that curData has not changed...
+        curDataAndHash.checkHashCode()
+
+        return if (curData == newData) curDataAndHash else Data(newData, newData.hashCode())
+    }
+
+    /**
+     * Adds the updates that are already queued to [updates], up to [maxCount] updates. Queued
+     * reads are handled in place, which is a no-op once data has been read.
+     */
+    private suspend fun receiveQueuedUpdates(
+        updates: MutableList<Message.Update<T>>,
+        maxCount: Int
+    ) {
+        while (updates.size < maxCount) {
+            when (val msg = actor.receiveQueued() ?: return) {
+                is Message.Read -> handleRead(msg)
+                is Message.Update -> updates.add(msg)
+                is Message.Compact -> compactJournal()
+            }
+        }
+    }
+
+    private suspend fun compactJournal() {
+        compactionQueued = false
+        try {
+            journal?.compact()
+        } catch (ex: IOException) {
+            // The journal is still valid, the compaction is retried after the next write.
+        }
+    }
+
     private suspend fun readAndInitOrPropagateAndThrowFailure() {
         try {
             readAndInit()
@@ -376,6 +496,8 @@ internal class SingleProcessDataStore<T>(
     }
 
     private suspend fun readData(): T {
+        journal?.let { return it.read() }
+
         try {
             FileInputStream(file).use { stream ->
                 return serializer.readFrom(stream)
@@ -420,6 +542,15 @@ internal class SingleProcessDataStore<T>(
     internal suspend fun writeData(newData: T) {
         file.createParentDirectories()
 
+        journal?.let {
+            it.write(newData)
+            if (it.needsCompaction && !compactionQueued) {
+                compactionQueued = true
+                actor.offer(Message.Compact())
+            }
+            return
+        }
+
         val scratchFile = File(file.absolutePath + SCRATCH_SUFFIX)
         try {
             FileOutputStream(scratchFile).use { stream ->
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.core
+
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.runBlocking
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.rules.Timeout
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+@RunWith(JUnit4::class)
+class JournalFileTest {
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    @get:Rule
+    val timeout = Timeout(10, TimeUnit.SECONDS)
+
+    private lateinit var testFile: File
+    private lateinit var journalFile: File
+    private lateinit var serializer: TestingDeltaSerializer
+
+    @Before
+    fun setUp() {
+        testFile = File(tempFolder.root, "data")
+        journalFile = File(testFile.absolutePath + JournalFile.JOURNAL_SUFFIX)
+        serializer = TestingDeltaSerializer()
+    }
+
+    @Test
+    fun testReadWithoutFiles() = runBlocking {
+        assertThat(newJournalFile().read()).isEqualTo(0)
+    }
+
+    @Test
+    fun testWriteAppendsDeltas() = runBlocking {
+        val journal = newJournalFile()
+        journal.read()
+        journal.write(1)
+        journal.write(3)
+        journal.write(6)
+
+        assertThat(serializer.writeCount).isEqualTo(0)
+        assertThat(serializer.deltaWriteCount).isEqualTo(3)
+        assertThat(testFile.exists()).isFalse()
+        assertThat(newJournalFile().read()).isEqualTo(6)
+    }
+
+    @Test
+    fun testWriteBeforeReadWritesSnapshot() = runBlocking {
+        newJournalFile().write(5)
+
+        assertThat(serializer.writeCount).isEqualTo(1)
+        assertThat(journalFile.exists()).isFalse()
+        assertThat(newJournalFile().read()).isEqualTo(5)
+    }
+
+    @Test
+    fun testTruncatedJournalReadsLastCompleteWrite() = runBlocking {
+        val journal = newJournalFile()
+        journal.read()
+        journal.write(10)
+        // The length of the journal after each write.
+        val writeEnds = mutableListOf<Long>()
+        for (value in 11..20) {
+            journal.write(value)
+            writeEnds.add(journalFile.length())
+        }
+        val firstWriteEnd = writeEnds.first() - (writeEnds[1] - writeEnds[0])
+        val bytes = journalFile.readBytes()
+
+        for (length in 0..bytes.size) {
+            journalFile.writeBytes(bytes.copyOf(length))
+
+            // The value of the last write that was completely written before the "crash".
+            val completeWrites = writeEnds.count { it <= length }
+            val expected = when {
+                completeWrites > 0 -> 10 + completeWrites
+                length >= firstWriteEnd -> 10
+                else -> 0
+            }
+            val truncatedJournal = newJournalFile()
+            assertThat(truncatedJournal.read()).isEqualTo(expected)
+
+            // The next write is appended after the last complete write.
+            truncatedJournal.write(100)
+            assertThat(newJournalFile().read()).isEqualTo(100)
+        }
+    }
+
+    @Test
+    fun testCorruptedRecordIsIgnoredWithFollowingRecords() = runBlocking {
+        val journal = newJournalFile()
+        journal.read()
+        journal.write(1)
+        val firstWriteEnd = journalFile.length()
+        journal.write(2)
+        journal.write(3)
+
+        val bytes = journalFile.readBytes()
+        // Flips a bit of the last byte of the second write, in its delta.
+        val index = firstWriteEnd.toInt() + (bytes.size - firstWriteEnd.toInt()) / 2 - 1
+        bytes[index] = (bytes[index].toInt() xor 1).toByte()
+        journalFile.writeBytes(bytes)
+
+        assertThat(newJournalFile().read()).isEqualTo(1)
+        assertThat(journalFile.length()).isEqualTo(firstWriteEnd)
+    }
+
+    @Test
+    fun testNeedsCompaction() = runBlocking {
+        val journal = newJournalFile(compactionThresholdBytes = 50)
+        journal.read()
+
+        var value = 0
+        while (!journal.needsCompaction) {
+            journal.write(++value)
+        }
+
+        assertThat(journalFile.length()).isGreaterThan(50L)
+        assertThat(value).isGreaterThan(1)
+    }
+
+    @Test
+    fun testCompactWritesSnapshotAndDeletesJournal() = runBlocking {
+        val journal = newJournalFile()
+        journal.read()
+        journal.write(1)
+        journal.write(2)
+
+        journal.compact()
+
+        assertThat(serializer.writeCount).isEqualTo(1)
+        assertThat(journalFile.exists()).isFalse()
+        assertThat(journal.needsCompaction).isFalse()
+        assertThat(newJournalFile().read()).isEqualTo(2)
+
+        journal.write(5)
+        assertThat(newJournalFile().read()).isEqualTo(5)
+    }
+
+    @Test
+    fun testJournalLeftByCompactionIsIgnored() = runBlocking {
+        val journal = newJournalFile()
+        journal.read()
+        journal.write(1)
+        journal.write(2)
+        val staleJournal = journalFile.readBytes()
+
+        journal.compact()
+        // The process died after the new snapshot was renamed, before the journal was deleted.
+        journalFile.writeBytes(staleJournal)
+
+        assertThat(newJournalFile().read()).isEqualTo(2)
+        assertThat(journalFile.exists()).isFalse()
+    }
+
+    @Test
+    fun testWriteAfterFailedAppendDropsPartialRecord() = runBlocking {
+        val journal = newJournalFile()
+        journal.read()
+        journal.write(1)
+        // Left by a write that failed after it started appending its record.
+        journalFile.appendBytes(byteArrayOf(0, 0, 0, 4, 1, 2))
+
+        journal.write(2)
+
+        assertThat(newJournalFile().read()).isEqualTo(2)
+    }
+
+    private fun newJournalFile(compactionThresholdBytes: Long = 1024) =
+        JournalFile(testFile, serializer, compactionThresholdBytes)
+}
@@ -26,6 +26,7 @@ import kotlinx.coroutines.asCoroutineDispatcher
 import kotlinx.coroutines.async
 import kotlinx.coroutines.awaitCancellation
 import kotlinx.coroutines.cancelAndJoin
+import kotlinx.coroutines.channels.Channel
 import kotlinx.coroutines.delay
 import kotlinx.coroutines.job
 import kotlinx.coroutines.launch
@@ -149,6 +150,78 @@ class SimpleActorTest {
         assertThat(volatileIntHolder.int).isEqualTo(numCalls)
     }
 
+    @Test
+    fun testReceiveQueued() = runBlocking<Unit> {
+        val scope =
+            CoroutineScope(Job() + Executors.newSingleThreadExecutor().asCoroutineDispatcher())
+        val firstStarted = CompletableDeferred<Unit>()
+        val continueFirst = CompletableDeferred<Unit>()
+        val batches = mutableListOf<List<Int>>()
+        val batchConsumed = Channel<Unit>(capacity = Channel.UNLIMITED)
+
+        lateinit var actor: SimpleActor<Int>
+        actor = SimpleActor(
+            scope,
+            onComplete = {},
+            onUndeliveredElement = { _, _ -> }
+        ) {
+            if (it == 1) {
+                firstStarted.complete(Unit)
+                continueFirst.await()
+            }
+            batches.add(listOf(it) + generateSequence { actor.receiveQueued() })
+            batchConsumed.send(Unit)
+        }
+
+        actor.offer(1)
+        firstStarted.await()
+        actor.offer(2)
+        actor.offer(3)
+        actor.offer(4)
+        continueFirst.complete(Unit)
+        batchConsumed.receive()
+
+        // The consumer stopped after the batch, so a new one consumes the next message.
+        actor.offer(5)
+        batchConsumed.receive()
+
+        assertThat(batches).isEqualTo(listOf(listOf(1, 2, 3, 4), listOf(5)))
+    }
+
+    @Test
+    fun testManyConcurrentCalls_withReceiveQueued() = runBlocking<Unit> {
+        val scope = CoroutineScope(Job() + Executors.newFixedThreadPool(4).asCoroutineDispatcher())
+        val numCalls = 100000
+        val volatileIntHolder = VolatileIntHolder()
+
+        val latch = CountDownLatch(numCalls)
+        lateinit var actor: SimpleActor<Int>
+        actor = SimpleActor(
+            scope,
+            onComplete = {},
+            onUndeliveredElement = { _, _ -> }
+        ) {
+            var consumed = 1
+            while (actor.receiveQueued() != null) {
+                consumed++
+            }
+            val newValue = volatileIntHolder.int + consumed
+            // This should be safe because there shouldn't be any concurrent calls
+            volatileIntHolder.int = newValue
+            repeat(consumed) { latch.countDown() }
+        }
+
+        repeat(numCalls) {
+            scope.launch {
+                actor.offer(it)
+            }
+        }
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue()
+
+        assertThat(volatileIntHolder.int).isEqualTo(numCalls)
+    }
+
     @Test
     fun testMessagesAreConsumedInProvidedScope() = runBlocking {
         val scope = CoroutineScope(TestElement("test123"))
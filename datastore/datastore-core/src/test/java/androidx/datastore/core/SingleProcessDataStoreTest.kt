@@ -22,11 +22,13 @@ import com.google.common.truth.Truth.assertThat
 import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.CompletableDeferred
 import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Deferred
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.asCoroutineDispatcher
 import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
 import kotlinx.coroutines.awaitCancellation
 import kotlinx.coroutines.cancel
 import kotlinx.coroutines.cancelAndJoin
@@ -891,6 +893,139 @@ class SingleProcessDataStoreTest {
         dataStore2.data.first()
     }
 
+    @Test
+    fun testGroupCommit_writesQueuedUpdatesOnce() = runBlockingTest {
+        val store = newDataStore(groupCommit = GroupCommit())
+        val firstUpdates = blockFirstUpdate(store)
+
+        // Queued while the first update is in progress.
+        val queuedUpdates = List(9) { async { store.updateData { it.inc() } } }
+        firstUpdates.continueTransform.complete(Unit)
+
+        assertThat(firstUpdates.update.await()).isEqualTo(1)
+        assertThat(queuedUpdates.awaitAll()).isEqualTo((2..10).map { it.toByte() })
+        assertThat(store.data.first()).isEqualTo(10)
+        // One write for the first update, one for the queued ones.
+        assertThat(testingSerializer.writeCount).isEqualTo(2)
+    }
+
+    @Test
+    fun testGroupCommit_maxBatchSize() = runBlockingTest {
+        val store = newDataStore(groupCommit = GroupCommit(maxBatchSize = 4))
+        val firstUpdates = blockFirstUpdate(store)
+
+        val queuedUpdates = List(9) { async { store.updateData { it.inc() } } }
+        firstUpdates.continueTransform.complete(Unit)
+
+        assertThat(queuedUpdates.awaitAll().last()).isEqualTo(10)
+        // One write for the first update, three for the queued ones.
+        assertThat(testingSerializer.writeCount).isEqualTo(4)
+    }
+
+    @Test
+    fun testGroupCommit_failedTransformFailsAlone() = runBlockingTest {
+        val store = newDataStore(groupCommit = GroupCommit())
+        val firstUpdates = blockFirstUpdate(store)
+
+        val update1 = async { store.updateData { it.inc() } }
+        val failingUpdate = async {
+            runCatching { store.updateData { throw IOException("Transform failed") } }
+        }
+        val update2 = async { store.updateData { it.inc() } }
+        firstUpdates.continueTransform.complete(Unit)
+
+        assertThat(update1.await()).isEqualTo(2)
+        assertThat(failingUpdate.await().exceptionOrNull()).hasMessageThat()
+            .isEqualTo("Transform failed")
+        assertThat(update2.await()).isEqualTo(3)
+        assertThat(store.data.first()).isEqualTo(3)
+        assertThat(testingSerializer.writeCount).isEqualTo(2)
+    }
+
+    @Test
+    fun testGroupCommit_failedWriteFailsAllUpdates() = runBlockingTest {
+        val store = newDataStore(groupCommit = GroupCommit())
+        // The first update doesn't change the data, so it isn't written.
+        val firstUpdates = blockFirstUpdate(store) { it }
+
+        val queuedUpdates = List(3) {
+            async { runCatching { store.updateData { it.inc() } } }
+        }
+        testingSerializer.failingWrite = true
+        firstUpdates.continueTransform.complete(Unit)
+
+        assertThat(firstUpdates.update.await()).isEqualTo(0)
+        for (result in queuedUpdates.awaitAll()) {
+            assertThat(result.exceptionOrNull()).hasMessageThat()
+                .isEqualTo("I was asked to fail on writes")
+        }
+        assertThat(store.data.first()).isEqualTo(0)
+    }
+
+    @Test
+    fun testJournal_updatesWriteDeltas() = runBlockingTest {
+        val serializer = TestingDeltaSerializer()
+        coroutineScope {
+            val journalStore = newJournalDataStore(serializer, scope = this)
+            journalStore.updateData { it + 1 }
+            journalStore.updateData { it + 2 }
+        }
+
+        assertThat(serializer.writeCount).isEqualTo(0)
+        assertThat(serializer.deltaWriteCount).isEqualTo(2)
+        coroutineScope {
+            val journalStore = newJournalDataStore(serializer, scope = this)
+            assertThat(journalStore.data.first()).isEqualTo(3)
+        }
+    }
+
+    @Test
+    fun testJournal_compactsAfterUpdate() = runBlockingTest {
+        val serializer = TestingDeltaSerializer()
+        coroutineScope {
+            val journalStore = newJournalDataStore(
+                serializer,
+                scope = this,
+                compactionThresholdBytes = 0
+            )
+            assertThat(journalStore.updateData { 5 }).isEqualTo(5)
+        }
+
+        assertThat(serializer.deltaWriteCount).isEqualTo(1)
+        assertThat(serializer.writeCount).isEqualTo(1)
+        assertThat(File(testFile.absolutePath + JournalFile.JOURNAL_SUFFIX).exists()).isFalse()
+        coroutineScope {
+            val journalStore = newJournalDataStore(serializer, scope = this)
+            assertThat(journalStore.data.first()).isEqualTo(5)
+        }
+    }
+
+    private class BlockedUpdate(
+        val update: Deferred<Byte>,
+        val continueTransform: CompletableDeferred<Unit>
+    )
+
+    /**
+     * Starts an update that applies [transform] once [BlockedUpdate.continueTransform] completes,
+     * so that the following updates are queued.
+     */
+    private suspend fun CoroutineScope.blockFirstUpdate(
+        store: DataStore<Byte>,
+        transform: (Byte) -> Byte = { it.inc() }
+    ): BlockedUpdate {
+        val transformStarted = CompletableDeferred<Unit>()
+        val continueTransform = CompletableDeferred<Unit>()
+        val update = async {
+            store.updateData {
+                transformStarted.complete(Unit)
+                continueTransform.await()
+                transform(it)
+            }
+        }
+        transformStarted.await()
+        return BlockedUpdate(update, continueTransform)
+    }
+
     // Mutable wrapper around a byte
     data class ByteWrapper(var byte: Byte) {
         internal class ByteWrapperSerializer() : Serializer<ByteWrapper> {
@@ -931,14 +1066,29 @@ class SingleProcessDataStoreTest {
         serializer: Serializer<Byte> = testingSerializer,
         scope: CoroutineScope = dataStoreScope,
         initTasksList: List<suspend (api: InitializerApi<Byte>) -> Unit> = listOf(),
-        corruptionHandler: CorruptionHandler<Byte> = NoOpCorruptionHandler<Byte>()
+        corruptionHandler: CorruptionHandler<Byte> = NoOpCorruptionHandler<Byte>(),
+        groupCommit: GroupCommit? = null
     ): DataStore<Byte> {
         return SingleProcessDataStore(
             { file },
             serializer = serializer,
             scope = scope,
             initTasksList = initTasksList,
-            corruptionHandler = corruptionHandler
+            corruptionHandler = corruptionHandler,
+            groupCommit = groupCommit
+        )
+    }
+
+    private fun newJournalDataStore(
+        serializer: DeltaSerializer<Int>,
+        scope: CoroutineScope = dataStoreScope,
+        compactionThresholdBytes: Long = 1024
+    ): DataStore<Int> {
+        return SingleProcessDataStore(
+            { testFile },
+            serializer = serializer,
+            scope = scope,
+            journalCompactionThresholdBytes = compactionThresholdBytes
         )
     }
 }
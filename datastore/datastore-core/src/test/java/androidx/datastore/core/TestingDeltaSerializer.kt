@@ -0,0 +1,60 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.core
+
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.InputStream
+import java.io.OutputStream
+
+/**
+ * Serializer of a counter, whose deltas are the differences between two values. Applying a delta
+ * twice gives a different value, so that tests catch deltas that are replayed twice.
+ */
+internal class TestingDeltaSerializer : DeltaSerializer<Int> {
+    @Volatile var writeCount = 0
+    @Volatile var deltaWriteCount = 0
+
+    override val defaultValue: Int = 0
+
+    override suspend fun readFrom(input: InputStream): Int {
+        return try {
+            DataInputStream(input).readInt()
+        } catch (ex: EOFException) {
+            0
+        }
+    }
+
+    override suspend fun writeTo(t: Int, output: OutputStream) {
+        writeCount++
+        DataOutputStream(output).writeInt(t)
+    }
+
+    override suspend fun writeDelta(oldValue: Int, newValue: Int, output: OutputStream) {
+        deltaWriteCount++
+        DataOutputStream(output).writeInt(newValue - oldValue)
+    }
+
+    override suspend fun readDelta(value: Int, input: InputStream): Int {
+        return try {
+            value + DataInputStream(input).readInt()
+        } catch (ex: EOFException) {
+            throw CorruptionException("Incomplete delta", ex)
+        }
+    }
+}
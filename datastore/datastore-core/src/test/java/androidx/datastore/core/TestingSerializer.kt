@@ -26,6 +26,8 @@ internal class TestingSerializer(
     @Volatile var failingWrite: Boolean = false,
     override val defaultValue: Byte = 0
 ) : Serializer<Byte> {
+    @Volatile var writeCount = 0
+
     override suspend fun readFrom(input: InputStream): Byte {
         if (failReadWithCorruptionException) {
             throw CorruptionException(
@@ -49,6 +51,7 @@ internal class TestingSerializer(
         if (failingWrite) {
             throw IOException("I was asked to fail on writes")
         }
+        writeCount++
         output.write(t.toInt())
     }
 }
\ No newline at end of file
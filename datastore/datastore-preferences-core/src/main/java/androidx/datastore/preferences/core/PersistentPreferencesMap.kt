@@ -0,0 +1,297 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.preferences.core
+
+/**
+ * Immutable map of preferences, implemented as a hash array mapped trie: the maps returned by
+ * [put] and [remove] share all the nodes of this map except the O(log n) nodes on the path to the
+ * changed entry, so that editing a copy of large [Preferences] doesn't copy all of them.
+ *
+ * The nodes created by [put] and [remove] with a non-null owner are mutated in place by the next
+ * calls with the same owner, instead of being copied again. This lets [MutablePreferences] make
+ * many edits without copying the nodes it already copied, as long as it changes its owner once
+ * its map is shared.
+ *
+ * The entries are immutable and are kept by the maps returned by [put] and [remove] unless they
+ * replace them, so they also cache their encoding, see [PreferencesSerializer].
+ */
+internal class PersistentPreferencesMap private constructor(
+    private val root: Node,
+    override val size: Int,
+    // The sum of the hash codes of the entries, which is the hash code of the map.
+    private val entriesHashCode: Int
+) : AbstractMap<Preferences.Key<*>, Any>() {
+
+    /**
+     * An entry of the map, with the hash code of its key.
+     */
+    internal class Entry(
+        override val key: Preferences.Key<*>,
+        override val value: Any,
+        internal val keyHash: Int
+    ) : Map.Entry<Preferences.Key<*>, Any> {
+        /**
+         * The encoding of this entry by [PreferencesSerializer], or null if it wasn't written yet.
+         */
+        @Volatile
+        internal var encoded: ByteArray? = null
+
+        override fun equals(other: Any?): Boolean =
+            other is Map.Entry<*, *> && key == other.key && value == other.value
+
+        override fun hashCode(): Int = key.hashCode() xor value.hashCode()
+
+        override fun toString(): String = "$key=$value"
+    }
+
+    override val entries: Set<Map.Entry<Preferences.Key<*>, Any>>
+        get() = object : AbstractSet<Map.Entry<Preferences.Key<*>, Any>>() {
+            override val size: Int
+                get() = this@PersistentPreferencesMap.size
+
+            override fun iterator(): Iterator<Map.Entry<Preferences.Key<*>, Any>> =
+                iterator { yieldEntries(root) }
+        }
+
+    override fun containsKey(key: Preferences.Key<*>): Boolean =
+        root.find(key, hash(key), 0) != null
+
+    override fun get(key: Preferences.Key<*>): Any? = root.find(key, hash(key), 0)?.value
+
+    /**
+     * Calls [action] with each entry of the map.
+     */
+    fun forEachEntry(action: (Entry) -> Unit) {
+        root.forEachEntry(action)
+    }
+
+    /**
+     * Returns a map with [value] for [key], and the entries of this map for the other keys.
+     *
+     * @param owner the owner of the nodes that can be mutated in place, or null to copy them all
+     */
+    fun put(key: Preferences.Key<*>, value: Any, owner: Any?): PersistentPreferencesMap {
+        val hash = hash(key)
+        val existing = root.find(key, hash, 0)
+        if (existing != null && existing.value == value) {
+            return this
+        }
+        val entry = Entry(key, value, hash)
+        return PersistentPreferencesMap(
+            root.put(entry, 0, owner),
+            if (existing == null) size + 1 else size,
+            entriesHashCode - (existing?.hashCode() ?: 0) + entry.hashCode()
+        )
+    }
+
+    /**
+     * Returns a map with the entries of this map except the one of [key].
+     *
+     * @param owner the owner of the nodes that can be mutated in place, or null to copy them all
+     */
+    fun remove(key: Preferences.Key<*>, owner: Any?): PersistentPreferencesMap {
+        val hash = hash(key)
+        val existing = root.find(key, hash, 0) ?: return this
+        return PersistentPreferencesMap(
+            root.remove(key, hash, 0, owner) ?: EMPTY.root,
+            size - 1,
+            entriesHashCode - existing.hashCode()
+        )
+    }
+
+    override fun equals(other: Any?): Boolean =
+        (other is PersistentPreferencesMap && other.root === root) || super.equals(other)
+
+    override fun hashCode(): Int = entriesHashCode
+
+    /**
+     * A node of the trie. At each level, [BITS] bits of the hash of the keys select the slot of
+     * their entry, which is either the entry itself or the node of the next level if several
+     * entries share these bits. The slots of the set bits of the bitmap are stored in order in
+     * [slots]. Below the last level, a node stores the entries whose keys have the same hash in
+     * [slots], without a bitmap.
+     */
+    private class Node(
+        var bitmap: Int,
+        var slots: Array<Any>,
+        val owner: Any?
+    ) {
+        fun find(key: Preferences.Key<*>, hash: Int, shift: Int): Entry? {
+            if (shift > MAX_SHIFT) {
+                return slots.firstOrNull { (it as Entry).key == key } as Entry?
+            }
+            val bit = bit(hash, shift)
+            if (bitmap and bit == 0) {
+                return null
+            }
+            return when (val slot = slots[index(bit)]) {
+                is Entry -> if (slot.key == key) slot else null
+                else -> (slot as Node).find(key, hash, shift + BITS)
+            }
+        }
+
+        fun put(entry: Entry, shift: Int, owner: Any?): Node {
+            if (shift > MAX_SHIFT) {
+                val index = slots.indexOfFirst { (it as Entry).key == entry.key }
+                return if (index >= 0) {
+                    setSlot(index, entry, owner)
+                } else {
+                    insertSlot(slots.size, 0, entry, owner)
+                }
+            }
+            val bit = bit(entry.keyHash, shift)
+            val index = index(bit)
+            if (bitmap and bit == 0) {
+                return insertSlot(index, bit, entry, owner)
+            }
+            val newSlot = when (val slot = slots[index]) {
+                is Entry -> if (slot.key == entry.key) {
+                    entry
+                } else {
+                    nodeOf(slot, entry, shift + BITS, owner)
+                }
+                else -> (slot as Node).put(entry, shift + BITS, owner)
+            }
+            return setSlot(index, newSlot, owner)
+        }
+
+        /**
+         * Returns this node without the entry of [key], or null if the node would be empty. The
+         * entry must be in the node.
+         */
+        fun remove(key: Preferences.Key<*>, hash: Int, shift: Int, owner: Any?): Node? {
+            if (shift > MAX_SHIFT) {
+                val index = slots.indexOfFirst { (it as Entry).key == key }
+                return if (slots.size == 1) null else removeSlot(index, 0, owner)
+            }
+            val bit = bit(hash, shift)
+            val index = index(bit)
+            val newSlot = when (val slot = slots[index]) {
+                is Entry -> null
+                else -> (slot as Node).remove(key, hash, shift + BITS, owner)?.let {
+                    // A single entry is moved up to the slot of its node.
+                    if (it.slots.size == 1 && it.slots[0] is Entry) it.slots[0] else it
+                }
+            }
+            return when {
+                newSlot != null -> setSlot(index, newSlot, owner)
+                slots.size == 1 -> null
+                else -> removeSlot(index, bit, owner)
+            }
+        }
+
+        fun forEachEntry(action: (Entry) -> Unit) {
+            for (slot in slots) {
+                if (slot is Entry) {
+                    action(slot)
+                } else {
+                    (slot as Node).forEachEntry(action)
+                }
+            }
+        }
+
+        private fun index(bit: Int): Int = Integer.bitCount(bitmap and (bit - 1))
+
+        private fun setSlot(index: Int, slot: Any, owner: Any?): Node {
+            if (slots[index] === slot) {
+                return this
+            }
+            if (owner != null && owner === this.owner) {
+                slots[index] = slot
+                return this
+            }
+            return Node(bitmap, slots.copyOf().also { it[index] = slot }, owner)
+        }
+
+        private fun insertSlot(index: Int, bit: Int, slot: Any, owner: Any?): Node {
+            val newSlots = arrayOfNulls<Any>(slots.size + 1)
+            System.arraycopy(slots, 0, newSlots, 0, index)
+            newSlots[index] = slot
+            System.arraycopy(slots, index, newSlots, index + 1, slots.size - index)
+            @Suppress("UNCHECKED_CAST")
+            return withSlots(bitmap or bit, newSlots as Array<Any>, owner)
+        }
+
+        private fun removeSlot(index: Int, bit: Int, owner: Any?): Node {
+            val newSlots = arrayOfNulls<Any>(slots.size - 1)
+            System.arraycopy(slots, 0, newSlots, 0, index)
+            System.arraycopy(slots, index + 1, newSlots, index, slots.size - index - 1)
+            @Suppress("UNCHECKED_CAST")
+            return withSlots(bitmap xor bit, newSlots as Array<Any>, owner)
+        }
+
+        private fun withSlots(newBitmap: Int, newSlots: Array<Any>, owner: Any?): Node {
+            if (owner != null && owner === this.owner) {
+                bitmap = newBitmap
+                slots = newSlots
+                return this
+            }
+            return Node(newBitmap, newSlots, owner)
+        }
+    }
+
+    internal companion object {
+        // The number of bits of the hash used by each level.
+        private const val BITS = 5
+        private const val MASK = (1 shl BITS) - 1
+        // The shift of the last level, which uses the remaining 2 bits.
+        private const val MAX_SHIFT = 30
+
+        val EMPTY = PersistentPreferencesMap(Node(0, arrayOf(), null), 0, 0)
+
+        private fun hash(key: Preferences.Key<*>): Int {
+            val hash = key.hashCode()
+            return hash xor (hash ushr 16)
+        }
+
+        private fun bit(hash: Int, shift: Int): Int = 1 shl ((hash ushr shift) and MASK)
+
+        /**
+         * Returns a node of the level of [shift] with two entries whose keys are different.
+         */
+        private fun nodeOf(entry1: Entry, entry2: Entry, shift: Int, owner: Any?): Node {
+            if (shift > MAX_SHIFT) {
+                return Node(0, arrayOf<Any>(entry1, entry2), owner)
+            }
+            val position1 = (entry1.keyHash ushr shift) and MASK
+            val position2 = (entry2.keyHash ushr shift) and MASK
+            if (position1 == position2) {
+                val child = nodeOf(entry1, entry2, shift + BITS, owner)
+                return Node(1 shl position1, arrayOf<Any>(child), owner)
+            }
+            return Node(
+                (1 shl position1) or (1 shl position2),
+                if (position1 < position2) {
+                    arrayOf<Any>(entry1, entry2)
+                } else {
+                    arrayOf<Any>(entry2, entry1)
+                },
+                owner
+            )
+        }
+
+        private suspend fun SequenceScope<Entry>.yieldEntries(node: Node) {
+            for (slot in node.slots) {
+                if (slot is Entry) {
+                    yield(slot)
+                } else {
+                    yieldEntries(slot as Node)
+                }
+            }
+        }
+    }
+}
@@ -105,7 +105,7 @@ public abstract class Preferences internal constructor() {
      * @return a MutablePreferences with all the preferences from this Preferences
      */
     public fun toMutablePreferences(): MutablePreferences {
-        return MutablePreferences(asMap().toMutableMap(), startFrozen = false)
+        return MutablePreferences(sharePreferencesMap(), startFrozen = false)
     }
 
     /**
@@ -116,18 +116,36 @@ public abstract class Preferences internal constructor() {
      * @return a copy of this Preferences
      */
     public fun toPreferences(): Preferences {
-        return MutablePreferences(asMap().toMutableMap(), startFrozen = true)
+        return MutablePreferences(sharePreferencesMap(), startFrozen = true)
     }
+
+    /**
+     * Returns the map of all the preferences, to share with another Preferences. The map is
+     * immutable, so sharing it doesn't copy the preferences.
+     */
+    internal abstract fun sharePreferencesMap(): PersistentPreferencesMap
 }
 
 /**
  * Mutable version of [Preferences]. Allows for creating Preferences with different key-value pairs.
  */
 public class MutablePreferences internal constructor(
-    internal val preferencesMap: MutableMap<Key<*>, Any> = mutableMapOf(),
+    preferencesMap: PersistentPreferencesMap = PersistentPreferencesMap.EMPTY,
     startFrozen: Boolean = true
 ) : Preferences() {
 
+    /**
+     * The preferences, replaced by each mutation with a map that shares the unchanged nodes.
+     */
+    internal var preferencesMap: PersistentPreferencesMap = preferencesMap
+        private set
+
+    /**
+     * The owner of the nodes of [preferencesMap] that mutations can change in place, since they
+     * were created by previous mutations and aren't shared yet.
+     */
+    private var owner = Any()
+
     /**
      * If frozen, mutating methods will throw.
      */
@@ -154,7 +172,15 @@ public class MutablePreferences internal constructor(
     }
 
     override fun asMap(): Map<Key<*>, Any> {
-        return Collections.unmodifiableMap(preferencesMap)
+        return sharePreferencesMap()
+    }
+
+    override fun sharePreferencesMap(): PersistentPreferencesMap {
+        if (!frozen.get()) {
+            // The next mutations copy the nodes they change, so that the shared map doesn't change.
+            owner = Any()
+        }
+        return preferencesMap
     }
 
     // Mutating methods below:
@@ -187,8 +213,9 @@ public class MutablePreferences internal constructor(
             null -> remove(key)
             // Copy set so changes to input don't change Preferences. Wrap in unmodifiableSet so
             // returned instances can't be changed.
-            is Set<*> -> preferencesMap[key] = Collections.unmodifiableSet(value.toSet())
-            else -> preferencesMap[key] = value
+            is Set<*> -> preferencesMap =
+                preferencesMap.put(key, Collections.unmodifiableSet(value.toSet()), owner)
+            else -> preferencesMap = preferencesMap.put(key, value, owner)
         }
     }
 
@@ -203,7 +230,9 @@ public class MutablePreferences internal constructor(
      */
     public operator fun plusAssign(prefs: Preferences) {
         checkNotFrozen()
-        preferencesMap += prefs.asMap()
+        for ((key, value) in prefs.asMap()) {
+            preferencesMap = preferencesMap.put(key, value, owner)
+        }
     }
 
     /**
@@ -254,13 +283,15 @@ public class MutablePreferences internal constructor(
     @Suppress("UNCHECKED_CAST")
     public fun <T> remove(key: Preferences.Key<T>): T {
         checkNotFrozen()
-        return preferencesMap.remove(key) as T
+        val value = preferencesMap[key]
+        preferencesMap = preferencesMap.remove(key, owner)
+        return value as T
     }
 
     /* Removes all preferences from this MutablePreferences. */
     public fun clear() {
         checkNotFrozen()
-        preferencesMap.clear()
+        preferencesMap = PersistentPreferencesMap.EMPTY
     }
 
     // Equals and hash code for use by DataStore
@@ -22,6 +22,7 @@ import androidx.datastore.preferences.PreferencesProto.Value
 import androidx.datastore.preferences.PreferencesProto.StringSet
 import androidx.datastore.core.Serializer
 import androidx.datastore.preferences.PreferencesMapCompat
+import java.io.BufferedOutputStream
 import java.io.IOException
 import java.io.InputStream
 import java.io.OutputStream
@@ -56,14 +57,21 @@ internal object PreferencesSerializer : Serializer<Preferences> {
 
     @Throws(IOException::class, CorruptionException::class)
     override suspend fun writeTo(t: Preferences, output: OutputStream) {
-        val preferences = t.asMap()
-        val protoBuilder = PreferenceMap.newBuilder()
-
-        for ((key, value) in preferences) {
-            protoBuilder.putPreferences(key.name, getValueProto(value))
+        // Each entry is written as a PreferenceMap with only this entry, which parses as a
+        // PreferenceMap with all the entries once concatenated. The encoding of the entries is
+        // cached, so that the entries that didn't change since the last write aren't encoded
+        // again. This is a safe cast, since MutablePreferences is the only implementation of
+        // Preferences.
+        val bufferedOutput = BufferedOutputStream(output)
+        (t as MutablePreferences).preferencesMap.forEachEntry { entry ->
+            val encoded = entry.encoded ?: PreferenceMap.newBuilder()
+                .putPreferences(entry.key.name, getValueProto(entry.value))
+                .build()
+                .toByteArray()
+                .also { entry.encoded = it }
+            bufferedOutput.write(encoded)
         }
-
-        protoBuilder.build().writeTo(output)
+        bufferedOutput.flush()
     }
 
     private fun getValueProto(value: Any): Value {
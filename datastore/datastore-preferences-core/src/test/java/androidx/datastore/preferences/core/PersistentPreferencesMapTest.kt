@@ -0,0 +1,141 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.preferences.core
+
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+@RunWith(JUnit4::class)
+class PersistentPreferencesMapTest {
+
+    @Test
+    fun testPutAndRemoveManyKeys() {
+        var map = PersistentPreferencesMap.EMPTY
+        val expected = mutableMapOf<Preferences.Key<*>, Any>()
+        for (i in 0 until 2000) {
+            map = map.put(intPreferencesKey("key$i"), i, owner = null)
+            expected[intPreferencesKey("key$i")] = i
+        }
+        assertMapEquals(expected, map)
+
+        for (i in 0 until 2000 step 3) {
+            map = map.remove(intPreferencesKey("key$i"), owner = null)
+            expected.remove(intPreferencesKey("key$i"))
+        }
+        assertMapEquals(expected, map)
+    }
+
+    @Test
+    fun testKeysWithSameHashCode() {
+        // "Aa" and "BB" have the same hash code.
+        val key1 = stringPreferencesKey("Aa")
+        val key2 = stringPreferencesKey("BB")
+        assertEquals(key1.hashCode(), key2.hashCode())
+
+        val map = PersistentPreferencesMap.EMPTY
+            .put(key1, "1", owner = null)
+            .put(key2, "2", owner = null)
+        assertMapEquals(mapOf(key1 to "1", key2 to "2"), map)
+        assertMapEquals(mapOf(key2 to "2"), map.remove(key1, owner = null))
+        assertMapEquals(mapOf(key1 to "1"), map.remove(key2, owner = null))
+    }
+
+    @Test
+    fun testEditsDontChangeOriginal() {
+        var original = PersistentPreferencesMap.EMPTY
+        for (i in 0 until 100) {
+            original = original.put(intPreferencesKey("key$i"), i, owner = null)
+        }
+
+        var edited = original
+        val owner = Any()
+        for (i in 0 until 100 step 2) {
+            edited = edited.put(intPreferencesKey("key$i"), -i, owner)
+            edited = edited.remove(intPreferencesKey("key${i + 1}"), owner)
+        }
+
+        assertEquals(100, original.size)
+        for (i in 0 until 100) {
+            assertEquals(i, original[intPreferencesKey("key$i")])
+        }
+        assertEquals(50, edited.size)
+        for (i in 0 until 100 step 2) {
+            assertEquals(-i, edited[intPreferencesKey("key$i")])
+            assertNull(edited[intPreferencesKey("key${i + 1}")])
+        }
+    }
+
+    @Test
+    fun testPutSameValueReturnsSameMap() {
+        val key = intPreferencesKey("key")
+        val map = PersistentPreferencesMap.EMPTY.put(key, 1, owner = null)
+
+        assertSame(map, map.put(key, 1, owner = null))
+        assertSame(map, map.remove(intPreferencesKey("other_key"), owner = null))
+    }
+
+    @Test
+    fun testUnchangedEntriesAreKept() {
+        val key1 = intPreferencesKey("key1")
+        val key2 = intPreferencesKey("key2")
+        val map = PersistentPreferencesMap.EMPTY
+            .put(key1, 1, owner = null)
+            .put(key2, 2, owner = null)
+
+        val edited = map.put(key2, 3, owner = null)
+
+        assertSame(map.entry(key1), edited.entry(key1))
+        assertFalse(map.entry(key2) === edited.entry(key2))
+    }
+
+    @Test
+    fun testEqualsAndHashCode() {
+        val expected = mutableMapOf<Preferences.Key<*>, Any>()
+        var map = PersistentPreferencesMap.EMPTY
+        for (i in 0 until 100) {
+            map = map.put(stringPreferencesKey("key$i"), "value$i", owner = null)
+            expected[stringPreferencesKey("key$i")] = "value$i"
+        }
+
+        assertTrue(map == expected)
+        assertTrue(expected == map)
+        assertEquals(expected.hashCode(), map.hashCode())
+    }
+
+    private fun PersistentPreferencesMap.entry(key: Preferences.Key<*>) =
+        entries.single { it.key == key }
+
+    private fun assertMapEquals(
+        expected: Map<Preferences.Key<*>, Any>,
+        actual: PersistentPreferencesMap
+    ) {
+        assertEquals(expected.size, actual.size)
+        assertEquals(expected.size, actual.entries.count())
+        for ((key, value) in expected) {
+            assertTrue(actual.containsKey(key))
+            assertEquals(value, actual[key])
+        }
+        assertEquals(expected, actual.entries.associate { it.key to it.value })
+        assertEquals(expected.hashCode(), actual.hashCode())
+    }
+}
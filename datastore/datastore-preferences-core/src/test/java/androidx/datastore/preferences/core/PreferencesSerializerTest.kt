@@ -178,6 +178,35 @@ class PreferencesSerializerTest {
         assertEquals(prefs, readPrefs)
     }
 
+    @Test
+    fun testWriteAndReadAfterEdit() = runBlockingTest {
+        val prefs = mutablePreferencesOf()
+        for (i in 0 until 100) {
+            prefs[stringPreferencesKey("key$i")] = "value$i"
+        }
+        testFile.outputStream().use {
+            preferencesSerializer.writeTo(prefs, it)
+        }
+
+        // The entries that didn't change are written with their previous encoding.
+        val editedPrefs = prefs.toMutablePreferences().apply {
+            set(stringPreferencesKey("key1"), "edited")
+            remove(stringPreferencesKey("key2"))
+            set(intPreferencesKey("int_key"), 1)
+        }
+        testFile.outputStream().use {
+            preferencesSerializer.writeTo(editedPrefs, it)
+        }
+
+        val readPrefs = testFile.inputStream().use {
+            preferencesSerializer.readFrom(it)
+        }
+
+        assertEquals(editedPrefs, readPrefs)
+        assertEquals("edited", readPrefs[stringPreferencesKey("key1")])
+        assertEquals(100, readPrefs.asMap().size)
+    }
+
     @Test
     fun testThrowsCorruptionException() = runBlockingTest {
         // Not a valid proto - protos cannot start with a 0 byte.
@@ -380,6 +380,29 @@ class PreferencesTest {
         assertEquals(1, prefs[intKey1])
     }
 
+    @Test
+    fun testMutations_dontChangeSharedPreferences() {
+        val mutablePreferences = mutablePreferencesOf()
+        for (i in 0 until 100) {
+            mutablePreferences[intPreferencesKey("key$i")] = i
+        }
+        val prefs = mutablePreferences.toPreferences()
+        val map = mutablePreferences.asMap()
+
+        for (i in 0 until 100) {
+            mutablePreferences[intPreferencesKey("key$i")] = -i
+        }
+        mutablePreferences -= intPreferencesKey("key0")
+
+        for (i in 0 until 100) {
+            assertEquals(i, prefs[intPreferencesKey("key$i")])
+            assertEquals(i, map[intPreferencesKey("key$i")])
+        }
+        assertEquals(100, map.size)
+        assertEquals(99, mutablePreferences.asMap().size)
+        assertEquals(99, mutablePreferences[intPreferencesKey("key99")])
+    }
+
     @Test
     fun testToString() {
         val intKey = intPreferencesKey("int_key")
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package androidx.leanback.widget.benchmark
+
+import android.os.Bundle
+import android.widget.FrameLayout
+import androidx.appcompat.app.AppCompatActivity
+import androidx.leanback.widget.VerticalGridView
+
+class GridActivity : AppCompatActivity() {
+
+    val gridView: VerticalGridView by lazy {
+        VerticalGridView(this).apply {
+            setColumnWidth(ROW_WIDTH)
+            layoutParams = FrameLayout.LayoutParams(ROW_WIDTH, ROW_HEIGHT * 2)
+        }
+    }
+
+    override fun onCreate(savedInstanceState: Bundle?) {
+        super.onCreate(savedInstanceState)
+        setContentView(gridView)
+    }
+
+    companion object {
+        const val ROW_WIDTH = 400
+        const val ROW_HEIGHT = 200
+    }
+}
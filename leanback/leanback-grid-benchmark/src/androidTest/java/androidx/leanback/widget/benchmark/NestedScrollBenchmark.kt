@@ -0,0 +1,193 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package androidx.leanback.widget.benchmark
+
+import android.graphics.Color
+import android.view.Choreographer
+import android.view.View
+import android.view.ViewGroup
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.leanback.widget.HorizontalGridView
+import androidx.leanback.widget.benchmark.GridActivity.Companion.ROW_HEIGHT
+import androidx.leanback.widget.benchmark.GridActivity.Companion.ROW_WIDTH
+import androidx.recyclerview.widget.RecyclerView
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures scrolling a browse-like grid by one row on the UI thread, each row being a nested
+ * [HorizontalGridView] that must lay out its items when it comes into view, with and without
+ * item prefetch.
+ *
+ * Between two scrolls, frames are drawn so that the GapWorker of RecyclerView can prefetch the
+ * next row and its items, like it does while the user scrolls. Drawing these frames isn't
+ * measured, so with prefetch the measured scroll only attaches the prefetched row.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class NestedScrollBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @Suppress("DEPRECATION")
+    @get:Rule
+    val activityRule = androidx.test.rule.ActivityTestRule(GridActivity::class.java)
+
+    private fun setupRows(itemRows: Int, prefetch: Boolean) {
+        activityRule.runOnUiThread {
+            val gridView = activityRule.activity.gridView
+            // GridLayoutManager disables item prefetch by default.
+            gridView.layoutManager!!.isItemPrefetchEnabled = prefetch
+            gridView.adapter = RowAdapter(itemRows, prefetch)
+        }
+        awaitFrames()
+    }
+
+    private fun measureRowScroll() {
+        val gridView = activityRule.activity.gridView
+        benchmarkRule.measureRepeated {
+            // each scroll should reveal a new row
+            activityRule.runOnUiThread { gridView.scrollBy(0, ROW_HEIGHT) }
+            runWithTimingDisabled {
+                awaitFrames()
+            }
+        }
+    }
+
+    /**
+     * Waits for the next frames to be drawn, and for the GapWorker that they post to run.
+     */
+    private fun awaitFrames() {
+        val gridView = activityRule.activity.gridView
+        val latch = CountDownLatch(1)
+        activityRule.runOnUiThread {
+            Choreographer.getInstance().postFrameCallback(object : Choreographer.FrameCallback {
+                var remainingFrames = FRAMES_BETWEEN_SCROLLS
+
+                override fun doFrame(frameTimeNanos: Long) {
+                    if (--remainingFrames > 0) {
+                        Choreographer.getInstance().postFrameCallback(this)
+                    } else {
+                        // Runs after the traversal of this frame and the GapWorker it posted.
+                        gridView.post { latch.countDown() }
+                    }
+                }
+            })
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS))
+    }
+
+    @Test
+    fun bindRowOffset() {
+        setupRows(itemRows = 1, prefetch = false)
+        measureRowScroll()
+    }
+
+    @Test
+    fun bindRowOffset_prefetch() {
+        setupRows(itemRows = 1, prefetch = true)
+        measureRowScroll()
+    }
+
+    @Test
+    fun bindRowOffset_staggered() {
+        // rows with two rows of items are laid out by a StaggeredGrid
+        setupRows(itemRows = 2, prefetch = false)
+        measureRowScroll()
+    }
+
+    @Test
+    fun bindRowOffset_staggered_prefetch() {
+        setupRows(itemRows = 2, prefetch = true)
+        measureRowScroll()
+    }
+
+    companion object {
+        const val FRAMES_BETWEEN_SCROLLS = 2
+
+        // Like ListRowPresenter.setItemPrefetchCount(), the items filling the row width.
+        const val ITEM_PREFETCH_COUNT = ROW_WIDTH / ITEM_WIDTH
+    }
+}
+
+private class RowViewHolder(val gridView: HorizontalGridView) : RecyclerView.ViewHolder(gridView)
+
+/**
+ * Displays *many* rows, each showing a row of items sharing the same pool, like ListRowPresenter.
+ */
+private class RowAdapter(
+    private val itemRows: Int,
+    private val prefetch: Boolean
+) : RecyclerView.Adapter<RowViewHolder>() {
+    private val itemAdapter = ItemAdapter()
+    private val pool = RecyclerView.RecycledViewPool()
+
+    override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): RowViewHolder {
+        val gridView = HorizontalGridView(parent.context)
+        gridView.setNumRows(itemRows)
+        gridView.setRowHeight(ROW_HEIGHT / itemRows)
+        gridView.layoutParams = RecyclerView.LayoutParams(ROW_WIDTH, ROW_HEIGHT)
+        gridView.setRecycledViewPool(pool)
+        if (prefetch) {
+            // Same as the rows created by ListRowPresenter with an item prefetch count.
+            gridView.setInitialPrefetchItemCount(
+                NestedScrollBenchmark.ITEM_PREFETCH_COUNT * itemRows
+            )
+            gridView.layoutManager!!.isItemPrefetchEnabled = true
+        }
+        return RowViewHolder(gridView)
+    }
+
+    override fun onBindViewHolder(holder: RowViewHolder, position: Int) {
+        holder.gridView.swapAdapter(itemAdapter, true)
+    }
+
+    override fun getItemCount() = Integer.MAX_VALUE
+}
+
+private class ItemViewHolder(view: View) : RecyclerView.ViewHolder(view)
+
+private class ItemAdapter : RecyclerView.Adapter<ItemViewHolder>() {
+    override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): ItemViewHolder {
+        return ItemViewHolder(
+            View(parent.context).apply {
+                layoutParams = RecyclerView.LayoutParams(
+                    ITEM_WIDTH,
+                    ViewGroup.LayoutParams.MATCH_PARENT
+                )
+            }
+        )
+    }
+
+    override fun onBindViewHolder(holder: ItemViewHolder, position: Int) {
+        val color = position % 256
+        holder.itemView.setBackgroundColor(Color.rgb(color, color, color))
+    }
+
+    override fun getItemCount() = 100
+}
+
+private const val ITEM_WIDTH = 100
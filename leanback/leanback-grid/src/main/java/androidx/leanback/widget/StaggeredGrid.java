@@ -15,8 +15,10 @@
  */
 package androidx.leanback.widget;
 
+import androidx.annotation.NonNull;
 import androidx.collection.CircularArray;
 import androidx.collection.CircularIntArray;
+import androidx.recyclerview.widget.RecyclerView;
 
 import java.io.PrintWriter;
 
@@ -403,6 +405,66 @@ abstract class StaggeredGrid extends Grid {
         return loc.mSize;
     }
 
+    @Override
+    public void collectAdjacentPrefetchPositions(int fromLimit, int da,
+            @NonNull RecyclerView.LayoutManager.LayoutPrefetchRegistry layoutPrefetchRegistry) {
+        if (mLastVisibleIndex < 0) {
+            return;
+        }
+        // The next item of each row is prefetched. The rows of the items that were laid out
+        // before are known from their cached locations. Without cached locations, the row of an
+        // item depends on the sizes of the items, so only the item filled next is prefetched.
+        final boolean[] prefetchedRows = new boolean[mNumRows];
+        int prefetchedCount = 0;
+        if (mReversedFlow ? da > 0 : da < 0) {
+            // prefetch next prepends, lower index numbers
+            if (mFirstVisibleIndex == 0) {
+                return; // no remaining items to prefetch
+            }
+            int edge = mProvider.getEdge(mFirstVisibleIndex);
+            for (int index = mFirstVisibleIndex - 1;
+                    index >= mFirstIndex && prefetchedCount < mNumRows; index--) {
+                edge -= getLocation(index + 1).mOffset;
+                Location loc = getLocation(index);
+                if (!prefetchedRows[loc.mRow]) {
+                    prefetchedRows[loc.mRow] = true;
+                    prefetchedCount++;
+                    int nearestEdge = mReversedFlow ? edge - loc.mSize : edge + loc.mSize;
+                    layoutPrefetchRegistry.addPosition(index, Math.abs(nearestEdge - fromLimit));
+                }
+            }
+            if (prefetchedCount == 0 && mFirstIndex > 0) {
+                int nearestEdge = mReversedFlow ? findRowMax(false, null) + mSpacing
+                        : findRowMin(true, null) - mSpacing;
+                layoutPrefetchRegistry.addPosition(mFirstIndex - 1,
+                        Math.abs(nearestEdge - fromLimit));
+            }
+        } else {
+            // prefetch next appends, higher index numbers
+            final int lastIndex = Math.min(getLastIndex(), mProvider.getCount() - 1);
+            if (mLastVisibleIndex == mProvider.getCount() - 1) {
+                return; // no remaining items to prefetch
+            }
+            int edge = mProvider.getEdge(mLastVisibleIndex);
+            for (int index = mLastVisibleIndex + 1;
+                    index <= lastIndex && prefetchedCount < mNumRows; index++) {
+                Location loc = getLocation(index);
+                edge += loc.mOffset;
+                if (!prefetchedRows[loc.mRow]) {
+                    prefetchedRows[loc.mRow] = true;
+                    prefetchedCount++;
+                    layoutPrefetchRegistry.addPosition(index, Math.abs(edge - fromLimit));
+                }
+            }
+            if (prefetchedCount == 0 && lastIndex < mProvider.getCount() - 1) {
+                int nearestEdge = mReversedFlow ? findRowMin(true, null) - mSpacing
+                        : findRowMax(false, null) + mSpacing;
+                layoutPrefetchRegistry.addPosition(lastIndex + 1,
+                        Math.abs(nearestEdge - fromLimit));
+            }
+        }
+    }
+
     @Override
     public final CircularIntArray[] getItemPositionsInRows(int startPos, int endPos) {
         for (int i = 0; i < mNumRows; i++) {
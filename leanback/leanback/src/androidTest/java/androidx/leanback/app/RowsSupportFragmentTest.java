@@ -171,6 +171,55 @@ public class RowsSupportFragmentTest extends SingleSupportFragmentTestBase {
         assertTrue("Second row should not be aligned to top of screen", rect.top > 0);
     }
 
+    public static class F_itemViewPreInflation extends RowsSupportFragment {
+        @Override
+        public void onCreate(Bundle savedInstanceState) {
+            super.onCreate(savedInstanceState);
+            setItemViewPreInflationEnabled(true);
+            ListRowPresenter lrp = new ListRowPresenter();
+            ArrayObjectAdapter adapter = new ArrayObjectAdapter(lrp);
+            setAdapter(adapter);
+            loadData(adapter, 10, 1);
+        }
+    }
+
+    @Test
+    public void itemViewPreInflation() throws Throwable {
+        SingleSupportFragmentTestActivity activity =
+                launchAndWaitActivity(F_itemViewPreInflation.class, 1000);
+        final RowsSupportFragment fragment = (RowsSupportFragment) activity.getTestFragment();
+
+        // The item views inflated by the first rows are inflated again when the main thread is
+        // idle, for the next rows.
+        PollingCheck.waitFor(new PollingCheck.PollingCheckCondition() {
+            @Override
+            public boolean canProceed() {
+                return fragment.getPreInflatedItemViewCount() > 0;
+            }
+        });
+        assertEquals(0, fragment.getItemViewInflationsAvoided());
+
+        final VerticalGridView gridView = fragment.getVerticalGridView();
+        for (int i = 0; i < 3; i++) {
+            sendKeys(KeyEvent.KEYCODE_DPAD_DOWN);
+            waitForScrollIdle(gridView);
+        }
+        assertTrue(fragment.getItemViewInflationsAvoided() > 0);
+    }
+
+    @Test
+    public void itemViewPreInflationDisabled() throws Throwable {
+        SingleSupportFragmentTestActivity activity =
+                launchAndWaitActivity(F_defaultAlignment.class, 1000);
+        final RowsSupportFragment fragment = (RowsSupportFragment) activity.getTestFragment();
+
+        final VerticalGridView gridView = fragment.getVerticalGridView();
+        sendKeys(KeyEvent.KEYCODE_DPAD_DOWN);
+        waitForScrollIdle(gridView);
+        assertEquals(0, fragment.getPreInflatedItemViewCount());
+        assertEquals(0, fragment.getItemViewInflationsAvoided());
+    }
+
     public static class F_selectBeforeSetAdapter extends RowsSupportFragment {
         @Override
         public void onCreate(Bundle savedInstanceState) {
@@ -179,6 +179,50 @@ public class GridWidgetPrefetchTest {
         validatePrefetch(gridView, -50, 0, new Integer[] {7, 70});
     }
 
+    @Test
+    public void prefetchMultipleRows() {
+        HorizontalGridView gridView = new HorizontalGridView(getContext());
+        gridView.setNumRows(2);
+        gridView.setRowHeight(50);
+        gridView.setAdapter(createBoxAdapter());
+
+        layout(gridView, 150, 100);
+
+        /* Visual representation, each number column represents 25 pixels:
+         * |           |
+         * |0 0 0 0 2 2|2 2 4 4 4 4 ...
+         * |1 1 1 1 3 3|3 3 5 5 5 5 ...
+         * |           |
+         */
+        assertEquals(4, gridView.getChildCount());
+        assertEquals(100, gridView.getLayoutManager().findViewByPosition(2).getLeft());
+        assertEquals(100, gridView.getLayoutManager().findViewByPosition(3).getLeft());
+
+        validatePrefetch(gridView, -50, 0); // no view to left
+        // the row of the next view depends on its size, only the view filled next is returned
+        validatePrefetch(gridView, 50, 0, new Integer[] {4, 50});
+
+        // no views returned for vertical prefetch:
+        validatePrefetch(gridView, 0, 10);
+
+        gridView.scrollBy(125, 0);
+
+        /* Visual representation, each number column represents 25 pixels:
+         *          |           |
+         * 0 0 0 0 2|2 2 2 4 4 4|4
+         * 1 1 1 1 3|3 3 3 5 5 5|5
+         *          |           |
+         */
+        // the rows of 0 and 1 are known from their cached locations
+        validatePrefetch(gridView, -50, 0, new Integer[] {1, 25}, new Integer[] {0, 25});
+        validatePrefetch(gridView, 50, 0, new Integer[] {6, 25});
+
+        gridView.scrollBy(-125, 0);
+
+        // the rows of 4 and 5 are known from their cached locations
+        validatePrefetch(gridView, 50, 0, new Integer[] {4, 50}, new Integer[] {5, 50});
+    }
+
 
     class OuterAdapter extends RecyclerView.Adapter<OuterAdapter.ViewHolder> {
         OuterAdapter() {
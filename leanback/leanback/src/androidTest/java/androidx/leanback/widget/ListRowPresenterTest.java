@@ -198,6 +198,29 @@ public class ListRowPresenterTest {
                 mListVh.view.getMeasuredHeight());
     }
 
+    @Test
+    public void itemPrefetchCount() {
+        final ArrayObjectAdapter arrayAdapter = new ArrayObjectAdapter(new DummyPresenter());
+        arrayAdapter.add("abc");
+        ListRowPresenter listRowPresenter = new ListRowPresenter();
+        assertEquals(0, listRowPresenter.getItemPrefetchCount());
+        listRowPresenter.setItemPrefetchCount(6);
+        assertEquals(6, listRowPresenter.getItemPrefetchCount());
+        setup(listRowPresenter, arrayAdapter);
+
+        assertTrue(mListVh.getGridView().getLayoutManager().isItemPrefetchEnabled());
+        assertEquals(6, mListVh.getGridView().getInitialPrefetchItemCount());
+    }
+
+    @Test
+    public void itemPrefetchDisabledByDefault() {
+        final ArrayObjectAdapter arrayAdapter = new ArrayObjectAdapter(new DummyPresenter());
+        arrayAdapter.add("abc");
+        setup(new ListRowPresenter(), arrayAdapter);
+
+        assertFalse(mListVh.getGridView().getLayoutManager().isItemPrefetchEnabled());
+    }
+
     public void defaultListRowOverlayColor(ListRowPresenter listRowPresenter) {
         final ArrayObjectAdapter arrayAdapter = new ArrayObjectAdapter(new DummyPresenter());
         arrayAdapter.add("abc");
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.leanback.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class PreInflatingViewPoolTest {
+    private static final int VIEW_TYPE = 0;
+
+    static class CountingAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        int mCreatedCount;
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            mCreatedCount++;
+            return new RecyclerView.ViewHolder(new View(parent.getContext())) {};
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return 100;
+        }
+    }
+
+    private CountingAdapter mAdapter;
+    private PreInflatingViewPool mPool;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        mAdapter = new CountingAdapter();
+        mPool = new PreInflatingViewPool();
+        mPool.setItemViewFactory(mAdapter, new FrameLayout(context));
+        mPool.setMaxRecycledViews(VIEW_TYPE, 2);
+    }
+
+    @Test
+    public void misses_preInflatedUpToMaxRecycledViews() {
+        mPool.setPreInflationEnabled(true);
+        for (int i = 0; i < 3; i++) {
+            assertNull(mPool.getRecycledView(VIEW_TYPE));
+        }
+
+        assertTrue(mPool.preInflateNext());
+        assertTrue(mPool.preInflateNext());
+        assertFalse(mPool.preInflateNext());
+
+        assertEquals(2, mAdapter.mCreatedCount);
+        assertEquals(2, mPool.getPreInflatedCount());
+        assertEquals(2, mPool.getRecycledViewCount(VIEW_TYPE));
+        assertEquals(0, mPool.getInflationsAvoided());
+    }
+
+    @Test
+    public void preInflatedView_countedAsInflationAvoided() {
+        mPool.setPreInflationEnabled(true);
+        assertNull(mPool.getRecycledView(VIEW_TYPE));
+        assertFalse(mPool.preInflateNext());
+
+        assertNotNull(mPool.getRecycledView(VIEW_TYPE));
+        assertEquals(1, mPool.getInflationsAvoided());
+    }
+
+    @Test
+    public void recycledView_notCountedAsInflationAvoided() {
+        mPool.setPreInflationEnabled(true);
+        mPool.putRecycledView(mAdapter.createViewHolder(new FrameLayout(
+                ApplicationProvider.getApplicationContext()), VIEW_TYPE));
+
+        assertNotNull(mPool.getRecycledView(VIEW_TYPE));
+        assertEquals(0, mPool.getInflationsAvoided());
+    }
+
+    @Test
+    public void shrinkMaxRecycledViews_keepsRemainingPreInflatedViews() {
+        mPool.setPreInflationEnabled(true);
+        assertNull(mPool.getRecycledView(VIEW_TYPE));
+        assertNull(mPool.getRecycledView(VIEW_TYPE));
+        assertTrue(mPool.preInflateNext());
+        assertFalse(mPool.preInflateNext());
+
+        mPool.setMaxRecycledViews(VIEW_TYPE, 1);
+
+        assertEquals(1, mPool.getRecycledViewCount(VIEW_TYPE));
+        assertNotNull(mPool.getRecycledView(VIEW_TYPE));
+        assertEquals(1, mPool.getInflationsAvoided());
+        assertNull(mPool.getRecycledView(VIEW_TYPE));
+    }
+
+    @Test
+    public void disabled_noPreInflation() {
+        assertNull(mPool.getRecycledView(VIEW_TYPE));
+
+        assertFalse(mPool.preInflateNext());
+        assertEquals(0, mAdapter.mCreatedCount);
+        assertEquals(0, mPool.getRecycledViewCount(VIEW_TYPE));
+    }
+}
@@ -16,6 +16,8 @@
  */
 package androidx.leanback.app;
 
+import static androidx.annotation.RestrictTo.Scope.LIBRARY_GROUP_PREFIX;
+
 import android.animation.TimeAnimator;
 import android.animation.TimeAnimator.TimeListener;
 import android.os.Bundle;
@@ -28,6 +30,7 @@ import android.view.animation.Interpolator;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
 import androidx.leanback.R;
 import androidx.leanback.widget.BaseOnItemViewClickedListener;
 import androidx.leanback.widget.BaseOnItemViewSelectedListener;
@@ -37,6 +40,7 @@ import androidx.leanback.widget.ListRowPresenter;
 import androidx.leanback.widget.ObjectAdapter;
 import androidx.leanback.widget.OnItemViewClickedListener;
 import androidx.leanback.widget.OnItemViewSelectedListener;
+import androidx.leanback.widget.PreInflatingViewPool;
 import androidx.leanback.widget.Presenter;
 import androidx.leanback.widget.PresenterSelector;
 import androidx.leanback.widget.RowPresenter;
@@ -161,6 +165,7 @@ public class RowsFragment extends BaseRowFragment implements
     BaseOnItemViewClickedListener mOnItemViewClickedListener;
 
     private RecyclerView.RecycledViewPool mRecycledViewPool;
+    private boolean mItemViewPreInflationEnabled;
     private ArrayList<Presenter> mPresenterMapper;
 
     ItemBridgeAdapter.AdapterListener mExternalAdapterListener;
@@ -200,6 +205,54 @@ public class RowsFragment extends BaseRowFragment implements
     public void enableRowScaling(boolean enable) {
     }
 
+    /**
+     * Enables inflating the item views of the list rows while the main thread is idle. The list
+     * rows share a pool of item views per {@link Presenter}; each time the pool has no view for
+     * a row that comes into view, the pool inflates one more view for the next rows when the main
+     * thread is idle, up to {@link ListRowPresenter#getRecycledPoolSize(Presenter)} views. By
+     * default, it is disabled.
+     * <p>
+     * When enabled, the pool is created by the fragment instead of being the pool of the first
+     * list row, so it must be enabled before the views are created for that to take effect.
+     */
+    public void setItemViewPreInflationEnabled(boolean enabled) {
+        mItemViewPreInflationEnabled = enabled;
+        if (mRecycledViewPool instanceof PreInflatingViewPool) {
+            ((PreInflatingViewPool) mRecycledViewPool).setPreInflationEnabled(enabled);
+        }
+    }
+
+    /**
+     * Returns true if the item views of the list rows are inflated while the main thread is idle.
+     */
+    public boolean isItemViewPreInflationEnabled() {
+        return mItemViewPreInflationEnabled;
+    }
+
+    /**
+     * Returns the number of item views inflated while the main thread was idle since the views
+     * of the fragment were created, or 0 if item view pre-inflation was disabled at that time.
+     *
+     * @hide
+     */
+    @RestrictTo(LIBRARY_GROUP_PREFIX)
+    public int getPreInflatedItemViewCount() {
+        return mRecycledViewPool instanceof PreInflatingViewPool
+                ? ((PreInflatingViewPool) mRecycledViewPool).getPreInflatedCount() : 0;
+    }
+
+    /**
+     * Returns the number of item views inflated while the main thread was idle that were used by
+     * the list rows, each of them being an inflation avoided while scrolling.
+     *
+     * @hide
+     */
+    @RestrictTo(LIBRARY_GROUP_PREFIX)
+    public int getItemViewInflationsAvoided() {
+        return mRecycledViewPool instanceof PreInflatingViewPool
+                ? ((PreInflatingViewPool) mRecycledViewPool).getInflationsAvoided() : 0;
+    }
+
     /**
      * Set the visibility of titles/hovercard of browse rows.
      */
@@ -296,7 +349,7 @@ public class RowsFragment extends BaseRowFragment implements
 
         setAlignment(mAlignedTop);
 
-        mRecycledViewPool = null;
+        releaseSharedViewPool();
         mPresenterMapper = null;
         if (mMainFragmentAdapter != null) {
             mMainFragmentAdapter.getFragmentHost().notifyViewCreated(mMainFragmentAdapter);
@@ -308,7 +361,7 @@ public class RowsFragment extends BaseRowFragment implements
     public void onDestroyView() {
         mViewsCreated = false;
         mSelectedViewHolder = null;
-        mRecycledViewPool = null;
+        releaseSharedViewPool();
         super.onDestroyView();
     }
 
@@ -415,15 +468,25 @@ public class RowsFragment extends BaseRowFragment implements
 
         if (rowVh instanceof ListRowPresenter.ViewHolder) {
             HorizontalGridView view = ((ListRowPresenter.ViewHolder) rowVh).getGridView();
+            ItemBridgeAdapter bridgeAdapter =
+                    ((ListRowPresenter.ViewHolder) rowVh).getBridgeAdapter();
             // Recycled view pool is shared between all list rows
             if (mRecycledViewPool == null) {
-                mRecycledViewPool = view.getRecycledViewPool();
+                if (mItemViewPreInflationEnabled) {
+                    PreInflatingViewPool pool = new PreInflatingViewPool();
+                    pool.setPreInflationEnabled(true);
+                    // All the list rows share the presenter mapper of the first one, so its
+                    // adapter creates the views of any type in the pool.
+                    pool.setItemViewFactory(bridgeAdapter, view);
+                    mRecycledViewPool = pool;
+                    view.setRecycledViewPool(pool);
+                } else {
+                    mRecycledViewPool = view.getRecycledViewPool();
+                }
             } else {
                 view.setRecycledViewPool(mRecycledViewPool);
             }
 
-            ItemBridgeAdapter bridgeAdapter =
-                    ((ListRowPresenter.ViewHolder) rowVh).getBridgeAdapter();
             if (mPresenterMapper == null) {
                 mPresenterMapper = bridgeAdapter.getPresenterMapper();
             } else {
@@ -432,6 +495,13 @@ public class RowsFragment extends BaseRowFragment implements
         }
     }
 
+    private void releaseSharedViewPool() {
+        if (mRecycledViewPool instanceof PreInflatingViewPool) {
+            ((PreInflatingViewPool) mRecycledViewPool).setItemViewFactory(null, null);
+        }
+        mRecycledViewPool = null;
+    }
+
     @Override
     void updateAdapter() {
         super.updateAdapter();
@@ -284,6 +284,7 @@ public class ListRowPresenter extends RowPresenter {
     }
 
     private int mNumRows = 1;
+    private int mItemPrefetchCount;
     private int mRowHeight;
     private int mExpandedRowHeight;
     private PresenterSelector mHoverCardPresenterSelector;
@@ -412,6 +413,36 @@ public class ListRowPresenter extends RowPresenter {
         this.mNumRows = numRows;
     }
 
+    /**
+     * Sets the number of items that a row created by this Presenter prefetches when it comes
+     * into view, and enables the item prefetch of its {@link HorizontalGridView}. While the
+     * rows are scrolled, the next item of each row of items is prefetched as well. Rows
+     * created before calling this method will not be updated.
+     * <p>
+     * Rows are only prefetched while the {@link VerticalGridView} of the rows is scrolled if
+     * the item prefetch of its layout manager is enabled too, see
+     * {@link androidx.recyclerview.widget.RecyclerView.LayoutManager#setItemPrefetchEnabled}.
+     * By default, it is set to 0 and item prefetch is disabled.
+     *
+     * @param itemPrefetchCount Number of items to prefetch when a row comes into view, or 0 to
+     *                          disable item prefetch.
+     * @see BaseGridView#setInitialPrefetchItemCount(int)
+     */
+    public void setItemPrefetchCount(int itemPrefetchCount) {
+        if (itemPrefetchCount < 0) {
+            throw new IllegalArgumentException("Invalid item prefetch count");
+        }
+        mItemPrefetchCount = itemPrefetchCount;
+    }
+
+    /**
+     * Returns the number of items that a row created by this Presenter prefetches when it comes
+     * into view, or 0 if item prefetch is disabled.
+     */
+    public int getItemPrefetchCount() {
+        return mItemPrefetchCount;
+    }
+
     @Override
     protected void initializeRowViewHolder(RowPresenter.ViewHolder holder) {
         super.initializeRowViewHolder(holder);
@@ -458,6 +489,10 @@ public class ListRowPresenter extends RowPresenter {
                 }
             });
         rowViewHolder.mGridView.setNumRows(mNumRows);
+        if (mItemPrefetchCount > 0) {
+            rowViewHolder.mGridView.setInitialPrefetchItemCount(mItemPrefetchCount);
+            rowViewHolder.mGridView.getLayoutManager().setItemPrefetchEnabled(true);
+        }
     }
 
     final boolean needsDefaultListSelectEffect() {
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.leanback.widget;
+
+import static androidx.annotation.RestrictTo.Scope.LIBRARY_GROUP_PREFIX;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.SparseIntArray;
+import android.view.ViewGroup;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * RecycledViewPool shared by the rows of a fragment, that can inflate item views while the main
+ * thread is idle.
+ * <p>
+ * The rows share the presenter mapper of their {@link ItemBridgeAdapter}, so a view type is a
+ * {@link Presenter} for all of them. Each time a row needs a view of a type that the pool doesn't
+ * have, the view is inflated while scrolling. When pre-inflation is enabled, the pool counts these
+ * misses per view type and inflates as many views of the type when the main thread is idle, up to
+ * the max recycled views of the type, so that they are ready for the next rows.
+ *
+ * @hide
+ */
+@RestrictTo(LIBRARY_GROUP_PREFIX)
+public final class PreInflatingViewPool extends RecyclerView.RecycledViewPool {
+    // Same as the default of RecyclerView.RecycledViewPool.
+    private static final int DEFAULT_MAX_SCRAP = 5;
+
+    private final SparseIntArray mMaxScrap = new SparseIntArray();
+    // Number of views to pre-inflate, per view type.
+    private final SparseIntArray mDemand = new SparseIntArray();
+    // Pre-inflated views that are still in the pool.
+    private final Set<RecyclerView.ViewHolder> mPreInflated = new HashSet<>();
+    private boolean mPreInflationEnabled;
+    private RecyclerView.Adapter<?> mAdapter;
+    private ViewGroup mParent;
+    private boolean mIdleHandlerAdded;
+    private int mPreInflatedCount;
+    private int mInflationsAvoided;
+
+    private final MessageQueue.IdleHandler mIdleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            // One view per idle callback, so that input is not delayed.
+            mIdleHandlerAdded = preInflateNext();
+            return mIdleHandlerAdded;
+        }
+    };
+
+    /**
+     * Enables inflating item views while the main thread is idle. Disabled by default.
+     */
+    public void setPreInflationEnabled(boolean enabled) {
+        mPreInflationEnabled = enabled;
+        if (!enabled) {
+            mDemand.clear();
+            removeIdleHandler();
+        }
+    }
+
+    /**
+     * Returns true if item views are inflated while the main thread is idle.
+     */
+    public boolean isPreInflationEnabled() {
+        return mPreInflationEnabled;
+    }
+
+    /**
+     * Sets the adapter creating the pre-inflated views and their parent, or null to stop
+     * pre-inflating views. The adapter must handle all the view types of the pool.
+     */
+    public void setItemViewFactory(@Nullable RecyclerView.Adapter<?> adapter,
+            @Nullable ViewGroup parent) {
+        mAdapter = adapter;
+        mParent = parent;
+        if (adapter == null) {
+            removeIdleHandler();
+        }
+    }
+
+    /**
+     * Returns the number of views inflated while the main thread was idle.
+     */
+    public int getPreInflatedCount() {
+        return mPreInflatedCount;
+    }
+
+    /**
+     * Returns the number of pre-inflated views used by the rows, each of them being an inflation
+     * avoided while scrolling.
+     */
+    public int getInflationsAvoided() {
+        return mInflationsAvoided;
+    }
+
+    @Override
+    public void setMaxRecycledViews(int viewType, int max) {
+        mMaxScrap.put(viewType, max);
+        final int count = getRecycledViewCount(viewType);
+        if (mPreInflated.isEmpty() || count <= max) {
+            super.setMaxRecycledViews(viewType, max);
+            return;
+        }
+        // The pool evicts the views at the end of its scrap list, which are the first ones it
+        // returns, so the views it keeps are the last ones returned.
+        final List<RecyclerView.ViewHolder> holders = new ArrayList<>(count);
+        RecyclerView.ViewHolder holder;
+        while ((holder = super.getRecycledView(viewType)) != null) {
+            holders.add(holder);
+        }
+        super.setMaxRecycledViews(viewType, max);
+        final int evictedCount = holders.size() - Math.max(max, 0);
+        for (int i = 0; i < evictedCount; i++) {
+            mPreInflated.remove(holders.get(i));
+        }
+        for (int i = holders.size() - 1; i >= evictedCount; i--) {
+            putRecycledView(holders.get(i));
+        }
+    }
+
+    @Nullable
+    @Override
+    public RecyclerView.ViewHolder getRecycledView(int viewType) {
+        RecyclerView.ViewHolder holder = super.getRecycledView(viewType);
+        if (holder == null) {
+            if (mPreInflationEnabled) {
+                mDemand.put(viewType, mDemand.get(viewType) + 1);
+                addIdleHandler();
+            }
+        } else if (mPreInflated.remove(holder)) {
+            mInflationsAvoided++;
+        }
+        return holder;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        mPreInflated.clear();
+        mDemand.clear();
+        removeIdleHandler();
+    }
+
+    /**
+     * Inflates a view of the first view type in demand.
+     *
+     * @return true if there are more views to inflate.
+     */
+    boolean preInflateNext() {
+        if (!mPreInflationEnabled || mAdapter == null) {
+            mDemand.clear();
+            return false;
+        }
+        while (mDemand.size() > 0) {
+            final int viewType = mDemand.keyAt(0);
+            final int demand = mDemand.valueAt(0);
+            if (demand <= 0 || getRecycledViewCount(viewType)
+                    >= mMaxScrap.get(viewType, DEFAULT_MAX_SCRAP)) {
+                mDemand.removeAt(0);
+                continue;
+            }
+            if (demand == 1) {
+                mDemand.removeAt(0);
+            } else {
+                mDemand.setValueAt(0, demand - 1);
+            }
+            preInflate(viewType);
+            break;
+        }
+        return mDemand.size() > 0;
+    }
+
+    private void preInflate(int viewType) {
+        RecyclerView.ViewHolder holder = mAdapter.createViewHolder(mParent, viewType);
+        mPreInflated.add(holder);
+        mPreInflatedCount++;
+        putRecycledView(holder);
+    }
+
+    private void addIdleHandler() {
+        if (!mIdleHandlerAdded && mAdapter != null && Looper.myLooper() != null) {
+            Looper.myQueue().addIdleHandler(mIdleHandler);
+            mIdleHandlerAdded = true;
+        }
+    }
+
+    private void removeIdleHandler() {
+        if (mIdleHandlerAdded) {
+            Looper.myQueue().removeIdleHandler(mIdleHandler);
+            mIdleHandlerAdded = false;
+        }
+    }
+}
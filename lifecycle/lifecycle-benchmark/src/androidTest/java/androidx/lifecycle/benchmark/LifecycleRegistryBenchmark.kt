@@ -0,0 +1,83 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleEventObserver
+import androidx.lifecycle.LifecycleOwner
+import androidx.lifecycle.LifecycleRegistry
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class LifecycleRegistryBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val owner = object : LifecycleOwner {
+        override fun getLifecycle(): Lifecycle = throw UnsupportedOperationException()
+    }
+
+    private val observers = List(OBSERVER_COUNT) {
+        LifecycleEventObserver { _, _ -> }
+    }
+
+    @Test
+    fun addObserver500() {
+        benchmarkRule.measureRepeated {
+            val registry = runWithTimingDisabled {
+                LifecycleRegistry.createUnsafe(owner).apply {
+                    currentState = Lifecycle.State.RESUMED
+                }
+            }
+            observers.forEach { registry.addObserver(it) }
+        }
+    }
+
+    @Test
+    fun stateTransitions500() {
+        val registry = LifecycleRegistry.createUnsafe(owner)
+        observers.forEach { registry.addObserver(it) }
+        benchmarkRule.measureRepeated {
+            registry.currentState = Lifecycle.State.RESUMED
+            registry.currentState = Lifecycle.State.CREATED
+        }
+    }
+
+    @Test
+    fun removeObserver500() {
+        benchmarkRule.measureRepeated {
+            val registry = runWithTimingDisabled {
+                LifecycleRegistry.createUnsafe(owner).apply {
+                    observers.forEach { addObserver(it) }
+                }
+            }
+            observers.forEach { registry.removeObserver(it) }
+        }
+    }
+
+    private companion object {
+        const val OBSERVER_COUNT = 500
+    }
+}
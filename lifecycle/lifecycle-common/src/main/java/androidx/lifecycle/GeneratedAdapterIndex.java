@@ -0,0 +1,53 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+/**
+ * Build-time index of the {@link GeneratedAdapter} classes of a compilation unit.
+ * <p>
+ * Implementations are generated by lifecycle-compiler when the
+ * {@code androidx.lifecycle.adapterIndex} processor option is set, and are registered as a
+ * {@link java.util.ServiceLoader} service. {@link Lifecycling} consults every registered index
+ * before falling back to looking adapters up by name through reflection.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+public interface GeneratedAdapterIndex {
+
+    /**
+     * Returns whether this index contains a generated adapter for the given observer class.
+     *
+     * @param klass The observer class
+     */
+    boolean hasAdapter(@NonNull Class<?> klass);
+
+    /**
+     * Creates the generated adapter of the given observer class.
+     *
+     * @param klass The observer class that declares the {@link OnLifecycleEvent} methods, it can
+     *              be a superclass or an interface of the receiver's class
+     * @param receiver The observer the adapter dispatches to
+     * @return the adapter, or {@code null} if this index doesn't contain {@code klass}
+     */
+    @Nullable
+    GeneratedAdapter createAdapter(@NonNull Class<?> klass, @NonNull Object receiver);
+}
@@ -19,6 +19,7 @@ package androidx.lifecycle;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -27,6 +28,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 
 /**
  * Internal class to handle lifecycle conversion etc.
@@ -40,8 +43,8 @@ public class Lifecycling {
     private static final int GENERATED_CALLBACK = 2;
 
     private static Map<Class<?>, Integer> sCallbackCache = new HashMap<>();
-    private static Map<Class<?>, List<Constructor<? extends GeneratedAdapter>>> sClassToAdapters =
-            new HashMap<>();
+    private static Map<Class<?>, List<AdapterFactory>> sClassToAdapters = new HashMap<>();
+    private static List<GeneratedAdapterIndex> sAdapterIndexes;
 
     // Left for binary compatibility when lifecycle-common goes up 2.1 as transitive dep
     // but lifecycle-runtime stays 2.0
@@ -83,16 +86,14 @@ public class Lifecycling {
         final Class<?> klass = object.getClass();
         int type = getObserverConstructorType(klass);
         if (type == GENERATED_CALLBACK) {
-            List<Constructor<? extends GeneratedAdapter>> constructors =
-                    sClassToAdapters.get(klass);
-            if (constructors.size() == 1) {
-                GeneratedAdapter generatedAdapter = createGeneratedAdapter(
-                        constructors.get(0), object);
+            List<AdapterFactory> factories = sClassToAdapters.get(klass);
+            if (factories.size() == 1) {
+                GeneratedAdapter generatedAdapter = factories.get(0).create(object);
                 return new SingleGeneratedAdapterObserver(generatedAdapter);
             }
-            GeneratedAdapter[] adapters = new GeneratedAdapter[constructors.size()];
-            for (int i = 0; i < constructors.size(); i++) {
-                adapters[i] = createGeneratedAdapter(constructors.get(i), object);
+            GeneratedAdapter[] adapters = new GeneratedAdapter[factories.size()];
+            for (int i = 0; i < factories.size(); i++) {
+                adapters[i] = factories.get(i).create(object);
             }
             return new CompositeGeneratedAdaptersObserver(adapters);
         }
@@ -156,10 +157,18 @@ public class Lifecycling {
             return REFLECTIVE_CALLBACK;
         }
 
+        for (GeneratedAdapterIndex index : adapterIndexes()) {
+            if (index.hasAdapter(klass)) {
+                sClassToAdapters.put(klass, Collections
+                        .<AdapterFactory>singletonList(new IndexAdapterFactory(index, klass)));
+                return GENERATED_CALLBACK;
+            }
+        }
+
         Constructor<? extends GeneratedAdapter> constructor = generatedConstructor(klass);
         if (constructor != null) {
             sClassToAdapters.put(klass, Collections
-                    .<Constructor<? extends GeneratedAdapter>>singletonList(constructor));
+                    .<AdapterFactory>singletonList(new ConstructorAdapterFactory(constructor)));
             return GENERATED_CALLBACK;
         }
 
@@ -170,12 +179,12 @@ public class Lifecycling {
         }
 
         Class<?> superclass = klass.getSuperclass();
-        List<Constructor<? extends GeneratedAdapter>> adapterConstructors = null;
+        List<AdapterFactory> adapterFactories = null;
         if (isLifecycleParent(superclass)) {
             if (getObserverConstructorType(superclass) == REFLECTIVE_CALLBACK) {
                 return REFLECTIVE_CALLBACK;
             }
-            adapterConstructors = new ArrayList<>(sClassToAdapters.get(superclass));
+            adapterFactories = new ArrayList<>(sClassToAdapters.get(superclass));
         }
 
         for (Class<?> intrface : klass.getInterfaces()) {
@@ -185,19 +194,63 @@ public class Lifecycling {
             if (getObserverConstructorType(intrface) == REFLECTIVE_CALLBACK) {
                 return REFLECTIVE_CALLBACK;
             }
-            if (adapterConstructors == null) {
-                adapterConstructors = new ArrayList<>();
+            if (adapterFactories == null) {
+                adapterFactories = new ArrayList<>();
             }
-            adapterConstructors.addAll(sClassToAdapters.get(intrface));
+            adapterFactories.addAll(sClassToAdapters.get(intrface));
         }
-        if (adapterConstructors != null) {
-            sClassToAdapters.put(klass, adapterConstructors);
+        if (adapterFactories != null) {
+            sClassToAdapters.put(klass, adapterFactories);
             return GENERATED_CALLBACK;
         }
 
         return REFLECTIVE_CALLBACK;
     }
 
+    private static List<GeneratedAdapterIndex> adapterIndexes() {
+        if (sAdapterIndexes == null) {
+            List<GeneratedAdapterIndex> indexes = new ArrayList<>();
+            try {
+                // Passing the class loader explicitly lets R8 replace this lookup with direct
+                // instantiation of the generated indexes.
+                for (GeneratedAdapterIndex index : ServiceLoader.load(GeneratedAdapterIndex.class,
+                        GeneratedAdapterIndex.class.getClassLoader())) {
+                    indexes.add(index);
+                }
+            } catch (ServiceConfigurationError e) {
+                // a broken index is not fatal, adapters are still found through reflection
+            }
+            sAdapterIndexes = indexes;
+        }
+        return sAdapterIndexes;
+    }
+
+    /**
+     * Registers an index of generated adapters in addition to the ones discovered through
+     * {@link ServiceLoader}.
+     *
+     * @param index The index to consult before looking adapters up through reflection
+     */
+    public static void addGeneratedAdapterIndex(@NonNull GeneratedAdapterIndex index) {
+        List<GeneratedAdapterIndex> indexes = new ArrayList<>(adapterIndexes());
+        indexes.add(index);
+        sAdapterIndexes = indexes;
+        // classes resolved before the index was added may have taken the reflective path
+        sCallbackCache.clear();
+        sClassToAdapters.clear();
+    }
+
+    /**
+     * Drops the indexes added through {@link #addGeneratedAdapterIndex}, so that the next lookup
+     * only uses the ones discovered through {@link ServiceLoader}.
+     */
+    @VisibleForTesting
+    static void resetGeneratedAdapterIndexes() {
+        sAdapterIndexes = null;
+        sCallbackCache.clear();
+        sClassToAdapters.clear();
+    }
+
     private static boolean isLifecycleParent(Class<?> klass) {
         return klass != null && LifecycleObserver.class.isAssignableFrom(klass);
     }
@@ -211,4 +264,41 @@ public class Lifecycling {
 
     private Lifecycling() {
     }
+
+    private interface AdapterFactory {
+        GeneratedAdapter create(Object receiver);
+    }
+
+    private static final class ConstructorAdapterFactory implements AdapterFactory {
+        private final Constructor<? extends GeneratedAdapter> mConstructor;
+
+        ConstructorAdapterFactory(Constructor<? extends GeneratedAdapter> constructor) {
+            mConstructor = constructor;
+        }
+
+        @Override
+        public GeneratedAdapter create(Object receiver) {
+            return createGeneratedAdapter(mConstructor, receiver);
+        }
+    }
+
+    private static final class IndexAdapterFactory implements AdapterFactory {
+        private final GeneratedAdapterIndex mIndex;
+        private final Class<?> mKlass;
+
+        IndexAdapterFactory(GeneratedAdapterIndex index, Class<?> klass) {
+            mIndex = index;
+            mKlass = klass;
+        }
+
+        @Override
+        public GeneratedAdapter create(Object receiver) {
+            GeneratedAdapter adapter = mIndex.createAdapter(mKlass, receiver);
+            if (adapter == null) {
+                throw new IllegalStateException("Generated adapter index " + mIndex
+                        + " has no adapter for " + mKlass);
+            }
+            return adapter;
+        }
+    }
 }
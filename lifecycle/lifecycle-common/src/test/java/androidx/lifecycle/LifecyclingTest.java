@@ -29,10 +29,12 @@ import androidx.lifecycle.observers.DerivedSequence2;
 import androidx.lifecycle.observers.DerivedWithNewMethods;
 import androidx.lifecycle.observers.DerivedWithNoNewMethods;
 import androidx.lifecycle.observers.DerivedWithOverridenMethodsWithLfAnnotation;
+import androidx.lifecycle.observers.IndexedObserver;
 import androidx.lifecycle.observers.InterfaceImpl1;
 import androidx.lifecycle.observers.InterfaceImpl2;
 import androidx.lifecycle.observers.InterfaceImpl3;
 
+import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -41,6 +43,12 @@ import org.junit.runners.JUnit4;
 @RunWith(JUnit4.class)
 public class LifecyclingTest {
 
+    @After
+    public void resetAdapterIndexes() {
+        // the index registered by testGeneratedAdapterIndex would leak into the other tests
+        Lifecycling.resetGeneratedAdapterIndexes();
+    }
+
     @Test
     public void testDerivedWithNewLfMethodsNoGeneratedAdapter() {
         LifecycleEventObserver callback = lifecycleEventObserver(new DerivedWithNewMethods());
@@ -87,6 +95,49 @@ public class LifecyclingTest {
         assertThat(callback1, instanceOf(SingleGeneratedAdapterObserver.class));
     }
 
+    @Test
+    public void testGeneratedAdapterIndex() {
+        Lifecycling.addGeneratedAdapterIndex(new GeneratedAdapterIndex() {
+            @Override
+            public boolean hasAdapter(@NonNull Class<?> klass) {
+                return klass == IndexedObserver.class;
+            }
+
+            @Override
+            public GeneratedAdapter createAdapter(@NonNull Class<?> klass,
+                    @NonNull Object receiver) {
+                if (klass != IndexedObserver.class) {
+                    return null;
+                }
+                final IndexedObserver observer = (IndexedObserver) receiver;
+                return new GeneratedAdapter() {
+                    @Override
+                    public void callMethods(LifecycleOwner source, Lifecycle.Event event,
+                            boolean onAny, MethodCallsLogger logger) {
+                        if (!onAny && event == Lifecycle.Event.ON_CREATE) {
+                            observer.onCreate();
+                        }
+                    }
+                };
+            }
+        });
+        IndexedObserver observer = new IndexedObserver();
+        LifecycleEventObserver callback = lifecycleEventObserver(observer);
+        assertThat(callback, instanceOf(SingleGeneratedAdapterObserver.class));
+        callback.onStateChanged(new DefaultLifecycleOwner(), Lifecycle.Event.ON_CREATE);
+        assertThat(observer.mCreateCount, is(1));
+
+        // subclasses without new methods reuse the indexed adapter of their parent
+        DerivedIndexedObserver derived = new DerivedIndexedObserver();
+        LifecycleEventObserver derivedCallback = lifecycleEventObserver(derived);
+        assertThat(derivedCallback, instanceOf(SingleGeneratedAdapterObserver.class));
+        derivedCallback.onStateChanged(new DefaultLifecycleOwner(), Lifecycle.Event.ON_CREATE);
+        assertThat(derived.mCreateCount, is(1));
+    }
+
+    static class DerivedIndexedObserver extends IndexedObserver {
+    }
+
     // MUST BE HERE TILL Lifecycle 3.0.0 release for back-compatibility with other modules
     @SuppressWarnings("deprecation")
     @Test
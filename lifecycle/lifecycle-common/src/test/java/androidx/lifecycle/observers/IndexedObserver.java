@@ -0,0 +1,32 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle.observers;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleObserver;
+
+// has no *_LifecycleAdapter class, its adapter is only reachable through an index
+@SuppressWarnings("deprecation")
+public class IndexedObserver implements LifecycleObserver {
+
+    public int mCreateCount;
+
+    @androidx.lifecycle.OnLifecycleEvent(Lifecycle.Event.ON_CREATE)
+    public void onCreate() {
+        mCreateCount++;
+    }
+}
@@ -37,6 +37,12 @@ object ErrorMessages {
         "Parent of OnLifecycleEvent should be a class or interface"
     const val INVALID_ANNOTATED_ELEMENT = "OnLifecycleEvent can only be added to methods"
 
+    fun invalidAdapterIndexName(name: String) =
+        "$ADAPTER_INDEX_OPTION must be a fully qualified class name, was \"$name\""
+
+    fun observerAfterAdapterIndex(type: TypeElement, indexName: String) =
+        "$type was generated after $indexName was written, so its adapter is not in the index"
+
     fun failedToGenerateAdapter(type: TypeElement, failureReason: EventMethod) =
         """
              Failed to generate an Adapter for $type, because it needs to be able to access to
@@ -21,18 +21,73 @@ import javax.annotation.processing.RoundEnvironment
 import javax.annotation.processing.SupportedAnnotationTypes
 import javax.lang.model.SourceVersion
 import javax.lang.model.element.TypeElement
+import javax.tools.Diagnostic
 
 @SupportedAnnotationTypes("androidx.lifecycle.OnLifecycleEvent")
 class LifecycleProcessor : AbstractProcessor() {
+    private val pendingIndexEntries = mutableListOf<IndexEntry>()
+    private var indexWritten = false
+
     override fun process(
         annotations: MutableSet<out TypeElement>,
         roundEnv: RoundEnvironment
     ): Boolean {
+        val indexName = processingEnv.options[ADAPTER_INDEX_OPTION]
+        if (roundEnv.processingOver()) {
+            if (indexName != null) {
+                writeIndexOnce(indexName)
+            }
+            return true
+        }
         val input = collectAndVerifyInput(processingEnv, roundEnv)
-        writeModels(transformToOutput(processingEnv, input), processingEnv)
+        val adapters = transformToOutput(processingEnv, input)
+        writeModels(adapters, processingEnv, publicConstructors = indexName != null)
+        if (indexName == null) {
+            return true
+        }
+        if (indexWritten) {
+            adapters.forEach {
+                processingEnv.messager.printMessage(
+                    Diagnostic.Kind.WARNING,
+                    ErrorMessages.observerAfterAdapterIndex(it.type, indexName), it.type
+                )
+            }
+            return true
+        }
+        val indexPackage = indexName.substringBeforeLast('.', "")
+        pendingIndexEntries += indexEntries(adapters, indexPackage, processingEnv)
+        // The adapters generated in a round are only root elements of the next one, so the first
+        // round without new observers has seen all of them unless another processor generates
+        // observers later. Writing the index there rather than once processing is over lets the
+        // index itself be processed, without javac warning about a source of the last round.
+        if (adapters.isEmpty()) {
+            writeIndexOnce(indexName)
+        }
         return true
     }
 
+    private fun writeIndexOnce(indexName: String) {
+        if (indexWritten) {
+            return
+        }
+        indexWritten = true
+        if (validateIndexName(indexName, processingEnv)) {
+            writeIndex(indexName, pendingIndexEntries, processingEnv)
+        }
+        pendingIndexEntries.clear()
+    }
+
+    override fun getSupportedOptions(): Set<String> {
+        // The index aggregates every observer of the compilation, so the processor is only
+        // isolating when no index is requested.
+        val incrementalType = if (processingEnv.options.containsKey(ADAPTER_INDEX_OPTION)) {
+            "org.gradle.annotation.processing.aggregating"
+        } else {
+            "org.gradle.annotation.processing.isolating"
+        }
+        return setOf(ADAPTER_INDEX_OPTION, incrementalType)
+    }
+
     override fun getSupportedSourceVersion(): SourceVersion {
         return SourceVersion.latest()
     }
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle
+
+import androidx.lifecycle.model.AdapterClass
+import androidx.lifecycle.model.getAdapterName
+import com.squareup.javapoet.AnnotationSpec
+import com.squareup.javapoet.ClassName
+import com.squareup.javapoet.JavaFile
+import com.squareup.javapoet.MethodSpec
+import com.squareup.javapoet.ParameterSpec
+import com.squareup.javapoet.ParameterizedTypeName
+import com.squareup.javapoet.TypeName
+import com.squareup.javapoet.TypeSpec
+import com.squareup.javapoet.WildcardTypeName
+import javax.annotation.processing.ProcessingEnvironment
+import javax.lang.model.element.Element
+import javax.lang.model.element.Modifier
+import javax.lang.model.element.TypeElement
+import javax.tools.Diagnostic
+import javax.tools.StandardLocation
+
+/**
+ * Processor option holding the fully qualified name of the [GeneratedAdapterIndex] to generate.
+ * The index is only generated when the option is set.
+ */
+const val ADAPTER_INDEX_OPTION = "androidx.lifecycle.adapterIndex"
+
+private val T = "\$T"
+private val N = "\$N"
+private val S = "\$S"
+
+private val KLASS_PARAM: ParameterSpec = ParameterSpec.builder(
+    ParameterizedTypeName.get(
+        ClassName.get(Class::class.java),
+        WildcardTypeName.subtypeOf(Object::class.java)
+    ),
+    "klass"
+).build()
+private val RECEIVER_PARAM: ParameterSpec =
+    ParameterSpec.builder(TypeName.OBJECT, "receiver").build()
+
+/**
+ * An adapter that can be referenced from the generated index.
+ */
+data class IndexEntry(
+    val binaryName: String,
+    val type: ClassName,
+    val adapter: ClassName,
+    val originatingElement: TypeElement
+)
+
+fun indexEntries(
+    infos: List<AdapterClass>,
+    indexPackage: String,
+    processingEnv: ProcessingEnvironment
+): List<IndexEntry> {
+    return infos.map { it.type }
+        .filter { it.isAccessibleFrom(indexPackage) }
+        .map { type ->
+            IndexEntry(
+                binaryName = processingEnv.elementUtils.getBinaryName(type).toString(),
+                type = ClassName.get(type),
+                adapter = ClassName.get(type.getPackageQName(), getAdapterName(type)),
+                originatingElement = type
+            )
+        }
+}
+
+/**
+ * Writes a [GeneratedAdapterIndex] that creates the adapters of [entries] without reflection
+ * and registers it as a service, so that [Lifecycling] picks it up at runtime.
+ */
+fun writeIndex(
+    indexName: String,
+    entries: List<IndexEntry>,
+    processingEnv: ProcessingEnvironment
+) {
+    val indexClass = ClassName.bestGuess(indexName)
+    val hasAdapter = MethodSpec.methodBuilder("hasAdapter")
+        .addAnnotation(Override::class.java)
+        .addModifiers(Modifier.PUBLIC)
+        .returns(TypeName.BOOLEAN)
+        .addParameter(KLASS_PARAM)
+        .apply {
+            if (entries.isEmpty()) {
+                addStatement("return false")
+                return@apply
+            }
+            // a string switch compiles to a hash lookup rather than a chain of comparisons
+            beginControlFlow("switch ($N.getName())", KLASS_PARAM)
+            entries.forEach { addCode("case $S:\n", it.binaryName) }
+            addStatement("$>return true$<")
+            addCode("default:\n")
+            addStatement("$>return false$<")
+            endControlFlow()
+        }.build()
+
+    val createAdapter = MethodSpec.methodBuilder("createAdapter")
+        .addAnnotation(Override::class.java)
+        .addModifiers(Modifier.PUBLIC)
+        .returns(ClassName.get(GeneratedAdapter::class.java))
+        .addParameter(KLASS_PARAM)
+        .addParameter(RECEIVER_PARAM)
+        .apply {
+            if (entries.isEmpty()) {
+                addStatement("return null")
+                return@apply
+            }
+            beginControlFlow("switch ($N.getName())", KLASS_PARAM)
+            entries.forEach {
+                addCode("case $S:\n", it.binaryName)
+                addStatement("$>return new $T(($T) $N)$<", it.adapter, it.type, RECEIVER_PARAM)
+            }
+            addCode("default:\n")
+            addStatement("$>return null$<")
+            endControlFlow()
+        }.build()
+
+    val indexSpec = TypeSpec.classBuilder(indexClass)
+        .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+        .addSuperinterface(ClassName.get(GeneratedAdapterIndex::class.java))
+        .addMethod(hasAdapter)
+        .addMethod(createAdapter)
+        .apply {
+            entries.forEach { addOriginatingElement(it.originatingElement) }
+            if (processingEnv.elementUtils.getTypeElement("javax.annotation.Generated") != null) {
+                addAnnotation(
+                    AnnotationSpec.builder(ClassName.get("javax.annotation", "Generated"))
+                        .addMember("value", S, LifecycleProcessor::class.java.canonicalName)
+                        .build()
+                )
+            }
+        }
+        .build()
+
+    JavaFile.builder(indexClass.packageName(), indexSpec).build().writeTo(processingEnv.filer)
+
+    val serviceFile = "META-INF/services/${GeneratedAdapterIndex::class.java.name}"
+    val originatingElements = entries.map { it.originatingElement }.toTypedArray()
+    processingEnv.filer
+        .createResource(StandardLocation.CLASS_OUTPUT, "", serviceFile, *originatingElements)
+        .openWriter().use { it.write("${indexClass.reflectionName()}\n") }
+
+    // keep the index even though it is only instantiated by the ServiceLoader
+    val keepRule = """# Generated keep rule for Lifecycle observer adapter index.
+        |-keep class ${indexClass.reflectionName()} {
+        |    <init>();
+        |}
+        |""".trimMargin()
+    processingEnv.filer.createResource(
+        StandardLocation.CLASS_OUTPUT, "", "META-INF/proguard/$indexName.pro",
+        *originatingElements
+    ).openWriter().use { it.write(keepRule) }
+}
+
+fun validateIndexName(indexName: String, processingEnv: ProcessingEnvironment): Boolean {
+    val valid = indexName.split('.').all { part ->
+        part.isNotEmpty() && Character.isJavaIdentifierStart(part[0]) &&
+            part.all { Character.isJavaIdentifierPart(it) }
+    }
+    if (!valid) {
+        processingEnv.messager.printMessage(
+            Diagnostic.Kind.ERROR,
+            ErrorMessages.invalidAdapterIndexName(indexName)
+        )
+    }
+    return valid
+}
+
+private fun TypeElement.isAccessibleFrom(packageName: String): Boolean {
+    if (getPackageQName() == packageName) {
+        return true
+    }
+    var element: Element? = this
+    while (element is TypeElement) {
+        if (!element.modifiers.contains(Modifier.PUBLIC)) {
+            return false
+        }
+        element = element.enclosingElement
+    }
+    return true
+}
@@ -32,8 +32,12 @@ import javax.lang.model.element.Modifier
 import javax.lang.model.element.TypeElement
 import javax.tools.StandardLocation
 
-fun writeModels(infos: List<AdapterClass>, processingEnv: ProcessingEnvironment) {
-    infos.forEach({ writeAdapter(it, processingEnv) })
+fun writeModels(
+    infos: List<AdapterClass>,
+    processingEnv: ProcessingEnvironment,
+    publicConstructors: Boolean = false
+) {
+    infos.forEach({ writeAdapter(it, processingEnv, publicConstructors) })
 }
 
 private val GENERATED_PACKAGE = "javax.annotation"
@@ -59,7 +63,11 @@ private val METHODS_LOGGER: ParameterSpec = ParameterSpec.builder(
 
 private const val HAS_LOGGER_VAR = "hasLogger"
 
-private fun writeAdapter(adapter: AdapterClass, processingEnv: ProcessingEnvironment) {
+private fun writeAdapter(
+    adapter: AdapterClass,
+    processingEnv: ProcessingEnvironment,
+    publicConstructor: Boolean
+) {
     val receiverField: FieldSpec = FieldSpec.builder(
         ClassName.get(adapter.type), "mReceiver",
         Modifier.FINAL
@@ -116,6 +124,12 @@ private fun writeAdapter(adapter: AdapterClass, processingEnv: ProcessingEnviron
     }
 
     val constructor = MethodSpec.constructorBuilder()
+        .apply {
+            // adapters referenced from an index may live in another package than the index
+            if (publicConstructor) {
+                addModifiers(Modifier.PUBLIC)
+            }
+        }
         .addParameter(receiverParam)
         .addStatement("this.$N = $N", receiverField, receiverParam)
         .build()
@@ -114,6 +114,29 @@ class ValidCasesTest {
             .and().generatesProGuardRule("bar.DifferentPackagesDerived2.pro")
     }
 
+    @Test
+    fun testAdapterIndex() {
+        JavaSourcesSubject.assertThat(load("foo.InheritanceOk2", ""))
+            .withCompilerOptions("-A$ADAPTER_INDEX_OPTION=foo.LifecycleAdapterIndex")
+            .processedWith(LifecycleProcessor())
+            .compilesWithoutWarnings().and()
+            .generatesSources(load("foo.LifecycleAdapterIndex", "expected"))
+            .and().generatesProGuardRule("foo.LifecycleAdapterIndex.pro")
+            .and().generatesFileNamed(
+                StandardLocation.CLASS_OUTPUT, "",
+                "META-INF/services/androidx.lifecycle.GeneratedAdapterIndex"
+            )
+    }
+
+    @Test
+    fun testAdapterIndexInvalidName() {
+        JavaSourcesSubject.assertThat(load("foo.InheritanceOk2", ""))
+            .withCompilerOptions("-A$ADAPTER_INDEX_OPTION=foo.1Index")
+            .processedWith(LifecycleProcessor())
+            .failsToCompile()
+            .withErrorContaining(ErrorMessages.invalidAdapterIndexName("foo.1Index"))
+    }
+
     private fun <T> CompileTester.GeneratedPredicateClause<T>.generatesProGuardRule(name: String):
         CompileTester.SuccessfulFileClause<T> {
             return generatesFileNamed(StandardLocation.CLASS_OUTPUT, "", "META-INF/proguard/$name")
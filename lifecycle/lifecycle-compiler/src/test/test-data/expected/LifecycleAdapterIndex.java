@@ -0,0 +1,50 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foo;
+
+import androidx.lifecycle.GeneratedAdapter;
+import androidx.lifecycle.GeneratedAdapterIndex;
+import java.lang.Class;
+import java.lang.Object;
+import java.lang.Override;
+import javax.annotation.Generated;
+
+@Generated("androidx.lifecycle.LifecycleProcessor")
+public final class LifecycleAdapterIndex implements GeneratedAdapterIndex {
+  @Override
+  public boolean hasAdapter(Class<?> klass) {
+    switch (klass.getName()) {
+      case "foo.InheritanceOk2Base":
+      case "foo.InheritanceOk2Derived":
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  public GeneratedAdapter createAdapter(Class<?> klass, Object receiver) {
+    switch (klass.getName()) {
+      case "foo.InheritanceOk2Base":
+        return new InheritanceOk2Base_LifecycleAdapter((InheritanceOk2Base) receiver);
+      case "foo.InheritanceOk2Derived":
+        return new InheritanceOk2Derived_LifecycleAdapter((InheritanceOk2Derived) receiver);
+      default:
+        return null;
+    }
+  }
+}
@@ -27,6 +27,7 @@ import androidx.arch.core.internal.SafeIterableMap;
 
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * LiveData is a data holder class that can be observed within a given lifecycle.
@@ -57,8 +58,10 @@ import java.util.Map;
  * @see ViewModel
  */
 public abstract class LiveData<T> {
-    @SuppressWarnings("WeakerAccess") /* synthetic access */
-    final Object mDataLock = new Object();
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<LiveData, Object> PENDING_DATA_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(LiveData.class, Object.class, "mPendingData");
+
     static final int START_VERSION = -1;
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     static final Object NOT_SET = new Object();
@@ -82,15 +85,9 @@ public abstract class LiveData<T> {
     @SuppressWarnings("FieldCanBeLocal")
     private boolean mDispatchInvalidated;
     private final Runnable mPostValueRunnable = new Runnable() {
-        @SuppressWarnings("unchecked")
         @Override
         public void run() {
-            Object newValue;
-            synchronized (mDataLock) {
-                newValue = mPendingData;
-                mPendingData = NOT_SET;
-            }
-            setValue((T) newValue);
+            dispatchPendingValue();
         }
     };
 
@@ -278,14 +275,19 @@ public abstract class LiveData<T> {
      * <p>
      * If you called this method multiple times before a main thread executed a posted task, only
      * the last value would be dispatched.
+     * <p>
+     * If {@link PostValueBatcher} is enabled, the value is dispatched by a task shared with all
+     * the other {@link LiveData} instances that have a pending value.
      *
      * @param value The new value
      */
     protected void postValue(T value) {
-        boolean postTask;
-        synchronized (mDataLock) {
-            postTask = mPendingData == NOT_SET;
-            mPendingData = value;
+        // the swap replaces the lock: only the poster that finds no pending value schedules
+        // the dispatch, later posters just overwrite the value it will deliver
+        boolean postTask = PENDING_DATA_UPDATER.getAndSet(this, value) == NOT_SET;
+        if (PostValueBatcher.isEnabled()) {
+            PostValueBatcher.onPostValue(this, !postTask);
+            return;
         }
         if (!postTask) {
             return;
@@ -293,6 +295,16 @@ public abstract class LiveData<T> {
         ArchTaskExecutor.getInstance().postToMainThread(mPostValueRunnable);
     }
 
+    @SuppressWarnings("unchecked")
+    @MainThread
+    void dispatchPendingValue() {
+        Object newValue = PENDING_DATA_UPDATER.getAndSet(this, NOT_SET);
+        if (newValue == NOT_SET) {
+            return;
+        }
+        setValue((T) newValue);
+    }
+
     /**
      * Sets the value. If there are active observers, the value will be dispatched to them.
      * <p>
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.ArchTaskExecutor;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces {@link LiveData#postValue(Object)} calls of all {@link LiveData} instances into
+ * batches that are dispatched by a single main thread task.
+ * <p>
+ * By default every {@link LiveData} with a pending value posts its own task to the main thread.
+ * When batching is enabled, a {@link LiveData} that receives a value while none is pending is
+ * only marked as dirty, and all dirty instances are dispatched together by one main thread task.
+ * Values posted to the same {@link LiveData} before they are dispatched are coalesced and only the
+ * last one is delivered, like without batching.
+ * <p>
+ * This class also keeps counters that describe how effective batching is, see
+ * {@link #getCoalescedUpdateCount()} and {@link #getMaxDispatchLatencyNanos()}.
+ */
+public final class PostValueBatcher {
+
+    private static final PostValueBatcher sInstance = new PostValueBatcher();
+
+    private volatile boolean mEnabled;
+    private final Queue<LiveData<?>> mDirty = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean mDispatchScheduled = new AtomicBoolean();
+    private volatile long mScheduledAtNanos;
+
+    private final AtomicLong mPostedCount = new AtomicLong();
+    private final AtomicLong mCoalescedCount = new AtomicLong();
+    private final AtomicLong mBatchCount = new AtomicLong();
+    private final AtomicLong mTotalDispatchLatencyNanos = new AtomicLong();
+    private final AtomicLong mMaxDispatchLatencyNanos = new AtomicLong();
+
+    private final Runnable mDispatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            dispatchBatch();
+        }
+    };
+
+    private PostValueBatcher() {
+    }
+
+    /**
+     * Enables or disables batching of {@link LiveData#postValue(Object)} calls.
+     * <p>
+     * Values that are already pending when batching is disabled are still dispatched by the
+     * batch that was scheduled for them.
+     *
+     * @param enabled {@code true} to dispatch posted values in batches
+     */
+    public static void setEnabled(boolean enabled) {
+        sInstance.mEnabled = enabled;
+    }
+
+    /**
+     * @return {@code true} if posted values are dispatched in batches
+     */
+    public static boolean isEnabled() {
+        return sInstance.mEnabled;
+    }
+
+    /**
+     * @return the number of values posted while batching was enabled
+     */
+    public static long getPostedUpdateCount() {
+        return sInstance.mPostedCount.get();
+    }
+
+    /**
+     * @return the number of values posted while batching was enabled that replaced a value that
+     * was not dispatched yet
+     */
+    public static long getCoalescedUpdateCount() {
+        return sInstance.mCoalescedCount.get();
+    }
+
+    /**
+     * @return the number of main thread tasks that dispatched a batch
+     */
+    public static long getBatchCount() {
+        return sInstance.mBatchCount.get();
+    }
+
+    /**
+     * @return the sum over all batches of the time between the batch being scheduled and the
+     * main thread starting to dispatch it, in nanoseconds
+     */
+    public static long getTotalDispatchLatencyNanos() {
+        return sInstance.mTotalDispatchLatencyNanos.get();
+    }
+
+    /**
+     * @return the longest time a batch waited for the main thread, in nanoseconds
+     */
+    public static long getMaxDispatchLatencyNanos() {
+        return sInstance.mMaxDispatchLatencyNanos.get();
+    }
+
+    /**
+     * Resets all the counters.
+     */
+    public static void resetCounters() {
+        sInstance.mPostedCount.set(0);
+        sInstance.mCoalescedCount.set(0);
+        sInstance.mBatchCount.set(0);
+        sInstance.mTotalDispatchLatencyNanos.set(0);
+        sInstance.mMaxDispatchLatencyNanos.set(0);
+    }
+
+    /**
+     * Called by {@link LiveData#postValue(Object)} while batching is enabled.
+     *
+     * @param liveData The LiveData that received a value
+     * @param wasPending {@code true} if the value replaced one that was not dispatched yet, in
+     *                   which case {@code liveData} is already part of a batch
+     */
+    static void onPostValue(@NonNull LiveData<?> liveData, boolean wasPending) {
+        sInstance.onPost(liveData, wasPending);
+    }
+
+    private void onPost(LiveData<?> liveData, boolean wasPending) {
+        mPostedCount.incrementAndGet();
+        if (wasPending) {
+            mCoalescedCount.incrementAndGet();
+            return;
+        }
+        mDirty.add(liveData);
+        if (mDispatchScheduled.compareAndSet(false, true)) {
+            mScheduledAtNanos = System.nanoTime();
+            ArchTaskExecutor.getInstance().postToMainThread(mDispatchRunnable);
+        }
+    }
+
+    @MainThread
+    void dispatchBatch() {
+        long latency = System.nanoTime() - mScheduledAtNanos;
+        // reset first: a LiveData that becomes dirty while this batch runs either gets picked up
+        // by the loop below or schedules the next batch
+        mDispatchScheduled.set(false);
+        LiveData<?> liveData = mDirty.poll();
+        if (liveData == null) {
+            // the LiveData that scheduled this batch was picked up by the previous one
+            return;
+        }
+        mBatchCount.incrementAndGet();
+        mTotalDispatchLatencyNanos.addAndGet(latency);
+        long max;
+        do {
+            max = mMaxDispatchLatencyNanos.get();
+        } while (latency > max && !mMaxDispatchLatencyNanos.compareAndSet(max, latency));
+
+        do {
+            liveData.dispatchPendingValue();
+        } while ((liveData = mDirty.poll()) != null);
+    }
+}
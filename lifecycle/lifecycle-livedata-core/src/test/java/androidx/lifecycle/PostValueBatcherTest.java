@@ -0,0 +1,183 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.arch.core.executor.TaskExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class PostValueBatcherTest {
+
+    private final List<Runnable> mMainThreadTasks = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        ArchTaskExecutor.getInstance().setDelegate(new TaskExecutor() {
+            @Override
+            public void executeOnDiskIO(@NonNull Runnable runnable) {
+                runnable.run();
+            }
+
+            @Override
+            public void postToMainThread(@NonNull Runnable runnable) {
+                mMainThreadTasks.add(runnable);
+            }
+
+            @Override
+            public boolean isMainThread() {
+                return true;
+            }
+        });
+        PostValueBatcher.resetCounters();
+        PostValueBatcher.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        PostValueBatcher.setEnabled(false);
+        ArchTaskExecutor.getInstance().setDelegate(null);
+    }
+
+    @Test
+    public void postsSingleTaskForManyLiveData() {
+        List<MutableLiveData<Integer>> liveDatas = new ArrayList<>();
+        List<Integer> received = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            MutableLiveData<Integer> liveData = new MutableLiveData<>();
+            liveData.observeForever(new RecordingObserver(received));
+            liveDatas.add(liveData);
+        }
+        for (int i = 0; i < liveDatas.size(); i++) {
+            liveDatas.get(i).postValue(i);
+        }
+        assertThat(mMainThreadTasks.size(), is(1));
+        assertThat(received.isEmpty(), is(true));
+
+        runMainThreadTasks();
+        assertThat(received.size(), is(200));
+        for (int i = 0; i < liveDatas.size(); i++) {
+            assertThat(liveDatas.get(i).getValue(), is(i));
+        }
+        assertThat(PostValueBatcher.getBatchCount(), is(1L));
+        assertThat(PostValueBatcher.getPostedUpdateCount(), is(200L));
+        assertThat(PostValueBatcher.getCoalescedUpdateCount(), is(0L));
+    }
+
+    @Test
+    public void coalescesValuesOfSameLiveData() {
+        MutableLiveData<Integer> liveData = new MutableLiveData<>();
+        List<Integer> received = new ArrayList<>();
+        liveData.observeForever(new RecordingObserver(received));
+        liveData.postValue(1);
+        liveData.postValue(2);
+        liveData.postValue(3);
+        assertThat(mMainThreadTasks.size(), is(1));
+
+        runMainThreadTasks();
+        assertThat(received.size(), is(1));
+        assertThat(received.get(0), is(3));
+        assertThat(PostValueBatcher.getCoalescedUpdateCount(), is(2L));
+    }
+
+    @Test
+    public void schedulesNextBatchAfterDispatch() {
+        MutableLiveData<Integer> liveData = new MutableLiveData<>();
+        liveData.postValue(1);
+        runMainThreadTasks();
+        liveData.postValue(2);
+        assertThat(mMainThreadTasks.size(), is(1));
+        runMainThreadTasks();
+        assertThat(liveData.getValue(), is(2));
+        assertThat(PostValueBatcher.getBatchCount(), is(2L));
+    }
+
+    @Test
+    public void batchDrainedByRunningDispatchIsNotCounted() {
+        final MutableLiveData<Integer> first = new MutableLiveData<>();
+        final MutableLiveData<Integer> second = new MutableLiveData<>();
+        first.observeForever(new Observer<Integer>() {
+            @Override
+            public void onChanged(@Nullable Integer value) {
+                // schedules a second dispatch, but the running one picks the value up
+                second.postValue(value);
+            }
+        });
+        first.postValue(1);
+        runMainThreadTasks();
+        assertThat(second.getValue(), is(1));
+        assertThat(mMainThreadTasks.size(), is(1));
+        long latency = PostValueBatcher.getTotalDispatchLatencyNanos();
+
+        runMainThreadTasks();
+        assertThat(PostValueBatcher.getBatchCount(), is(1L));
+        assertThat(PostValueBatcher.getTotalDispatchLatencyNanos(), is(latency));
+
+        // the dispatch that found nothing doesn't keep the next value from being scheduled
+        second.postValue(2);
+        assertThat(mMainThreadTasks.size(), is(1));
+        runMainThreadTasks();
+        assertThat(second.getValue(), is(2));
+        assertThat(PostValueBatcher.getBatchCount(), is(2L));
+    }
+
+    @Test
+    public void pendingValueSurvivesDisabling() {
+        MutableLiveData<Integer> liveData = new MutableLiveData<>();
+        liveData.postValue(1);
+        PostValueBatcher.setEnabled(false);
+        liveData.postValue(2);
+        // the batch that was already scheduled delivers the latest value
+        assertThat(mMainThreadTasks.size(), is(1));
+        runMainThreadTasks();
+        assertThat(liveData.getValue(), is(2));
+    }
+
+    private void runMainThreadTasks() {
+        List<Runnable> tasks = new ArrayList<>(mMainThreadTasks);
+        mMainThreadTasks.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    private static class RecordingObserver implements Observer<Integer> {
+        private final List<Integer> mReceived;
+
+        RecordingObserver(List<Integer> received) {
+            mReceived = received;
+        }
+
+        @Override
+        public void onChanged(@Nullable Integer value) {
+            mReceived.add(value);
+        }
+    }
+}
@@ -26,12 +26,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.arch.core.executor.ArchTaskExecutor;
-import androidx.arch.core.internal.FastSafeIterableMap;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.Map;
 
 /**
  * An implementation of {@link Lifecycle} that can handle multiple observers.
@@ -48,8 +45,7 @@ public class LifecycleRegistry extends Lifecycle {
      * if addition_order(observer1) < addition_order(observer2), then
      * state(observer1) >= state(observer2),
      */
-    private FastSafeIterableMap<LifecycleObserver, ObserverWithState> mObserverMap =
-            new FastSafeIterableMap<>();
+    private ObserverList mObserverMap = new ObserverList();
     /**
      * Current state
      */
@@ -153,15 +149,15 @@ public class LifecycleRegistry extends Lifecycle {
         if (mObserverMap.size() == 0) {
             return true;
         }
-        State eldestObserverState = mObserverMap.eldest().getValue().mState;
-        State newestObserverState = mObserverMap.newest().getValue().mState;
+        State eldestObserverState = mObserverMap.eldest().mState;
+        State newestObserverState = mObserverMap.newest().mState;
         return eldestObserverState == newestObserverState && mState == newestObserverState;
     }
 
     private State calculateTargetState(LifecycleObserver observer) {
-        Map.Entry<LifecycleObserver, ObserverWithState> previous = mObserverMap.ceil(observer);
+        ObserverWithState previous = mObserverMap.previous(observer);
 
-        State siblingState = previous != null ? previous.getValue().mState : null;
+        State siblingState = previous != null ? previous.mState : null;
         State parentState = !mParentStates.isEmpty() ? mParentStates.get(mParentStates.size() - 1)
                 : null;
         return min(min(mState, siblingState), parentState);
@@ -250,40 +246,45 @@ public class LifecycleRegistry extends Lifecycle {
     }
 
     private void forwardPass(LifecycleOwner lifecycleOwner) {
-        Iterator<Map.Entry<LifecycleObserver, ObserverWithState>> ascendingIterator =
-                mObserverMap.iteratorWithAdditions();
-        while (ascendingIterator.hasNext() && !mNewEventOccurred) {
-            Map.Entry<LifecycleObserver, ObserverWithState> entry = ascendingIterator.next();
-            ObserverWithState observer = entry.getValue();
-            while ((observer.mState.compareTo(mState) < 0 && !mNewEventOccurred
-                    && mObserverMap.contains(entry.getKey()))) {
-                pushParentState(observer.mState);
-                final Event event = Event.upFrom(observer.mState);
-                if (event == null) {
-                    throw new IllegalStateException("no event up from " + observer.mState);
+        mObserverMap.beginTraversal();
+        try {
+            // slotCount() is re-read on purpose: observers added during the pass are visited too
+            for (int i = 0; i < mObserverMap.slotCount() && !mNewEventOccurred; i++) {
+                ObserverWithState observer = mObserverMap.slotAt(i);
+                while ((observer != null && observer.mState.compareTo(mState) < 0
+                        && !mNewEventOccurred && observer.isAttached())) {
+                    pushParentState(observer.mState);
+                    final Event event = Event.upFrom(observer.mState);
+                    if (event == null) {
+                        throw new IllegalStateException("no event up from " + observer.mState);
+                    }
+                    observer.dispatchEvent(lifecycleOwner, event);
+                    popParentState();
                 }
-                observer.dispatchEvent(lifecycleOwner, event);
-                popParentState();
             }
+        } finally {
+            mObserverMap.endTraversal();
         }
     }
 
     private void backwardPass(LifecycleOwner lifecycleOwner) {
-        Iterator<Map.Entry<LifecycleObserver, ObserverWithState>> descendingIterator =
-                mObserverMap.descendingIterator();
-        while (descendingIterator.hasNext() && !mNewEventOccurred) {
-            Map.Entry<LifecycleObserver, ObserverWithState> entry = descendingIterator.next();
-            ObserverWithState observer = entry.getValue();
-            while ((observer.mState.compareTo(mState) > 0 && !mNewEventOccurred
-                    && mObserverMap.contains(entry.getKey()))) {
-                Event event = Event.downFrom(observer.mState);
-                if (event == null) {
-                    throw new IllegalStateException("no event down from " + observer.mState);
+        mObserverMap.beginTraversal();
+        try {
+            for (int i = mObserverMap.slotCount() - 1; i >= 0 && !mNewEventOccurred; i--) {
+                ObserverWithState observer = mObserverMap.slotAt(i);
+                while ((observer != null && observer.mState.compareTo(mState) > 0
+                        && !mNewEventOccurred && observer.isAttached())) {
+                    Event event = Event.downFrom(observer.mState);
+                    if (event == null) {
+                        throw new IllegalStateException("no event down from " + observer.mState);
+                    }
+                    pushParentState(event.getTargetState());
+                    observer.dispatchEvent(lifecycleOwner, event);
+                    popParentState();
                 }
-                pushParentState(event.getTargetState());
-                observer.dispatchEvent(lifecycleOwner, event);
-                popParentState();
             }
+        } finally {
+            mObserverMap.endTraversal();
         }
     }
 
@@ -298,12 +299,12 @@ public class LifecycleRegistry extends Lifecycle {
         while (!isSynced()) {
             mNewEventOccurred = false;
             // no need to check eldest for nullability, because isSynced does it for us.
-            if (mState.compareTo(mObserverMap.eldest().getValue().mState) < 0) {
+            if (mState.compareTo(mObserverMap.eldest().mState) < 0) {
                 backwardPass(lifecycleOwner);
             }
-            Map.Entry<LifecycleObserver, ObserverWithState> newest = mObserverMap.newest();
+            ObserverWithState newest = mObserverMap.newest();
             if (!mNewEventOccurred && newest != null
-                    && mState.compareTo(newest.getValue().mState) > 0) {
+                    && mState.compareTo(newest.mState) > 0) {
                 forwardPass(lifecycleOwner);
             }
         }
@@ -342,12 +343,18 @@ public class LifecycleRegistry extends Lifecycle {
     static class ObserverWithState {
         State mState;
         LifecycleEventObserver mLifecycleObserver;
+        // position in ObserverList, -1 once removed
+        int mIndex = -1;
 
         ObserverWithState(LifecycleObserver observer, State initialState) {
             mLifecycleObserver = Lifecycling.lifecycleEventObserver(observer);
             mState = initialState;
         }
 
+        boolean isAttached() {
+            return mIndex >= 0;
+        }
+
         void dispatchEvent(LifecycleOwner owner, Event event) {
             State newState = event.getTargetState();
             mState = min(mState, newState);
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LifecycleRegistry.ObserverWithState;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Ordered collection of the observers of a {@link LifecycleRegistry}.
+ * <p>
+ * Observers are kept in an array in addition order, so traversals are plain indexed loops and
+ * don't allocate iterators. Observers can be added and removed while a traversal is in progress:
+ * additions are appended at the end and removals leave an empty slot behind, which is only
+ * compacted while no traversal is running.
+ */
+final class ObserverList {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final HashMap<LifecycleObserver, ObserverWithState> mLookup = new HashMap<>();
+    private ObserverWithState[] mSlots = new ObserverWithState[INITIAL_CAPACITY];
+    // number of used slots, including the empty ones left by removals
+    private int mSlotCount;
+    private int mTraversalDepth;
+
+    int size() {
+        return mLookup.size();
+    }
+
+    boolean contains(LifecycleObserver observer) {
+        return mLookup.containsKey(observer);
+    }
+
+    /**
+     * Appends the observer unless it is already present.
+     *
+     * @return the existing value if the observer was already added, {@code null} otherwise
+     */
+    @Nullable
+    ObserverWithState putIfAbsent(LifecycleObserver observer, ObserverWithState value) {
+        ObserverWithState existing = mLookup.get(observer);
+        if (existing != null) {
+            return existing;
+        }
+        mLookup.put(observer, value);
+        if (mSlotCount == mSlots.length) {
+            mSlots = Arrays.copyOf(mSlots, mSlots.length * 2);
+        }
+        value.mIndex = mSlotCount;
+        mSlots[mSlotCount++] = value;
+        return null;
+    }
+
+    void remove(LifecycleObserver observer) {
+        ObserverWithState removed = mLookup.remove(observer);
+        if (removed == null) {
+            return;
+        }
+        mSlots[removed.mIndex] = null;
+        removed.mIndex = -1;
+        if (mTraversalDepth == 0) {
+            trimOrCompact();
+        }
+    }
+
+    /**
+     * Returns the closest observer added before the given one, if any.
+     */
+    @Nullable
+    ObserverWithState previous(LifecycleObserver observer) {
+        ObserverWithState value = mLookup.get(observer);
+        if (value == null) {
+            return null;
+        }
+        for (int i = value.mIndex - 1; i >= 0; i--) {
+            if (mSlots[i] != null) {
+                return mSlots[i];
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    ObserverWithState eldest() {
+        for (int i = 0; i < mSlotCount; i++) {
+            if (mSlots[i] != null) {
+                return mSlots[i];
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    ObserverWithState newest() {
+        for (int i = mSlotCount - 1; i >= 0; i--) {
+            if (mSlots[i] != null) {
+                return mSlots[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Must be called before traversing the slots with {@link #slotCount()} and
+     * {@link #slotAt(int)}, and balanced with {@link #endTraversal()}.
+     */
+    void beginTraversal() {
+        mTraversalDepth++;
+    }
+
+    void endTraversal() {
+        mTraversalDepth--;
+        if (mTraversalDepth == 0) {
+            trimOrCompact();
+        }
+    }
+
+    int slotCount() {
+        return mSlotCount;
+    }
+
+    /**
+     * Returns the observer at the given slot, or {@code null} if it was removed during the
+     * current traversal.
+     */
+    @Nullable
+    ObserverWithState slotAt(int index) {
+        return mSlots[index];
+    }
+
+    private void trimOrCompact() {
+        while (mSlotCount > 0 && mSlots[mSlotCount - 1] == null) {
+            mSlotCount--;
+        }
+        int live = mLookup.size();
+        // compacting only once empty slots outnumber the observers keeps removals amortized O(1)
+        if (mSlotCount - live <= live) {
+            return;
+        }
+        int target = 0;
+        for (int i = 0; i < mSlotCount; i++) {
+            ObserverWithState value = mSlots[i];
+            if (value != null) {
+                value.mIndex = target;
+                mSlots[target++] = value;
+            }
+        }
+        Arrays.fill(mSlots, target, mSlotCount, null);
+        mSlotCount = target;
+    }
+}
@@ -581,6 +581,39 @@ public class LifecycleRegistryTest {
         verify(observer).onCreate();
     }
 
+    @Test
+    public void removeManyDuringTraversing() {
+        final TestObserver[] observers = new TestObserver[50];
+        for (int i = 0; i < observers.length; i++) {
+            final int index = i;
+            observers[i] = spy(new TestObserver() {
+                @Override
+                void onStart() {
+                    // every observer removes the one right after it
+                    if (index + 1 < observers.length) {
+                        mRegistry.removeObserver(observers[index + 1]);
+                    }
+                }
+            });
+        }
+        for (TestObserver observer : observers) {
+            mRegistry.addObserver(observer);
+        }
+        fullyInitializeRegistry();
+        for (int i = 0; i < observers.length; i++) {
+            verify(observers[i], times(i % 2 == 0 ? 1 : 0)).onStart();
+            verify(observers[i], times(i % 2 == 0 ? 1 : 0)).onResume();
+        }
+        assertThat(mRegistry.getObserverCount(), is(observers.length / 2));
+        TestObserver late = mock(TestObserver.class);
+        mRegistry.addObserver(late);
+        verify(late).onResume();
+        dispatchEvent(ON_DESTROY);
+        InOrder inOrder = inOrder(late, observers[0]);
+        inOrder.verify(late).onDestroy();
+        inOrder.verify(observers[0]).onDestroy();
+    }
+
     private static void forceGc() {
         Runtime.getRuntime().gc();
         Runtime.getRuntime().runFinalization();
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.media2.session
+
+import android.os.Bundle
+import android.os.Parcel
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.media2.common.MediaItem
+import androidx.media2.common.MediaMetadata
+import androidx.media2.common.MediaParcelUtils
+import androidx.test.filters.LargeTest
+import androidx.test.platform.app.InstrumentationRegistry
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Measures what a [MediaSession] marshals to each controller for a single edit of a large
+ * playlist, either as the whole playlist or as a [PlaylistDelta].
+ *
+ * The marshalled bytes per edit are reported as the `playlistBytesPerEdit` instrumentation
+ * status next to the timing results.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+class PlaylistSyncBenchmark(private val edit: String, private val useDelta: Boolean) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val oldPlaylist = List(PLAYLIST_SIZE) { createMediaItem("media_$it") }
+
+    private val newPlaylist = oldPlaylist.toMutableList().apply {
+        when (edit) {
+            "insert" -> add(PLAYLIST_SIZE / 2, createMediaItem("inserted"))
+            "remove" -> removeAt(PLAYLIST_SIZE / 2)
+            "move" -> add(PLAYLIST_SIZE - 1, removeAt(1))
+            "replace" -> set(PLAYLIST_SIZE / 2, createMediaItem("replaced"))
+        }
+    }
+
+    @Test
+    fun marshalEdit() {
+        var bytes = 0
+        benchmarkRule.measureRepeated {
+            val parcel = Parcel.obtain()
+            marshal(parcel)
+            bytes = parcel.dataSize()
+            runWithTimingDisabled { parcel.recycle() }
+        }
+        InstrumentationRegistry.getInstrumentation().sendStatus(
+            2,
+            Bundle().apply { putInt("playlistBytesPerEdit", bytes) }
+        )
+    }
+
+    private fun marshal(parcel: Parcel) {
+        if (useDelta) {
+            val delta = checkNotNull(PlaylistDelta.create(0, 1, oldPlaylist, newPlaylist))
+            MediaParcelUtils.toParcelable(delta).writeToParcel(parcel, 0)
+        } else {
+            // ParcelImplListSlice sends the same items, split into binder calls of at most
+            // MAX_IPC_SIZE bytes.
+            parcel.writeTypedList(MediaParcelUtils.toParcelableList(newPlaylist))
+        }
+    }
+
+    companion object {
+        private const val PLAYLIST_SIZE = 10_000
+
+        private fun createMediaItem(mediaId: String): MediaItem {
+            val metadata = MediaMetadata.Builder()
+                .putString(MediaMetadata.METADATA_KEY_MEDIA_ID, mediaId)
+                .putString(MediaMetadata.METADATA_KEY_TITLE, "Title of $mediaId")
+                .putString(MediaMetadata.METADATA_KEY_ARTIST, "Artist of $mediaId")
+                .putLong(MediaMetadata.METADATA_KEY_DURATION, 180_000L)
+                .build()
+            return MediaItem.Builder().setMetadata(metadata).build()
+        }
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "edit={0},delta={1}")
+        fun parameters() = listOf("insert", "remove", "move", "replace").flatMap {
+            listOf(arrayOf<Any>(it, false), arrayOf<Any>(it, true))
+        }
+    }
+}
@@ -46,6 +46,7 @@ import androidx.media.AudioAttributesCompat;
 import androidx.media.VolumeProviderCompat;
 import androidx.media2.common.MediaItem;
 import androidx.media2.common.MediaMetadata;
+import androidx.media2.common.MediaParcelUtils;
 import androidx.media2.common.Rating;
 import androidx.media2.common.SessionPlayer;
 import androidx.media2.common.SessionPlayer.TrackInfo;
@@ -69,8 +70,11 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -391,6 +395,113 @@ public class MediaControllerTest extends MediaSessionTestBase {
         TestUtils.assertMetadataEquals(testMetadata, controller.getPlaylistMetadata());
     }
 
+    @Test
+    public void getPlaylist_afterPlaylistDeltas() throws InterruptedException {
+        final BlockingQueue<List<MediaItem>> playlists = new LinkedBlockingQueue<>();
+        final ControllerCallback callback = new ControllerCallback() {
+            @Override
+            public void onPlaylistChanged(@NonNull MediaController controller,
+                    List<MediaItem> playlist, MediaMetadata metadata) {
+                playlists.add(playlist);
+            }
+        };
+        MediaController controller = createController(mSession.getToken(), true, null, callback);
+        List<MediaItem> playlist = TestUtils.createMediaItems(10);
+        notifyPlaylistAndAwait(playlist, playlists, controller);
+
+        // Each single edit is sent to the controller as a delta.
+        playlist = new ArrayList<>(playlist);
+        playlist.add(4, TestUtils.createMediaItem("inserted"));
+        notifyPlaylistAndAwait(playlist, playlists, controller);
+
+        playlist = new ArrayList<>(playlist);
+        playlist.add(8, playlist.remove(1));
+        notifyPlaylistAndAwait(playlist, playlists, controller);
+
+        playlist = new ArrayList<>(playlist);
+        playlist.remove(6);
+        notifyPlaylistAndAwait(playlist, playlists, controller);
+
+        playlist = new ArrayList<>(playlist);
+        playlist.set(2, TestUtils.createMediaItem("replaced"));
+        notifyPlaylistAndAwait(playlist, playlists, controller);
+    }
+
+    @Test
+    public void getPlaylist_whenControllerVersionIsStaleOnSession() throws InterruptedException {
+        final BlockingQueue<List<MediaItem>> playlists = new LinkedBlockingQueue<>();
+        final ControllerCallback callback = new ControllerCallback() {
+            @Override
+            public void onPlaylistChanged(@NonNull MediaController controller,
+                    List<MediaItem> playlist, MediaMetadata metadata) {
+                playlists.add(playlist);
+            }
+        };
+        MediaController controller = createController(mSession.getToken(), true, null, callback);
+        List<MediaItem> playlist = TestUtils.createMediaItems(10);
+        notifyPlaylistAndAwait(playlist, playlists, controller);
+
+        // The session can't send a delta to a controller whose version it doesn't know, so it
+        // sends the whole playlist instead.
+        for (ControllerInfo controllerInfo : mSession.getConnectedControllers()) {
+            if (controllerInfo.getControllerCb() instanceof MediaSessionStub.Controller2Cb) {
+                ((MediaSessionStub.Controller2Cb) controllerInfo.getControllerCb())
+                        .setPlaylistVersion(PlaylistDelta.VERSION_UNKNOWN);
+            }
+        }
+        playlist = new ArrayList<>(playlist);
+        playlist.add(0, playlist.remove(9));
+        notifyPlaylistAndAwait(playlist, playlists, controller);
+
+        // The controller has the session's version again, so the next edit can be a delta.
+        playlist = new ArrayList<>(playlist);
+        playlist.remove(3);
+        notifyPlaylistAndAwait(playlist, playlists, controller);
+    }
+
+    @Test
+    public void getPlaylist_afterDeltaWithUnknownBaseVersion_requestsPlaylistSync()
+            throws InterruptedException {
+        final BlockingQueue<List<MediaItem>> playlists = new LinkedBlockingQueue<>();
+        final ControllerCallback callback = new ControllerCallback() {
+            @Override
+            public void onPlaylistChanged(@NonNull MediaController controller,
+                    List<MediaItem> playlist, MediaMetadata metadata) {
+                playlists.add(playlist);
+            }
+        };
+        MediaController controller = createController(mSession.getToken(), true, null, callback);
+        final List<MediaItem> playlist = TestUtils.createMediaItems(10);
+        notifyPlaylistAndAwait(playlist, playlists, controller);
+
+        // A delta from a playlist that the controller doesn't have can't be applied, so the
+        // controller drops it and asks the session for the whole playlist.
+        List<MediaItem> unknownPlaylist = TestUtils.createMediaItems(5);
+        List<MediaItem> editedPlaylist = new ArrayList<>(unknownPlaylist);
+        editedPlaylist.remove(2);
+        PlaylistDelta delta = PlaylistDelta.create(1000, 1001, unknownPlaylist, editedPlaylist);
+        assertNotNull(delta);
+        ((MediaControllerImplBase) controller.getImpl()).mControllerStub.onPlaylistDelta(0,
+                MediaParcelUtils.toParcelable(delta),
+                MediaParcelUtils.toParcelable(TestUtils.createMetadata()), 0, -1, 1);
+
+        List<MediaItem> playlistFromCallback = playlists.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertNotNull(playlistFromCallback);
+        TestUtils.assertMediaItemListEquals(playlist, playlistFromCallback);
+        TestUtils.assertMediaItemListEquals(playlist, controller.getPlaylist());
+    }
+
+    private void notifyPlaylistAndAwait(List<MediaItem> playlist,
+            BlockingQueue<List<MediaItem>> playlists, MediaController controller)
+            throws InterruptedException {
+        mPlayer.mPlaylist = playlist;
+        mPlayer.notifyPlaylistChanged();
+        List<MediaItem> playlistFromCallback = playlists.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertNotNull(playlistFromCallback);
+        TestUtils.assertMediaItemListEquals(playlist, playlistFromCallback);
+        assertEquals(playlistFromCallback, controller.getPlaylist());
+    }
+
     @Test
     public void updatePlaylistMetadata() throws Exception {
         final MediaMetadata testMetadata = TestUtils.createMetadata();
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.media2.session;
+
+import static androidx.media2.common.MediaMetadata.BROWSABLE_TYPE_NONE;
+import static androidx.media2.common.MediaMetadata.METADATA_KEY_ALBUM_ART;
+import static androidx.media2.common.MediaMetadata.METADATA_KEY_BROWSABLE;
+import static androidx.media2.common.MediaMetadata.METADATA_KEY_MEDIA_ID;
+import static androidx.media2.common.MediaMetadata.METADATA_KEY_PLAYABLE;
+import static androidx.media2.common.MediaMetadata.METADATA_KEY_TITLE;
+import static androidx.media2.session.LibraryResult.RESULT_ERROR_BAD_VALUE;
+import static androidx.media2.session.LibraryResult.RESULT_SUCCESS;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+import androidx.media2.common.MediaItem;
+import androidx.media2.common.MediaMetadata;
+import androidx.media2.session.MediaLibraryService.LibraryParams;
+import androidx.media2.session.MediaLibraryService.MediaLibrarySession;
+import androidx.media2.session.MediaLibraryService.MediaLibrarySession.MediaLibrarySessionCallback;
+import androidx.media2.session.MediaSession.ControllerInfo;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.MediumTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests {@link MediaItemWindow} with a {@link MockMediaLibraryService}.
+ */
+@RunWith(AndroidJUnit4.class)
+@MediumTest
+public class MediaItemWindowTest extends MediaSessionTestBase {
+    private static final String PARENT_ID = "parent_id";
+    private static final int CHILDREN_COUNT = 95;
+    private static final int PAGE_SIZE = 10;
+
+    private final List<MediaItem> mChildren = new ArrayList<>();
+    private final List<LibraryParams> mChildrenRequests =
+            Collections.synchronizedList(new ArrayList<LibraryParams>());
+    private final BlockingQueue<int[]> mLoadedItems = new LinkedBlockingQueue<>();
+    private final BlockingQueue<int[]> mLoadedMediaIds = new LinkedBlockingQueue<>();
+
+    private MediaBrowser mBrowser;
+    private MediaItemWindow mWindow;
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        for (int i = 0; i < CHILDREN_COUNT; i++) {
+            mChildren.add(createMediaItemWithBitmap("media_id_" + i));
+        }
+        TestServiceRegistry.getInstance().setHandler(sHandler);
+        TestServiceRegistry.getInstance().setSessionCallback(new MediaLibrarySessionCallback() {
+            @NonNull
+            @Override
+            public LibraryResult onGetChildren(@NonNull MediaLibrarySession session,
+                    @NonNull ControllerInfo controller, @NonNull String parentId, int page,
+                    int pageSize, LibraryParams params) {
+                mChildrenRequests.add(params);
+                int fromIndex = Math.min(page * pageSize, CHILDREN_COUNT);
+                int toIndex = Math.min(fromIndex + pageSize, CHILDREN_COUNT);
+                return new LibraryResult(RESULT_SUCCESS,
+                        new ArrayList<>(mChildren.subList(fromIndex, toIndex)), null);
+            }
+
+            @NonNull
+            @Override
+            public LibraryResult onGetItem(@NonNull MediaLibrarySession session,
+                    @NonNull ControllerInfo controller, @NonNull String mediaId) {
+                for (MediaItem item : mChildren) {
+                    if (mediaId.equals(item.getMediaId())) {
+                        return new LibraryResult(RESULT_SUCCESS, item, null);
+                    }
+                }
+                return new LibraryResult(RESULT_ERROR_BAD_VALUE);
+            }
+        });
+        mBrowser = createBrowser();
+        mWindow = new MediaItemWindow.Builder(mBrowser, PARENT_ID)
+                .setPageSize(PAGE_SIZE)
+                .setPrefetchPageCount(1)
+                .setCallback(sHandlerExecutor, new MediaItemWindow.Callback() {
+                    @Override
+                    public void onItemsLoaded(@NonNull MediaItemWindow window, int fromIndex,
+                            int count) {
+                        mLoadedItems.add(new int[] {fromIndex, count});
+                    }
+
+                    @Override
+                    public void onMediaIdsLoaded(@NonNull MediaItemWindow window,
+                            int fromIndex, int count) {
+                        mLoadedMediaIds.add(new int[] {fromIndex, count});
+                    }
+                })
+                .build();
+    }
+
+    @After
+    @Override
+    public void cleanUp() throws Exception {
+        super.cleanUp();
+        if (mWindow != null) {
+            mWindow.close();
+            mWindow = null;
+        }
+        if (mBrowser != null) {
+            mBrowser.close();
+            mBrowser = null;
+        }
+        TestServiceRegistry.getInstance().cleanUp();
+    }
+
+    @Test
+    public void setVisibleRange_loadsVisibleAndPrefetchedPagesWithoutBitmaps() throws Exception {
+        mWindow.setVisibleRange(0, PAGE_SIZE);
+
+        assertLoaded(mLoadedItems, 0, PAGE_SIZE);
+        assertLoaded(mLoadedItems, PAGE_SIZE, PAGE_SIZE);
+        for (int i = 0; i < 2 * PAGE_SIZE; i++) {
+            MediaItem item = mWindow.getItem(i);
+            assertNotNull(item);
+            MediaMetadata metadata = item.getMetadata();
+            assertEquals("media_id_" + i, metadata.getMediaId());
+            assertEquals("title", metadata.getString(METADATA_KEY_TITLE));
+            assertTrue(metadata.containsKey(METADATA_KEY_ALBUM_ART));
+            assertNull(metadata.getBitmap(METADATA_KEY_ALBUM_ART));
+        }
+        assertNull(mWindow.getItem(2 * PAGE_SIZE));
+        assertEquals(MediaItemWindow.ITEM_COUNT_UNKNOWN, mWindow.getItemCount());
+        for (LibraryParams params : mChildrenRequests) {
+            assertTrue(params.getExtras().getBoolean(MediaConstants.EXTRAS_KEY_EXCLUDE_BITMAPS));
+        }
+    }
+
+    @Test
+    public void setVisibleRange_lastPage_setsItemCount() throws Exception {
+        mWindow.setVisibleRange(90, CHILDREN_COUNT);
+
+        assertLoaded(mLoadedItems, 90, CHILDREN_COUNT - 90);
+        assertLoaded(mLoadedItems, 80, PAGE_SIZE);
+        assertEquals("media_id_94", mWindow.getItem(CHILDREN_COUNT - 1).getMediaId());
+        // The empty page after the last one doesn't make the item count larger.
+        assertEquals(3, mChildrenRequests.size());
+        assertEquals(CHILDREN_COUNT, mWindow.getItemCount());
+    }
+
+    @Test
+    public void setVisibleRange_loadedPages_notLoadedAgain() throws Exception {
+        mWindow.setVisibleRange(0, PAGE_SIZE);
+        assertLoaded(mLoadedItems, 0, PAGE_SIZE);
+        assertLoaded(mLoadedItems, PAGE_SIZE, PAGE_SIZE);
+
+        mWindow.setVisibleRange(5, 15);
+
+        assertNull(mLoadedItems.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertEquals(2, mChildrenRequests.size());
+    }
+
+    @Test
+    public void getMediaId_loadsMediaIdPage() throws Exception {
+        assertNull(mWindow.getMediaId(42));
+
+        // A page of media IDs is ten times as large as a page of items, so it has all children.
+        assertLoaded(mLoadedMediaIds, 0, CHILDREN_COUNT);
+        assertEquals("media_id_42", mWindow.getMediaId(42));
+        assertEquals(CHILDREN_COUNT, mWindow.getItemCount());
+        assertNull(mWindow.getItem(42));
+        assertEquals(1, mChildrenRequests.size());
+        assertTrue(mChildrenRequests.get(0).getExtras()
+                .getBoolean(MediaConstants.EXTRAS_KEY_MEDIA_ID_ONLY));
+    }
+
+    @Test
+    public void loadItem_replacesItemWithFullItem() throws Exception {
+        mWindow.setVisibleRange(0, PAGE_SIZE);
+        assertLoaded(mLoadedItems, 0, PAGE_SIZE);
+        assertLoaded(mLoadedItems, PAGE_SIZE, PAGE_SIZE);
+
+        LibraryResult result = mWindow.loadItem(3).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        assertEquals(RESULT_SUCCESS, result.getResultCode());
+        assertNotNull(result.getMediaItem().getMetadata().getBitmap(METADATA_KEY_ALBUM_ART));
+        assertLoaded(mLoadedItems, 3, 1);
+        assertNotNull(mWindow.getItem(3).getMetadata().getBitmap(METADATA_KEY_ALBUM_ART));
+    }
+
+    @Test
+    public void close_releasesItemsAndStopsCallbacks() throws Exception {
+        mWindow.setVisibleRange(0, PAGE_SIZE);
+        assertLoaded(mLoadedItems, 0, PAGE_SIZE);
+        assertLoaded(mLoadedItems, PAGE_SIZE, PAGE_SIZE);
+
+        mWindow.close();
+        mWindow.setVisibleRange(50, 60);
+
+        assertNull(mWindow.getItem(0));
+        assertNull(mLoadedItems.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertEquals(2, mChildrenRequests.size());
+    }
+
+    private static void assertLoaded(BlockingQueue<int[]> loaded, int fromIndex, int count)
+            throws InterruptedException {
+        int[] range = loaded.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertNotNull(range);
+        assertEquals(fromIndex, range[0]);
+        assertEquals(count, range[1]);
+    }
+
+    private MediaBrowser createBrowser() throws InterruptedException {
+        final SessionToken token = MockMediaLibraryService.getToken(mContext);
+        final TestBrowserCallback callback = new TestBrowserCallback(null);
+        final AtomicReference<MediaBrowser> browser = new AtomicReference<>();
+        sHandler.postAndSync(new Runnable() {
+            @Override
+            public void run() {
+                browser.set(new MediaBrowser.Builder(mContext)
+                        .setSessionToken(token)
+                        .setControllerCallback(sHandlerExecutor, callback)
+                        .build());
+            }
+        });
+        callback.waitForConnect(true);
+        return browser.get();
+    }
+
+    private static MediaItem createMediaItemWithBitmap(String mediaId) {
+        return new MediaItem.Builder()
+                .setMetadata(new MediaMetadata.Builder()
+                        .putString(METADATA_KEY_MEDIA_ID, mediaId)
+                        .putString(METADATA_KEY_TITLE, "title")
+                        .putLong(METADATA_KEY_BROWSABLE, BROWSABLE_TYPE_NONE)
+                        .putLong(METADATA_KEY_PLAYABLE, 1)
+                        .putBitmap(METADATA_KEY_ALBUM_ART,
+                                Bitmap.createBitmap(8, 8, Bitmap.Config.ARGB_8888))
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.media2.session;
+
+import static androidx.media2.common.MediaMetadata.BROWSABLE_TYPE_MIXED;
+import static androidx.media2.common.MediaMetadata.METADATA_KEY_ALBUM_ART;
+import static androidx.media2.common.MediaMetadata.METADATA_KEY_ART_URI;
+import static androidx.media2.common.MediaMetadata.METADATA_KEY_BROWSABLE;
+import static androidx.media2.common.MediaMetadata.METADATA_KEY_MEDIA_ID;
+import static androidx.media2.common.MediaMetadata.METADATA_KEY_PLAYABLE;
+import static androidx.media2.common.MediaMetadata.METADATA_KEY_TITLE;
+import static androidx.media2.session.LibraryResult.RESULT_SUCCESS;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+import android.os.Bundle;
+
+import androidx.media2.common.MediaItem;
+import androidx.media2.common.MediaMetadata;
+import androidx.media2.session.MediaLibraryService.LibraryParams;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests trimming media items in {@link MediaUtils}.
+ */
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class MediaUtilsTest extends MediaTestBase {
+
+    @Test
+    public void removeBitmaps_keepsBitmapKeys() {
+        MediaItem item = createMediaItemWithBitmap("media_id");
+
+        MediaItem result = MediaUtils.removeBitmaps(Collections.singletonList(item)).get(0);
+
+        MediaMetadata metadata = result.getMetadata();
+        assertTrue(metadata.containsKey(METADATA_KEY_ALBUM_ART));
+        assertNull(metadata.getBitmap(METADATA_KEY_ALBUM_ART));
+        assertEquals("media_id", metadata.getMediaId());
+        assertEquals("title", metadata.getString(METADATA_KEY_TITLE));
+        assertEquals("content://art", metadata.getString(METADATA_KEY_ART_URI));
+        assertEquals(item.getStartPosition(), result.getStartPosition());
+        assertEquals(item.getEndPosition(), result.getEndPosition());
+    }
+
+    @Test
+    public void removeBitmaps_withoutBitmaps_returnsSameItem() {
+        MediaItem item = TestUtils.createMediaItem("media_id");
+
+        assertSame(item, MediaUtils.removeBitmaps(Collections.singletonList(item)).get(0));
+    }
+
+    @Test
+    public void removeBitmaps_withoutBitmaps_returnsSameList() {
+        List<MediaItem> items = TestUtils.createMediaItems(5);
+
+        assertSame(items, MediaUtils.removeBitmaps(items));
+    }
+
+    @Test
+    public void removeBitmaps_keepsItemsWithoutBitmaps() {
+        List<MediaItem> items = TestUtils.createMediaItems(5);
+        items.set(2, createMediaItemWithBitmap("media_id"));
+
+        List<MediaItem> result = MediaUtils.removeBitmaps(items);
+
+        assertEquals(items.size(), result.size());
+        for (int i = 0; i < items.size(); i++) {
+            if (i == 2) {
+                assertNull(result.get(i).getMetadata().getBitmap(METADATA_KEY_ALBUM_ART));
+            } else {
+                assertSame(items.get(i), result.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void removeBitmaps_currentItem_isSameAsPlaylistItem() {
+        List<MediaItem> playlist = createLibraryResult(5).getMediaItems();
+        MediaItem currentItem = playlist.get(3);
+
+        List<MediaItem> playlistWithoutBitmaps = MediaUtils.removeBitmaps(playlist);
+        MediaItem currentItemWithoutBitmaps = MediaUtils.removeBitmaps(currentItem);
+
+        assertEquals(3, playlistWithoutBitmaps.indexOf(currentItemWithoutBitmaps));
+    }
+
+    @Test
+    public void removeBitmaps_afterMetadataChange_copiesNewMetadata() {
+        MediaItem item = createMediaItemWithBitmap("media_id");
+        MediaItem copy = MediaUtils.removeBitmaps(item);
+
+        item.setMetadata(new MediaMetadata.Builder(item.getMetadata())
+                .putString(METADATA_KEY_TITLE, "new_title").build());
+        MediaItem newCopy = MediaUtils.removeBitmaps(item);
+
+        assertNotSame(copy, newCopy);
+        assertEquals("new_title", newCopy.getMetadata().getString(METADATA_KEY_TITLE));
+        assertNull(newCopy.getMetadata().getBitmap(METADATA_KEY_ALBUM_ART));
+    }
+
+    @Test
+    public void trimMediaItems_mediaIdOnly() {
+        LibraryResult result = createLibraryResult(10);
+
+        LibraryResult trimmed = MediaUtils.trimMediaItems(result,
+                createParams(MediaConstants.EXTRAS_KEY_MEDIA_ID_ONLY));
+
+        assertEquals(RESULT_SUCCESS, trimmed.getResultCode());
+        assertEquals(10, trimmed.getMediaItems().size());
+        for (int i = 0; i < 10; i++) {
+            MediaMetadata metadata = trimmed.getMediaItems().get(i).getMetadata();
+            assertEquals("media_id_" + i, metadata.getMediaId());
+            assertEquals(BROWSABLE_TYPE_MIXED, metadata.getLong(METADATA_KEY_BROWSABLE));
+            assertEquals(1, metadata.getLong(METADATA_KEY_PLAYABLE));
+            assertFalse(metadata.containsKey(METADATA_KEY_TITLE));
+            assertFalse(metadata.containsKey(METADATA_KEY_ALBUM_ART));
+        }
+    }
+
+    @Test
+    public void trimMediaItems_excludeBitmaps() {
+        LibraryResult result = createLibraryResult(10);
+
+        LibraryResult trimmed = MediaUtils.trimMediaItems(result,
+                createParams(MediaConstants.EXTRAS_KEY_EXCLUDE_BITMAPS));
+
+        for (int i = 0; i < 10; i++) {
+            MediaMetadata metadata = trimmed.getMediaItems().get(i).getMetadata();
+            assertEquals("title", metadata.getString(METADATA_KEY_TITLE));
+            assertNull(metadata.getBitmap(METADATA_KEY_ALBUM_ART));
+        }
+    }
+
+    @Test
+    public void trimMediaItems_withoutExtras_returnsSameResult() {
+        LibraryResult result = createLibraryResult(10);
+
+        assertSame(result, MediaUtils.trimMediaItems(result, null));
+        assertSame(result, MediaUtils.trimMediaItems(result,
+                new LibraryParams.Builder().build()));
+    }
+
+    @Test
+    public void playlistDeltaWithoutBitmaps() {
+        List<MediaItem> oldPlaylist = TestUtils.createMediaItems(10);
+        List<MediaItem> newPlaylist = new ArrayList<>(oldPlaylist);
+        newPlaylist.add(3, createMediaItemWithBitmap("inserted"));
+
+        PlaylistDelta delta = PlaylistDelta.create(0, 1, oldPlaylist, newPlaylist)
+                .withoutBitmaps();
+
+        List<MediaItem> result = delta.apply(oldPlaylist);
+        assertEquals(newPlaylist.size(), result.size());
+        assertEquals("inserted", result.get(3).getMediaId());
+        assertNull(result.get(3).getMetadata().getBitmap(METADATA_KEY_ALBUM_ART));
+    }
+
+    private static LibraryParams createParams(String extraKey) {
+        Bundle extras = new Bundle();
+        extras.putBoolean(extraKey, true);
+        return new LibraryParams.Builder().setExtras(extras).build();
+    }
+
+    private static LibraryResult createLibraryResult(int count) {
+        List<MediaItem> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(createMediaItemWithBitmap("media_id_" + i));
+        }
+        return new LibraryResult(RESULT_SUCCESS, items, null);
+    }
+
+    private static MediaItem createMediaItemWithBitmap(String mediaId) {
+        MediaMetadata metadata = new MediaMetadata.Builder()
+                .putString(METADATA_KEY_MEDIA_ID, mediaId)
+                .putString(METADATA_KEY_TITLE, "title")
+                .putString(METADATA_KEY_ART_URI, "content://art")
+                .putLong(METADATA_KEY_BROWSABLE, BROWSABLE_TYPE_MIXED)
+                .putLong(METADATA_KEY_PLAYABLE, 1)
+                .putBitmap(METADATA_KEY_ALBUM_ART,
+                        Bitmap.createBitmap(8, 8, Bitmap.Config.ARGB_8888))
+                .build();
+        return new MediaItem.Builder()
+                .setMetadata(metadata)
+                .setStartPosition(10)
+                .setEndPosition(1000)
+                .build();
+    }
+}
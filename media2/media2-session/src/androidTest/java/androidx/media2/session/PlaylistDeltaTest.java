@@ -0,0 +1,162 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.media2.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import android.os.Parcel;
+
+import androidx.media2.common.MediaItem;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+import androidx.versionedparcelable.ParcelImpl;
+import androidx.versionedparcelable.ParcelUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests {@link PlaylistDelta}.
+ */
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class PlaylistDeltaTest extends MediaTestBase {
+    private static final int PLAYLIST_SIZE = 20;
+
+    @Test
+    public void insertItem() {
+        List<MediaItem> oldPlaylist = TestUtils.createMediaItems(PLAYLIST_SIZE);
+        List<MediaItem> newPlaylist = new ArrayList<>(oldPlaylist);
+        newPlaylist.add(5, TestUtils.createMediaItem("inserted"));
+
+        assertDeltaApplies(oldPlaylist, newPlaylist, 1);
+    }
+
+    @Test
+    public void removeItems() {
+        List<MediaItem> oldPlaylist = TestUtils.createMediaItems(PLAYLIST_SIZE);
+        List<MediaItem> newPlaylist = new ArrayList<>(oldPlaylist);
+        newPlaylist.subList(3, 6).clear();
+
+        assertDeltaApplies(oldPlaylist, newPlaylist, 0);
+    }
+
+    @Test
+    public void moveItemForward() {
+        List<MediaItem> oldPlaylist = TestUtils.createMediaItems(PLAYLIST_SIZE);
+        List<MediaItem> newPlaylist = new ArrayList<>(oldPlaylist);
+        newPlaylist.add(15, newPlaylist.remove(2));
+
+        assertDeltaApplies(oldPlaylist, newPlaylist, 0);
+    }
+
+    @Test
+    public void moveItemBackward() {
+        List<MediaItem> oldPlaylist = TestUtils.createMediaItems(PLAYLIST_SIZE);
+        List<MediaItem> newPlaylist = new ArrayList<>(oldPlaylist);
+        newPlaylist.add(0, newPlaylist.remove(PLAYLIST_SIZE - 1));
+
+        assertDeltaApplies(oldPlaylist, newPlaylist, 0);
+    }
+
+    @Test
+    public void replaceItem() {
+        List<MediaItem> oldPlaylist = TestUtils.createMediaItems(PLAYLIST_SIZE);
+        List<MediaItem> newPlaylist = new ArrayList<>(oldPlaylist);
+        newPlaylist.set(7, TestUtils.createMediaItem("replaced"));
+
+        assertDeltaApplies(oldPlaylist, newPlaylist, 1);
+    }
+
+    @Test
+    public void replaceRange() {
+        List<MediaItem> oldPlaylist = TestUtils.createMediaItems(PLAYLIST_SIZE);
+        List<MediaItem> newPlaylist = new ArrayList<>(oldPlaylist);
+        newPlaylist.subList(4, 8).clear();
+        newPlaylist.add(4, TestUtils.createMediaItem("replaced"));
+
+        assertDeltaApplies(oldPlaylist, newPlaylist, 1);
+    }
+
+    @Test
+    public void replaceMetadataChangedItem() {
+        List<MediaItem> playlist = TestUtils.createMediaItems(PLAYLIST_SIZE);
+        MediaItem item = TestUtils.createMediaItem("updated");
+
+        PlaylistDelta delta = writeToParcelAndCreateDelta(PlaylistDelta.replace(1, 2, 3, item));
+        List<MediaItem> result = delta.apply(playlist);
+
+        List<MediaItem> expected = new ArrayList<>(playlist);
+        expected.set(3, item);
+        TestUtils.assertMediaItemListEquals(expected, result);
+        assertEquals(1, delta.getBaseVersion());
+        assertEquals(2, delta.getVersion());
+    }
+
+    @Test
+    public void largeChange_returnsNull() {
+        List<MediaItem> oldPlaylist = TestUtils.createMediaItems(PLAYLIST_SIZE);
+        List<MediaItem> newPlaylist = new ArrayList<>(oldPlaylist);
+        Collections.reverse(newPlaylist);
+
+        assertNull(PlaylistDelta.create(0, 1, oldPlaylist, newPlaylist));
+    }
+
+    @Test
+    public void applyToStalePlaylist_returnsNull() {
+        List<MediaItem> oldPlaylist = TestUtils.createMediaItems(PLAYLIST_SIZE);
+        List<MediaItem> newPlaylist = new ArrayList<>(oldPlaylist);
+        newPlaylist.subList(15, PLAYLIST_SIZE).clear();
+
+        PlaylistDelta delta = PlaylistDelta.create(0, 1, oldPlaylist, newPlaylist);
+
+        assertNotNull(delta);
+        assertNull(delta.apply(oldPlaylist.subList(0, 10)));
+    }
+
+    private void assertDeltaApplies(List<MediaItem> oldPlaylist, List<MediaItem> newPlaylist,
+            int expectedItemCount) {
+        PlaylistDelta delta = PlaylistDelta.create(4, 5, oldPlaylist, newPlaylist);
+        assertNotNull(delta);
+        assertEquals(expectedItemCount, delta.mItems.size());
+
+        PlaylistDelta parceledDelta = writeToParcelAndCreateDelta(delta);
+
+        assertEquals(4, parceledDelta.getBaseVersion());
+        assertEquals(5, parceledDelta.getVersion());
+        TestUtils.assertMediaItemListEquals(newPlaylist, parceledDelta.apply(oldPlaylist));
+    }
+
+    private PlaylistDelta writeToParcelAndCreateDelta(PlaylistDelta delta) {
+        ParcelImpl parcelImpl = (ParcelImpl) ParcelUtils.toParcelable(delta);
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcelImpl.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            ParcelImpl newParcelImpl = ParcelImpl.CREATOR.createFromParcel(parcel);
+            return ParcelUtils.fromParcelable(newParcelImpl);
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
@@ -107,6 +107,8 @@ class ConnectionResult extends CustomVersionedParcelable {
     MediaMetadata mPlaylistMetadata;
     @ParcelField(26)
     int mBufferingState;
+    @ParcelField(27)
+    int mPlaylistVersion = PlaylistDelta.VERSION_UNKNOWN;
 
     // For versioned parcelable
     ConnectionResult() {
@@ -115,10 +117,12 @@ class ConnectionResult extends CustomVersionedParcelable {
 
     ConnectionResult(@NonNull MediaSessionStub sessionStub,
             @NonNull MediaSession.MediaSessionImpl sessionImpl,
-            @NonNull SessionCommandGroup allowedCommands) {
+            @NonNull SessionCommandGroup allowedCommands, boolean excludeBitmaps) {
         mSessionStub = sessionStub;
         mPlayerState = sessionImpl.getPlayerState();
-        mCurrentMediaItem = sessionImpl.getCurrentMediaItem();
+        mCurrentMediaItem = excludeBitmaps
+                ? MediaUtils.removeBitmaps(sessionImpl.getCurrentMediaItem())
+                : sessionImpl.getCurrentMediaItem();
         mPositionEventTimeMs = SystemClock.elapsedRealtime();
         mPositionMs = sessionImpl.getCurrentPosition();
         mPlaybackSpeed = sessionImpl.getPlaybackSpeed();
@@ -139,6 +143,10 @@ class ConnectionResult extends CustomVersionedParcelable {
         mSelectedMetadataTrack = sessionImpl.getSelectedTrack(TrackInfo.MEDIA_TRACK_TYPE_METADATA);
         if (allowedCommands.hasCommand(SessionCommand.COMMAND_CODE_PLAYER_GET_PLAYLIST)) {
             List<MediaItem> playlist = sessionImpl.getPlaylist();
+            mPlaylistVersion = sessionImpl.getPlaylistVersion(playlist);
+            if (excludeBitmaps) {
+                playlist = MediaUtils.removeBitmaps(playlist);
+            }
             mPlaylistSlice = MediaUtils.convertMediaItemListToParcelImplListSlice(playlist);
         } else {
             mPlaylistSlice = null;
@@ -261,6 +269,10 @@ class ConnectionResult extends CustomVersionedParcelable {
         return mBufferingState;
     }
 
+    public int getPlaylistVersion() {
+        return mPlaylistVersion;
+    }
+
     @Override
     @SuppressWarnings("SynchronizeOnNonFinalField") // mSessionStub is effectively final.
     public void onPreParceling(boolean isStream) {
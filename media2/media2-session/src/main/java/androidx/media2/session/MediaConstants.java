@@ -112,6 +112,32 @@ public class MediaConstants {
      */
     public static final String MEDIA_URI_QUERY_URI = "uri";
 
+    /**
+     * A {@link Boolean} extra to ask for {@link androidx.media2.common.MediaItem}s without bitmaps
+     * in their metadata. The keys of the removed bitmaps are kept with {@code null} values, so the
+     * full item can be requested with {@link MediaBrowser#getItem} when it is displayed.
+     * <p>
+     * Can be put in the {@link MediaLibraryService.LibraryParams#getExtras() extras} of
+     * {@link MediaBrowser#getChildren} and {@link MediaBrowser#getSearchResult}, or in the
+     * connection hints of the controller to apply it to the playlist as well.
+     *
+     * @see MediaController.Builder#setConnectionHints
+     */
+    public static final String EXTRAS_KEY_EXCLUDE_BITMAPS =
+            "androidx.media2.extras.EXCLUDE_BITMAPS";
+
+    /**
+     * A {@link Boolean} extra to ask for {@link androidx.media2.common.MediaItem}s whose metadata
+     * only have the media ID, and whether it's browsable and playable. Useful for fetching the
+     * media IDs of a large list, and loading the metadata of the items when they're displayed.
+     * <p>
+     * Can be put in the {@link MediaLibraryService.LibraryParams#getExtras() extras} of
+     * {@link MediaBrowser#getChildren} and {@link MediaBrowser#getSearchResult}.
+     *
+     * @see MediaItemWindow
+     */
+    public static final String EXTRAS_KEY_MEDIA_ID_ONLY = "androidx.media2.extras.MEDIA_ID_ONLY";
+
     static final String ARGUMENT_CAPTIONING_ENABLED = "androidx.media2.argument.CAPTIONING_ENABLED";
 
     private MediaConstants() {
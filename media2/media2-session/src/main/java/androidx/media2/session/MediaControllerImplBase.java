@@ -124,6 +124,10 @@ class MediaControllerImplBase implements MediaControllerImpl {
     @GuardedBy("mLock")
     private List<MediaItem> mPlaylist;
     @GuardedBy("mLock")
+    private int mPlaylistVersion = PlaylistDelta.VERSION_UNKNOWN;
+    @GuardedBy("mLock")
+    private boolean mPlaylistSyncRequested;
+    @GuardedBy("mLock")
     private MediaMetadata mPlaylistMetadata;
     @GuardedBy("mLock")
     private @RepeatMode int mRepeatMode;
@@ -966,9 +970,12 @@ class MediaControllerImplBase implements MediaControllerImpl {
     }
 
     void notifyPlaylistChanges(final List<MediaItem> playlist, final MediaMetadata metadata,
-            int currentMediaItemIndex, int previousMediaItemIndex, int nextMediaItemIndex) {
+            int currentMediaItemIndex, int previousMediaItemIndex, int nextMediaItemIndex,
+            int playlistVersion) {
         synchronized (mLock) {
             mPlaylist = playlist;
+            mPlaylistVersion = playlistVersion;
+            mPlaylistSyncRequested = false;
             mPlaylistMetadata = metadata;
             mCurrentMediaItemIndex = currentMediaItemIndex;
             mPreviousMediaItemIndex = previousMediaItemIndex;
@@ -989,6 +996,38 @@ class MediaControllerImplBase implements MediaControllerImpl {
         });
     }
 
+    void notifyPlaylistDelta(@NonNull PlaylistDelta delta, final MediaMetadata metadata,
+            int currentMediaItemIndex, int previousMediaItemIndex, int nextMediaItemIndex) {
+        List<MediaItem> playlist = null;
+        IMediaSession iSession = null;
+        synchronized (mLock) {
+            if (mPlaylist != null && mPlaylistVersion == delta.getBaseVersion()) {
+                playlist = delta.apply(mPlaylist);
+            }
+            if (playlist == null) {
+                // Ignore the following deltas until the session sends the whole playlist.
+                mPlaylistVersion = PlaylistDelta.VERSION_UNKNOWN;
+                if (!mPlaylistSyncRequested) {
+                    mPlaylistSyncRequested = true;
+                    iSession = mISession;
+                }
+            }
+        }
+        if (playlist == null) {
+            if (iSession != null) {
+                try {
+                    iSession.requestPlaylistSync(mControllerStub,
+                            mSequencedFutureManager.obtainNextSequenceNumber());
+                } catch (RemoteException e) {
+                    Log.w(TAG, "Cannot request the playlist from the session", e);
+                }
+            }
+            return;
+        }
+        notifyPlaylistChanges(playlist, metadata, currentMediaItemIndex, previousMediaItemIndex,
+                nextMediaItemIndex, delta.getVersion());
+    }
+
     void notifyPlaylistMetadataChanges(final MediaMetadata metadata) {
         synchronized (mLock) {
             mPlaylistMetadata = metadata;
@@ -1194,6 +1233,7 @@ class MediaControllerImplBase implements MediaControllerImpl {
             final int repeatMode,
             final int shuffleMode,
             final List<MediaItem> playlist,
+            final int playlistVersion,
             final PendingIntent sessionActivity,
             final int currentMediaItemIndex,
             final int previousMediaItemIndex,
@@ -1240,6 +1280,7 @@ class MediaControllerImplBase implements MediaControllerImpl {
                 mRepeatMode = repeatMode;
                 mShuffleMode = shuffleMode;
                 mPlaylist = playlist;
+                mPlaylistVersion = playlistVersion;
                 mSessionActivity = sessionActivity;
                 mISession = sessionBinder;
                 mCurrentMediaItemIndex = currentMediaItemIndex;
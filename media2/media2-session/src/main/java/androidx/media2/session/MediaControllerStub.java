@@ -135,6 +135,46 @@ class MediaControllerStub extends IMediaController.Stub {
                 List<MediaItem> playlist =
                         MediaUtils.convertParcelImplListSliceToMediaItemList(listSlice);
                 controller.notifyPlaylistChanges(playlist,
+                        (MediaMetadata) MediaParcelUtils.fromParcelable(metadata), currentIdx,
+                        previousIdx, nextIdx, PlaylistDelta.VERSION_UNKNOWN);
+            }
+        });
+    }
+
+    @Override
+    public void onPlaylistChangedWithVersion(int seq, final int version,
+            final ParcelImplListSlice listSlice, final ParcelImpl metadata, final int currentIdx,
+            final int previousIdx, final int nextIdx) {
+        if (metadata == null) {
+            return;
+        }
+        dispatchControllerTask(new ControllerTask() {
+            @Override
+            public void run(MediaControllerImplBase controller) {
+                List<MediaItem> playlist =
+                        MediaUtils.convertParcelImplListSliceToMediaItemList(listSlice);
+                controller.notifyPlaylistChanges(playlist,
+                        (MediaMetadata) MediaParcelUtils.fromParcelable(metadata), currentIdx,
+                        previousIdx, nextIdx, version);
+            }
+        });
+    }
+
+    @Override
+    public void onPlaylistDelta(int seq, final ParcelImpl delta, final ParcelImpl metadata,
+            final int currentIdx, final int previousIdx, final int nextIdx) {
+        if (delta == null || metadata == null) {
+            return;
+        }
+        dispatchControllerTask(new ControllerTask() {
+            @Override
+            public void run(MediaControllerImplBase controller) {
+                PlaylistDelta deltaObj = MediaParcelUtils.fromParcelable(delta);
+                if (deltaObj == null) {
+                    Log.w(TAG, "onPlaylistDelta(): Ignoring null delta");
+                    return;
+                }
+                controller.notifyPlaylistDelta(deltaObj,
                         (MediaMetadata) MediaParcelUtils.fromParcelable(metadata), currentIdx,
                         previousIdx, nextIdx);
             }
@@ -292,7 +332,8 @@ class MediaControllerStub extends IMediaController.Stub {
                     result.getPositionMs(), result.getPlaybackSpeed(),
                     result.getBufferedPositionMs(), result.getPlaybackInfo(),
                     result.getRepeatMode(), result.getShuffleMode(), itemList,
-                    result.getSessionActivity(), result.getCurrentMediaItemIndex(),
+                    result.getPlaylistVersion(), result.getSessionActivity(),
+                    result.getCurrentMediaItemIndex(),
                     result.getPreviousMediaItemIndex(), result.getNextMediaItemIndex(),
                     result.getTokenExtras(), result.getVideoSize(), result.getTracks(),
                     result.getSelectedVideoTrack(), result.getSelectedAudioTrack(),
@@ -0,0 +1,512 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.media2.session;
+
+import static androidx.media2.session.LibraryResult.RESULT_ERROR_BAD_VALUE;
+import static androidx.media2.session.LibraryResult.RESULT_SUCCESS;
+import static androidx.media2.session.MediaUtils.DIRECT_EXECUTOR;
+
+import android.os.Bundle;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.ArraySet;
+import androidx.collection.LruCache;
+import androidx.media2.common.MediaItem;
+import androidx.media2.common.MediaMetadata;
+import androidx.media2.session.MediaLibraryService.LibraryParams;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads the children of a browsable item of a {@link MediaLibraryService} on demand, for
+ * displaying a long list of {@link MediaItem}s.
+ * <p>
+ * Instead of getting all the children at once, the window only loads the pages around the range
+ * that is visible with {@link #setVisibleRange}, and keeps the most recently used pages in
+ * memory. The media IDs of the children can be loaded separately in larger pages with
+ * {@link #getMediaId}, which is cheap because the library only sends the IDs.
+ * <p>
+ * The items are loaded without bitmaps, see {@link MediaConstants#EXTRAS_KEY_EXCLUDE_BITMAPS}.
+ * Use the URIs in the metadata, such as {@link MediaMetadata#METADATA_KEY_ART_URI}, or load the
+ * full item with {@link #loadItem} when it's needed.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class MediaItemWindow implements Closeable {
+    private static final String TAG = "MediaItemWindow";
+
+    /**
+     * Item count when the end of the children hasn't been loaded yet.
+     */
+    public static final int ITEM_COUNT_UNKNOWN = -1;
+
+    // Number of items of a page of media IDs, relative to the page size.
+    private static final int MEDIA_ID_PAGE_SIZE_MULTIPLIER = 10;
+
+    private final Object mLock = new Object();
+    private final MediaBrowser mBrowser;
+    private final String mParentId;
+    private final LibraryParams mParams;
+    private final int mPageSize;
+    private final int mPrefetchPageCount;
+    private final Executor mCallbackExecutor;
+    private final Callback mCallback;
+
+    @GuardedBy("mLock")
+    private final LruCache<Integer, List<MediaItem>> mPages;
+    @GuardedBy("mLock")
+    private final LruCache<Integer, List<String>> mMediaIdPages;
+    @GuardedBy("mLock")
+    private final Set<Integer> mPendingPages = new ArraySet<>();
+    @GuardedBy("mLock")
+    private final Set<Integer> mPendingMediaIdPages = new ArraySet<>();
+    @GuardedBy("mLock")
+    private int mItemCount = ITEM_COUNT_UNKNOWN;
+    @GuardedBy("mLock")
+    private boolean mClosed;
+
+    MediaItemWindow(@NonNull MediaBrowser browser, @NonNull String parentId,
+            @Nullable LibraryParams params, int pageSize, int prefetchPageCount,
+            int maxCachedPageCount, @Nullable Executor callbackExecutor,
+            @Nullable Callback callback) {
+        mBrowser = browser;
+        mParentId = parentId;
+        mParams = params;
+        mPageSize = pageSize;
+        mPrefetchPageCount = prefetchPageCount;
+        mCallbackExecutor = callbackExecutor;
+        mCallback = callback;
+        mPages = new LruCache<>(maxCachedPageCount);
+        mMediaIdPages = new LruCache<>(maxCachedPageCount);
+    }
+
+    /**
+     * Sets the range of the items that are displayed, and loads the pages around it that aren't
+     * loaded yet. {@link Callback#onItemsLoaded} is called when they are loaded.
+     *
+     * @param fromIndex index of the first visible item, inclusive
+     * @param toIndex index of the last visible item, exclusive
+     */
+    public void setVisibleRange(@IntRange(from = 0) int fromIndex,
+            @IntRange(from = 0) int toIndex) {
+        if (fromIndex < 0 || toIndex < fromIndex) {
+            throw new IllegalArgumentException("Invalid range [" + fromIndex + ", " + toIndex
+                    + ")");
+        }
+        int firstPage = fromIndex / mPageSize;
+        int lastPage = Math.max(firstPage, (toIndex - 1) / mPageSize);
+        List<Integer> pagesToLoad = new ArrayList<>();
+        synchronized (mLock) {
+            if (mClosed) {
+                return;
+            }
+            // Visible pages first, then the closest prefetched ones.
+            for (int page = firstPage; page <= lastPage; page++) {
+                addPageToLoadLocked(page, pagesToLoad);
+            }
+            for (int i = 1; i <= mPrefetchPageCount; i++) {
+                addPageToLoadLocked(lastPage + i, pagesToLoad);
+                if (firstPage - i >= 0) {
+                    addPageToLoadLocked(firstPage - i, pagesToLoad);
+                }
+            }
+        }
+        for (int i = 0; i < pagesToLoad.size(); i++) {
+            loadPage(pagesToLoad.get(i));
+        }
+    }
+
+    @GuardedBy("mLock")
+    private void addPageToLoadLocked(int page, List<Integer> pagesToLoad) {
+        if (mItemCount != ITEM_COUNT_UNKNOWN && page * mPageSize >= mItemCount) {
+            return;
+        }
+        // get() also marks the page as recently used, so it's kept around the visible range.
+        if (mPages.get(page) != null || !mPendingPages.add(page)) {
+            return;
+        }
+        pagesToLoad.add(page);
+    }
+
+    /**
+     * Gets the item at the index, without bitmaps.
+     *
+     * @return the item, or {@code null} if it isn't loaded
+     */
+    @Nullable
+    public MediaItem getItem(@IntRange(from = 0) int index) {
+        synchronized (mLock) {
+            List<MediaItem> items = mPages.get(index / mPageSize);
+            int indexInPage = index % mPageSize;
+            return items == null || indexInPage >= items.size() ? null : items.get(indexInPage);
+        }
+    }
+
+    /**
+     * Gets the media ID of the item at the index. If it isn't loaded, the media IDs around it are
+     * loaded, and {@link Callback#onMediaIdsLoaded} is called when they are.
+     *
+     * @return the media ID, or {@code null} if it isn't loaded
+     */
+    @Nullable
+    public String getMediaId(@IntRange(from = 0) int index) {
+        MediaItem item = getItem(index);
+        if (item != null) {
+            return item.getMediaId();
+        }
+        final int mediaIdPageSize = mPageSize * MEDIA_ID_PAGE_SIZE_MULTIPLIER;
+        final int page = index / mediaIdPageSize;
+        synchronized (mLock) {
+            List<String> mediaIds = mMediaIdPages.get(page);
+            if (mediaIds != null) {
+                int indexInPage = index % mediaIdPageSize;
+                return indexInPage < mediaIds.size() ? mediaIds.get(indexInPage) : null;
+            }
+            if (mClosed || (mItemCount != ITEM_COUNT_UNKNOWN && index >= mItemCount)
+                    || !mPendingMediaIdPages.add(page)) {
+                return null;
+            }
+        }
+        loadMediaIdPage(page);
+        return null;
+    }
+
+    /**
+     * Gets the number of children.
+     *
+     * @return the number of children, or {@link #ITEM_COUNT_UNKNOWN} if the last page hasn't been
+     *         loaded yet
+     */
+    public int getItemCount() {
+        synchronized (mLock) {
+            return mItemCount;
+        }
+    }
+
+    /**
+     * Loads the full item at the index, including the bitmaps of its metadata. The loaded item
+     * replaces the one returned by {@link #getItem} until its page is evicted.
+     *
+     * @return a {@link ListenableFuture} of {@link LibraryResult} with the item
+     */
+    @NonNull
+    public ListenableFuture<LibraryResult> loadItem(@IntRange(from = 0) final int index) {
+        String mediaId = getMediaId(index);
+        if (TextUtils.isEmpty(mediaId)) {
+            return LibraryResult.createFutureWithResult(RESULT_ERROR_BAD_VALUE);
+        }
+        final ListenableFuture<LibraryResult> future = mBrowser.getItem(mediaId);
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                LibraryResult result = getResult(future);
+                if (result == null || result.getResultCode() != RESULT_SUCCESS
+                        || result.getMediaItem() == null) {
+                    return;
+                }
+                synchronized (mLock) {
+                    List<MediaItem> items = mPages.get(index / mPageSize);
+                    int indexInPage = index % mPageSize;
+                    if (mClosed || items == null || indexInPage >= items.size()) {
+                        return;
+                    }
+                    items.set(indexInPage, result.getMediaItem());
+                }
+                notifyItemsLoaded(index, 1);
+            }
+        }, DIRECT_EXECUTOR);
+        return future;
+    }
+
+    /**
+     * Stops loading items, and releases the loaded ones. The callback isn't called after this.
+     */
+    @Override
+    public void close() {
+        synchronized (mLock) {
+            mClosed = true;
+            mPages.evictAll();
+            mMediaIdPages.evictAll();
+        }
+    }
+
+    private void loadPage(final int page) {
+        final ListenableFuture<LibraryResult> future = mBrowser.getChildren(mParentId, page,
+                mPageSize, createParams(MediaConstants.EXTRAS_KEY_EXCLUDE_BITMAPS));
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                List<MediaItem> items = getMediaItems(future);
+                synchronized (mLock) {
+                    mPendingPages.remove(page);
+                    if (mClosed || items == null) {
+                        return;
+                    }
+                    updateItemCountLocked(page, mPageSize, items.size());
+                    mPages.put(page, new ArrayList<>(items));
+                }
+                if (!items.isEmpty()) {
+                    notifyItemsLoaded(page * mPageSize, items.size());
+                }
+            }
+        }, DIRECT_EXECUTOR);
+    }
+
+    private void loadMediaIdPage(final int page) {
+        final int mediaIdPageSize = mPageSize * MEDIA_ID_PAGE_SIZE_MULTIPLIER;
+        final ListenableFuture<LibraryResult> future = mBrowser.getChildren(mParentId, page,
+                mediaIdPageSize, createParams(MediaConstants.EXTRAS_KEY_MEDIA_ID_ONLY));
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                List<MediaItem> items = getMediaItems(future);
+                synchronized (mLock) {
+                    mPendingMediaIdPages.remove(page);
+                    if (mClosed || items == null) {
+                        return;
+                    }
+                    updateItemCountLocked(page, mediaIdPageSize, items.size());
+                    List<String> mediaIds = new ArrayList<>(items.size());
+                    for (int i = 0; i < items.size(); i++) {
+                        mediaIds.add(items.get(i) == null ? null : items.get(i).getMediaId());
+                    }
+                    mMediaIdPages.put(page, mediaIds);
+                }
+                if (!items.isEmpty() && mCallback != null) {
+                    final int fromIndex = page * mediaIdPageSize;
+                    final int count = items.size();
+                    mCallbackExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            mCallback.onMediaIdsLoaded(MediaItemWindow.this, fromIndex, count);
+                        }
+                    });
+                }
+            }
+        }, DIRECT_EXECUTOR);
+    }
+
+    @GuardedBy("mLock")
+    private void updateItemCountLocked(int page, int pageSize, int loadedCount) {
+        // A page that isn't full is the last one. Pages past the end are empty, so they can't
+        // make the count larger when they are loaded after the last one.
+        if (loadedCount < pageSize) {
+            int itemCount = page * pageSize + loadedCount;
+            if (mItemCount == ITEM_COUNT_UNKNOWN || itemCount < mItemCount) {
+                mItemCount = itemCount;
+            }
+        }
+    }
+
+    private LibraryParams createParams(String extraKey) {
+        Bundle extras = mParams == null || mParams.getExtras() == null
+                ? new Bundle() : new Bundle(mParams.getExtras());
+        extras.putBoolean(extraKey, true);
+        LibraryParams.Builder builder = new LibraryParams.Builder().setExtras(extras);
+        if (mParams != null) {
+            builder.setRecent(mParams.isRecent())
+                    .setOffline(mParams.isOffline())
+                    .setSuggested(mParams.isSuggested());
+        }
+        return builder.build();
+    }
+
+    private void notifyItemsLoaded(final int fromIndex, final int count) {
+        if (mCallback == null) {
+            return;
+        }
+        mCallbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mCallback.onItemsLoaded(MediaItemWindow.this, fromIndex, count);
+            }
+        });
+    }
+
+    @Nullable
+    private static List<MediaItem> getMediaItems(ListenableFuture<LibraryResult> future) {
+        LibraryResult result = getResult(future);
+        if (result == null) {
+            return null;
+        }
+        if (result.getResultCode() != RESULT_SUCCESS) {
+            Log.w(TAG, "Failed to load children, resultCode=" + result.getResultCode());
+            return null;
+        }
+        // A successful result without items is past the end of the children.
+        List<MediaItem> items = result.getMediaItems();
+        return items == null ? new ArrayList<MediaItem>() : items;
+    }
+
+    @Nullable
+    private static LibraryResult getResult(ListenableFuture<LibraryResult> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException | InterruptedException e) {
+            Log.w(TAG, "Failed to load items", e);
+            return null;
+        }
+    }
+
+    /**
+     * Callback for the items loaded by a {@link MediaItemWindow}.
+     */
+    public abstract static class Callback {
+        /**
+         * Called when items are loaded, or reloaded by {@link #loadItem}.
+         *
+         * @param window the window
+         * @param fromIndex index of the first loaded item
+         * @param count number of loaded items
+         */
+        public void onItemsLoaded(@NonNull MediaItemWindow window, int fromIndex, int count) {}
+
+        /**
+         * Called when the media IDs requested by {@link #getMediaId} are loaded.
+         *
+         * @param window the window
+         * @param fromIndex index of the first loaded media ID
+         * @param count number of loaded media IDs
+         */
+        public void onMediaIdsLoaded(@NonNull MediaItemWindow window, int fromIndex, int count) {}
+    }
+
+    /**
+     * Builder for {@link MediaItemWindow}.
+     */
+    public static final class Builder {
+        private static final int DEFAULT_PAGE_SIZE = 20;
+        private static final int DEFAULT_PREFETCH_PAGE_COUNT = 1;
+        private static final int DEFAULT_MAX_CACHED_PAGE_COUNT = 10;
+
+        private final MediaBrowser mBrowser;
+        private final String mParentId;
+        private LibraryParams mParams;
+        private int mPageSize = DEFAULT_PAGE_SIZE;
+        private int mPrefetchPageCount = DEFAULT_PREFETCH_PAGE_COUNT;
+        private int mMaxCachedPageCount = DEFAULT_MAX_CACHED_PAGE_COUNT;
+        private Executor mCallbackExecutor;
+        private Callback mCallback;
+
+        /**
+         * Creates a builder for a window over the children of the browsable item.
+         *
+         * @param browser a connected browser
+         * @param parentId media ID of the browsable item
+         */
+        public Builder(@NonNull MediaBrowser browser, @NonNull String parentId) {
+            if (browser == null) {
+                throw new NullPointerException("browser shouldn't be null");
+            }
+            if (TextUtils.isEmpty(parentId)) {
+                throw new IllegalArgumentException("parentId shouldn't be empty");
+            }
+            mBrowser = browser;
+            mParentId = parentId;
+        }
+
+        /**
+         * Sets the params sent with every {@link MediaBrowser#getChildren} call.
+         */
+        @NonNull
+        public Builder setLibraryParams(@Nullable LibraryParams params) {
+            mParams = params;
+            return this;
+        }
+
+        /**
+         * Sets the number of items loaded at once. Default is {@code 20}.
+         */
+        @NonNull
+        public Builder setPageSize(@IntRange(from = 1) int pageSize) {
+            if (pageSize < 1) {
+                throw new IllegalArgumentException("pageSize shouldn't be less than 1");
+            }
+            mPageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * Sets the number of pages before and after the visible range that are loaded ahead of
+         * time. Default is {@code 1}.
+         */
+        @NonNull
+        public Builder setPrefetchPageCount(@IntRange(from = 0) int prefetchPageCount) {
+            if (prefetchPageCount < 0) {
+                throw new IllegalArgumentException("prefetchPageCount shouldn't be negative");
+            }
+            mPrefetchPageCount = prefetchPageCount;
+            return this;
+        }
+
+        /**
+         * Sets the number of loaded pages kept in memory. The least recently used pages are
+         * released first. Default is {@code 10}.
+         */
+        @NonNull
+        public Builder setMaxCachedPageCount(@IntRange(from = 1) int maxCachedPageCount) {
+            if (maxCachedPageCount < 1) {
+                throw new IllegalArgumentException("maxCachedPageCount shouldn't be less than 1");
+            }
+            mMaxCachedPageCount = maxCachedPageCount;
+            return this;
+        }
+
+        /**
+         * Sets the callback for the loaded items.
+         *
+         * @param executor executor to run the callback
+         * @param callback callback
+         */
+        @NonNull
+        public Builder setCallback(@NonNull Executor executor, @NonNull Callback callback) {
+            if (executor == null) {
+                throw new NullPointerException("executor shouldn't be null");
+            }
+            if (callback == null) {
+                throw new NullPointerException("callback shouldn't be null");
+            }
+            mCallbackExecutor = executor;
+            mCallback = callback;
+            return this;
+        }
+
+        /**
+         * Builds a {@link MediaItemWindow}. Nothing is loaded until
+         * {@link MediaItemWindow#setVisibleRange} or {@link MediaItemWindow#getMediaId} is called.
+         */
+        @NonNull
+        public MediaItemWindow build() {
+            // The visible pages and the prefetched pages around them should stay in memory.
+            int maxCachedPageCount = Math.max(mMaxCachedPageCount, 2 * mPrefetchPageCount + 1);
+            return new MediaItemWindow(mBrowser, mParentId, mParams, mPageSize,
+                    mPrefetchPageCount, maxCachedPageCount, mCallbackExecutor, mCallback);
+        }
+    }
+}
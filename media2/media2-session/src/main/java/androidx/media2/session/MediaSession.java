@@ -863,7 +863,6 @@ public class MediaSession implements Closeable {
      * Information of a controller.
      */
     public static final class ControllerInfo {
-        @SuppressWarnings("UnusedVariable")
         private final int mControllerVersion;
         private final RemoteUserInfo mRemoteUserInfo;
         private final boolean mIsTrusted;
@@ -899,6 +898,10 @@ public class MediaSession implements Closeable {
             return mRemoteUserInfo;
         }
 
+        int getControllerVersion() {
+            return mControllerVersion;
+        }
+
         /**
          * Gets the package name. Can be
          * {@link androidx.media.MediaSessionManager.RemoteUserInfo#LEGACY_CONTROLLER} for
@@ -1208,6 +1211,13 @@ public class MediaSession implements Closeable {
         abstract void onPlaylistChanged(int seq, @NonNull List<MediaItem> playlist,
                 @Nullable MediaMetadata metadata, int currentIdx, int previousIdx,
                 int nextIdx) throws RemoteException;
+        // Controllers that keep track of the playlist version override this to send the delta
+        // instead of the whole playlist.
+        void onPlaylistDelta(int seq, @NonNull PlaylistDelta delta,
+                @NonNull List<MediaItem> playlist, @Nullable MediaMetadata metadata,
+                int currentIdx, int previousIdx, int nextIdx) throws RemoteException {
+            onPlaylistChanged(seq, playlist, metadata, currentIdx, previousIdx, nextIdx);
+        }
         abstract void onPlaylistMetadataChanged(int seq, @Nullable MediaMetadata metadata)
                 throws RemoteException;
         abstract void onShuffleModeChanged(int seq, @SessionPlayer.ShuffleMode int shuffleMode,
@@ -1258,6 +1268,7 @@ public class MediaSession implements Closeable {
 
         // Internally used methods
         MediaSession getInstance();
+        int getPlaylistVersion(@Nullable List<MediaItem> playlist);
         @NonNull MediaSessionCompat getSessionCompat();
         void setLegacyControllerConnectionTimeoutMs(long timeoutMs);
         Context getContext();
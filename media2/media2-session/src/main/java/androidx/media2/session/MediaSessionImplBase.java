@@ -119,7 +119,8 @@ class MediaSessionImplBase implements MediaSession.MediaSessionImpl {
     private final String mSessionId;
     private final SessionToken mSessionToken;
     private final AudioManager mAudioManager;
-    private final SessionPlayerCallback mPlayerCallback;
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    final SessionPlayerCallback mPlayerCallback;
     private final MediaSession mInstance;
     private final PendingIntent mSessionActivity;
     private final PendingIntent mMediaButtonIntent;
@@ -252,6 +253,11 @@ class MediaSessionImplBase implements MediaSession.MediaSessionImpl {
             oldPlayer.unregisterPlayerCallback(mPlayerCallback);
         }
         player.registerPlayerCallback(mCallbackExecutor, mPlayerCallback);
+        List<MediaItem> playlist = player.getPlaylist();
+        if (oldPlayer == null || !ObjectsCompat.equals(oldPlayer.getPlaylist(), playlist)) {
+            // Controllers will get the new player's playlist as a whole with the new version.
+            mPlayerCallback.resetPlaylist(playlist);
+        }
 
         notifyPlayerUpdatedNotLocked(oldPlayer, oldPlaybackInfo, player, playbackInfo);
     }
@@ -889,6 +895,11 @@ class MediaSessionImplBase implements MediaSession.MediaSessionImpl {
         return mInstance;
     }
 
+    @Override
+    public int getPlaylistVersion(@Nullable List<MediaItem> playlist) {
+        return mPlayerCallback.getPlaylistVersion(playlist);
+    }
+
     @Override
     public Context getContext() {
         return mContext;
@@ -1183,8 +1194,13 @@ class MediaSessionImplBase implements MediaSession.MediaSessionImpl {
             MediaItem.OnMetadataChangedListener {
         private final WeakReference<MediaSessionImplBase> mSession;
         private MediaItem mMediaItem;
-        private List<MediaItem> mPlaylist;
         private final PlaylistItemListener mPlaylistItemChangedListener;
+        private final Object mPlaylistLock = new Object();
+        // Copy of the playlist that mPlaylistVersion was assigned to.
+        @GuardedBy("mPlaylistLock")
+        private List<MediaItem> mPlaylist;
+        @GuardedBy("mPlaylistLock")
+        private int mPlaylistVersion;
 
         SessionPlayerCallback(MediaSessionImplBase session) {
             mSession = new WeakReference<>(session);
@@ -1277,29 +1293,87 @@ class MediaSessionImplBase implements MediaSession.MediaSessionImpl {
             if (session == null || player == null || session.getPlayer() != player) {
                 return;
             }
-            if (mPlaylist != null) {
-                for (int i = 0; i < mPlaylist.size(); i++) {
-                    mPlaylist.get(i).removeOnMetadataChangedListener(mPlaylistItemChangedListener);
+            final PlaylistDelta delta;
+            synchronized (mPlaylistLock) {
+                if (mPlaylist != null) {
+                    for (int i = 0; i < mPlaylist.size(); i++) {
+                        mPlaylist.get(i).removeOnMetadataChangedListener(
+                                mPlaylistItemChangedListener);
+                    }
                 }
-            }
-            if (list != null) {
-                for (int i = 0; i < list.size(); i++) {
-                    list.get(i).addOnMetadataChangedListener(session.mCallbackExecutor,
-                            mPlaylistItemChangedListener);
+                if (list != null) {
+                    for (int i = 0; i < list.size(); i++) {
+                        list.get(i).addOnMetadataChangedListener(session.mCallbackExecutor,
+                                mPlaylistItemChangedListener);
+                    }
                 }
+                final int baseVersion = mPlaylistVersion;
+                mPlaylistVersion = baseVersion + 1;
+                delta = PlaylistDelta.create(baseVersion, mPlaylistVersion, mPlaylist, list);
+                // Players may update the given list in place, so keep a copy to compute the next
+                // delta from.
+                mPlaylist = list == null ? null : new ArrayList<>(list);
             }
-            mPlaylist = list;
 
             dispatchRemoteControllerTask(player, new RemoteControllerTask() {
                 @Override
                 public void run(ControllerCb callback, int seq) throws RemoteException {
-                    callback.onPlaylistChanged(seq, list, metadata,
-                            session.getCurrentMediaItemIndex(), session.getPreviousMediaItemIndex(),
-                            session.getNextMediaItemIndex());
+                    if (delta != null) {
+                        callback.onPlaylistDelta(seq, delta, list, metadata,
+                                session.getCurrentMediaItemIndex(),
+                                session.getPreviousMediaItemIndex(),
+                                session.getNextMediaItemIndex());
+                    } else {
+                        callback.onPlaylistChanged(seq, list, metadata,
+                                session.getCurrentMediaItemIndex(),
+                                session.getPreviousMediaItemIndex(),
+                                session.getNextMediaItemIndex());
+                    }
                 }
             });
         }
 
+        /**
+         * Gets the version of the given playlist. Deltas are computed from the last notified
+         * playlist, so other playlists, including the one that the player is about to notify,
+         * don't have a version.
+         *
+         * @return the version, or {@link PlaylistDelta#VERSION_UNKNOWN} if the playlist isn't the
+         *         last notified one.
+         */
+        int getPlaylistVersion(@Nullable List<MediaItem> playlist) {
+            synchronized (mPlaylistLock) {
+                return ObjectsCompat.equals(mPlaylist, playlist)
+                        ? mPlaylistVersion : PlaylistDelta.VERSION_UNKNOWN;
+            }
+        }
+
+        void resetPlaylist(@Nullable List<MediaItem> playlist) {
+            synchronized (mPlaylistLock) {
+                mPlaylistVersion++;
+                mPlaylist = playlist == null ? null : new ArrayList<>(playlist);
+            }
+        }
+
+        /**
+         * Bumps the playlist version after the metadata of a playlist item is changed.
+         *
+         * @return the delta that replaces the item, or {@code null} if the item isn't at the
+         *         given index of the last notified playlist.
+         */
+        @Nullable
+        PlaylistDelta onPlaylistItemChanged(int index, @NonNull MediaItem item) {
+            synchronized (mPlaylistLock) {
+                if (mPlaylist == null || index >= mPlaylist.size()
+                        || mPlaylist.get(index) != item) {
+                    return null;
+                }
+                final int baseVersion = mPlaylistVersion;
+                mPlaylistVersion = baseVersion + 1;
+                return PlaylistDelta.replace(baseVersion, mPlaylistVersion, index, item);
+            }
+        }
+
         @Override
         public void onPlaylistMetadataChanged(@NonNull final SessionPlayer player,
                 final MediaMetadata metadata) {
@@ -1602,14 +1676,24 @@ class MediaSessionImplBase implements MediaSession.MediaSessionImpl {
             }
             for (int i = 0; i < list.size(); i++) {
                 if (item.equals(list.get(i))) {
+                    final PlaylistDelta delta = session.mPlayerCallback.onPlaylistItemChanged(i,
+                            item);
                     session.dispatchRemoteControllerTaskWithoutReturn(new RemoteControllerTask() {
                         @Override
                         public void run(ControllerCb callback, int seq) throws RemoteException {
-                            callback.onPlaylistChanged(seq, list,
-                                    session.getPlaylistMetadata(),
-                                    session.getCurrentMediaItemIndex(),
-                                    session.getPreviousMediaItemIndex(),
-                                    session.getNextMediaItemIndex());
+                            if (delta != null) {
+                                callback.onPlaylistDelta(seq, delta, list,
+                                        session.getPlaylistMetadata(),
+                                        session.getCurrentMediaItemIndex(),
+                                        session.getPreviousMediaItemIndex(),
+                                        session.getNextMediaItemIndex());
+                            } else {
+                                callback.onPlaylistChanged(seq, list,
+                                        session.getPlaylistMetadata(),
+                                        session.getCurrentMediaItemIndex(),
+                                        session.getPreviousMediaItemIndex(),
+                                        session.getNextMediaItemIndex());
+                            }
                         }
                     });
                     return;
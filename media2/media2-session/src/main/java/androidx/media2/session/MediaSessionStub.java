@@ -35,6 +35,7 @@ import android.util.Log;
 import android.util.SparseArray;
 import android.view.Surface;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.util.ObjectsCompat;
@@ -372,7 +373,10 @@ class MediaSessionStub extends IMediaSession.Stub {
                     //       because IMediaController is oneway (i.e. async call) and Stub will
                     //       use thread poll for incoming calls.
                     ConnectionResult state = new ConnectionResult(
-                            MediaSessionStub.this, sessionImpl, allowedCommands);
+                            MediaSessionStub.this, sessionImpl, allowedCommands,
+                            MediaUtils.excludesBitmaps(controllerInfo));
+                    ((Controller2Cb) controllerInfo.getControllerCb())
+                            .setPlaylistVersion(state.getPlaylistVersion());
 
                     // Double check if session is still there, because close() can be called in
                     // another thread.
@@ -875,6 +879,27 @@ class MediaSessionStub extends IMediaSession.Stub {
                 });
     }
 
+    @Override
+    public void requestPlaylistSync(IMediaController caller, final int seq) {
+        if (caller == null) {
+            return;
+        }
+        dispatchSessionTask(caller, seq, SessionCommand.COMMAND_CODE_PLAYER_GET_PLAYLIST,
+                new SessionCallbackTask<Integer>() {
+                    @Override
+                    public Integer run(MediaSessionImpl sessionImpl, ControllerInfo controller)
+                            throws RemoteException {
+                        // The controller couldn't apply a delta, so send the whole playlist.
+                        controller.getControllerCb().onPlaylistChanged(seq,
+                                sessionImpl.getPlaylist(), sessionImpl.getPlaylistMetadata(),
+                                sessionImpl.getCurrentMediaItemIndex(),
+                                sessionImpl.getPreviousMediaItemIndex(),
+                                sessionImpl.getNextMediaItemIndex());
+                        return SessionResult.RESULT_SUCCESS;
+                    }
+                });
+    }
+
     @Override
     public void skipToPlaylistItem(IMediaController caller, int seq, final int index) {
         if (caller == null) {
@@ -1074,9 +1099,11 @@ class MediaSessionStub extends IMediaSession.Stub {
                                     + controller);
                             return new LibraryResult(LibraryResult.RESULT_ERROR_BAD_VALUE);
                         }
-                        return librarySessionImpl.onGetChildrenOnExecutor(controller, parentId,
-                                page, pageSize,
-                                (LibraryParams) MediaParcelUtils.fromParcelable(libraryParams));
+                        LibraryParams params =
+                                (LibraryParams) MediaParcelUtils.fromParcelable(libraryParams);
+                        LibraryResult result = librarySessionImpl.onGetChildrenOnExecutor(
+                                controller, parentId, page, pageSize, params);
+                        return MediaUtils.trimMediaItems(result, params);
                     }
                 });
     }
@@ -1129,9 +1156,11 @@ class MediaSessionStub extends IMediaSession.Stub {
                                     + controller);
                             return new LibraryResult(LibraryResult.RESULT_ERROR_BAD_VALUE);
                         }
-                        return librarySessionImpl.onGetSearchResultOnExecutor(controller,
-                                query, page, pageSize,
-                                (LibraryParams) MediaParcelUtils.fromParcelable(libraryParams));
+                        LibraryParams params =
+                                (LibraryParams) MediaParcelUtils.fromParcelable(libraryParams);
+                        LibraryResult result = librarySessionImpl.onGetSearchResultOnExecutor(
+                                controller, query, page, pageSize, params);
+                        return MediaUtils.trimMediaItems(result, params);
                     }
                 });
     }
@@ -1203,6 +1232,9 @@ class MediaSessionStub extends IMediaSession.Stub {
     final class Controller2Cb extends ControllerCb {
         // TODO: Drop 'Callback' from the name.
         private final IMediaController mIControllerCallback;
+        // Version of the playlist that the controller has.
+        @GuardedBy("mLock")
+        private int mPlaylistVersion = PlaylistDelta.VERSION_UNKNOWN;
 
         Controller2Cb(@NonNull IMediaController callback) {
             mIControllerCallback = callback;
@@ -1213,6 +1245,20 @@ class MediaSessionStub extends IMediaSession.Stub {
             return mIControllerCallback.asBinder();
         }
 
+        void setPlaylistVersion(int version) {
+            synchronized (mLock) {
+                mPlaylistVersion = version;
+            }
+        }
+
+        // Sends the current media item the same way as the playlist, so the controller can find
+        // it in the playlist.
+        private MediaItem removeBitmapsIfExcluded(MediaItem item) {
+            ControllerInfo controller = mConnectedControllersManager.getController(
+                    getCallbackBinder());
+            return MediaUtils.excludesBitmaps(controller) ? MediaUtils.removeBitmaps(item) : item;
+        }
+
         @Override
         void onPlayerResult(int seq, @Nullable PlayerResult result) throws RemoteException {
             onSessionResult(seq, SessionResult.from(result));
@@ -1345,6 +1391,7 @@ class MediaSessionStub extends IMediaSession.Stub {
         @Override
         void onBufferingStateChanged(int seq, @NonNull MediaItem item, int bufferingState,
                 long bufferedPositionMs, long eventTimeMs, long positionMs) throws RemoteException {
+            item = removeBitmapsIfExcluded(item);
             mIControllerCallback.onBufferingStateChanged(seq, MediaParcelUtils.toParcelable(item),
                     bufferingState, bufferedPositionMs, eventTimeMs, positionMs);
         }
@@ -1358,6 +1405,7 @@ class MediaSessionStub extends IMediaSession.Stub {
         @Override
         void onCurrentMediaItemChanged(int seq, MediaItem item, int currentIdx, int previousIdx,
                 int nextIdx) throws RemoteException {
+            item = removeBitmapsIfExcluded(item);
             mIControllerCallback.onCurrentMediaItemChanged(seq, MediaParcelUtils.toParcelable(item),
                     currentIdx, previousIdx, nextIdx);
         }
@@ -1369,16 +1417,62 @@ class MediaSessionStub extends IMediaSession.Stub {
                     getCallbackBinder());
             if (mConnectedControllersManager.isAllowedCommand(controller,
                     SessionCommand.COMMAND_CODE_PLAYER_GET_PLAYLIST)) {
-                mIControllerCallback.onPlaylistChanged(seq,
-                        MediaUtils.convertMediaItemListToParcelImplListSlice(playlist),
-                        MediaParcelUtils.toParcelable(metadata), currentIdx, previousIdx, nextIdx);
-            } else if (mConnectedControllersManager.isAllowedCommand(controller,
+                MediaSessionImpl sessionImpl = mSessionImpl.get();
+                int version = sessionImpl == null ? PlaylistDelta.VERSION_UNKNOWN
+                        : sessionImpl.getPlaylistVersion(playlist);
+                if (MediaUtils.excludesBitmaps(controller)) {
+                    playlist = MediaUtils.removeBitmaps(playlist);
+                }
+                if (controller.getControllerVersion() >= MediaUtils.VERSION_1) {
+                    setPlaylistVersion(version);
+                    mIControllerCallback.onPlaylistChangedWithVersion(seq, version,
+                            MediaUtils.convertMediaItemListToParcelImplListSlice(playlist),
+                            MediaParcelUtils.toParcelable(metadata), currentIdx, previousIdx,
+                            nextIdx);
+                } else {
+                    mIControllerCallback.onPlaylistChanged(seq,
+                            MediaUtils.convertMediaItemListToParcelImplListSlice(playlist),
+                            MediaParcelUtils.toParcelable(metadata), currentIdx, previousIdx,
+                            nextIdx);
+                }
+                return;
+            }
+            setPlaylistVersion(PlaylistDelta.VERSION_UNKNOWN);
+            if (mConnectedControllersManager.isAllowedCommand(controller,
                     SessionCommand.COMMAND_CODE_PLAYER_GET_PLAYLIST_METADATA)) {
                 mIControllerCallback.onPlaylistMetadataChanged(seq,
                         MediaParcelUtils.toParcelable(metadata));
             }
         }
 
+        @Override
+        void onPlaylistDelta(int seq, @NonNull PlaylistDelta delta,
+                @NonNull List<MediaItem> playlist, MediaMetadata metadata, int currentIdx,
+                int previousIdx, int nextIdx) throws RemoteException {
+            ControllerInfo controller = mConnectedControllersManager.getController(
+                    getCallbackBinder());
+            boolean sendDelta = controller != null
+                    && controller.getControllerVersion() >= MediaUtils.VERSION_1
+                    && mConnectedControllersManager.isAllowedCommand(controller,
+                            SessionCommand.COMMAND_CODE_PLAYER_GET_PLAYLIST);
+            synchronized (mLock) {
+                // Otherwise the controller's playlist is stale, and needs a full resync.
+                sendDelta &= mPlaylistVersion == delta.getBaseVersion();
+                if (sendDelta) {
+                    mPlaylistVersion = delta.getVersion();
+                }
+            }
+            if (sendDelta) {
+                if (MediaUtils.excludesBitmaps(controller)) {
+                    delta = delta.withoutBitmaps();
+                }
+                mIControllerCallback.onPlaylistDelta(seq, MediaParcelUtils.toParcelable(delta),
+                        MediaParcelUtils.toParcelable(metadata), currentIdx, previousIdx, nextIdx);
+            } else {
+                onPlaylistChanged(seq, playlist, metadata, currentIdx, previousIdx, nextIdx);
+            }
+        }
+
         @Override
         void onPlaylistMetadataChanged(int seq, MediaMetadata metadata) throws RemoteException {
             ControllerInfo controller = mConnectedControllersManager.getController(
@@ -63,9 +63,11 @@ import android.support.v4.media.session.PlaybackStateCompat.CustomAction;
 import android.text.TextUtils;
 import android.util.Log;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
+import androidx.core.util.Pair;
 import androidx.media.AudioAttributesCompat;
 import androidx.media.MediaBrowserServiceCompat.BrowserRoot;
 import androidx.media2.common.MediaItem;
@@ -84,6 +86,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.Executor;
 
 /**
@@ -111,11 +114,22 @@ public class MediaUtils {
     // Initial version for all Media2 APIs.
     public static final int VERSION_0 = 0;
 
+    // Version where the session sends playlist changes as PlaylistDelta when possible.
+    public static final int VERSION_1 = 1;
+
     // Current version for all Media2 APIs.
-    public static final int CURRENT_VERSION = VERSION_0;
+    public static final int CURRENT_VERSION = VERSION_1;
 
     private static final Map<String, String> METADATA_COMPAT_KEY_TO_METADATA_KEY = new HashMap<>();
     private static final Map<String, String> METADATA_KEY_TO_METADATA_COMPAT_KEY = new HashMap<>();
+
+    private static final Object sBitmapFreeItemsLock = new Object();
+    // Copies of the media items without bitmaps, keyed by the original items, together with the
+    // metadata that they were copied from. Reusing the copies keeps the items that are sent
+    // separately, like the playlist and the current media item, identical to each other.
+    @GuardedBy("sBitmapFreeItemsLock")
+    private static final Map<MediaItem, Pair<MediaMetadata, MediaItem>> sBitmapFreeItems =
+            new WeakHashMap<>();
     static {
         METADATA_COMPAT_KEY_TO_METADATA_KEY.put(
                 MediaMetadataCompat.METADATA_KEY_ADVERTISEMENT, METADATA_KEY_ADVERTISEMENT);
@@ -707,6 +721,131 @@ public class MediaUtils {
         return new ParcelImplListSlice(itemParcelableList);
     }
 
+    /**
+     * Trims the media items of a {@link LibraryResult} as requested by the
+     * {@link MediaConstants#EXTRAS_KEY_MEDIA_ID_ONLY} and
+     * {@link MediaConstants#EXTRAS_KEY_EXCLUDE_BITMAPS} extras of the request's params.
+     */
+    @Nullable
+    public static LibraryResult trimMediaItems(@Nullable LibraryResult result,
+            @Nullable LibraryParams params) {
+        Bundle extras = params == null ? null : params.getExtras();
+        if (result == null || result.getMediaItems() == null || extras == null) {
+            return result;
+        }
+        List<MediaItem> items;
+        if (extras.getBoolean(MediaConstants.EXTRAS_KEY_MEDIA_ID_ONLY)) {
+            items = keepMediaIdsOnly(result.getMediaItems());
+        } else if (extras.getBoolean(MediaConstants.EXTRAS_KEY_EXCLUDE_BITMAPS)) {
+            items = removeBitmaps(result.getMediaItems());
+        } else {
+            return result;
+        }
+        return new LibraryResult(result.getResultCode(), items, result.getLibraryParams());
+    }
+
+    /**
+     * Returns whether the controller asked for media items without bitmaps with
+     * {@link MediaConstants#EXTRAS_KEY_EXCLUDE_BITMAPS} in its connection hints.
+     */
+    public static boolean excludesBitmaps(@Nullable MediaSession.ControllerInfo controller) {
+        return controller != null && controller.getConnectionHints().getBoolean(
+                MediaConstants.EXTRAS_KEY_EXCLUDE_BITMAPS);
+    }
+
+    /**
+     * Replaces the media items whose metadata contain bitmaps with copies without the bitmaps, as
+     * {@link #removeBitmaps(MediaItem)} does.
+     *
+     * @return the given list if none of its items has a bitmap.
+     */
+    @Nullable
+    public static List<MediaItem> removeBitmaps(@Nullable List<MediaItem> items) {
+        if (items == null) {
+            return null;
+        }
+        List<MediaItem> result = null;
+        for (int i = 0; i < items.size(); i++) {
+            MediaItem item = removeBitmaps(items.get(i));
+            if (result == null && item != items.get(i)) {
+                result = new ArrayList<>(items.size());
+                result.addAll(items.subList(0, i));
+            }
+            if (result != null) {
+                result.add(item);
+            }
+        }
+        return result == null ? items : result;
+    }
+
+    /**
+     * Copies the media item without the bitmaps of its metadata. The bitmap keys are kept with
+     * {@code null} values, so the other side knows that the bitmap can be requested.
+     * <p>
+     * The copy is reused until the metadata of the item changes, so the copies of an item sent
+     * in the playlist and as the current media item are the same instance.
+     *
+     * @return the given item if its metadata doesn't have a bitmap.
+     */
+    @Nullable
+    public static MediaItem removeBitmaps(@Nullable MediaItem item) {
+        MediaMetadata metadata = item == null ? null : item.getMetadata();
+        if (metadata == null) {
+            return item;
+        }
+        synchronized (sBitmapFreeItemsLock) {
+            Pair<MediaMetadata, MediaItem> copy = sBitmapFreeItems.get(item);
+            if (copy != null && copy.first == metadata) {
+                return copy.second;
+            }
+        }
+        MediaMetadata.Builder builder = null;
+        for (String key : metadata.keySet()) {
+            if (metadata.getObject(key) instanceof Bitmap) {
+                if (builder == null) {
+                    builder = new MediaMetadata.Builder(metadata);
+                }
+                builder.putBitmap(key, null);
+            }
+        }
+        if (builder == null) {
+            return item;
+        }
+        MediaItem copy = new MediaItem.Builder()
+                .setStartPosition(item.getStartPosition())
+                .setEndPosition(item.getEndPosition())
+                .setMetadata(builder.build()).build();
+        synchronized (sBitmapFreeItemsLock) {
+            Pair<MediaMetadata, MediaItem> existingCopy = sBitmapFreeItems.get(item);
+            if (existingCopy != null && existingCopy.first == metadata) {
+                return existingCopy.second;
+            }
+            sBitmapFreeItems.put(item, new Pair<>(metadata, copy));
+        }
+        return copy;
+    }
+
+    @NonNull
+    private static List<MediaItem> keepMediaIdsOnly(@NonNull List<MediaItem> items) {
+        List<MediaItem> result = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            MediaMetadata metadata = items.get(i) == null ? null : items.get(i).getMetadata();
+            if (metadata == null) {
+                result.add(items.get(i));
+                continue;
+            }
+            result.add(new MediaItem.Builder()
+                    .setMetadata(new MediaMetadata.Builder()
+                            .putString(METADATA_KEY_MEDIA_ID, metadata.getMediaId())
+                            .putLong(METADATA_KEY_BROWSABLE,
+                                    metadata.getLong(METADATA_KEY_BROWSABLE))
+                            .putLong(METADATA_KEY_PLAYABLE, metadata.getLong(METADATA_KEY_PLAYABLE))
+                            .build())
+                    .build());
+        }
+        return result;
+    }
+
     /**
      * Convert a {@link SessionPlayer.PlayerState} and
      * {@link SessionPlayer.BuffState} into {@link PlaybackStateCompat.State}.
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.media2.session;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.media2.common.MediaItem;
+import androidx.versionedparcelable.CustomVersionedParcelable;
+import androidx.versionedparcelable.NonParcelField;
+import androidx.versionedparcelable.ParcelField;
+import androidx.versionedparcelable.VersionedParcelize;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Changes that turn the playlist of one playlist version into the playlist of the next one.
+ * <p>
+ * Sent by the {@link MediaSession} to the {@link MediaController}s that already have the playlist
+ * of {@link #getBaseVersion()}, instead of the whole playlist. Items are compared by identity,
+ * because that is how players report the same item in consecutive playlists.
+ * <p>
+ * All fields here are effectively final. Do not modify.
+ */
+@VersionedParcelize(isCustom = true)
+class PlaylistDelta extends CustomVersionedParcelable {
+    // Unknown playlist version, for controllers that haven't received any playlist.
+    static final int VERSION_UNKNOWN = -1;
+
+    // Inserts the next 'count' items of mItems at 'index'.
+    static final int OP_INSERT = 0;
+    // Removes 'count' items from 'index'.
+    static final int OP_REMOVE = 1;
+    // Moves the item at 'index' to 'toIndex'.
+    static final int OP_MOVE = 2;
+    // Replaces the items from 'index' with the next 'count' items of mItems.
+    static final int OP_REPLACE = 3;
+
+    // Number of ints of an operation in mOperations.
+    private static final int OP_SIZE = 3;
+
+    @ParcelField(1)
+    int mBaseVersion;
+    @ParcelField(2)
+    int mVersion;
+    // Operations as (type, index, count or toIndex) triples, applied in order.
+    @ParcelField(3)
+    int[] mOperations;
+    // Parceled via mParcelableItems.
+    @NonParcelField
+    List<MediaItem> mItems;
+    // For parceling mItems. Should be only used by onPreParceling() and onPostParceling().
+    @ParcelField(4)
+    List<MediaItem> mParcelableItems;
+
+    // For versioned parcelable
+    PlaylistDelta() {
+        // no-op
+    }
+
+    private PlaylistDelta(int baseVersion, int version, @NonNull int[] operations,
+            @NonNull List<MediaItem> items) {
+        mBaseVersion = baseVersion;
+        mVersion = version;
+        mOperations = operations;
+        mItems = items;
+    }
+
+    /**
+     * Creates a delta that replaces a single item, for instance after its metadata is changed.
+     */
+    @NonNull
+    static PlaylistDelta replace(int baseVersion, int version, int index,
+            @NonNull MediaItem item) {
+        return new PlaylistDelta(baseVersion, version, new int[] {OP_REPLACE, index, 1},
+                Collections.singletonList(item));
+    }
+
+    /**
+     * Computes the delta from {@code oldPlaylist} to {@code newPlaylist}.
+     * <p>
+     * The changed range is found by skipping the common head and tail of both playlists, so the
+     * single insert, remove, move and replace edits done by the playlist APIs are encoded with
+     * one operation.
+     *
+     * @return the delta, or {@code null} if it wouldn't be smaller than the new playlist and the
+     *         whole playlist should be sent instead.
+     */
+    @Nullable
+    static PlaylistDelta create(int baseVersion, int version,
+            @Nullable List<MediaItem> oldPlaylist, @Nullable List<MediaItem> newPlaylist) {
+        if (oldPlaylist == null || newPlaylist == null) {
+            return null;
+        }
+        final int oldSize = oldPlaylist.size();
+        final int newSize = newPlaylist.size();
+        int start = 0;
+        while (start < oldSize && start < newSize
+                && oldPlaylist.get(start) == newPlaylist.get(start)) {
+            start++;
+        }
+        int oldEnd = oldSize;
+        int newEnd = newSize;
+        while (oldEnd > start && newEnd > start
+                && oldPlaylist.get(oldEnd - 1) == newPlaylist.get(newEnd - 1)) {
+            oldEnd--;
+            newEnd--;
+        }
+        final int removed = oldEnd - start;
+        final int inserted = newEnd - start;
+
+        if (removed == inserted && removed > 1) {
+            // Moving an item shifts everything in between by one.
+            if (oldPlaylist.get(start) == newPlaylist.get(newEnd - 1)
+                    && isShifted(oldPlaylist, start + 1, newPlaylist, start, removed - 1)) {
+                return new PlaylistDelta(baseVersion, version,
+                        new int[] {OP_MOVE, start, newEnd - 1}, Collections.emptyList());
+            }
+            if (oldPlaylist.get(oldEnd - 1) == newPlaylist.get(start)
+                    && isShifted(oldPlaylist, start, newPlaylist, start + 1, removed - 1)) {
+                return new PlaylistDelta(baseVersion, version,
+                        new int[] {OP_MOVE, oldEnd - 1, start}, Collections.emptyList());
+            }
+        }
+        // Sending about half of the playlist costs as much as sending all of it, once the
+        // per-call overhead is counted.
+        if (inserted > newSize / 2 && inserted > 1) {
+            return null;
+        }
+        final List<MediaItem> items = new ArrayList<>(newPlaylist.subList(start, newEnd));
+        final int[] operations;
+        if (removed == inserted) {
+            operations = removed == 0 ? new int[0] : new int[] {OP_REPLACE, start, inserted};
+        } else if (removed == 0) {
+            operations = new int[] {OP_INSERT, start, inserted};
+        } else if (inserted == 0) {
+            operations = new int[] {OP_REMOVE, start, removed};
+        } else {
+            operations = new int[] {OP_REMOVE, start, removed, OP_INSERT, start, inserted};
+        }
+        return new PlaylistDelta(baseVersion, version, operations, items);
+    }
+
+    private static boolean isShifted(List<MediaItem> oldPlaylist, int oldStart,
+            List<MediaItem> newPlaylist, int newStart, int count) {
+        for (int i = 0; i < count; i++) {
+            if (oldPlaylist.get(oldStart + i) != newPlaylist.get(newStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the version of the playlist that this delta should be applied to.
+     */
+    int getBaseVersion() {
+        return mBaseVersion;
+    }
+
+    /**
+     * Gets the version of the playlist after this delta is applied.
+     */
+    int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Returns a copy of this delta whose items don't have bitmaps, for the controllers that asked
+     * for it with {@link MediaConstants#EXTRAS_KEY_EXCLUDE_BITMAPS}.
+     */
+    @NonNull
+    PlaylistDelta withoutBitmaps() {
+        if (mItems == null || mItems.isEmpty()) {
+            return this;
+        }
+        return new PlaylistDelta(mBaseVersion, mVersion, mOperations,
+                MediaUtils.removeBitmaps(mItems));
+    }
+
+    /**
+     * Applies this delta to the playlist of {@link #getBaseVersion()}.
+     *
+     * @return a new list with the playlist of {@link #getVersion()}, or {@code null} if the
+     *         delta doesn't fit the given playlist.
+     */
+    @Nullable
+    List<MediaItem> apply(@NonNull List<MediaItem> playlist) {
+        List<MediaItem> result = new ArrayList<>(playlist);
+        List<MediaItem> items = mItems == null ? Collections.<MediaItem>emptyList() : mItems;
+        int itemIndex = 0;
+        for (int i = 0; i + OP_SIZE <= mOperations.length; i += OP_SIZE) {
+            final int index = mOperations[i + 1];
+            final int arg = mOperations[i + 2];
+            switch (mOperations[i]) {
+                case OP_INSERT:
+                    if (index < 0 || index > result.size() || arg < 0
+                            || itemIndex + arg > items.size()) {
+                        return null;
+                    }
+                    result.addAll(index, items.subList(itemIndex, itemIndex + arg));
+                    itemIndex += arg;
+                    break;
+                case OP_REMOVE:
+                    if (index < 0 || arg < 0 || index + arg > result.size()) {
+                        return null;
+                    }
+                    result.subList(index, index + arg).clear();
+                    break;
+                case OP_MOVE:
+                    if (index < 0 || index >= result.size() || arg < 0 || arg >= result.size()) {
+                        return null;
+                    }
+                    result.add(arg, result.remove(index));
+                    break;
+                case OP_REPLACE:
+                    if (index < 0 || arg < 0 || index + arg > result.size()
+                            || itemIndex + arg > items.size()) {
+                        return null;
+                    }
+                    for (int j = 0; j < arg; j++) {
+                        result.set(index + j, items.get(itemIndex++));
+                    }
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void onPreParceling(boolean isStream) {
+        synchronized (this) {
+            if (mParcelableItems == null && mItems != null) {
+                List<MediaItem> items = new ArrayList<>(mItems.size());
+                for (int i = 0; i < mItems.size(); i++) {
+                    items.add(MediaUtils.upcastForPreparceling(mItems.get(i)));
+                }
+                mParcelableItems = items;
+            }
+        }
+    }
+
+    @Override
+    public void onPostParceling() {
+        mItems = mParcelableItems;
+        if (mOperations == null) {
+            mOperations = new int[0];
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.paging
+
+import org.junit.rules.TestWatcher
+import org.junit.runner.Description
+import java.io.File
+
+/**
+ * Times a benchmark on the JVM, where the Android BenchmarkRule isn't available, and reports the
+ * result as JSON in the same shape as BenchmarkRule.
+ *
+ * Each test measures a single benchmark with [measureRepeated], which runs the iteration
+ * [warmupIterations] times before timing it [repeatIterations] times. The result is written to
+ * `<class>.<test>.json` in the directory set by the [OUTPUT_DIR_PROPERTY] system property.
+ */
+class JvmBenchmarkRule(
+    @PublishedApi internal val warmupIterations: Int,
+    @PublishedApi internal val repeatIterations: Int
+) : TestWatcher() {
+    private var description: Description? = null
+    private var measured = false
+
+    override fun starting(description: Description) {
+        this.description = description
+    }
+
+    override fun succeeded(description: Description) {
+        check(measured) { "${description.displayName} didn't call measureRepeated" }
+    }
+
+    /**
+     * Measures [iteration], which performs [operationsPerIteration] operations, and reports the
+     * time per operation.
+     */
+    inline fun measureRepeated(operationsPerIteration: Int = 1, iteration: () -> Unit) {
+        repeat(warmupIterations) {
+            iteration()
+        }
+        val runs = LongArray(repeatIterations)
+        for (i in runs.indices) {
+            val start = System.nanoTime()
+            iteration()
+            runs[i] = (System.nanoTime() - start) / operationsPerIteration
+        }
+        report(runs)
+    }
+
+    @PublishedApi
+    internal fun report(runs: LongArray) {
+        val description = checkNotNull(description) { "measureRepeated called outside a test" }
+        check(!measured) { "${description.displayName} called measureRepeated twice" }
+        measured = true
+
+        val sorted = runs.sortedArray()
+        val json = """
+            |{
+            |  "benchmarks": [
+            |    {
+            |      "name": "${description.methodName}",
+            |      "className": "${description.className}",
+            |      "metrics": {
+            |        "timeNs": {
+            |          "minimum": ${sorted.first()},
+            |          "maximum": ${sorted.last()},
+            |          "median": ${sorted[sorted.size / 2]},
+            |          "runs": [${runs.joinToString()}]
+            |        }
+            |      },
+            |      "warmupIterations": $warmupIterations,
+            |      "repeatIterations": $repeatIterations
+            |    }
+            |  ]
+            |}
+            |""".trimMargin()
+        val outputDir = File(System.getProperty(OUTPUT_DIR_PROPERTY, DEFAULT_OUTPUT_DIR))
+        outputDir.mkdirs()
+        File(outputDir, "${description.className}.${description.methodName}.json")
+            .writeText(json)
+    }
+
+    companion object {
+        /**
+         * System property holding the directory the results are written to.
+         */
+        const val OUTPUT_DIR_PROPERTY = "androidx.paging.benchmark.outputDir"
+
+        private const val DEFAULT_OUTPUT_DIR = "build/benchmark-results"
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.paging
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import kotlin.random.Random
+
+/**
+ * Measures positional lookups and snapshots of a [PagePresenter] holding [PAGE_COUNT] pages, as
+ * with an unbounded maxSize after a long scroll.
+ */
+@RunWith(JUnit4::class)
+class PagePresenterBenchmark {
+    @get:Rule
+    val benchmarkRule = JvmBenchmarkRule(WARMUP_ITERATIONS, ITERATIONS)
+
+    private val presenter = PagePresenter(
+        pages = List(PAGE_COUNT) { page -> List(PAGE_SIZE) { page * PAGE_SIZE + it } },
+        leadingNullCount = 0,
+        trailingNullCount = 0,
+        indexOfInitialPage = 0
+    )
+
+    @Test
+    fun get() {
+        val indices = IntArray(LOOKUPS) { Random(it).nextInt(presenter.size) }
+        var sum = 0L
+        benchmarkRule.measureRepeated(operationsPerIteration = LOOKUPS) {
+            for (index in indices) {
+                sum += presenter.get(index)!!
+            }
+        }
+        assertThat(sum).isGreaterThan(0L)
+    }
+
+    @Test
+    fun snapshot() {
+        var snapshot: ItemSnapshotList<Int>? = null
+        benchmarkRule.measureRepeated {
+            snapshot = presenter.snapshot()
+        }
+        assertThat(snapshot).isEqualTo(copyItems())
+    }
+
+    /**
+     * Baseline for [snapshot]: copying the items, as snapshots did before they shared the pages.
+     */
+    @Test
+    fun snapshotCopyingItems() {
+        var copy: List<Int>? = null
+        benchmarkRule.measureRepeated {
+            copy = copyItems()
+        }
+        assertThat(copy).isEqualTo(presenter.snapshot())
+    }
+
+    private fun copyItems() = List(presenter.storageCount) { presenter.getFromStorage(it) }
+
+    companion object {
+        private const val PAGE_COUNT = 5_000
+        private const val PAGE_SIZE = 10
+        private const val LOOKUPS = 10_000
+        private const val WARMUP_ITERATIONS = 10
+        private const val ITERATIONS = 51
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.paging
+
+import androidx.paging.PagingSource.LoadParams
+import androidx.paging.PagingSource.LoadResult
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import java.io.DataInput
+import java.io.DataOutput
+
+/**
+ * Compares the time to the first page of a [PagingSource] with a simulated network latency, with
+ * and without a [PersistentPageCache] that already has the page on disk.
+ */
+@OptIn(ExperimentalPagingApi::class)
+@RunWith(JUnit4::class)
+class PersistentPageCacheBenchmark {
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
+    @get:Rule
+    val benchmarkRule = JvmBenchmarkRule(WARMUP_ITERATIONS, ITERATIONS)
+
+    private val scope = CoroutineScope(Job())
+
+    @After
+    fun tearDown() {
+        scope.cancel()
+    }
+
+    @Test
+    fun firstPageUncached() = runBlocking {
+        benchmarkRule.measureRepeated {
+            NetworkPagingSource().load(REFRESH)
+        }
+    }
+
+    @Test
+    fun firstPageCached() = runBlocking {
+        PersistentPageCache(temporaryFolder.root, StringSerializer, scope) {
+            NetworkPagingSource()
+        }.run {
+            invoke().load(REFRESH)
+            awaitDiskOps()
+        }
+        var hitCount = 0
+        benchmarkRule.measureRepeated {
+            // A new cache each time, like after process death. The revalidation isn't measured,
+            // and never completes so that it doesn't replace the cached page meanwhile.
+            val cache = PersistentPageCache(temporaryFolder.root, StringSerializer, scope) {
+                NetworkPagingSource(latencyMs = Long.MAX_VALUE)
+            }
+            cache().load(REFRESH)
+            hitCount += cache.hitCount
+        }
+        assertThat(hitCount).isEqualTo(WARMUP_ITERATIONS + ITERATIONS)
+    }
+
+    private class NetworkPagingSource(
+        private val latencyMs: Long = NETWORK_LATENCY_MS
+    ) : PagingSource<Int, String>() {
+        override suspend fun load(params: LoadParams<Int>): LoadResult<Int, String> {
+            delay(latencyMs)
+            val start = params.key ?: 0
+            return LoadResult.Page(
+                data = List(params.loadSize) { "Item ${start + it} ".repeat(10) },
+                prevKey = if (start > 0) start - 1 else null,
+                nextKey = start + params.loadSize
+            )
+        }
+
+        override fun getRefreshKey(state: PagingState<Int, String>): Int? = null
+    }
+
+    private object StringSerializer : PersistentPageCache.Serializer<Int, String> {
+        override fun writeKey(output: DataOutput, key: Int) = output.writeInt(key)
+
+        override fun readKey(input: DataInput) = input.readInt()
+
+        override fun writeValue(output: DataOutput, value: String) = output.writeUTF(value)
+
+        override fun readValue(input: DataInput): String = input.readUTF()
+    }
+
+    companion object {
+        private const val WARMUP_ITERATIONS = 5
+        private const val ITERATIONS = 21
+        private const val NETWORK_LATENCY_MS = 50L
+        private val REFRESH = LoadParams.Refresh<Int>(null, 50, false)
+    }
+}
@@ -28,6 +28,7 @@ import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.collect
 import kotlinx.coroutines.flow.filterNotNull
 import kotlinx.coroutines.flow.onStart
+import java.util.concurrent.atomic.AtomicInteger
 
 internal class PageFetcher<Key : Any, Value : Any>(
     private val pagingSourceFactory: suspend () -> PagingSource<Key, Value>,
@@ -48,6 +49,15 @@ internal class PageFetcher<Key : Any, Value : Any>(
 
     private val retryEvents = ConflatedEventBus<Unit>()
 
+    private val prefetchStalls = AtomicInteger()
+
+    /**
+     * Number of PREPEND or APPEND loads that started after the presenter already reached the end
+     * of the loaded items, summed over all the generations of [PageFetcherSnapshot].
+     */
+    val prefetchStallCount: Int
+        get() = prefetchStalls.get()
+
     // The object built by paging builder can maintain the scope so that on rotation we don't stop
     // the paging.
     val flow: Flow<PagingData<Value>> = simpleChannelFlow {
@@ -112,6 +122,7 @@ internal class PageFetcher<Key : Any, Value : Any>(
                         remoteMediatorConnection = remoteMediatorAccessor,
                         invalidate = this@PageFetcher::refresh,
                         previousPagingState = previousPagingState,
+                        onPrefetchStall = { prefetchStalls.incrementAndGet() },
                     ),
                     state = previousPagingState,
                     job = Job(),
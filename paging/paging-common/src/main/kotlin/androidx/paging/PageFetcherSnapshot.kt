@@ -59,6 +59,7 @@ internal class PageFetcherSnapshot<Key : Any, Value : Any>(
     val remoteMediatorConnection: RemoteMediatorConnection<Key, Value>? = null,
     private val previousPagingState: PagingState<Key, Value>? = null,
     private val invalidate: () -> Unit = {},
+    onPrefetchStall: () -> Unit = {},
 ) {
     init {
         require(config.jumpThreshold == COUNT_UNDEFINED || pagingSource.jumpingSupported) {
@@ -69,6 +70,9 @@ internal class PageFetcherSnapshot<Key : Any, Value : Any>(
 
     private val hintHandler = HintHandler()
 
+    @VisibleForTesting
+    internal val prefetchPolicy = PrefetchPolicy(config, onPrefetchStall)
+
     private val pageEventChCollected = AtomicBoolean(false)
     private val pageEventCh = Channel<PageEvent<Value>>(BUFFERED)
     private val stateHolder = PageFetcherSnapshotState.Holder<Key, Value>(config = config)
@@ -197,6 +201,9 @@ internal class PageFetcherSnapshot<Key : Any, Value : Any>(
     }
 
     fun accessHint(viewportHint: ViewportHint) {
+        if (viewportHint is ViewportHint.Access) {
+            prefetchPolicy.recordHint(viewportHint, System.nanoTime())
+        }
         hintHandler.processHint(viewportHint)
     }
 
@@ -283,7 +290,10 @@ internal class PageFetcherSnapshot<Key : Any, Value : Any>(
         stateHolder.withLock { state -> state.setLoading(REFRESH) }
 
         val params = loadParams(REFRESH, initialKey)
-        when (val result = pagingSource.load(params)) {
+        val loadStartNanos = System.nanoTime()
+        val result = pagingSource.load(params)
+        prefetchPolicy.recordLoad(REFRESH, System.nanoTime() - loadStartNanos, 0)
+        when (result) {
             is Page<Key, Value> -> {
                 // Atomically update load states + pages while still holding the mutex, otherwise
                 // remote state can race here and lead to confusing load states.
@@ -406,7 +416,14 @@ internal class PageFetcherSnapshot<Key : Any, Value : Any>(
         var endOfPaginationReached = false
         loop@ while (loadKey != null) {
             val params = loadParams(loadType, loadKey)
+            val loadStartNanos = System.nanoTime()
             val result: LoadResult<Key, Value> = pagingSource.load(params)
+            prefetchPolicy.recordLoad(
+                loadType = loadType,
+                elapsedNanos = System.nanoTime() - loadStartNanos,
+                presentedItemsBeyondAnchor =
+                    generationalHint.hint.presentedItemsBeyondAnchor(loadType) + itemsLoaded
+            )
             when (result) {
                 is Page<Key, Value> -> {
                     // First, check for common error case where the same key is re-used to load
@@ -468,7 +485,12 @@ internal class PageFetcherSnapshot<Key : Any, Value : Any>(
             }
 
             stateHolder.withLock { state ->
-                state.dropEventOrNull(dropType, generationalHint.hint)?.let { event ->
+                state.dropEventOrNull(
+                    loadType = dropType,
+                    hint = generationalHint.hint,
+                    prefetchDistance = prefetchPolicy.prefetchDistance(dropType),
+                    maxSize = prefetchPolicy.maxSize()
+                )?.let { event ->
                     state.drop(event)
                     pageEventCh.send(event)
                 }
@@ -557,7 +579,7 @@ internal class PageFetcherSnapshot<Key : Any, Value : Any>(
         if (sourceLoadStates.get(loadType) is Error) return null
 
         // Skip loading if prefetchDistance has been fulfilled.
-        if (presentedItemsBeyondAnchor >= config.prefetchDistance) return null
+        if (presentedItemsBeyondAnchor >= prefetchPolicy.prefetchDistance(loadType)) return null
 
         return if (loadType == PREPEND) {
             pages.first().prevKey
@@ -253,18 +253,27 @@ internal class PageFetcherSnapshotState<Key : Any, Value : Any> private construc
     }
 
     /**
+     * @param prefetchDistance Number of items beyond [hint] in the direction of [loadType] that
+     * are never dropped.
+     * @param maxSize Number of items to drop down to, at least [PagingConfig.maxSize].
+     *
      * @return [PageEvent.Drop] for [loadType] that would allow this [PageFetcherSnapshotState] to
      * respect [PagingConfig.maxSize], `null` if no pages should be dropped for the provided
      * [loadType].
      */
-    fun dropEventOrNull(loadType: LoadType, hint: ViewportHint): PageEvent.Drop<Value>? {
-        if (config.maxSize == MAX_SIZE_UNBOUNDED) return null
+    fun dropEventOrNull(
+        loadType: LoadType,
+        hint: ViewportHint,
+        prefetchDistance: Int = config.prefetchDistance,
+        maxSize: Int = config.maxSize
+    ): PageEvent.Drop<Value>? {
+        if (maxSize == MAX_SIZE_UNBOUNDED) return null
         // Never drop below 2 pages as this can cause UI flickering with certain configs and it's
         // much more important to protect against this behaviour over respecting a config where
         // maxSize is set unusually (probably incorrectly) strict.
         if (pages.size <= 2) return null
 
-        if (storageCount <= config.maxSize) return null
+        if (storageCount <= maxSize) return null
 
         require(loadType != REFRESH) {
             "Drop LoadType must be PREPEND or APPEND, but got $loadType"
@@ -273,7 +282,7 @@ internal class PageFetcherSnapshotState<Key : Any, Value : Any> private construc
         // Compute pageCount and itemsToDrop
         var pagesToDrop = 0
         var itemsToDrop = 0
-        while (pagesToDrop < pages.size && storageCount - itemsToDrop > config.maxSize) {
+        while (pagesToDrop < pages.size && storageCount - itemsToDrop > maxSize) {
             val pageSize = when (loadType) {
                 PREPEND -> pages[pagesToDrop].data.size
                 else -> pages[pages.lastIndex - pagesToDrop].data.size
@@ -283,7 +292,7 @@ internal class PageFetcherSnapshotState<Key : Any, Value : Any> private construc
                 else -> hint.presentedItemsAfter - itemsToDrop - pageSize
             }
             // Do not drop pages that would fulfill prefetchDistance.
-            if (itemsAfterDrop < config.prefetchDistance) break
+            if (itemsAfterDrop < prefetchDistance) break
 
             itemsToDrop += pageSize
             pagesToDrop++
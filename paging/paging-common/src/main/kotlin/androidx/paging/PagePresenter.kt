@@ -40,7 +40,17 @@ internal class PagePresenter<T : Any>(
         placeholdersAfter = insertEvent.placeholdersAfter,
     )
 
-    private val pages: MutableList<TransformablePage<T>> = pages.toMutableList()
+    // Copied before being modified after snapshot() shares it, see mutablePages().
+    private var pages: ArrayList<TransformablePage<T>> = ArrayList(pages)
+
+    // Number of items before each page of pages, for binary searches by item index. Pages from
+    // indexedPageCount don't have an up to date value.
+    private var itemsBeforePage = IntArray(pages.size)
+    private var indexedPageCount = 0
+
+    // True when pages and itemsBeforePage are shared with an ItemSnapshotList.
+    private var shared = false
+
     override var storageCount: Int = pages.fullCount()
         private set
     private val originalPageOffsetFirst: Int
@@ -73,30 +83,54 @@ internal class PagePresenter<T : Any>(
         return getFromStorage(localIndex)
     }
 
+    /**
+     * Returns a snapshot whose items are a view of the current pages, which are copied the next
+     * time they are modified instead of copying the items now.
+     */
     fun snapshot(): ItemSnapshotList<T> {
+        updateIndex()
+        shared = true
         return ItemSnapshotList(
             placeholdersBefore,
             placeholdersAfter,
-            pages.flatMap { it.data }
+            PageItemList(pages, itemsBeforePage, storageCount)
         )
     }
 
     override fun getFromStorage(localIndex: Int): T {
-        var pageIndex = 0
-        var indexInPage = localIndex
-
-        // Since we don't know if page sizes are regular, we walk to correct page.
-        val localPageCount = pages.size
-        while (pageIndex < localPageCount) {
-            val pageSize = pages[pageIndex].data.size
-            if (pageSize > indexInPage) {
-                // stop, found the page
-                break
+        updateIndex()
+        val pageIndex = pageIndexOf(pages.size, itemsBeforePage, localIndex)
+        return pages[pageIndex].data[localIndex - itemsBeforePage[pageIndex]]
+    }
+
+    private fun mutablePages(): ArrayList<TransformablePage<T>> {
+        if (shared) {
+            pages = ArrayList(pages)
+            itemsBeforePage = itemsBeforePage.copyOf()
+            shared = false
+        }
+        return pages
+    }
+
+    private fun updateIndex() {
+        if (indexedPageCount == pages.size) {
+            return
+        }
+        if (itemsBeforePage.size < pages.size) {
+            itemsBeforePage = itemsBeforePage.copyOf(maxOf(pages.size, itemsBeforePage.size * 2))
+        }
+        var itemsBefore = when (indexedPageCount) {
+            0 -> 0
+            else -> {
+                val lastIndexed = indexedPageCount - 1
+                itemsBeforePage[lastIndexed] + pages[lastIndexed].data.size
             }
-            indexInPage -= pageSize
-            pageIndex++
         }
-        return pages[pageIndex].data[indexInPage]
+        for (pageIndex in indexedPageCount until pages.size) {
+            itemsBeforePage[pageIndex] = itemsBefore
+            itemsBefore += pages[pageIndex].data.size
+        }
+        indexedPageCount = pages.size
     }
 
     override val size: Int
@@ -134,13 +168,16 @@ internal class PagePresenter<T : Any>(
     }
 
     fun accessHintForPresenterIndex(index: Int): ViewportHint.Access {
-        var pageIndex = 0
-        var indexInPage = index - placeholdersBefore
-        while (indexInPage >= pages[pageIndex].data.size && pageIndex < pages.lastIndex) {
-            // index doesn't appear in current page, keep looking!
-            indexInPage -= pages[pageIndex].data.size
-            pageIndex++
+        updateIndex()
+        val localIndex = index - placeholdersBefore
+        // Placeholders before the first page are in the first page, and placeholders after the
+        // last page are in the last page.
+        val pageIndex = when {
+            localIndex < 0 -> 0
+            localIndex >= storageCount -> pages.lastIndex
+            else -> pageIndexOf(pages.size, itemsBeforePage, localIndex)
         }
+        val indexInPage = localIndex - itemsBeforePage[pageIndex]
 
         return pages[pageIndex].viewportHintFor(
             index = indexInPage,
@@ -187,7 +224,8 @@ internal class PagePresenter<T : Any>(
                 val itemsInsertedPos = 0
 
                 // first update all state...
-                pages.addAll(0, insert.pages)
+                mutablePages().addAll(0, insert.pages)
+                indexedPageCount = 0
                 storageCount += count
                 placeholdersBefore = insert.placeholdersBefore
 
@@ -209,7 +247,7 @@ internal class PagePresenter<T : Any>(
                 val itemsInsertedPos = placeholdersChangedPos + placeholdersChangedCount
 
                 // first update all state...
-                pages.addAll(pages.size, insert.pages)
+                mutablePages().addAll(insert.pages)
                 storageCount += count
                 placeholdersAfter = insert.placeholdersAfter
 
@@ -239,12 +277,17 @@ internal class PagePresenter<T : Any>(
      */
     private fun dropPagesWithOffsets(pageOffsetsToDrop: IntRange): Int {
         var removeCount = 0
-        val pageIterator = pages.iterator()
+        var pageIndex = 0
+        val pageIterator = mutablePages().iterator()
         while (pageIterator.hasNext()) {
             val page = pageIterator.next()
             if (page.originalPageOffsets.any { pageOffsetsToDrop.contains(it) }) {
                 removeCount += page.data.size
                 pageIterator.remove()
+                // Pages before the dropped one keep their index.
+                indexedPageCount = minOf(indexedPageCount, pageIndex)
+            } else {
+                pageIndex++
             }
         }
 
@@ -354,6 +397,43 @@ internal class PagePresenter<T : Any>(
 
         @Suppress("UNCHECKED_CAST", "SyntheticAccessor")
         internal fun <T : Any> initial(): PagePresenter<T> = INITIAL as PagePresenter<T>
+
+        /**
+         * @return Index of the page containing the item at [localIndex], the last one of the pages
+         * starting at [localIndex] since empty pages start at the same index as the next page.
+         */
+        fun pageIndexOf(pageCount: Int, itemsBeforePage: IntArray, localIndex: Int): Int {
+            var low = 0
+            var high = pageCount - 1
+            while (low < high) {
+                val mid = (low + high + 1) ushr 1
+                if (itemsBeforePage[mid] <= localIndex) {
+                    low = mid
+                } else {
+                    high = mid - 1
+                }
+            }
+            return low
+        }
+    }
+
+    /**
+     * Read-only view of the items of [pages], which must not be modified afterwards.
+     */
+    private class PageItemList<T : Any>(
+        private val pages: List<TransformablePage<T>>,
+        private val itemsBeforePage: IntArray,
+        override val size: Int
+    ) : AbstractList<T>() {
+        private val pageCount = pages.size
+
+        override fun get(index: Int): T {
+            if (index < 0 || index >= size) {
+                throw IndexOutOfBoundsException("Index: $index, Size: $size")
+            }
+            val pageIndex = pageIndexOf(pageCount, itemsBeforePage, index)
+            return pages[pageIndex].data[index - itemsBeforePage[pageIndex]]
+        }
     }
 
     /**
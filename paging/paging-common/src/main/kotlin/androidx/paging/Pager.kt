@@ -54,23 +54,8 @@ public class Pager<Key : Any, Value : Any>
         pagingSourceFactory: () -> PagingSource<Key, Value>
     ) : this(config, initialKey, null, pagingSourceFactory)
 
-    /**
-     * A cold [Flow] of [PagingData], which emits new instances of [PagingData] once they become
-     * invalidated by [PagingSource.invalidate] or calls to [AsyncPagingDataDiffer.refresh] or
-     * [PagingDataAdapter.refresh].
-     *
-     * To consume this stream as a LiveData or in Rx, you may use the extensions available in the
-     * paging-runtime or paging-rxjava* artifacts.
-     *
-     * NOTE: Instances of [PagingData] emitted by this [Flow] are not re-usable and cannot be
-     * submitted multiple times. This is especially relevant for transforms such as
-     * [Flow.combine][kotlinx.coroutines.flow.combine], which would replay the latest value
-     * downstream. To ensure you get a new instance of [PagingData] for each downstream observer,
-     * you should use the [cachedIn] operator which multicasts the [Flow] in a way that returns a
-     * new instance of [PagingData] with cached data pre-loaded.
-     */
     @OptIn(androidx.paging.ExperimentalPagingApi::class)
-    public val flow: Flow<PagingData<Value>> = PageFetcher(
+    private val pageFetcher = PageFetcher(
         pagingSourceFactory = if (
             pagingSourceFactory is SuspendingPagingSourceFactory<Key, Value>
         ) {
@@ -85,5 +70,33 @@ public class Pager<Key : Any, Value : Any>
         initialKey = initialKey,
         config = config,
         remoteMediator = remoteMediator
-    ).flow
+    )
+
+    /**
+     * A cold [Flow] of [PagingData], which emits new instances of [PagingData] once they become
+     * invalidated by [PagingSource.invalidate] or calls to [AsyncPagingDataDiffer.refresh] or
+     * [PagingDataAdapter.refresh].
+     *
+     * To consume this stream as a LiveData or in Rx, you may use the extensions available in the
+     * paging-runtime or paging-rxjava* artifacts.
+     *
+     * NOTE: Instances of [PagingData] emitted by this [Flow] are not re-usable and cannot be
+     * submitted multiple times. This is especially relevant for transforms such as
+     * [Flow.combine][kotlinx.coroutines.flow.combine], which would replay the latest value
+     * downstream. To ensure you get a new instance of [PagingData] for each downstream observer,
+     * you should use the [cachedIn] operator which multicasts the [Flow] in a way that returns a
+     * new instance of [PagingData] with cached data pre-loaded.
+     */
+    public val flow: Flow<PagingData<Value>> = pageFetcher.flow
+
+    /**
+     * Number of [LoadType.PREPEND] and [LoadType.APPEND] loads that started after the presenter
+     * had already reached the end of the loaded items, across all the generations of this
+     * [Pager]. Each of these loads is visible to the user as a load state or placeholders, so this
+     * counts the times prefetching didn't keep up with scrolling, see
+     * [PagingConfig.prefetchDistance] and [PagingConfig.adaptivePrefetchDistance].
+     */
+    @ExperimentalPagingApi
+    public val prefetchStallCount: Int
+        get() = pageFetcher.prefetchStallCount
 }
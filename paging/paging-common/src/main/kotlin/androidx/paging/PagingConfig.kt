@@ -131,7 +131,21 @@ public class PagingConfig @JvmOverloads public constructor(
      * @see PagingSource.jumpingSupported
      */
     @JvmField
-    public val jumpThreshold: Int = COUNT_UNDEFINED
+    public val jumpThreshold: Int = COUNT_UNDEFINED,
+
+    /**
+     * Defines whether the prefetch distance adapts to how fast the user scrolls and how long
+     * [PagingSource.load] takes.
+     *
+     * When enabled, [prefetchDistance] is the distance used until both are known, after which
+     * Paging prefetches enough items to keep loading ahead of the user, between half and four
+     * times [prefetchDistance]. [maxSize] is raised when needed so that pages are not dropped
+     * within the adapted prefetch distance.
+     *
+     * Defaults to `false`, which always uses [prefetchDistance].
+     */
+    @JvmField
+    public val adaptivePrefetchDistance: Boolean = false
 ) {
     init {
         if (!enablePlaceholders && prefetchDistance == 0) {
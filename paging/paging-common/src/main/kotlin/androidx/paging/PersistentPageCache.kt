@@ -0,0 +1,390 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.paging
+
+import androidx.annotation.VisibleForTesting
+import androidx.paging.PagingSource.LoadParams
+import androidx.paging.PagingSource.LoadResult
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+import java.io.ByteArrayOutputStream
+import java.io.DataInput
+import java.io.DataInputStream
+import java.io.DataOutput
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReference
+import java.util.zip.CRC32
+
+/**
+ * Wrapper class for a [PagingSource] factory intended for usage in [Pager] construction, which
+ * persists the pages loaded by the produced [PagingSource]s in [directory].
+ *
+ * Unlike [cachedIn], the cached pages outlive the [CoroutineScope] and the process, so that the
+ * first pages of a new [Pager] are loaded from disk instead of the wrapped [PagingSource]:
+ *
+ *  * Until a refresh load of the wrapped [PagingSource] succeeds, pages are loaded from disk when
+ *  they are cached, and from the wrapped [PagingSource] otherwise.
+ *  * When a refresh load is served from disk, the same refresh load of the wrapped [PagingSource]
+ *  runs in [scope]. If its page differs from the cached one, the cached pages are dropped and the
+ *  [PagingSource] is invalidated, and the next [PagingSource] uses the already loaded page.
+ *  * Once a refresh load of the wrapped [PagingSource] succeeds, all loads go to the wrapped
+ *  [PagingSource], and their pages replace the cached ones.
+ *
+ * Pages are written in the background, one file per page, and the oldest ones are deleted when
+ * there are more than [maxPageCount]. Files that can't be read are treated as cache misses.
+ *
+ * @param directory The directory the pages are written in, which shouldn't be shared with other
+ * [PersistentPageCache]s.
+ * @param serializer Converts the keys and values of the pages to bytes and back.
+ * @param scope The [CoroutineScope] the pages are written and revalidated in.
+ * @param ioDispatcher The [CoroutineDispatcher] the pages are read and written on.
+ * @param maxPageCount The maximum number of pages kept on disk.
+ * @param pagingSourceFactory The [PagingSource] factory that returns a PagingSource when called
+ */
+@ExperimentalPagingApi
+public class PersistentPageCache<Key : Any, Value : Any>(
+    private val directory: File,
+    private val serializer: Serializer<Key, Value>,
+    private val scope: CoroutineScope,
+    private val ioDispatcher: CoroutineDispatcher = Dispatchers.IO,
+    private val maxPageCount: Int = DEFAULT_MAX_PAGE_COUNT,
+    private val pagingSourceFactory: () -> PagingSource<Key, Value>
+) : () -> PagingSource<Key, Value> {
+
+    /**
+     * Writes the keys and values of the cached pages, and reads them back, possibly in another
+     * process.
+     *
+     * Implementations should throw an [IOException] when the data can't be read, for instance
+     * after the format of [Value] changed, so that the page is treated as a cache miss.
+     */
+    public interface Serializer<Key : Any, Value : Any> {
+        public fun writeKey(output: DataOutput, key: Key)
+
+        public fun readKey(input: DataInput): Key
+
+        public fun writeValue(output: DataOutput, value: Value)
+
+        public fun readValue(input: DataInput): Value
+    }
+
+    private val hits = AtomicInteger()
+    private val misses = AtomicInteger()
+
+    /**
+     * The number of loads served from disk.
+     */
+    public val hitCount: Int
+        get() = hits.get()
+
+    /**
+     * The number of loads that had to go to the wrapped [PagingSource] before a refresh load of
+     * it succeeded, because the page wasn't cached.
+     */
+    public val missCount: Int
+        get() = misses.get()
+
+    // True until a refresh load of the wrapped PagingSource succeeds, while the cached pages
+    // may be from a previous process.
+    @Volatile
+    private var stale = true
+
+    // Refresh result of a revalidation, for the PagingSource created after the invalidation.
+    private val revalidatedRefresh = AtomicReference<RevalidatedRefresh<Key, Value>?>(null)
+
+    // Writes and deletes, run in order on ioDispatcher. Reads are concurrent, which is safe
+    // because files are written to a temporary file first.
+    private val diskOps = Channel<() -> Unit>(Channel.UNLIMITED)
+
+    init {
+        scope.launch(ioDispatcher) {
+            for (op in diskOps) {
+                try {
+                    op()
+                } catch (e: RuntimeException) {
+                    // Thrown by the serializer. The page just isn't cached, and the next ops still
+                    // have to run for their pages to be cached and for awaitDiskOps() to return.
+                }
+            }
+        }
+    }
+
+    /**
+     * @return [PagingSource] which loads pages from disk when possible, and writes the pages of
+     * the wrapped [PagingSource] to disk
+     */
+    override fun invoke(): PagingSource<Key, Value> {
+        return PersistentPagingSource(pagingSourceFactory())
+    }
+
+    /**
+     * Deletes the cached pages.
+     */
+    public fun clear() {
+        diskOps.trySend(::deletePages)
+    }
+
+    @VisibleForTesting
+    internal suspend fun awaitDiskOps() {
+        val done = CompletableDeferred<Unit>()
+        diskOps.send { done.complete(Unit) }
+        done.await()
+    }
+
+    private fun markFresh() {
+        if (stale) {
+            stale = false
+            // The next process shouldn't mix pages of both versions.
+            diskOps.trySend(::deletePages)
+        }
+    }
+
+    private suspend fun read(params: LoadParams<Key>): LoadResult.Page<Key, Value>? {
+        val keyBytes = encodeKey(params.key)
+        return withContext(ioDispatcher) {
+            val file = File(directory, fileName(params, keyBytes))
+            try {
+                DataInputStream(file.inputStream().buffered()).use { input ->
+                    readPage(input, keyBytes)
+                }
+            } catch (e: IOException) {
+                if (file.exists()) {
+                    file.delete()
+                }
+                null
+            }
+        }
+    }
+
+    private fun write(params: LoadParams<Key>, page: LoadResult.Page<Key, Value>) {
+        val keyBytes = encodeKey(params.key)
+        diskOps.trySend {
+            if (!directory.isDirectory && !directory.mkdirs()) {
+                return@trySend
+            }
+            val file = File(directory, fileName(params, keyBytes))
+            val tempFile = File(directory, file.name + TEMP_SUFFIX)
+            try {
+                DataOutputStream(tempFile.outputStream().buffered()).use { output ->
+                    writePage(output, keyBytes, page)
+                }
+                tempFile.renameTo(file)
+            } catch (e: IOException) {
+                // The page just isn't cached.
+            } finally {
+                // Left behind when the page couldn't be written, including by the serializer.
+                tempFile.delete()
+            }
+            evictPages()
+        }
+    }
+
+    private fun evictPages() {
+        val files = directory.listFiles { file -> file.name.endsWith(PAGE_SUFFIX) } ?: return
+        if (files.size <= maxPageCount) {
+            return
+        }
+        files.sortBy { it.lastModified() }
+        for (i in 0 until files.size - maxPageCount) {
+            files[i].delete()
+        }
+    }
+
+    private fun deletePages() {
+        directory.listFiles()?.forEach { it.delete() }
+    }
+
+    private fun encodeKey(key: Key?): ByteArray {
+        if (key == null) {
+            return ByteArray(0)
+        }
+        val bytes = ByteArrayOutputStream()
+        DataOutputStream(bytes).use { output ->
+            output.writeBoolean(true)
+            serializer.writeKey(output, key)
+        }
+        return bytes.toByteArray()
+    }
+
+    private fun fileName(params: LoadParams<Key>, keyBytes: ByteArray): String {
+        val prefix = when (params) {
+            is LoadParams.Refresh -> "refresh"
+            is LoadParams.Append -> "append"
+            is LoadParams.Prepend -> "prepend"
+        }
+        // Different keys with the same checksum share a file, see readPage.
+        val checksum = CRC32().apply { update(keyBytes) }.value
+        return "$prefix-${java.lang.Long.toHexString(checksum)}$PAGE_SUFFIX"
+    }
+
+    private fun writePage(
+        output: DataOutputStream,
+        keyBytes: ByteArray,
+        page: LoadResult.Page<Key, Value>
+    ) {
+        output.writeInt(FORMAT_VERSION)
+        output.writeInt(keyBytes.size)
+        output.write(keyBytes)
+        writeNullableKey(output, page.prevKey)
+        writeNullableKey(output, page.nextKey)
+        output.writeInt(page.itemsBefore)
+        output.writeInt(page.itemsAfter)
+        output.writeInt(page.data.size)
+        for (value in page.data) {
+            serializer.writeValue(output, value)
+        }
+    }
+
+    private fun readPage(
+        input: DataInputStream,
+        keyBytes: ByteArray
+    ): LoadResult.Page<Key, Value>? {
+        if (input.readInt() != FORMAT_VERSION) {
+            throw IOException("Unknown page format")
+        }
+        val storedKeyBytes = ByteArray(input.readInt())
+        input.readFully(storedKeyBytes)
+        if (!storedKeyBytes.contentEquals(keyBytes)) {
+            return null
+        }
+        val prevKey = readNullableKey(input)
+        val nextKey = readNullableKey(input)
+        val itemsBefore = input.readInt()
+        val itemsAfter = input.readInt()
+        val size = input.readInt()
+        if (size < 0) {
+            throw IOException("Invalid page size $size")
+        }
+        val data = ArrayList<Value>(size)
+        repeat(size) {
+            data.add(serializer.readValue(input))
+        }
+        return LoadResult.Page(data, prevKey, nextKey, itemsBefore, itemsAfter)
+    }
+
+    private fun writeNullableKey(output: DataOutput, key: Key?) {
+        output.writeBoolean(key != null)
+        if (key != null) {
+            serializer.writeKey(output, key)
+        }
+    }
+
+    private fun readNullableKey(input: DataInput): Key? {
+        return if (input.readBoolean()) serializer.readKey(input) else null
+    }
+
+    private inner class PersistentPagingSource(
+        private val pagingSource: PagingSource<Key, Value>
+    ) : PagingSource<Key, Value>() {
+        private val revalidating = AtomicBoolean(false)
+
+        init {
+            pagingSource.registerInvalidatedCallback(::invalidate)
+            registerInvalidatedCallback(pagingSource::invalidate)
+        }
+
+        override val jumpingSupported: Boolean
+            get() = pagingSource.jumpingSupported
+
+        override val keyReuseSupported: Boolean
+            get() = pagingSource.keyReuseSupported
+
+        override suspend fun load(params: LoadParams<Key>): LoadResult<Key, Value> {
+            if (params is LoadParams.Refresh) {
+                val revalidated = revalidatedRefresh.getAndSet(null)
+                if (revalidated != null && revalidated.key == params.key) {
+                    return revalidated.page
+                }
+            }
+            if (!stale) {
+                return pagingSource.load(params).also {
+                    if (it is LoadResult.Page) {
+                        write(params, it)
+                    }
+                }
+            }
+
+            val cached = read(params)
+            if (cached != null) {
+                hits.incrementAndGet()
+                if (params is LoadParams.Refresh) {
+                    revalidate(params, cached)
+                }
+                return cached
+            }
+
+            misses.incrementAndGet()
+            return pagingSource.load(params).also {
+                if (it is LoadResult.Page) {
+                    if (params is LoadParams.Refresh) {
+                        markFresh()
+                    }
+                    write(params, it)
+                }
+            }
+        }
+
+        private fun revalidate(
+            params: LoadParams.Refresh<Key>,
+            cached: LoadResult.Page<Key, Value>
+        ) {
+            if (!revalidating.compareAndSet(false, true)) {
+                return
+            }
+            scope.launch {
+                val result = pagingSource.load(params)
+                if (result !is LoadResult.Page || invalid) {
+                    // Keep showing the cached pages, the next PagingSource tries again.
+                    return@launch
+                }
+                markFresh()
+                write(params, result)
+                // The cached adjacent pages that were already loaded are kept when the refreshed
+                // page didn't change.
+                if (result != cached) {
+                    revalidatedRefresh.set(RevalidatedRefresh(params.key, result))
+                    invalidate()
+                }
+            }
+        }
+
+        override fun getRefreshKey(state: PagingState<Key, Value>): Key? {
+            return pagingSource.getRefreshKey(state)
+        }
+    }
+
+    private class RevalidatedRefresh<Key : Any, Value : Any>(
+        val key: Key?,
+        val page: LoadResult.Page<Key, Value>
+    )
+
+    private companion object {
+        const val DEFAULT_MAX_PAGE_COUNT = 256
+        const val FORMAT_VERSION = 1
+        const val PAGE_SUFFIX = ".page"
+        const val TEMP_SUFFIX = ".tmp"
+    }
+}
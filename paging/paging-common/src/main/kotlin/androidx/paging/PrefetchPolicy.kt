@@ -0,0 +1,146 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.paging
+
+import androidx.paging.LoadType.APPEND
+import androidx.paging.LoadType.PREPEND
+import androidx.paging.LoadType.REFRESH
+import androidx.paging.PagingConfig.Companion.MAX_SIZE_UNBOUNDED
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.math.ceil
+
+/**
+ * Prefetch distance and maxSize used by [PageFetcherSnapshot], which are the ones of [config]
+ * unless [PagingConfig.adaptivePrefetchDistance] is set.
+ *
+ * Adaptive prefetching estimates the scroll velocity from the timestamps of [ViewportHint.Access]
+ * hints and the latency of [PagingSource.load], and prefetches the items that would be scrolled
+ * through during [SAFETY_FACTOR] loads, within [MIN_DISTANCE_RATIO] and [MAX_DISTANCE_RATIO] of
+ * [PagingConfig.prefetchDistance]. maxSize is raised so that a larger prefetch distance doesn't
+ * drop pages that have just been prefetched.
+ *
+ * Note: Hints are recorded from the presenter and loads from [PageFetcherSnapshot], estimates are
+ * written by a single thread each.
+ */
+internal class PrefetchPolicy(
+    private val config: PagingConfig,
+    /** Called for each load counted in [stallCount]. */
+    private val onStall: () -> Unit = {}
+) {
+    // Item position of the last access hint, and its time.
+    private var lastPosition = 0
+    private var lastHintNanos = NO_TIMESTAMP
+
+    // Moving averages, in items per millisecond towards APPEND and in milliseconds.
+    @Volatile
+    private var velocity = 0.0
+    @Volatile
+    private var loadLatencyMs = UNKNOWN_LATENCY
+
+    private val stalls = AtomicInteger()
+
+    /**
+     * Number of PREPEND or APPEND loads that started after the presenter already reached the end
+     * of the loaded items, which are visible to the user as a load state or placeholders.
+     */
+    val stallCount: Int
+        get() = stalls.get()
+
+    fun recordHint(hint: ViewportHint.Access, nowNanos: Long) {
+        if (!config.adaptivePrefetchDistance) return
+
+        // Position of the accessed item relative to the initial page, assuming other pages have
+        // pageSize items.
+        val position = when {
+            hint.pageOffset > 0 ->
+                config.initialLoadSize + (hint.pageOffset - 1) * config.pageSize
+            else -> hint.pageOffset * config.pageSize
+        } + hint.indexInPage
+
+        val elapsedNanos = nowNanos - lastHintNanos
+        if (lastHintNanos == NO_TIMESTAMP || elapsedNanos > IDLE_NANOS) {
+            velocity = 0.0
+        } else if (elapsedNanos > 0) {
+            val sample = (position - lastPosition) / (elapsedNanos / NANOS_PER_MS)
+            velocity += SMOOTHING * (sample - velocity)
+        }
+        lastPosition = position
+        lastHintNanos = nowNanos
+    }
+
+    fun recordLoad(loadType: LoadType, elapsedNanos: Long, presentedItemsBeyondAnchor: Int) {
+        if (loadType != REFRESH && presentedItemsBeyondAnchor <= 0) {
+            stalls.incrementAndGet()
+            onStall()
+        }
+        if (!config.adaptivePrefetchDistance) return
+
+        val sample = elapsedNanos / NANOS_PER_MS
+        loadLatencyMs = when (loadLatencyMs) {
+            UNKNOWN_LATENCY -> sample
+            else -> loadLatencyMs + SMOOTHING * (sample - loadLatencyMs)
+        }
+    }
+
+    fun prefetchDistance(loadType: LoadType): Int {
+        val latencyMs = loadLatencyMs
+        if (!config.adaptivePrefetchDistance || latencyMs == UNKNOWN_LATENCY ||
+            config.prefetchDistance == 0
+        ) {
+            return config.prefetchDistance
+        }
+
+        val speed = when (loadType) {
+            PREPEND -> -velocity
+            APPEND -> velocity
+            REFRESH -> throw IllegalArgumentException("Cannot get prefetchDistance for REFRESH")
+        }.coerceAtLeast(0.0)
+        return ceil(SAFETY_FACTOR * speed * latencyMs).toInt().coerceIn(
+            minimumValue = (config.prefetchDistance * MIN_DISTANCE_RATIO).toInt().coerceAtLeast(1),
+            maximumValue = (config.prefetchDistance * MAX_DISTANCE_RATIO).toInt()
+        )
+    }
+
+    fun maxSize(): Int {
+        if (!config.adaptivePrefetchDistance || config.maxSize == MAX_SIZE_UNBOUNDED) {
+            return config.maxSize
+        }
+
+        // Same constraint as the one PagingConfig enforces on maxSize.
+        val prefetchDistance = maxOf(prefetchDistance(PREPEND), prefetchDistance(APPEND))
+        return maxOf(config.maxSize, config.pageSize + 2 * prefetchDistance)
+    }
+
+    private companion object {
+        const val NO_TIMESTAMP = Long.MIN_VALUE
+        const val UNKNOWN_LATENCY = -1.0
+        const val NANOS_PER_MS = 1_000_000.0
+
+        // Hints further apart than this mean that the user stopped scrolling in between.
+        const val IDLE_NANOS = 1_000_000_000L
+
+        // Weight of new samples in the moving averages.
+        const val SMOOTHING = 0.3
+
+        // Number of loads the prefetched items should last for at the current velocity, to
+        // absorb latency variations and the time to present the loaded page.
+        const val SAFETY_FACTOR = 2.0
+
+        const val MIN_DISTANCE_RATIO = 0.5
+        const val MAX_DISTANCE_RATIO = 4.0
+    }
+}
@@ -1469,6 +1469,43 @@ class PageFetcherTest {
         fetcherState.job.cancel()
     }
 
+    @OptIn(ExperimentalPagingApi::class)
+    @Test
+    fun pager_prefetchStallCount_summedOverGenerations() = testScope.runBlockingTest {
+        val pager = Pager(config, initialKey = 50) { TestPagingSource() }
+        val pagingDataList = ArrayList<PagingData<Int>>()
+        val job = launch {
+            pager.flow.collect { pagingData ->
+                pagingDataList.add(pagingData)
+                launch { pagingData.flow.collect { } }
+            }
+        }
+        advanceUntilIdle()
+        assertThat(pager.prefetchStallCount).isEqualTo(0)
+
+        // Presenter at the end of the initial page, the APPEND starts too late.
+        val stallHint = ViewportHint.Access(
+            pageOffset = 0,
+            indexInPage = 1,
+            presentedItemsBefore = 1,
+            presentedItemsAfter = 0,
+            originalPageOffsetFirst = 0,
+            originalPageOffsetLast = 0
+        )
+        pagingDataList.last().receiver.accessHint(stallHint)
+        advanceUntilIdle()
+        assertThat(pager.prefetchStallCount).isEqualTo(1)
+
+        pagingDataList.last().receiver.refresh()
+        advanceUntilIdle()
+        assertThat(pagingDataList.size).isEqualTo(2)
+        pagingDataList.last().receiver.accessHint(stallHint)
+        advanceUntilIdle()
+        assertThat(pager.prefetchStallCount).isEqualTo(2)
+
+        job.cancel()
+    }
+
     companion object {
         internal val EMPTY_SOURCE_REFRESH =
             localRefresh<Int>(
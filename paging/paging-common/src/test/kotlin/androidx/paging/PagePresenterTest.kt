@@ -540,6 +540,61 @@ class PagePresenterTest {
         assertEquals(listOf(null, 'a', null, null, null), pagePresenter.snapshot())
     }
 
+    @Test
+    fun snapshot_notModifiedByLaterEvents() {
+        val presenter = PagePresenter(
+            pages = listOf(listOf('a', 'b'), listOf('c')),
+            leadingNullCount = 0,
+            trailingNullCount = 0,
+            indexOfInitialPage = 0
+        )
+        val snapshot = presenter.snapshot()
+        val callback = ProcessPageEventCallbackCapture()
+
+        presenter.insertPage(
+            isPrepend = true,
+            page = listOf('z'),
+            placeholdersRemaining = 0,
+            callback = callback
+        )
+        presenter.insertPage(
+            isPrepend = false,
+            page = listOf('d'),
+            placeholdersRemaining = 0,
+            callback = callback
+        )
+        presenter.dropPages(
+            isPrepend = false,
+            minPageOffset = 1,
+            maxPageOffset = 1,
+            placeholdersRemaining = 0,
+            callback = callback
+        )
+
+        assertEquals(listOf('a', 'b', 'c'), snapshot)
+        assertEquals(listOf('z', 'a', 'b', 'd'), presenter.asList())
+        assertEquals(listOf('z', 'a', 'b', 'd'), presenter.snapshot())
+    }
+
+    @Test
+    fun getWithEmptyPages() {
+        val presenter = PagePresenter(
+            pages = listOf(listOf(), listOf('a', 'b'), listOf(), listOf(), listOf('c'), listOf()),
+            leadingNullCount = 1,
+            trailingNullCount = 1,
+            indexOfInitialPage = 0
+        )
+
+        assertEquals(listOf(null, 'a', 'b', 'c', null), presenter.asList())
+        assertEquals(listOf(null, 'a', 'b', 'c', null), presenter.snapshot())
+        assertThat(presenter.accessHintForPresenterIndex(0).pageOffset).isEqualTo(0)
+        assertThat(presenter.accessHintForPresenterIndex(0).indexInPage).isEqualTo(-1)
+        assertThat(presenter.accessHintForPresenterIndex(3).pageOffset).isEqualTo(4)
+        assertThat(presenter.accessHintForPresenterIndex(3).indexInPage).isEqualTo(0)
+        assertThat(presenter.accessHintForPresenterIndex(4).pageOffset).isEqualTo(5)
+        assertThat(presenter.accessHintForPresenterIndex(4).indexInPage).isEqualTo(0)
+    }
+
     companion object {
         val IDLE_EVENTS = listOf<PresenterEvent>(
             CombinedStateEvent(LoadStates.IDLE, null)
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.paging
+
+import androidx.paging.PagingSource.LoadParams
+import androidx.paging.PagingSource.LoadResult
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import org.junit.After
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import java.io.DataInput
+import java.io.DataOutput
+
+@OptIn(ExperimentalPagingApi::class)
+@RunWith(JUnit4::class)
+class PersistentPageCacheTest {
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
+    private val scope = CoroutineScope(Job())
+
+    @After
+    fun tearDown() {
+        scope.cancel()
+    }
+
+    @Test
+    fun refreshMiss_loadsPagingSourceAndWritesPage() = runBlocking {
+        val cache = createCache(TestPagingSource.ITEMS)
+        val page = cache().load(refresh(0))
+
+        assertThat(page).isEqualTo(expectedPage(TestPagingSource.ITEMS, 0, 10))
+        assertThat(cache.hitCount).isEqualTo(0)
+        assertThat(cache.missCount).isEqualTo(1)
+        cache.awaitDiskOps()
+
+        // Another cache in the same directory, like after process death.
+        val restoredCache = createCache(TestPagingSource.ITEMS)
+        assertThat(restoredCache().load(refresh(0))).isEqualTo(page)
+        assertThat(restoredCache.hitCount).isEqualTo(1)
+        assertThat(restoredCache.missCount).isEqualTo(0)
+    }
+
+    @Test
+    fun staleRefreshHit_servesAdjacentPagesFromDisk() = runBlocking {
+        val cache = createCache(TestPagingSource.ITEMS)
+        cache().run {
+            load(refresh(0))
+            load(append(10))
+        }
+        cache.awaitDiskOps()
+
+        // The revalidating refresh never completes.
+        val restoredCache = createCache(TestPagingSource.ITEMS, loadDelay = Long.MAX_VALUE)
+        val pagingSource = restoredCache()
+        assertThat(pagingSource.load(refresh(0)))
+            .isEqualTo(expectedPage(TestPagingSource.ITEMS, 0, 10))
+        assertThat(pagingSource.load(append(10)))
+            .isEqualTo(expectedPage(TestPagingSource.ITEMS, 10, 20))
+        assertThat(restoredCache.hitCount).isEqualTo(2)
+        assertThat(pagingSource.invalid).isFalse()
+    }
+
+    @Test
+    fun staleRefreshHit_invalidatesWhenPageChanged() = runBlocking {
+        val cache = createCache(TestPagingSource.ITEMS)
+        cache().load(refresh(0))
+        cache.awaitDiskOps()
+
+        val newItems = List(100) { it + 100 }
+        val pagingSources = mutableListOf<TestPagingSource>()
+        val restoredCache = PersistentPageCache(
+            directory = temporaryFolder.root,
+            serializer = IntSerializer,
+            scope = scope,
+        ) {
+            TestPagingSource(items = newItems, loadDelay = 0).also { pagingSources.add(it) }
+        }
+        val pagingSource = restoredCache()
+        assertThat(pagingSource.load(refresh(0)))
+            .isEqualTo(expectedPage(TestPagingSource.ITEMS, 0, 10))
+        withTimeout(10_000) {
+            while (!pagingSource.invalid) {
+                delay(1)
+            }
+        }
+
+        // The next PagingSource gets the page of the revalidation without loading it again.
+        assertThat(restoredCache().load(refresh(0))).isEqualTo(expectedPage(newItems, 0, 10))
+        assertThat(pagingSources[1].loadedPages).isEmpty()
+
+        // Once revalidated, loads go to the PagingSource.
+        assertThat(pagingSources[1].load(append(10))).isEqualTo(expectedPage(newItems, 10, 20))
+        assertThat(restoredCache.hitCount).isEqualTo(1)
+    }
+
+    @Test
+    fun unreadableFile_isMiss() = runBlocking {
+        val cache = createCache(TestPagingSource.ITEMS)
+        cache().load(refresh(0))
+        cache.awaitDiskOps()
+        temporaryFolder.root.listFiles()!!.forEach { it.writeBytes(byteArrayOf(1, 2, 3)) }
+
+        val restoredCache = createCache(TestPagingSource.ITEMS)
+        assertThat(restoredCache().load(refresh(0)))
+            .isEqualTo(expectedPage(TestPagingSource.ITEMS, 0, 10))
+        assertThat(restoredCache.hitCount).isEqualTo(0)
+        assertThat(restoredCache.missCount).isEqualTo(1)
+    }
+
+    @Test
+    fun maxPageCount_deletesOldestPages() = runBlocking {
+        val cache = createCache(TestPagingSource.ITEMS, maxPageCount = 2)
+        cache().run {
+            load(refresh(0))
+            load(append(10))
+            load(append(20))
+        }
+        cache.awaitDiskOps()
+
+        assertThat(temporaryFolder.root.list()).hasLength(2)
+    }
+
+    @Test
+    fun clear() = runBlocking {
+        val cache = createCache(TestPagingSource.ITEMS)
+        cache().load(refresh(0))
+        cache.clear()
+        cache.awaitDiskOps()
+
+        assertThat(temporaryFolder.root.list()).isEmpty()
+    }
+
+    @Test
+    fun serializerException_dropsOnlyThatPage() = runBlocking {
+        val cache = PersistentPageCache(
+            directory = temporaryFolder.root,
+            serializer = object : PersistentPageCache.Serializer<Int, Int> by IntSerializer {
+                override fun writeValue(output: DataOutput, value: Int) {
+                    check(value != 15) { "Unsupported value" }
+                    output.writeInt(value)
+                }
+            },
+            scope = scope,
+        ) {
+            TestPagingSource(items = TestPagingSource.ITEMS, loadDelay = 0)
+        }
+        cache().run {
+            load(refresh(0))
+            load(append(10))
+            load(append(20))
+        }
+        withTimeout(10_000) {
+            cache.awaitDiskOps()
+        }
+
+        // The pages before and after the failing one are still written, without a temp file.
+        assertThat(temporaryFolder.root.list()).hasLength(2)
+    }
+
+    private fun createCache(
+        items: List<Int>,
+        loadDelay: Long = 0,
+        maxPageCount: Int = 256
+    ) = PersistentPageCache(
+        directory = temporaryFolder.root,
+        serializer = IntSerializer,
+        scope = scope,
+        maxPageCount = maxPageCount,
+    ) {
+        TestPagingSource(items = items, loadDelay = loadDelay)
+    }
+
+    private fun refresh(key: Int) = LoadParams.Refresh(key, 10, true)
+
+    private fun append(key: Int) = LoadParams.Append(key, 10, true)
+
+    private fun expectedPage(items: List<Int>, start: Int, end: Int) = LoadResult.Page(
+        data = items.subList(start, end),
+        prevKey = if (start > 0) start - 1 else null,
+        nextKey = if (end < items.size) end else null,
+        itemsBefore = start,
+        itemsAfter = items.size - end
+    )
+
+    private object IntSerializer : PersistentPageCache.Serializer<Int, Int> {
+        override fun writeKey(output: DataOutput, key: Int) = output.writeInt(key)
+
+        override fun readKey(input: DataInput) = input.readInt()
+
+        override fun writeValue(output: DataOutput, value: Int) = output.writeInt(value)
+
+        override fun readValue(input: DataInput) = input.readInt()
+    }
+}
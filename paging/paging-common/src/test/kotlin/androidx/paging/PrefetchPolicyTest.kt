@@ -0,0 +1,138 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.paging
+
+import androidx.paging.LoadType.APPEND
+import androidx.paging.LoadType.PREPEND
+import androidx.paging.LoadType.REFRESH
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class PrefetchPolicyTest {
+    private val adaptiveConfig = PagingConfig(
+        pageSize = 10,
+        prefetchDistance = 10,
+        initialLoadSize = 30,
+        maxSize = 50,
+        adaptivePrefetchDistance = true
+    )
+
+    @Test
+    fun disabled_usesConfig() {
+        val config = PagingConfig(pageSize = 10, prefetchDistance = 10, maxSize = 50)
+        val policy = PrefetchPolicy(config)
+        policy.scroll(itemsPerHint = 1, hintIntervalMs = 10)
+        policy.recordLoad(APPEND, elapsedNanos = 400 * NANOS_PER_MS, presentedItemsBeyondAnchor = 5)
+
+        assertThat(policy.prefetchDistance(APPEND)).isEqualTo(10)
+        assertThat(policy.maxSize()).isEqualTo(50)
+    }
+
+    @Test
+    fun unknownLatency_usesConfig() {
+        val policy = PrefetchPolicy(adaptiveConfig)
+        policy.scroll(itemsPerHint = 1, hintIntervalMs = 10)
+
+        assertThat(policy.prefetchDistance(APPEND)).isEqualTo(10)
+        assertThat(policy.prefetchDistance(PREPEND)).isEqualTo(10)
+        assertThat(policy.maxSize()).isEqualTo(50)
+    }
+
+    @Test
+    fun scrolling_coversLoadLatency() {
+        val policy = PrefetchPolicy(adaptiveConfig)
+        // 0.1 items per ms, with loads of 100 ms.
+        policy.scroll(itemsPerHint = 1, hintIntervalMs = 10)
+        policy.recordLoad(APPEND, elapsedNanos = 100 * NANOS_PER_MS, presentedItemsBeyondAnchor = 5)
+
+        // Items scrolled through during two loads.
+        assertThat(policy.prefetchDistance(APPEND)).isEqualTo(20)
+        // Scrolling away from the start.
+        assertThat(policy.prefetchDistance(PREPEND)).isEqualTo(5)
+        assertThat(policy.maxSize()).isEqualTo(50)
+    }
+
+    @Test
+    fun scrollingFast_isCappedAndRaisesMaxSize() {
+        val policy = PrefetchPolicy(adaptiveConfig)
+        policy.scroll(itemsPerHint = -1, hintIntervalMs = 10)
+        policy.recordLoad(
+            PREPEND,
+            elapsedNanos = 400 * NANOS_PER_MS,
+            presentedItemsBeyondAnchor = 5
+        )
+
+        assertThat(policy.prefetchDistance(PREPEND)).isEqualTo(40)
+        assertThat(policy.prefetchDistance(APPEND)).isEqualTo(5)
+        assertThat(policy.maxSize()).isEqualTo(10 + 2 * 40)
+    }
+
+    @Test
+    fun idle_resetsVelocity() {
+        val policy = PrefetchPolicy(adaptiveConfig)
+        val endNanos = policy.scroll(itemsPerHint = 1, hintIntervalMs = 10)
+        policy.recordLoad(APPEND, elapsedNanos = 100 * NANOS_PER_MS, presentedItemsBeyondAnchor = 5)
+        policy.recordHint(
+            hint(pageOffset = 2, indexInPage = 0),
+            nowNanos = endNanos + 2_000 * NANOS_PER_MS
+        )
+
+        assertThat(policy.prefetchDistance(APPEND)).isEqualTo(5)
+    }
+
+    @Test
+    fun stallCount() {
+        val policy = PrefetchPolicy(PagingConfig(pageSize = 10))
+        policy.recordLoad(REFRESH, elapsedNanos = 0, presentedItemsBeyondAnchor = 0)
+        policy.recordLoad(APPEND, elapsedNanos = 0, presentedItemsBeyondAnchor = 5)
+        assertThat(policy.stallCount).isEqualTo(0)
+
+        policy.recordLoad(APPEND, elapsedNanos = 0, presentedItemsBeyondAnchor = 0)
+        policy.recordLoad(PREPEND, elapsedNanos = 0, presentedItemsBeyondAnchor = -3)
+        assertThat(policy.stallCount).isEqualTo(2)
+    }
+
+    /**
+     * Sends 30 access hints through the initial page, moving [itemsPerHint] every
+     * [hintIntervalMs], and returns the time of the last one.
+     */
+    private fun PrefetchPolicy.scroll(itemsPerHint: Int, hintIntervalMs: Long): Long {
+        var nowNanos = 0L
+        for (i in 0 until 30) {
+            val indexInPage = if (itemsPerHint > 0) i * itemsPerHint else 29 + i * itemsPerHint
+            nowNanos = i * hintIntervalMs * NANOS_PER_MS
+            recordHint(hint(pageOffset = 0, indexInPage = indexInPage), nowNanos)
+        }
+        return nowNanos
+    }
+
+    private fun hint(pageOffset: Int, indexInPage: Int) = ViewportHint.Access(
+        pageOffset = pageOffset,
+        indexInPage = indexInPage,
+        presentedItemsBefore = indexInPage,
+        presentedItemsAfter = 29 - indexInPage,
+        originalPageOffsetFirst = 0,
+        originalPageOffsetLast = 0
+    )
+
+    private companion object {
+        const val NANOS_PER_MS = 1_000_000L
+    }
+}
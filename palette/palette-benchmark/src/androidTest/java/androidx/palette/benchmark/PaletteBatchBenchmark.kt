@@ -0,0 +1,121 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.benchmark
+
+import android.graphics.Bitmap
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.palette.graphics.Palette
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.After
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.Random
+import java.util.concurrent.Executors
+
+/**
+ * Generates palettes for a batch of bitmaps, like an image grid does for its thumbnails.
+ */
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class PaletteBatchBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val executor = Executors.newFixedThreadPool(THREAD_COUNT)
+
+    private val bitmaps = List(BATCH_SIZE) { index -> createBitmap(index) }
+
+    @After
+    fun tearDown() {
+        executor.shutdownNow()
+        bitmaps.forEach { it.recycle() }
+    }
+
+    @Test
+    fun withoutContext() {
+        benchmarkRule.measureRepeated {
+            for (bitmap in bitmaps) {
+                Palette.from(bitmap).generate()
+            }
+        }
+    }
+
+    @Test
+    fun withoutContext_fullSize() {
+        benchmarkRule.measureRepeated {
+            for (bitmap in bitmaps) {
+                Palette.from(bitmap).resizeBitmapArea(0).generate()
+            }
+        }
+    }
+
+    @Test
+    fun serialContext() {
+        val context = Palette.QuantizationContext()
+        benchmarkRule.measureRepeated {
+            for (bitmap in bitmaps) {
+                Palette.from(bitmap).setQuantizationContext(context).generate()
+            }
+        }
+    }
+
+    @Test
+    fun serialContext_fullSize() {
+        val context = Palette.QuantizationContext()
+        benchmarkRule.measureRepeated {
+            for (bitmap in bitmaps) {
+                Palette.from(bitmap).resizeBitmapArea(0).setQuantizationContext(context).generate()
+            }
+        }
+    }
+
+    @Test
+    fun parallelContext_fullSize() {
+        val context = Palette.QuantizationContext(executor, THREAD_COUNT + 1)
+        benchmarkRule.measureRepeated {
+            for (bitmap in bitmaps) {
+                Palette.from(bitmap).resizeBitmapArea(0).setQuantizationContext(context).generate()
+            }
+        }
+    }
+
+    private companion object {
+        const val BATCH_SIZE = 20
+        const val BITMAP_SIZE = 512
+        const val THREAD_COUNT = 3
+
+        /**
+         * Creates a bitmap with a gradient and some noise, so that it has many distinct colors.
+         */
+        fun createBitmap(seed: Int): Bitmap {
+            val random = Random(seed.toLong())
+            val pixels = IntArray(BITMAP_SIZE * BITMAP_SIZE) { index ->
+                val x = index % BITMAP_SIZE
+                val y = index / BITMAP_SIZE
+                val red = (x * 255 / BITMAP_SIZE + random.nextInt(32)).coerceAtMost(255)
+                val green = (y * 255 / BITMAP_SIZE + random.nextInt(32)).coerceAtMost(255)
+                val blue = (seed * 12 + random.nextInt(64)).coerceAtMost(255)
+                (0xFF shl 24) or (red shl 16) or (green shl 8) or blue
+            }
+            return Bitmap.createBitmap(pixels, BITMAP_SIZE, BITMAP_SIZE, Bitmap.Config.ARGB_8888)
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import static org.junit.Assert.assertEquals;
+
+import android.graphics.Bitmap;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+@RunWith(AndroidJUnit4.class)
+public class QuantizationContextTest {
+
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(3);
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    @SmallTest
+    public void testSerialContext() {
+        assertSameAsWithoutContext(new Palette.QuantizationContext());
+    }
+
+    @Test
+    @SmallTest
+    public void testParallelContext() {
+        assertSameAsWithoutContext(new Palette.QuantizationContext(mExecutor, 4));
+    }
+
+    @Test
+    @SmallTest
+    public void testRejectingExecutor() {
+        assertSameAsWithoutContext(new Palette.QuantizationContext(command -> {
+            throw new RejectedExecutionException();
+        }, 4));
+    }
+
+    @Test
+    @SmallTest
+    public void testReusedContextWithRegion() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final Palette.QuantizationContext context =
+                new Palette.QuantizationContext(mExecutor, 4);
+
+        // Generate a palette for the whole bitmap first, so that the region reuses larger buffers
+        Palette.from(bitmap).resizeBitmapArea(0).setQuantizationContext(context).generate();
+
+        final int right = bitmap.getWidth() / 2;
+        final int bottom = bitmap.getHeight() / 2;
+        final Palette expected = Palette.from(bitmap).resizeBitmapArea(0)
+                .setRegion(0, 0, right, bottom).generate();
+        final Palette actual = Palette.from(bitmap).resizeBitmapArea(0)
+                .setRegion(0, 0, right, bottom).setQuantizationContext(context).generate();
+        assertPalettesEqual(expected, actual);
+    }
+
+    private static void assertSameAsWithoutContext(Palette.QuantizationContext context) {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+
+        // Not resizing, so that the bitmap is large enough to be quantized in parallel
+        final Palette expected = Palette.from(bitmap).resizeBitmapArea(0).generate();
+        for (int i = 0; i < 3; i++) {
+            final Palette actual = Palette.from(bitmap).resizeBitmapArea(0)
+                    .setQuantizationContext(context).generate();
+            assertPalettesEqual(expected, actual);
+        }
+    }
+
+    private static void assertPalettesEqual(Palette p1, Palette p2) {
+        assertEquals(p1.getSwatches(), p2.getSwatches());
+        assertEquals(p1.getVibrantSwatch(), p2.getVibrantSwatch());
+        assertEquals(p1.getMutedSwatch(), p2.getMutedSwatch());
+        assertEquals(p1.getDominantSwatch(), p2.getDominantSwatch());
+    }
+}
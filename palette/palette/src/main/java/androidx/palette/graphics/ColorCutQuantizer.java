@@ -49,7 +49,13 @@ final class ColorCutQuantizer {
     private static final int QUANTIZE_WORD_WIDTH = 5;
     private static final int QUANTIZE_WORD_MASK = (1 << QUANTIZE_WORD_WIDTH) - 1;
 
+    /**
+     * Size of a histogram of quantized colors.
+     */
+    static final int HISTOGRAM_SIZE = 1 << (QUANTIZE_WORD_WIDTH * 3);
+
     final int[] mColors;
+    final int mColorCount;
     final int[] mHistogram;
     final List<Palette.Swatch> mQuantizedColors;
     @Nullable final Palette.Filter[] mFilters;
@@ -64,16 +70,25 @@ final class ColorCutQuantizer {
      * @param filters Set of filters to use in the quantization stage
      */
     ColorCutQuantizer(int[] pixels, int maxColors, @Nullable Palette.Filter[] filters) {
+        this(buildHistogram(pixels), null, maxColors, filters);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param histogram histogram of the quantized colors of an image, of size
+     *                  {@link #HISTOGRAM_SIZE}. The populations of the filtered out colors are
+     *                  set to 0.
+     * @param colorsBuffer buffer of size {@link #HISTOGRAM_SIZE} for the distinct colors, or null
+     *                     to allocate one
+     * @param maxColors The maximum number of colors that should be in the result palette.
+     * @param filters Set of filters to use in the quantization stage
+     */
+    ColorCutQuantizer(int[] histogram, @Nullable int[] colorsBuffer, int maxColors,
+            @Nullable Palette.Filter[] filters) {
         mFilters = filters;
 
-        final int[] hist = mHistogram = new int[1 << (QUANTIZE_WORD_WIDTH * 3)];
-        for (int i = 0; i < pixels.length; i++) {
-            final int quantizedColor = quantizeFromRgb888(pixels[i]);
-            // Now update the pixel value to the quantized value
-            pixels[i] = quantizedColor;
-            // And update the histogram
-            hist[quantizedColor]++;
-        }
+        final int[] hist = mHistogram = histogram;
 
         // Now let's count the number of distinct colors
         int distinctColorCount = 0;
@@ -89,7 +104,9 @@ final class ColorCutQuantizer {
         }
 
         // Now lets go through create an array consisting of only distinct colors
-        final int[] colors = mColors = new int[distinctColorCount];
+        final int[] colors = mColors =
+                colorsBuffer != null ? colorsBuffer : new int[distinctColorCount];
+        mColorCount = distinctColorCount;
         int distinctColorIndex = 0;
         for (int color = 0; color < hist.length; color++) {
             if (hist[color] > 0) {
@@ -100,7 +117,8 @@ final class ColorCutQuantizer {
         if (distinctColorCount <= maxColors) {
             // The image has fewer colors than the maximum requested, so just return the colors
             mQuantizedColors = new ArrayList<>();
-            for (int color : colors) {
+            for (int i = 0; i < distinctColorCount; i++) {
+                final int color = colors[i];
                 mQuantizedColors.add(new Palette.Swatch(approximateToRgb888(color), hist[color]));
             }
         } else {
@@ -109,6 +127,26 @@ final class ColorCutQuantizer {
         }
     }
 
+    private static int[] buildHistogram(int[] pixels) {
+        final int[] hist = new int[HISTOGRAM_SIZE];
+        addToHistogram(pixels, 0, pixels.length, hist);
+        return hist;
+    }
+
+    /**
+     * Quantizes the pixels in the given range, and adds them to the histogram.
+     *
+     * @param pixels RGB888 pixels
+     * @param from index of the first pixel, inclusive
+     * @param to index of the last pixel, exclusive
+     * @param hist histogram of size {@link #HISTOGRAM_SIZE}
+     */
+    static void addToHistogram(int[] pixels, int from, int to, int[] hist) {
+        for (int i = from; i < to; i++) {
+            hist[quantizeFromRgb888(pixels[i])]++;
+        }
+    }
+
     /**
      * @return the list of quantized colors
      */
@@ -122,7 +160,7 @@ final class ColorCutQuantizer {
         final PriorityQueue<Vbox> pq = new PriorityQueue<>(maxColors, VBOX_COMPARATOR_VOLUME);
 
         // To start, offer a box which contains all of the colors
-        pq.offer(new Vbox(0, mColors.length - 1));
+        pq.offer(new Vbox(0, mColorCount - 1));
 
         // Now go through the boxes, splitting them until we have reached maxColors or there are no
         // more boxes to split
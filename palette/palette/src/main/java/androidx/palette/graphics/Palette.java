@@ -23,6 +23,7 @@ import android.util.Log;
 import android.util.SparseBooleanArray;
 
 import androidx.annotation.ColorInt;
+import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.Px;
@@ -34,6 +35,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * A helper class to extract prominent colors from an image.
@@ -601,6 +606,7 @@ public final class Palette {
 
         private final List<Filter> mFilters = new ArrayList<>();
         @Nullable private Rect mRegion;
+        @Nullable private QuantizationContext mQuantizationContext;
 
         /**
          * Construct a new {@link Builder} using a source {@link Bitmap}
@@ -746,6 +752,20 @@ public final class Palette {
             return this;
         }
 
+        /**
+         * Set the {@link QuantizationContext} to quantize the bitmap with. The context keeps the
+         * buffers used for quantization, so that generating palettes for many bitmaps with the
+         * same context doesn't allocate them again for every bitmap, and can split the work
+         * across threads.
+         *
+         * <p>Without a context, the buffers are allocated for every {@link #generate()} call.</p>
+         */
+        @NonNull
+        public Builder setQuantizationContext(@Nullable QuantizationContext context) {
+            mQuantizationContext = context;
+            return this;
+        }
+
         /**
          * Add a target profile to be generated in the palette.
          *
@@ -798,10 +818,15 @@ public final class Palette {
                 }
 
                 // Now generate a quantizer from the Bitmap
-                final ColorCutQuantizer quantizer = new ColorCutQuantizer(
-                        getPixelsFromBitmap(bitmap),
-                        mMaxColors,
-                        mFilters.isEmpty() ? null : mFilters.toArray(new Filter[mFilters.size()]));
+                final Filter[] filters =
+                        mFilters.isEmpty() ? null : mFilters.toArray(new Filter[mFilters.size()]);
+                final ColorCutQuantizer quantizer;
+                if (mQuantizationContext != null) {
+                    quantizer = mQuantizationContext.quantize(bitmap, region, mMaxColors, filters);
+                } else {
+                    quantizer = new ColorCutQuantizer(getPixelsFromBitmap(bitmap), mMaxColors,
+                            filters);
+                }
 
                 // If created a new bitmap, recycle it
                 if (bitmap != mBitmap) {
@@ -914,6 +939,142 @@ public final class Palette {
         }
     }
 
+    /**
+     * Holds the buffers used to quantize bitmaps, so that they can be reused across
+     * {@link Builder#generate()} calls with {@link Builder#setQuantizationContext}.
+     *
+     * <p>A context can optionally build the color histogram of large bitmaps in parallel, by
+     * splitting the pixels into stripes that are counted on the given {@link Executor} and merged
+     * afterwards. The generated palettes are the same as without a context.</p>
+     *
+     * <p>A context quantizes one bitmap at a time; concurrent {@link Builder#generate()} calls
+     * sharing a context wait for each other. Use a context per thread to generate palettes
+     * concurrently.</p>
+     */
+    public static final class QuantizationContext {
+        // Below this many pixels per stripe, the histograms cost more to merge than to build.
+        private static final int MIN_PIXELS_PER_STRIPE = 1 << 14;
+
+        @Nullable private final Executor mExecutor;
+        private final int mParallelism;
+
+        @Nullable private int[] mPixels;
+        @Nullable private int[][] mStripeHistograms;
+        @Nullable private int[] mHistogram;
+        @Nullable private int[] mColors;
+
+        /**
+         * Creates a context that quantizes bitmaps on the thread calling
+         * {@link Builder#generate()}.
+         */
+        public QuantizationContext() {
+            mExecutor = null;
+            mParallelism = 1;
+        }
+
+        /**
+         * Creates a context that splits the quantization of large bitmaps into up to
+         * {@code parallelism} parts. One part runs on the thread calling
+         * {@link Builder#generate()}, the others are submitted to {@code executor}. Parts that
+         * haven't been started by the executor when the calling thread is done with its own part
+         * are run by the calling thread.
+         *
+         * @param executor the executor to run the parts on
+         * @param parallelism the maximum number of parts, usually the number of threads of the
+         *                    executor plus one
+         */
+        public QuantizationContext(@NonNull Executor executor,
+                @IntRange(from = 1) int parallelism) {
+            Preconditions.checkNotNull(executor);
+            Preconditions.checkArgument(parallelism >= 1, "parallelism must be at least 1");
+            mExecutor = executor;
+            mParallelism = parallelism;
+        }
+
+        synchronized ColorCutQuantizer quantize(Bitmap bitmap, @Nullable Rect region,
+                int maxColors, @Nullable Filter[] filters) {
+            final int left = region != null ? region.left : 0;
+            final int top = region != null ? region.top : 0;
+            final int width = region != null ? region.width() : bitmap.getWidth();
+            final int height = region != null ? region.height() : bitmap.getHeight();
+            final int pixelCount = width * height;
+
+            if (mPixels == null || mPixels.length < pixelCount) {
+                mPixels = new int[pixelCount];
+            }
+            final int[] pixels = mPixels;
+            bitmap.getPixels(pixels, 0, width, left, top, width, height);
+
+            if (mHistogram == null) {
+                mHistogram = new int[ColorCutQuantizer.HISTOGRAM_SIZE];
+                mColors = new int[ColorCutQuantizer.HISTOGRAM_SIZE];
+            }
+            final int[] histogram = mHistogram;
+            Arrays.fill(histogram, 0);
+
+            final int stripeCount = Math.min(mParallelism,
+                    Math.max(1, pixelCount / MIN_PIXELS_PER_STRIPE));
+            if (stripeCount == 1) {
+                ColorCutQuantizer.addToHistogram(pixels, 0, pixelCount, histogram);
+            } else {
+                buildHistogramInStripes(pixels, pixelCount, stripeCount, histogram);
+            }
+            return new ColorCutQuantizer(histogram, mColors, maxColors, filters);
+        }
+
+        private void buildHistogramInStripes(final int[] pixels, int pixelCount,
+                int stripeCount, int[] histogram) {
+            if (mStripeHistograms == null) {
+                mStripeHistograms = new int[mParallelism - 1][];
+            }
+            final int stripeSize = (pixelCount + stripeCount - 1) / stripeCount;
+
+            // Stripe 0 is counted directly into the histogram, the others into their own.
+            @SuppressWarnings("unchecked")
+            final FutureTask<Void>[] tasks = new FutureTask[stripeCount - 1];
+            for (int i = 1; i < stripeCount; i++) {
+                if (mStripeHistograms[i - 1] == null) {
+                    mStripeHistograms[i - 1] = new int[ColorCutQuantizer.HISTOGRAM_SIZE];
+                }
+                final int[] stripeHistogram = mStripeHistograms[i - 1];
+                final int from = i * stripeSize;
+                final int to = Math.min(pixelCount, from + stripeSize);
+                tasks[i - 1] = new FutureTask<>(new Runnable() {
+                    @Override
+                    public void run() {
+                        Arrays.fill(stripeHistogram, 0);
+                        ColorCutQuantizer.addToHistogram(pixels, from, to, stripeHistogram);
+                    }
+                }, null);
+                try {
+                    mExecutor.execute(tasks[i - 1]);
+                } catch (RejectedExecutionException e) {
+                    // The task is run below by this thread instead.
+                }
+            }
+
+            ColorCutQuantizer.addToHistogram(pixels, 0, Math.min(pixelCount, stripeSize),
+                    histogram);
+
+            for (int i = 0; i < tasks.length; i++) {
+                // Runs the task here if the executor hasn't started it yet, no-op otherwise.
+                tasks[i].run();
+                try {
+                    tasks[i].get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while quantizing", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Failed to quantize", e.getCause());
+                }
+                final int[] stripeHistogram = mStripeHistograms[i];
+                for (int color = 0; color < histogram.length; color++) {
+                    histogram[color] += stripeHistogram[color];
+                }
+            }
+        }
+    }
+
     /**
      * A Filter provides a mechanism for exercising fine-grained control over which colors
      * are valid within a resulting {@link Palette}.
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.profileinstaller.benchmark
+
+import android.annotation.SuppressLint
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.profileinstaller.DeviceProfileWriter
+import androidx.test.filters.LargeTest
+import androidx.test.platform.app.InstrumentationRegistry
+import org.junit.After
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.io.File
+
+/**
+ * Measures reading and transcoding sample profiles of different sizes. Besides time, the
+ * allocation count reported for each benchmark tracks the buffers used along the way.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+class ProfileTranscoderBenchmark(private val profileName: String) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val assets = InstrumentationRegistry.getInstrumentation().context.assets
+    private lateinit var curProfile: File
+
+    @Before
+    fun setup() {
+        curProfile = File.createTempFile("ProfileTranscoderBenchmark", ".prof")
+        assumeTrue(
+            "Device must support AOT to run this benchmark",
+            newWriter().deviceAllowsProfileInstallerAotWrites()
+        )
+    }
+
+    @After
+    fun teardown() {
+        curProfile.delete()
+    }
+
+    @SuppressLint("NewApi")
+    private fun newWriter() = DeviceProfileWriter(
+        assets,
+        Runnable::run,
+        ProfileInstallerTranscodeBenchmark.Diagnostics(),
+        APK_NAME,
+        "golden/$profileName.prof",
+        "golden/$profileName.profm",
+        curProfile
+    )
+
+    @Test
+    @SuppressLint("NewApi")
+    fun read() {
+        benchmarkRule.measureRepeated {
+            val writer = runWithTimingDisabled {
+                newWriter().also { it.deviceAllowsProfileInstallerAotWrites() }
+            }
+            writer.read()
+        }
+    }
+
+    @Test
+    @SuppressLint("NewApi")
+    fun transcode() {
+        benchmarkRule.measureRepeated {
+            val writer = runWithTimingDisabled {
+                newWriter().also {
+                    it.deviceAllowsProfileInstallerAotWrites()
+                    it.read()
+                }
+            }
+            writer.transcodeIfNeeded()
+        }
+    }
+
+    @Test
+    @SuppressLint("NewApi")
+    fun readTranscodeWrite() {
+        benchmarkRule.measureRepeated {
+            val writer = runWithTimingDisabled { newWriter() }
+            writer.deviceAllowsProfileInstallerAotWrites()
+            writer.read()
+                .transcodeIfNeeded()
+                .write()
+        }
+    }
+
+    companion object {
+        private const val APK_NAME = "base.apk"
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "profile={0}")
+        fun profiles() = listOf("profileinstaller", "multidex")
+    }
+}
@@ -28,7 +28,6 @@ import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.annotation.RestrictTo;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -265,11 +264,8 @@ public class DeviceProfileWriter {
             return false;
         }
         assertDeviceAllowsProfileInstallerAotWritesCalled();
-        try (
-            InputStream bis = new ByteArrayInputStream(transcodedProfile);
-            OutputStream os = new FileOutputStream(mCurProfile)
-        ) {
-            Encoding.writeAll(bis, os);
+        try (OutputStream os = new FileOutputStream(mCurProfile)) {
+            os.write(transcodedProfile);
             result(ProfileInstaller.RESULT_INSTALL_SUCCESS, null);
             return true;
         } catch (FileNotFoundException e) {
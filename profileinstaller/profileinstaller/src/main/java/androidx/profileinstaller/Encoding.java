@@ -20,15 +20,13 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 
-import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.zip.DataFormatException;
-import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 /**
  * A set of utilities on top of InputStream / OutputStream that are used by [ProfileTranscoder].
@@ -89,11 +87,13 @@ class Encoding {
     }
 
     static long readUInt(@NonNull InputStream is, int numberOfBytes) throws IOException {
-        byte[] buffer = read(is, numberOfBytes);
         long value = 0;
         for (int i = 0; i < numberOfBytes; i++) {
-            long next = buffer[i] & 0xff;
-            value += next << (i * SIZEOF_BYTE);
+            int next = is.read();
+            if (next < 0) {
+                throw error("Not enough bytes to read: " + numberOfBytes);
+            }
+            value += (long) next << (i * SIZEOF_BYTE);
         }
         return value;
     }
@@ -114,83 +114,161 @@ class Encoding {
         return new String(read(is, size), StandardCharsets.UTF_8);
     }
 
-    static @NonNull byte[] readCompressed(
+    /**
+     * Opens a stream over the next {@code compressedDataSize} bytes of {@code is}, which inflates
+     * them as they are read instead of loading all of the uncompressed data in memory at once.
+     *
+     * The returned stream reports the number of uncompressed bytes left from
+     * {@link InputStream#available()}, and doesn't close {@code is} when it is closed.
+     */
+    static @NonNull UncompressedInputStream openCompressed(
             @NonNull InputStream is,
             int compressedDataSize,
             int uncompressedDataSize
-    ) throws IOException {
-        // Read the expected compressed data size.
-        Inflater inf = new Inflater();
-        try {
-            byte[] result = new byte[uncompressedDataSize];
-            int totalBytesRead = 0;
-            int totalBytesInflated = 0;
-            byte[] input = new byte[2048]; // 2KB read window size;
-            while (
-                !inf.finished() &&
-                !inf.needsDictionary() &&
-                totalBytesRead < compressedDataSize
-            ) {
-                int bytesRead = is.read(input);
-                if (bytesRead < 0) {
-                    throw error(
-                            "Invalid zip data. Stream ended after $totalBytesRead bytes. " +
-                                    "Expected " + compressedDataSize + " bytes"
-                    );
-                }
-                inf.setInput(input, 0, bytesRead);
-                try {
-                    totalBytesInflated += inf.inflate(
-                            result,
-                            totalBytesInflated,
-                            uncompressedDataSize - totalBytesInflated
-                    );
-                } catch (DataFormatException e) {
-                    throw error(e.getMessage());
-                }
-                totalBytesRead += bytesRead;
+    ) {
+        return new UncompressedInputStream(
+                new LimitedInputStream(is, compressedDataSize),
+                uncompressedDataSize
+        );
+    }
+
+    static @NonNull RuntimeException error(@Nullable String message) {
+        return new IllegalStateException(message);
+    }
+
+    /**
+     * Stream of the uncompressed data returned by {@link #openCompressed}. Inflated data is
+     * buffered so that reading a few bytes at a time doesn't inflate a few bytes at a time.
+     */
+    static final class UncompressedInputStream extends InflaterInputStream {
+        private static final int BUFFER_SIZE = 8 * 1024;
+
+        @NonNull
+        private final LimitedInputStream mCompressed;
+        private final int mUncompressedDataSize;
+        @NonNull
+        private final byte[] mBuffer = new byte[BUFFER_SIZE];
+        private int mBufferPosition;
+        private int mBufferLength;
+        private int mBytesRead;
+
+        UncompressedInputStream(@NonNull LimitedInputStream compressed, int uncompressedDataSize) {
+            super(compressed, new Inflater(), 2048); // 2KB read window size
+            mCompressed = compressed;
+            mUncompressedDataSize = uncompressedDataSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (mBufferPosition == mBufferLength && !fillBuffer()) {
+                return -1;
             }
-            if (totalBytesRead != compressedDataSize) {
-                throw error(
-                        "Didn't read enough bytes during decompression." +
-                                " expected=" + compressedDataSize +
-                                " actual=" + totalBytesRead
-                );
+            mBytesRead++;
+            return mBuffer[mBufferPosition++] & 0xff;
+        }
+
+        @Override
+        public int read(@NonNull byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (mBufferPosition == mBufferLength && !fillBuffer()) {
+                return -1;
+            }
+            int count = Math.min(len, mBufferLength - mBufferPosition);
+            System.arraycopy(mBuffer, mBufferPosition, b, off, count);
+            mBufferPosition += count;
+            mBytesRead += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return mUncompressedDataSize - mBytesRead;
+        }
+
+        /**
+         * Checks that all of the compressed data was read, and that it inflated to exactly the
+         * expected number of bytes.
+         */
+        void checkFinished() throws IOException {
+            if (mBytesRead != mUncompressedDataSize || read() >= 0) {
+                throw error("Uncompressed data size did not match expectation."
+                        + " expected=" + mUncompressedDataSize);
+            }
+            if (mCompressed.mRemaining != 0) {
+                throw error("Didn't read enough bytes during decompression."
+                        + " remaining=" + mCompressed.mRemaining);
             }
             if (!inf.finished()) {
                 throw error("Inflater did not finish");
             }
-            return result;
-        } finally {
-            inf.end();
         }
-    }
 
-    static void writeCompressed(@NonNull OutputStream os, byte[] data) throws IOException {
-        writeUInt32(os, data.length); // uncompressed size
-        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
-        try {
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            try (DeflaterOutputStream dos = new DeflaterOutputStream(bos, deflater)) {
-                dos.write(data);
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                // InflaterInputStream only ends the inflaters it creates itself
+                inf.end();
             }
-            byte[] outputData = bos.toByteArray();
-            writeUInt32(os, outputData.length); // compressed size
-            os.write(outputData); // compressed body
-        } finally {
-            deflater.end();
         }
-    }
 
-    static void writeAll(@NonNull InputStream is, @NonNull OutputStream os) throws IOException {
-        byte[] buf = new byte[512];
-        int length;
-        while ((length = is.read(buf)) > 0) {
-            os.write(buf, 0, length);
+        private boolean fillBuffer() throws IOException {
+            int count = super.read(mBuffer, 0, mBuffer.length);
+            if (count <= 0) {
+                return false;
+            }
+            mBufferPosition = 0;
+            mBufferLength = count;
+            return true;
         }
     }
 
-    static @NonNull RuntimeException error(@Nullable String message) {
-        return new IllegalStateException(message);
+    /**
+     * Reads up to a fixed number of bytes from a stream, and leaves the stream open when closed.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        int mRemaining;
+
+        LimitedInputStream(@NonNull InputStream in, int length) {
+            super(in);
+            mRemaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (mRemaining <= 0) {
+                return -1;
+            }
+            int result = super.read();
+            if (result >= 0) {
+                mRemaining--;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(@NonNull byte[] b, int off, int len) throws IOException {
+            if (mRemaining <= 0) {
+                return -1;
+            }
+            int result = super.read(b, off, Math.min(len, mRemaining));
+            if (result > 0) {
+                mRemaining -= result;
+            }
+            return result;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return Math.min(super.available(), mRemaining);
+        }
+
+        @Override
+        public void close() {
+            // the rest of the underlying stream belongs to the caller
+        }
     }
 }
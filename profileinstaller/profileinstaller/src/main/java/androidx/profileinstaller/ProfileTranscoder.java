@@ -21,34 +21,38 @@ import static androidx.profileinstaller.Encoding.UINT_16_SIZE;
 import static androidx.profileinstaller.Encoding.UINT_32_SIZE;
 import static androidx.profileinstaller.Encoding.bitsToBytes;
 import static androidx.profileinstaller.Encoding.error;
+import static androidx.profileinstaller.Encoding.openCompressed;
 import static androidx.profileinstaller.Encoding.read;
-import static androidx.profileinstaller.Encoding.readCompressed;
 import static androidx.profileinstaller.Encoding.readString;
 import static androidx.profileinstaller.Encoding.readUInt16;
 import static androidx.profileinstaller.Encoding.readUInt32;
 import static androidx.profileinstaller.Encoding.readUInt8;
 import static androidx.profileinstaller.Encoding.utf8Length;
-import static androidx.profileinstaller.Encoding.writeCompressed;
 import static androidx.profileinstaller.Encoding.writeString;
 import static androidx.profileinstaller.Encoding.writeUInt16;
 import static androidx.profileinstaller.Encoding.writeUInt32;
 import static androidx.profileinstaller.Encoding.writeUInt8;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.BitSet;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 @RequiresApi(19)
 class ProfileTranscoder {
@@ -60,6 +64,9 @@ class ProfileTranscoder {
     private static final int POST_STARTUP = 1 << 2;
     private static final int INLINE_CACHE_MISSING_TYPES_ENCODING = 6;
     private static final int INLINE_CACHE_MEGAMORPHIC_ENCODING = 7;
+    // Dex files beyond the first one are encoded on up to this many worker threads
+    private static final int MAX_ENCODING_THREADS = 4;
+    private static final int COMPRESSION_BUFFER_SIZE = 8 * 1024;
 
     static final byte[] MAGIC_PROF = new byte[]{'p', 'r', 'o', '\u0000'};
     static final byte[] MAGIC_PROFM = new byte[]{'p', 'r', 'm', '\u0000'};
@@ -193,18 +200,16 @@ class ProfileTranscoder {
             @NonNull OutputStream os,
             @NonNull DexProfileData[] lines
     ) throws IOException {
-        byte[] profileBytes = createCompressibleBody(lines, ProfileVersion.V010_P);
         writeUInt8(os, lines.length); // number of dex files
-        writeCompressed(os, profileBytes);
+        writeCompressedBody(os, lines, ProfileVersion.V010_P);
     }
 
     private static void writeProfileForO_MR1(
             @NonNull OutputStream os,
             @NonNull DexProfileData[] lines
     ) throws IOException {
-        byte[] profileBytes = createCompressibleBody(lines, ProfileVersion.V009_O_MR1);
         writeUInt8(os, lines.length); // number of dex files
-        writeCompressed(os, profileBytes);
+        writeCompressedBody(os, lines, ProfileVersion.V009_O_MR1);
     }
 
     /**
@@ -266,22 +271,23 @@ class ProfileTranscoder {
     }
 
     /**
-     * Create compressable body only for V0.1.0 v0.0.9.
+     * Write compressable body only for V0.1.0 v0.0.9, preceded by its uncompressed and
+     * compressed sizes.
      *
      * For 0.1.0 this will write header/header/header/body/body/body
      * For 0.0.9 this will write header/body/header/body/header/body
+     *
+     * The body is fed to the deflater as it is encoded, and dex files other than the first one
+     * are encoded on worker threads meanwhile, so the uncompressed body is never held in memory
+     * all at once. Only the compressed body is buffered, since its size is written before it.
      */
-    private static @NonNull byte[] createCompressibleBody(
+    private static void writeCompressedBody(
+            @NonNull OutputStream os,
             @NonNull DexProfileData[] lines,
             @NonNull byte[] version
     ) throws IOException {
-        // Start by creating a couple of caches for the data we re-use during serialization.
-
         // The required capacity in bytes for the uncompressed profile data.
         int requiredCapacity = 0;
-        // Maps dex file to the size their method region will occupy. We need this when computing
-        // the overall size requirements and for serializing the dex file data. The computation is
-        // expensive as it walks all methods recorded in the profile.
         for (DexProfileData data : lines) {
             int lineHeaderSize =
                     (UINT_16_SIZE // classes set size
@@ -292,43 +298,132 @@ class ProfileTranscoder {
             String dexKey = generateDexKey(data.apkName, data.dexName, version);
             requiredCapacity += lineHeaderSize
                     + utf8Length(dexKey)
-                    + data.classSetSize * UINT_16_SIZE + data.hotMethodRegionSize
-                    + getMethodBitmapStorageSize(data.numMethodIds);
+                    + getLineDataSize(data);
+        }
+
+        ExecutorService executor = createLineDataExecutor(lines.length);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            Future<?>[] encodedLines = submitLineData(executor, lines);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            // buffered so that the deflater isn't called for each of the many small values
+            try (OutputStream dos = new BufferedOutputStream(
+                    new DeflaterOutputStream(compressed, deflater), COMPRESSION_BUFFER_SIZE)) {
+                // Dex files must be written in the order of their profile index. This
+                // avoids writing the index in the output file and simplifies the parsing logic.
+                if (Arrays.equals(version, ProfileVersion.V009_O_MR1)) {
+                    // interleave header/body/header/body on V009
+                    for (int i = 0; i < lines.length; i++) {
+                        DexProfileData data = lines[i];
+                        writeLineHeader(dos, data,
+                                generateDexKey(data.apkName, data.dexName, version));
+                        writeLineData(dos, lines, encodedLines, i);
+                    }
+                } else {
+                    // after V010 format is always header/header/header/body/body/body
+                    // Write dex file line headers.
+                    for (DexProfileData data : lines) {
+                        writeLineHeader(dos, data,
+                                generateDexKey(data.apkName, data.dexName, version));
+                    }
+
+                    // Write dex file data.
+                    for (int i = 0; i < lines.length; i++) {
+                        writeLineData(dos, lines, encodedLines, i);
+                    }
+                }
+            }
+
+            if (deflater.getBytesRead() != requiredCapacity) {
+                throw error("The bytes saved do not match expectation. actual="
+                        + deflater.getBytesRead() + " expected=" + requiredCapacity);
+            }
+            writeUInt32(os, requiredCapacity); // uncompressed size
+            writeUInt32(os, compressed.size()); // compressed size
+            compressed.writeTo(os); // compressed body
+        } finally {
+            deflater.end();
+            if (executor != null) {
+                executor.shutdownNow();
+            }
         }
+    }
 
-        // Start serializing the data.
-        ByteArrayOutputStream dataBos = new ByteArrayOutputStream(requiredCapacity);
+    /**
+     * Returns an executor to encode the data of all dex files but the first one, or null if it
+     * should all be encoded on the calling thread.
+     */
+    private static @Nullable ExecutorService createLineDataExecutor(int numberOfDexFiles) {
+        int threadCount = Math.min(
+                Math.min(numberOfDexFiles, Runtime.getRuntime().availableProcessors()) - 1,
+                MAX_ENCODING_THREADS
+        );
+        return threadCount > 0 ? Executors.newFixedThreadPool(threadCount) : null;
+    }
 
-        // Dex files must be written in the order of their profile index. This
-        // avoids writing the index in the output file and simplifies the parsing logic.
-        // Write profile line headers.
+    /**
+     * Starts encoding the data of all dex files but the first one, which is encoded when it is
+     * written since nothing can be written before it anyway.
+     *
+     * @return the pending data of each dex file, with null entries for the ones that are encoded
+     * when they are written
+     */
+    private static @NonNull Future<?>[] submitLineData(
+            @Nullable ExecutorService executor,
+            @NonNull DexProfileData[] lines
+    ) {
+        Future<?>[] encodedLines = new Future<?>[lines.length];
+        if (executor == null) {
+            return encodedLines;
+        }
+        for (int i = 1; i < lines.length; i++) {
+            final DexProfileData data = lines[i];
+            encodedLines[i] = executor.submit(() -> {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream(getLineDataSize(data));
+                writeLineData(bos, data);
+                return bos.toByteArray();
+            });
+        }
+        return encodedLines;
+    }
 
-        if (Arrays.equals(version, ProfileVersion.V009_O_MR1)) {
-            // interleave header/body/header/body on V009
-            for (DexProfileData data : lines) {
-                String dexKey = generateDexKey(data.apkName, data.dexName, version);
-                writeLineHeader(dataBos, data, dexKey);
-                writeLineData(dataBos, data);
-            }
-        } else {
-            // after V010 format is always header/header/header/body/body/body
-            // Write dex file line headers.
-            for (DexProfileData data : lines) {
-                String dexKey = generateDexKey(data.apkName, data.dexName, version);
-                writeLineHeader(dataBos, data, dexKey);
+    /**
+     * Writes the data of the dex file at the given index, waiting for it to be encoded if it was
+     * submitted by {@link #submitLineData}.
+     */
+    private static void writeLineData(
+            @NonNull OutputStream os,
+            @NonNull DexProfileData[] lines,
+            @NonNull Future<?>[] encodedLines,
+            int index
+    ) throws IOException {
+        Future<?> encoded = encodedLines[index];
+        if (encoded == null) {
+            writeLineData(os, lines[index]);
+            return;
+        }
+        // release the encoded data as soon as it is written
+        encodedLines[index] = null;
+        try {
+            os.write((byte[]) encoded.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while encoding the profile");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
             }
-
-            // Write dex file data.
-            for (DexProfileData data : lines) {
-                writeLineData(dataBos, data);
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
             }
+            throw error(String.valueOf(cause));
         }
+    }
 
-        if (dataBos.size() != requiredCapacity) {
-            throw error("The bytes saved do not match expectation. actual="
-                    + dataBos.size() + " expected=" + requiredCapacity);
-        }
-        return dataBos.toByteArray();
+    private static int getLineDataSize(@NonNull DexProfileData data) {
+        return data.classSetSize * UINT_16_SIZE + data.hotMethodRegionSize
+                + getMethodBitmapStorageSize(data.numMethodIds);
     }
 
     private static int getMethodBitmapStorageSize(int numMethodIds) {
@@ -519,17 +614,18 @@ class ProfileTranscoder {
         long compressedDataSize = readUInt32(is);
 
         // We are done with the header, so everything that follows is the compressed blob. We
-        // uncompress it all and load it into memory
-        byte[] uncompressedData = readCompressed(
+        // uncompress it as it is parsed
+        DexProfileData[] lines;
+        try (Encoding.UncompressedInputStream dataStream = openCompressed(
                 is,
                 (int) compressedDataSize,
                 (int) uncompressedDataSize
-        );
-        if (is.read() > 0) throw error("Content found after the end of file");
-
-        try (InputStream dataStream = new ByteArrayInputStream(uncompressedData)) {
-            return readUncompressedBody(dataStream, apkName, numberOfDexFiles);
+        )) {
+            lines = readUncompressedBody(dataStream, apkName, numberOfDexFiles);
+            dataStream.checkFinished();
         }
+        if (is.read() > 0) throw error("Content found after the end of file");
+        return lines;
     }
 
     /**
@@ -563,17 +659,18 @@ class ProfileTranscoder {
         long compressedDataSize = readUInt32(is);
 
         // We are done with the header, so everything that follows is the compressed blob. We
-        // uncompress it all and load it into memory
-        byte[] uncompressedData = readCompressed(
+        // uncompress it as it is parsed
+        DexProfileData[] lines;
+        try (Encoding.UncompressedInputStream dataStream = openCompressed(
                 is,
                 (int) compressedDataSize,
                 (int) uncompressedDataSize
-        );
-        if (is.read() > 0) throw error("Content found after the end of file");
-
-        try (InputStream dataStream = new ByteArrayInputStream(uncompressedData)) {
-            return readMetadataForNBody(dataStream, numberOfDexFiles, profile);
+        )) {
+            lines = readMetadataForNBody(dataStream, numberOfDexFiles, profile);
+            dataStream.checkFinished();
         }
+        if (is.read() > 0) throw error("Content found after the end of file");
+        return lines;
     }
 
     /**
@@ -27,10 +27,12 @@ import androidx.annotation.RequiresApi;
 
 import com.google.common.truth.Truth;
 
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -125,6 +127,41 @@ public class ProfileTranscoderTests {
         );
     }
 
+    @Test
+    public void testMultidexTranscodeForPRoundTrip() throws IOException {
+        DexProfileData[] expected;
+        try (InputStream is = new FileInputStream(testFile("baseline-multidex.prof"))) {
+            byte[] version = ProfileTranscoder.readHeader(is, MAGIC_PROF);
+            expected = ProfileTranscoder.readProfile(is, version, APK_NAME);
+        }
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ProfileTranscoder.writeHeader(os, ProfileVersion.V010_P);
+        ProfileTranscoder.transcodeAndWriteBody(os, ProfileVersion.V010_P, expected);
+
+        try (InputStream is = new ByteArrayInputStream(os.toByteArray())) {
+            byte[] version = ProfileTranscoder.readHeader(is, MAGIC_PROF);
+            DexProfileData[] actual = ProfileTranscoder.readProfile(is, version, APK_NAME);
+            Truth.assertThat(actual).hasLength(expected.length);
+            for (int i = 0; i < expected.length; i++) {
+                Truth.assertThat(actual[i].dexChecksum).isEqualTo(expected[i].dexChecksum);
+                Truth.assertThat(actual[i].classes).isEqualTo(expected[i].classes);
+                Truth.assertThat(actual[i].methods).isEqualTo(expected[i].methods);
+            }
+        }
+    }
+
+    @Test
+    public void testReadTruncatedProfile() throws IOException {
+        byte[] bytes = Files.readAllBytes(testFile("baseline-multidex.prof").toPath());
+        try (InputStream is = new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length / 2))) {
+            byte[] version = ProfileTranscoder.readHeader(is, MAGIC_PROF);
+            ProfileTranscoder.readProfile(is, version, APK_NAME);
+            Assert.fail("Truncated profile should not be read");
+        } catch (IllegalStateException | IOException expected) {
+            // expected
+        }
+    }
+
     private static File testFile(@NonNull String fileName) {
         return new File("src/test/test-data", fileName);
     }
@@ -18,6 +18,7 @@ package androidx.sqlite.inspection.test
 
 import androidx.sqlite.inspection.test.CountingDelegatingExecutorService.Event.FINISHED
 import androidx.sqlite.inspection.test.CountingDelegatingExecutorService.Event.STARTED
+import androidx.sqlite.inspection.test.MessageFactory.createQueryCommand
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.filters.MediumTest
 import androidx.test.platform.app.InstrumentationRegistry.getInstrumentation
@@ -68,6 +69,40 @@ class CancellationQueryTest {
         // check that task finished after cancellation
         assertThat(countingExecutorService.events.receive()).isEqualTo(FINISHED)
     }
+
+    @Test
+    fun test_streamed_query_cancellation() = runBlocking {
+        val db = Database("db", emptyList()).createInstance(temporaryFolder)
+        db.enableWriteAheadLogging()
+        val databaseId = environment.inspectDatabase(db)
+        val rowCount = 10000000
+        val rowBatchSize = 1000
+        val job = launch(Dispatchers.IO) {
+            environment.sendCommand(
+                createQueryCommand(
+                    databaseId,
+                    countingQuery(rowCount),
+                    rowBatchSize = rowBatchSize,
+                    streamId = 1
+                )
+            )
+        }
+        assertThat(countingExecutorService.events.receive()).isEqualTo(STARTED)
+        // cancelling once streaming has started
+        var event = environment.receiveEvent()
+        while (!event.hasQueryRowBatch()) event = environment.receiveEvent()
+        assertThat(event.queryRowBatch.firstRowIndex).isEqualTo(0)
+        job.cancelAndJoin()
+        assertThat(countingExecutorService.events.receive()).isEqualTo(FINISHED)
+
+        // the stream stopped partway: the last batch was never sent
+        val batches = generateSequence { environment.tryReceiveEvent() }
+            .filter { it.hasQueryRowBatch() }
+            .map { it.queryRowBatch }
+            .toList()
+        assertThat(batches.none { it.isLast }).isTrue()
+        assertThat(batches.sumOf { it.rowsCount } + rowBatchSize).isLessThan(rowCount)
+    }
 }
 
 class CountingDelegatingExecutorService(val executor: Executor) : Executor {
@@ -93,6 +128,12 @@ class CountingDelegatingExecutorService(val executor: Executor) : Executor {
     }
 }
 
+// language=SQLite
+private fun countingQuery(rowCount: Int) = """
+    WITH RECURSIVE c(x) AS (VALUES(1) UNION ALL SELECT x+1 FROM c WHERE x<$rowCount)
+    SELECT x FROM c;
+"""
+
 // https://sqlite.org/lang_with.html see "Outlandish Recursive Query"
 // language=SQLite
 private fun mandelbrotQuery(iterations: Int) = """
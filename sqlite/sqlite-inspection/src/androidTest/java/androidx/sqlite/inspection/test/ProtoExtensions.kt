@@ -70,7 +70,9 @@ object MessageFactory {
         databaseId: Int,
         query: String,
         queryParams: List<String?>? = null,
-        responseSizeLimitHint: Long? = null
+        responseSizeLimitHint: Long? = null,
+        rowBatchSize: Int? = null,
+        streamId: Int? = null
     ): Command =
         Command.newBuilder().setQuery(
             QueryCommand.newBuilder()
@@ -87,6 +89,8 @@ object MessageFactory {
                     if (responseSizeLimitHint != null) {
                         queryCommandBuilder.responseSizeLimitHint = responseSizeLimitHint
                     }
+                    if (rowBatchSize != null) queryCommandBuilder.rowBatchSize = rowBatchSize
+                    if (streamId != null) queryCommandBuilder.streamId = streamId
                 }
                 .build()
         ).build()
@@ -22,6 +22,7 @@ import androidx.sqlite.inspection.SqliteInspectorProtocol.CellValue
 import androidx.sqlite.inspection.SqliteInspectorProtocol.ErrorContent.ErrorCode.ERROR_ISSUE_WITH_PROCESSING_QUERY_VALUE
 import androidx.sqlite.inspection.SqliteInspectorProtocol.ErrorContent.ErrorCode.ERROR_NO_OPEN_DATABASE_WITH_REQUESTED_ID_VALUE
 import androidx.sqlite.inspection.SqliteInspectorProtocol.QueryResponse
+import androidx.sqlite.inspection.SqliteInspectorProtocol.QueryRowBatchEvent
 import androidx.sqlite.inspection.SqliteInspectorProtocol.Row
 import androidx.sqlite.inspection.test.MessageFactory.createGetSchemaCommand
 import androidx.sqlite.inspection.test.MessageFactory.createQueryCommand
@@ -424,6 +425,61 @@ class QueryTest {
         assertThat(batchCount.toDouble()).isLessThan(idealBatchCount * 1.3) // 30% tolerance
     }
 
+    @Test
+    fun test_streamed_query() = runBlocking {
+        val recordCount = 1000
+        val rowBatchSize = 64
+        val db = Database(
+            "db_streamed",
+            Table("table1", Column("c1", "integer"), Column("c2", "blob"), Column("c3", "text"))
+        ).createInstance(temporaryFolder, writeAheadLoggingEnabled = true)
+        val statement = db.compileStatement("insert into table1 values (?, ?, ?)")
+        repeat(recordCount) { ix ->
+            statement.bindLong(1, ix.toLong())
+            statement.bindBlob(2, ByteArray(16) { ix.toByte() })
+            statement.bindString(3, "text \u00e9\u4e2d\ud83d\ude00 $ix")
+            statement.executeInsert()
+        }
+
+        val dbId = inspectDatabase(db)
+        val response = testEnvironment.sendCommand(
+            createQueryCommand(
+                dbId,
+                "select * from table1",
+                rowBatchSize = rowBatchSize,
+                streamId = 7
+            )
+        )
+        assertThat(response.hasErrorOccurred()).isFalse()
+        assertThat(response.query.rowsList).isEmpty()
+        assertThat(response.query.columnNamesList).isEqualTo(listOf("c1", "c2", "c3"))
+        assertThat(response.query.streamedRowCount).isEqualTo(recordCount.toLong())
+
+        val batches = mutableListOf<QueryRowBatchEvent>()
+        while (batches.lastOrNull()?.isLast != true) {
+            val event = testEnvironment.receiveEvent()
+            if (event.hasQueryRowBatch()) batches.add(event.queryRowBatch)
+        }
+        assertThat(batches.first().columnNamesList).isEqualTo(listOf("c1", "c2", "c3"))
+        assertThat(batches.drop(1).all { it.columnNamesCount == 0 }).isTrue()
+        assertThat(batches.all { it.streamId == 7 && it.rowsCount <= rowBatchSize }).isTrue()
+        assertThat(batches.size).isEqualTo(recordCount / rowBatchSize + 1)
+
+        var rowIndex = 0L
+        batches.forEach { batch ->
+            assertThat(batch.firstRowIndex).isEqualTo(rowIndex)
+            batch.rowsList.forEach { row ->
+                assertThat(row.getValues(0).longValue).isEqualTo(rowIndex)
+                assertThat(row.getValues(1).blobValue.toByteArray())
+                    .isEqualTo(ByteArray(16) { rowIndex.toByte() })
+                assertThat(row.getValues(2).stringValue)
+                    .isEqualTo("text \u00e9\u4e2d\ud83d\ude00 $rowIndex")
+                rowIndex++
+            }
+        }
+        assertThat(rowIndex).isEqualTo(recordCount.toLong())
+    }
+
     /** Union of two queries (different column names) resulting in using first query columns. */
     @Test
     fun test_valid_query_two_table_union() {
@@ -84,6 +84,9 @@ class SqliteInspectorTestEnvironment(
         }
     }
 
+    fun tryReceiveEvent(): Event? =
+        inspectorTester.channel.tryReceive().getOrNull()?.let { Event.parseFrom(it) }
+
     fun registerAlreadyOpenDatabases(databases: List<SQLiteDatabase>) {
         artTooling.registerInstancesToFind(databases)
     }
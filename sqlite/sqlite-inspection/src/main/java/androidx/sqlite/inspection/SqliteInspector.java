@@ -29,6 +29,7 @@ import static androidx.sqlite.inspection.SqliteInspectorProtocol.ErrorContent.Er
 
 import android.annotation.SuppressLint;
 import android.app.Application;
+import android.database.AbstractWindowedCursor;
 import android.database.Cursor;
 import android.database.CursorWrapper;
 import android.database.DatabaseUtils;
@@ -41,6 +42,7 @@ import android.database.sqlite.SQLiteQuery;
 import android.database.sqlite.SQLiteStatement;
 import android.os.Build;
 import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -72,6 +74,7 @@ import androidx.sqlite.inspection.SqliteInspectorProtocol.KeepDatabasesOpenRespo
 import androidx.sqlite.inspection.SqliteInspectorProtocol.QueryCommand;
 import androidx.sqlite.inspection.SqliteInspectorProtocol.QueryParameterValue;
 import androidx.sqlite.inspection.SqliteInspectorProtocol.QueryResponse;
+import androidx.sqlite.inspection.SqliteInspectorProtocol.QueryRowBatchEvent;
 import androidx.sqlite.inspection.SqliteInspectorProtocol.ReleaseDatabaseLockCommand;
 import androidx.sqlite.inspection.SqliteInspectorProtocol.ReleaseDatabaseLockResponse;
 import androidx.sqlite.inspection.SqliteInspectorProtocol.Response;
@@ -80,6 +83,7 @@ import androidx.sqlite.inspection.SqliteInspectorProtocol.Table;
 import androidx.sqlite.inspection.SqliteInspectorProtocol.TrackDatabasesResponse;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 
 import java.io.File;
 import java.io.PrintWriter;
@@ -135,6 +139,9 @@ final class SqliteInspector extends Inspector {
 
     private static final int INVALIDATION_MIN_INTERVAL_MS = 1000;
 
+    // Size after which a row batch is sent regardless of QueryCommand#getRowBatchSize
+    private static final long ROW_BATCH_SIZE_LIMIT_BYTES = 1024 * 1024;
+
     // Note: this only works on API26+ because of pragma_* functions
     // TODO: replace with a resource file
     // language=SQLite
@@ -630,15 +637,22 @@ final class SqliteInspector extends Inspector {
                     if (responseSizeLimitHint <= 0) responseSizeLimitHint = Long.MAX_VALUE;
 
                     List<String> columnNames = Arrays.asList(cursor.getColumnNames());
+                    QueryResponse.Builder responseBuilder = QueryResponse.newBuilder()
+                            .addAllColumnNames(columnNames);
+                    if (command.getRowBatchSize() > 0) {
+                        responseBuilder.setStreamedRowCount(streamRows(cursor, command,
+                                columnNames, responseSizeLimitHint, cancellationSignal));
+                    } else {
+                        responseBuilder.addAllRows(convert(cursor, responseSizeLimitHint));
+                    }
                     callback.reply(Response.newBuilder()
-                            .setQuery(QueryResponse.newBuilder()
-                                    .addAllRows(convert(cursor, responseSizeLimitHint))
-                                    .addAllColumnNames(columnNames)
-                                    .build())
+                            .setQuery(responseBuilder.build())
                             .build()
                             .toByteArray()
                     );
                     triggerInvalidation(command.getQuery());
+                } catch (OperationCanceledException e) {
+                    // the command was cancelled by the client, which no longer expects a reply
                 } catch (SQLiteException | IllegalArgumentException e) {
                     callback.reply(createErrorOccurredResponse(e, true,
                             ERROR_ISSUE_WITH_PROCESSING_QUERY).toByteArray());
@@ -774,12 +788,7 @@ final class SqliteInspector extends Inspector {
         List<Row> result = new ArrayList<>();
         int columnCount = cursor.getColumnCount();
         while (cursor.moveToNext() && responseSize < responseSizeLimitHint) {
-            Row.Builder rowBuilder = Row.newBuilder();
-            for (int i = 0; i < columnCount; i++) {
-                CellValue value = readValue(cursor, i);
-                rowBuilder.addValues(value);
-            }
-            Row row = rowBuilder.build();
+            Row row = readRow(cursor, columnCount);
             // Optimistically adding a row before checking the limit. Eliminates the case when a
             // misconfigured client (limit too low) is unable to fetch any results. Row size in
             // SQLite Android is limited to (~2MB), so the worst case scenario is very manageable.
@@ -789,6 +798,62 @@ final class SqliteInspector extends Inspector {
         return result;
     }
 
+    /**
+     * Sends the rows of the cursor in {@link QueryRowBatchEvent}s, so that memory usage is bounded
+     * by the size of a batch rather than by the size of the result set. Cell values are only read
+     * from the cursor when the batch they belong to is built, and batches are released as soon as
+     * they are sent.
+     *
+     * @param responseSizeLimitHint expressed in bytes, applies to all the batches combined
+     * @return the number of rows sent
+     */
+    private long streamRows(Cursor cursor, QueryCommand command, List<String> columnNames,
+            long responseSizeLimitHint, CancellationSignal cancellationSignal) {
+        int rowBatchSize = command.getRowBatchSize();
+        int columnCount = cursor.getColumnCount();
+        long rowCount = 0;
+        long responseSize = 0;
+        long batchSize = 0;
+        QueryRowBatchEvent.Builder batch = QueryRowBatchEvent.newBuilder()
+                .setStreamId(command.getStreamId())
+                .addAllColumnNames(columnNames);
+        while (responseSize < responseSizeLimitHint && cursor.moveToNext()) {
+            Row row = readRow(cursor, columnCount);
+            batch.addRows(row);
+            rowCount++;
+            responseSize += row.getSerializedSize();
+            batchSize += row.getSerializedSize();
+            if (batch.getRowsCount() >= rowBatchSize || batchSize >= ROW_BATCH_SIZE_LIMIT_BYTES) {
+                // the cursor only checks for cancellation when it fills its window, so check
+                // here as well to stop promptly when all the rows fit in a single window
+                cancellationSignal.throwIfCanceled();
+                sendRowBatch(batch);
+                batch = QueryRowBatchEvent.newBuilder()
+                        .setStreamId(command.getStreamId())
+                        .setFirstRowIndex(rowCount);
+                batchSize = 0;
+            }
+        }
+        cancellationSignal.throwIfCanceled();
+        sendRowBatch(batch.setIsLast(true));
+        return rowCount;
+    }
+
+    private void sendRowBatch(QueryRowBatchEvent.Builder batch) {
+        getConnection().sendEvent(Event.newBuilder()
+                .setQueryRowBatch(batch)
+                .build()
+                .toByteArray());
+    }
+
+    private static Row readRow(Cursor cursor, int columnCount) {
+        Row.Builder rowBuilder = Row.newBuilder();
+        for (int i = 0; i < columnCount; i++) {
+            rowBuilder.addValues(readValue(cursor, i));
+        }
+        return rowBuilder.build();
+    }
+
     private static CellValue readValue(Cursor cursor, int index) {
         CellValue.Builder builder = CellValue.newBuilder();
 
@@ -797,10 +862,16 @@ final class SqliteInspector extends Inspector {
                 // no field to set
                 break;
             case Cursor.FIELD_TYPE_BLOB:
-                builder.setBlobValue(ByteString.copyFrom(cursor.getBlob(index)));
+                // getBlob returns a new array, so it can be wrapped instead of copied
+                builder.setBlobValue(UnsafeByteOperations.unsafeWrap(cursor.getBlob(index)));
                 break;
             case Cursor.FIELD_TYPE_STRING:
-                builder.setStringValue(cursor.getString(index));
+                ByteString text = readUtf8Text(cursor, index);
+                if (text != null) {
+                    builder.setStringValueBytes(text);
+                } else {
+                    builder.setStringValue(cursor.getString(index));
+                }
                 break;
             case Cursor.FIELD_TYPE_INTEGER:
                 builder.setLongValue(cursor.getLong(index));
@@ -813,6 +884,22 @@ final class SqliteInspector extends Inspector {
         return builder.build();
     }
 
+    /**
+     * Returns a TEXT cell as the UTF-8 bytes stored in the cursor window, so that it is written
+     * to the response as is, instead of being decoded to a String and encoded back to UTF-8.
+     *
+     * @return the text, or null if the cursor doesn't store it as valid UTF-8
+     */
+    @Nullable
+    private static ByteString readUtf8Text(Cursor cursor, int index) {
+        if (!(cursor instanceof AbstractWindowedCursor)) return null;
+        // CursorWindow stores TEXT as UTF-8 followed by a null terminator, which getBlob returns
+        byte[] bytes = cursor.getBlob(index);
+        if (bytes == null || bytes.length == 0 || bytes[bytes.length - 1] != 0) return null;
+        ByteString text = UnsafeByteOperations.unsafeWrap(bytes, 0, bytes.length - 1);
+        return text.isValidUtf8() ? text : null;
+    }
+
     private void replyNoDatabaseWithId(CommandCallback callback, int databaseId) {
         String message = String.format("Unable to perform an operation on database (id=%s)."
                 + " The database may have already been closed.", databaseId);
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup
+
+import android.content.Context
+import android.os.Bundle
+import android.os.Handler
+import android.os.Looper
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.MediumTest
+import androidx.test.platform.app.InstrumentationRegistry
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.CoreMatchers.containsString
+import org.hamcrest.CoreMatchers.not
+import org.hamcrest.CoreMatchers.notNullValue
+import org.hamcrest.CoreMatchers.nullValue
+import org.junit.Assert.assertThat
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+@RunWith(AndroidJUnit4::class)
+@MediumTest
+class ParallelInitializationTest {
+
+    private lateinit var context: Context
+    private lateinit var appInitializer: AppInitializer
+
+    @Before
+    fun setUp() {
+        context = ApplicationProvider.getApplicationContext()
+        appInitializer = AppInitializer(context)
+        ConcurrentInitializer.latch = CountDownLatch(2)
+        created.clear()
+    }
+
+    @Test
+    fun independentInitializersAreCreatedConcurrently() {
+        appInitializer.discoverAndInitialize(
+            parallelMetadata(
+                FirstConcurrentInitializer::class.java,
+                SecondConcurrentInitializer::class.java
+            )
+        )
+
+        // Each initializer waits for the other one to start.
+        val first = appInitializer.mInitialized[FirstConcurrentInitializer::class.java]
+        val second = appInitializer.mInitialized[SecondConcurrentInitializer::class.java]
+        assertThat(first, `is`(true as Any))
+        assertThat(second, `is`(true as Any))
+    }
+
+    @Test
+    fun mainThreadInitializerIsCreatedOnCallingThread() {
+        appInitializer.discoverAndInitialize(
+            parallelMetadata(MainThreadInitializer::class.java, ThreadInitializer::class.java)
+        )
+
+        assertThat(
+            appInitializer.mInitialized[MainThreadInitializer::class.java],
+            `is`(Thread.currentThread() as Any)
+        )
+        assertThat(
+            appInitializer.mInitialized[ThreadInitializer::class.java],
+            not(`is`(Thread.currentThread() as Any))
+        )
+    }
+
+    @Test
+    fun initializerWithoutBackgroundSupportIsCreatedOnMainThread() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            appInitializer.discoverAndInitialize(
+                parallelMetadata(LooperInitializer::class.java, ThreadInitializer::class.java)
+            )
+        }
+
+        val handler = appInitializer.mInitialized[LooperInitializer::class.java] as Handler
+        assertThat(handler.looper, `is`(Looper.getMainLooper()))
+        assertThat(
+            appInitializer.mInitialized[ThreadInitializer::class.java],
+            not(`is`(Looper.getMainLooper().thread as Any))
+        )
+    }
+
+    @Test
+    fun dependenciesAreCreatedFirst() {
+        appInitializer.discoverAndInitialize(parallelMetadata(DependentInitializer::class.java))
+
+        assertThat(appInitializer.mInitialized.size, `is`(2))
+        assertTrue(appInitializer.mInitialized.containsKey(SlowInitializer::class.java))
+        assertThat(
+            appInitializer.mInitialized[DependentInitializer::class.java],
+            `is`(true as Any)
+        )
+        // Only the discovered initializer is eagerly initialized.
+        assertTrue(appInitializer.isEagerlyInitialized(DependentInitializer::class.java))
+    }
+
+    @Test
+    fun timingsRecordCriticalPath() {
+        appInitializer.discoverAndInitialize(
+            parallelMetadata(DependentInitializer::class.java, ThreadInitializer::class.java)
+        )
+
+        val timings = appInitializer.initializationTimings
+        assertThat(timings, notNullValue())
+        assertThat(timings!!.wallTimesNanos.size, `is`(3))
+        assertTrue(
+            timings.wallTimesNanos[SlowInitializer::class.java]!! >=
+                TimeUnit.MILLISECONDS.toNanos(SlowInitializer.SLEEP_MILLIS)
+        )
+        assertThat(
+            timings.criticalPath,
+            `is`(listOf(SlowInitializer::class.java, DependentInitializer::class.java))
+        )
+        assertTrue(
+            timings.criticalPathNanos >=
+                TimeUnit.MILLISECONDS.toNanos(SlowInitializer.SLEEP_MILLIS)
+        )
+        assertTrue(timings.totalNanos >= timings.criticalPathNanos)
+    }
+
+    @Test
+    fun noTimingsWithoutParallelInitialization() {
+        val metadata = Bundle()
+        metadata.putString(ThreadInitializer::class.java.name, STARTUP)
+        appInitializer.discoverAndInitialize(metadata)
+
+        assertTrue(appInitializer.mInitialized.containsKey(ThreadInitializer::class.java))
+        assertThat(appInitializer.initializationTimings, nullValue())
+    }
+
+    @Test
+    fun cyclicDependencies() {
+        try {
+            appInitializer.discoverAndInitialize(
+                parallelMetadata(CyclicDependencyInitializer::class.java)
+            )
+            fail()
+        } catch (exception: StartupException) {
+            assertThat(exception.localizedMessage, containsString("Cycle detected."))
+        }
+    }
+
+    @Test
+    fun failedInitializer() {
+        try {
+            appInitializer.discoverAndInitialize(
+                parallelMetadata(FailingInitializer::class.java, DependentInitializer::class.java)
+            )
+            fail()
+        } catch (exception: StartupException) {
+            assertThat(exception.cause?.message, `is`(FailingInitializer.MESSAGE))
+        }
+        assertThat(appInitializer.initializationTimings, nullValue())
+    }
+
+    private fun parallelMetadata(vararg components: Class<out Initializer<*>>): Bundle {
+        val metadata = Bundle()
+        for (component in components) {
+            metadata.putString(component.name, STARTUP)
+        }
+        metadata.putBoolean(PARALLEL_INITIALIZATION, true)
+        return metadata
+    }
+
+    /**
+     * Waits for another [ConcurrentInitializer] to be created, and returns whether it was.
+     */
+    abstract class ConcurrentInitializer : Initializer<Boolean> {
+        override fun create(context: Context): Boolean {
+            latch.countDown()
+            return latch.await(5, TimeUnit.SECONDS)
+        }
+
+        override fun dependencies(): List<Class<out Initializer<*>>> = emptyList()
+
+        override fun isBackgroundThreadSupported(): Boolean = true
+
+        companion object {
+            lateinit var latch: CountDownLatch
+        }
+    }
+
+    class FirstConcurrentInitializer : ConcurrentInitializer()
+
+    class SecondConcurrentInitializer : ConcurrentInitializer()
+
+    /**
+     * Returns the thread it was created on.
+     */
+    open class ThreadInitializer : Initializer<Thread> {
+        override fun create(context: Context): Thread = Thread.currentThread()
+
+        override fun dependencies(): List<Class<out Initializer<*>>> = emptyList()
+
+        override fun isBackgroundThreadSupported(): Boolean = true
+    }
+
+    class MainThreadInitializer : ThreadInitializer() {
+        override fun isBackgroundThreadSupported(): Boolean = false
+    }
+
+    /**
+     * Needs a [Looper] on the thread it is created on, like most initializers that post to a
+     * [Handler], and uses the default [isBackgroundThreadSupported].
+     */
+    class LooperInitializer : Initializer<Handler> {
+        override fun create(context: Context): Handler =
+            Handler(checkNotNull(Looper.myLooper()) { "No Looper on this thread" })
+
+        override fun dependencies(): List<Class<out Initializer<*>>> = emptyList()
+    }
+
+    class SlowInitializer : Initializer<Unit> {
+        override fun create(context: Context) {
+            Thread.sleep(SLEEP_MILLIS)
+            created.add(SlowInitializer::class.java)
+        }
+
+        override fun dependencies(): List<Class<out Initializer<*>>> = emptyList()
+
+        companion object {
+            const val SLEEP_MILLIS = 50L
+        }
+    }
+
+    /**
+     * Returns whether its dependency was created before it.
+     */
+    class DependentInitializer : Initializer<Boolean> {
+        override fun create(context: Context): Boolean =
+            created.contains(SlowInitializer::class.java)
+
+        override fun dependencies(): List<Class<out Initializer<*>>> =
+            listOf(SlowInitializer::class.java)
+    }
+
+    class FailingInitializer : Initializer<Unit> {
+        override fun create(context: Context) {
+            throw IllegalStateException(MESSAGE)
+        }
+
+        override fun dependencies(): List<Class<out Initializer<*>>> = emptyList()
+
+        companion object {
+            const val MESSAGE = "Failing initializer"
+        }
+    }
+
+    companion object {
+        const val STARTUP = "androidx.startup"
+        const val PARALLEL_INITIALIZATION = "androidx.startup.PARALLEL_INITIALIZATION"
+
+        // The initializers created so far, by the initializers that record it.
+        val created: MutableSet<Class<*>> = Collections.synchronizedSet(mutableSetOf())
+    }
+}
@@ -38,6 +38,17 @@ import java.util.Set;
  * An {@link AppInitializer} can be used to initialize all discovered [ComponentInitializer]s.
  * <br/>
  * The discovery mechanism is via `<meta-data>` entries in the merged `AndroidManifest.xml`.
+ * <br/>
+ * By default, the discovered {@link Initializer}s are initialized one after the other on the main
+ * thread. Apps can opt into parallel initialization with a
+ * `<meta-data android:name="androidx.startup.PARALLEL_INITIALIZATION" android:value="true" />`
+ * entry in the {@link InitializationProvider}. The discovered {@link Initializer}s that don't
+ * depend on each other and whose {@link Initializer#isBackgroundThreadSupported()} returns
+ * <code>true</code> are then created concurrently on a bounded pool of background threads. The
+ * other ones are created on the calling thread.
+ * In this mode, {@link Initializer}s must declare all the discovered {@link Initializer}s that
+ * they use in {@link Initializer#dependencies()}, and the timings of the initialization are
+ * available with {@link #getInitializationTimings()}.
  */
 @SuppressWarnings("WeakerAccess")
 public final class AppInitializer {
@@ -45,6 +56,10 @@ public final class AppInitializer {
     // Tracing
     private static final String SECTION_NAME = "Startup";
 
+    // The meta-data key enabling parallel initialization.
+    private static final String PARALLEL_INITIALIZATION =
+            "androidx.startup.PARALLEL_INITIALIZATION";
+
     /**
      * The {@link AppInitializer} instance.
      */
@@ -64,6 +79,9 @@ public final class AppInitializer {
     @NonNull
     final Context mContext;
 
+    @Nullable
+    private volatile InitializationTimings mInitializationTimings;
+
     /**
      * Creates an instance of {@link AppInitializer}
      *
@@ -127,6 +145,33 @@ public final class AppInitializer {
         return mDiscovered.contains(component);
     }
 
+    /**
+     * Returns the timings of the discovered {@link Initializer}s, if they were initialized in
+     * parallel. See {@link AppInitializer} to enable parallel initialization.
+     *
+     * @return The {@link InitializationTimings}, or <code>null</code> if the discovered
+     * {@link Initializer}s weren't initialized in parallel.
+     */
+    @Nullable
+    public InitializationTimings getInitializationTimings() {
+        return mInitializationTimings;
+    }
+
+    boolean isInitialized(@NonNull Class<? extends Initializer<?>> component) {
+        synchronized (sLock) {
+            return mInitialized.containsKey(component);
+        }
+    }
+
+    void setInitialized(@NonNull Class<? extends Initializer<?>> component,
+            @Nullable Object result) {
+        synchronized (sLock) {
+            if (!mInitialized.containsKey(component)) {
+                mInitialized.put(component, result);
+            }
+        }
+    }
+
     @NonNull
     @SuppressWarnings({"unchecked", "TypeParameterUnusedInFormals"})
     <T> T doInitialize(
@@ -207,6 +252,9 @@ public final class AppInitializer {
                 Set<Class<?>> initializing = new HashSet<>();
                 Set<String> keys = metadata.keySet();
                 for (String key : keys) {
+                    if (PARALLEL_INITIALIZATION.equals(key)) {
+                        continue;
+                    }
                     String value = metadata.getString(key, null);
                     if (startup.equals(value)) {
                         Class<?> clazz = Class.forName(key);
@@ -222,8 +270,13 @@ public final class AppInitializer {
                 }
                 // Initialize only after discovery is complete. This way, the check for
                 // isEagerlyInitialized is correct.
-                for (Class<? extends Initializer<?>> component : mDiscovered) {
-                    doInitialize(component, initializing);
+                if (metadata.getBoolean(PARALLEL_INITIALIZATION, false)) {
+                    mInitializationTimings =
+                            new ParallelInitializer(this, mContext).initialize(mDiscovered);
+                } else {
+                    for (Class<? extends Initializer<?>> component : mDiscovered) {
+                        doInitialize(component, initializing);
+                    }
                 }
             }
         } catch (ClassNotFoundException exception) {
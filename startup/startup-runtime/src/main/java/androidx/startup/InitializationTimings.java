@@ -0,0 +1,83 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The wall times of the {@link Initializer}s run in parallel by {@link AppInitializer}, see
+ * {@link AppInitializer#getInitializationTimings()}.
+ */
+public final class InitializationTimings {
+
+    private final Map<Class<? extends Initializer<?>>, Long> mWallTimesNanos;
+    private final List<Class<? extends Initializer<?>>> mCriticalPath;
+    private final long mCriticalPathNanos;
+    private final long mTotalNanos;
+
+    InitializationTimings(
+            @NonNull Map<Class<? extends Initializer<?>>, Long> wallTimesNanos,
+            @NonNull List<Class<? extends Initializer<?>>> criticalPath,
+            long criticalPathNanos,
+            long totalNanos) {
+        mWallTimesNanos = Collections.unmodifiableMap(wallTimesNanos);
+        mCriticalPath = Collections.unmodifiableList(criticalPath);
+        mCriticalPathNanos = criticalPathNanos;
+        mTotalNanos = totalNanos;
+    }
+
+    /**
+     * Returns the wall times of {@link Initializer#create(android.content.Context)} of each
+     * {@link Initializer} that was run, excluding the time taken by their dependencies.
+     *
+     * @return The wall times in nanoseconds, by {@link Initializer} class
+     */
+    @NonNull
+    public Map<Class<? extends Initializer<?>>, Long> getWallTimesNanos() {
+        return mWallTimesNanos;
+    }
+
+    /**
+     * Returns the chain of dependent {@link Initializer}s with the longest sum of wall times,
+     * which bounds the duration of the initialization however many threads are used.
+     *
+     * @return The {@link Initializer} classes of the critical path, in initialization order
+     */
+    @NonNull
+    public List<Class<? extends Initializer<?>>> getCriticalPath() {
+        return mCriticalPath;
+    }
+
+    /**
+     * @return The sum of the wall times of the {@link Initializer}s of the critical path, in
+     * nanoseconds.
+     */
+    public long getCriticalPathNanos() {
+        return mCriticalPathNanos;
+    }
+
+    /**
+     * @return The wall time of the whole initialization, in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return mTotalNanos;
+    }
+}
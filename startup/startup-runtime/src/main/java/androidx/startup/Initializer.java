@@ -47,4 +47,19 @@ public interface Initializer<T> {
      */
     @NonNull
     List<Class<? extends Initializer<?>>> dependencies();
+
+    /**
+     * Returns <code>true</code> if this {@link Initializer} can be created on a background thread.
+     * <br/>
+     * This is only used when the app enables parallel initialization, see
+     * {@link AppInitializer}. {@link Initializer}s are then created on the calling thread,
+     * usually the main thread, unless this returns <code>true</code>. {@link Initializer}s that
+     * don't override this, including the ones compiled against an earlier version of this
+     * interface, are always created on the calling thread.
+     *
+     * @return <code>true</code> if {@link #create(Context)} can be called on a background thread.
+     */
+    default boolean isBackgroundThreadSupported() {
+        return false;
+    }
 }
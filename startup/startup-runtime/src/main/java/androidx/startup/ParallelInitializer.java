@@ -0,0 +1,349 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.tracing.Trace;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Initializes a set of {@link Initializer}s and their dependencies, creating the ones that don't
+ * depend on each other concurrently on a bounded pool of threads, see {@link AppInitializer}.
+ * <p>
+ * The graph of the {@link Initializer}s is built and scheduled on the calling thread, which also
+ * creates the {@link Initializer}s that don't support background threads. The threads of the pool
+ * only call {@link Initializer#create(Context)}, then post the completion back to the calling
+ * thread.
+ */
+final class ParallelInitializer {
+
+    // Tracing
+    private static final String CRITICAL_PATH_SECTION_NAME = "Startup critical path: ";
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+
+    // The main thread is busy too, but there are always background threads to overlap with it.
+    private static final int MIN_THREADS = 2;
+    private static final int MAX_THREADS = 4;
+
+    @NonNull
+    private final AppInitializer mAppInitializer;
+
+    @NonNull
+    private final Context mContext;
+
+    // The Initializers to create, in the order they were discovered.
+    @NonNull
+    private final Map<Class<? extends Initializer<?>>, Node> mNodes = new LinkedHashMap<>();
+
+    // The tasks to run on the calling thread.
+    @NonNull
+    private final BlockingQueue<Runnable> mCallingThreadTasks = new LinkedBlockingQueue<>();
+
+    @Nullable
+    private ExecutorService mExecutor;
+
+    // The number of Initializers being created, or waiting to be.
+    private int mRunningCount;
+
+    @Nullable
+    private Throwable mFailure;
+
+    /**
+     * An {@link Initializer} of the graph.
+     */
+    private static final class Node {
+        @NonNull
+        final Class<? extends Initializer<?>> mComponent;
+        @NonNull
+        final Initializer<?> mInitializer;
+        // The dependencies that aren't initialized yet.
+        @NonNull
+        final List<Node> mDependencies = new ArrayList<>();
+        @NonNull
+        final List<Node> mDependents = new ArrayList<>();
+        int mPendingDependencyCount;
+
+        long mWallTimeNanos;
+        // The longest sum of wall times of a chain of dependencies ending with this node, and the
+        // previous node of this chain.
+        long mPathNanos;
+        @Nullable
+        Node mPathPrevious;
+
+        Node(@NonNull Class<? extends Initializer<?>> component,
+                @NonNull Initializer<?> initializer) {
+            mComponent = component;
+            mInitializer = initializer;
+        }
+    }
+
+    ParallelInitializer(@NonNull AppInitializer appInitializer, @NonNull Context context) {
+        mAppInitializer = appInitializer;
+        mContext = context;
+    }
+
+    /**
+     * Initializes the given {@link Initializer}s and their dependencies, except the ones that are
+     * already initialized.
+     *
+     * @return The timings of the {@link Initializer}s that were created
+     * @throws StartupException if an {@link Initializer} can't be created, or if the
+     *                          dependencies have a cycle
+     */
+    @NonNull
+    InitializationTimings initialize(
+            @NonNull Set<Class<? extends Initializer<?>>> components) {
+        long startNanos = System.nanoTime();
+        try {
+            Set<Class<?>> visiting = new HashSet<>();
+            for (Class<? extends Initializer<?>> component : components) {
+                addNode(component, visiting);
+            }
+
+            for (Node node : mNodes.values()) {
+                if (node.mPendingDependencyCount == 0) {
+                    dispatch(node);
+                }
+            }
+            while (mRunningCount > 0) {
+                mCallingThreadTasks.take().run();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new StartupException(exception);
+        } catch (Throwable throwable) {
+            throw new StartupException(throwable);
+        } finally {
+            if (mExecutor != null) {
+                mExecutor.shutdown();
+            }
+        }
+        if (mFailure != null) {
+            throw new StartupException(mFailure);
+        }
+        return createTimings(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Adds the node of the given {@link Initializer} and of its dependencies to the graph, unless
+     * they are already initialized.
+     *
+     * @return The node, or null if the {@link Initializer} is already initialized.
+     */
+    @Nullable
+    private Node addNode(@NonNull Class<? extends Initializer<?>> component,
+            @NonNull Set<Class<?>> visiting) throws NoSuchMethodException,
+            InstantiationException, IllegalAccessException, InvocationTargetException {
+        if (visiting.contains(component)) {
+            String message = String.format(
+                    "Cannot initialize %s. Cycle detected.", component.getName()
+            );
+            throw new IllegalStateException(message);
+        }
+        Node node = mNodes.get(component);
+        if (node != null || mAppInitializer.isInitialized(component)) {
+            return node;
+        }
+
+        visiting.add(component);
+        Initializer<?> initializer = component.getDeclaredConstructor().newInstance();
+        node = new Node(component, initializer);
+        for (Class<? extends Initializer<?>> clazz : initializer.dependencies()) {
+            Node dependency = addNode(clazz, visiting);
+            if (dependency != null && !node.mDependencies.contains(dependency)) {
+                node.mDependencies.add(dependency);
+                dependency.mDependents.add(node);
+            }
+        }
+        node.mPendingDependencyCount = node.mDependencies.size();
+        visiting.remove(component);
+        mNodes.put(component, node);
+        return node;
+    }
+
+    /**
+     * Creates the {@link Initializer} of the given node on the pool if it supports background
+     * threads, or on the calling thread otherwise.
+     */
+    private void dispatch(@NonNull final Node node) {
+        mRunningCount++;
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                create(node);
+            }
+        };
+        if (node.mInitializer.isBackgroundThreadSupported()) {
+            if (mExecutor == null) {
+                mExecutor = createExecutor();
+            }
+            mExecutor.execute(task);
+        } else {
+            mCallingThreadTasks.add(task);
+        }
+    }
+
+    /**
+     * Creates the {@link Initializer} of the given node, on any thread.
+     */
+    private void create(@NonNull final Node node) {
+        Object result = null;
+        Throwable failure = null;
+        long wallTimeNanos = 0;
+        boolean isTracingEnabled = Trace.isEnabled();
+        try {
+            if (isTracingEnabled) {
+                // Use the simpleName here because section names would get too big otherwise.
+                Trace.beginSection(node.mComponent.getSimpleName());
+            }
+            // An Initializer created earlier could have initialized it with initializeComponent.
+            if (!mAppInitializer.isInitialized(node.mComponent)) {
+                if (StartupLogger.DEBUG) {
+                    StartupLogger.i(String.format("Initializing %s", node.mComponent.getName()));
+                }
+                long startNanos = System.nanoTime();
+                result = node.mInitializer.create(mContext);
+                wallTimeNanos = System.nanoTime() - startNanos;
+                if (StartupLogger.DEBUG) {
+                    StartupLogger.i(String.format("Initialized %s", node.mComponent.getName()));
+                }
+                mAppInitializer.setInitialized(node.mComponent, result);
+            }
+        } catch (Throwable throwable) {
+            failure = throwable;
+        } finally {
+            if (isTracingEnabled) {
+                Trace.endSection();
+            }
+        }
+
+        final long finalWallTimeNanos = wallTimeNanos;
+        final Throwable finalFailure = failure;
+        mCallingThreadTasks.add(new Runnable() {
+            @Override
+            public void run() {
+                onCreated(node, finalWallTimeNanos, finalFailure);
+            }
+        });
+    }
+
+    /**
+     * Called on the calling thread once the {@link Initializer} of the given node was created,
+     * to dispatch the nodes that were waiting for it.
+     */
+    private void onCreated(@NonNull Node node, long wallTimeNanos, @Nullable Throwable failure) {
+        mRunningCount--;
+        if (failure != null) {
+            // Let the Initializers being created complete, but don't start new ones.
+            if (mFailure == null) {
+                mFailure = failure;
+            }
+            return;
+        }
+
+        node.mWallTimeNanos = wallTimeNanos;
+        node.mPathNanos = wallTimeNanos;
+        for (Node dependency : node.mDependencies) {
+            if (node.mPathPrevious == null
+                    || dependency.mPathNanos > node.mPathPrevious.mPathNanos) {
+                node.mPathPrevious = dependency;
+            }
+        }
+        if (node.mPathPrevious != null) {
+            node.mPathNanos += node.mPathPrevious.mPathNanos;
+        }
+
+        if (mFailure == null) {
+            for (Node dependent : node.mDependents) {
+                if (--dependent.mPendingDependencyCount == 0) {
+                    dispatch(dependent);
+                }
+            }
+        }
+    }
+
+    @NonNull
+    private InitializationTimings createTimings(long totalNanos) {
+        Map<Class<? extends Initializer<?>>, Long> wallTimesNanos = new HashMap<>();
+        Node last = null;
+        for (Node node : mNodes.values()) {
+            wallTimesNanos.put(node.mComponent, node.mWallTimeNanos);
+            if (last == null || node.mPathNanos > last.mPathNanos) {
+                last = node;
+            }
+        }
+
+        List<Class<? extends Initializer<?>>> criticalPath = new ArrayList<>();
+        for (Node node = last; node != null; node = node.mPathPrevious) {
+            criticalPath.add(node.mComponent);
+        }
+        Collections.reverse(criticalPath);
+        long criticalPathNanos = last != null ? last.mPathNanos : 0;
+
+        if (!criticalPath.isEmpty() && Trace.isEnabled()) {
+            // An empty section, whose name shows the critical path in the trace.
+            StringBuilder name = new StringBuilder(CRITICAL_PATH_SECTION_NAME);
+            for (int i = 0; i < criticalPath.size(); i++) {
+                if (i > 0) {
+                    name.append(" > ");
+                }
+                name.append(criticalPath.get(i).getSimpleName());
+            }
+            name.append(String.format(" (%d us)", criticalPathNanos / 1000));
+            if (name.length() > MAX_SECTION_NAME_LENGTH) {
+                name.setLength(MAX_SECTION_NAME_LENGTH);
+            }
+            Trace.beginSection(name.toString());
+            Trace.endSection();
+        }
+        return new InitializationTimings(wallTimesNanos, criticalPath, criticalPathNanos,
+                totalNanos);
+    }
+
+    @NonNull
+    private static ExecutorService createExecutor() {
+        int threadCount = Math.max(MIN_THREADS,
+                Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors() - 1));
+        return Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+            private final AtomicInteger mThreadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable,
+                        "AppInitializer-" + mThreadCount.incrementAndGet());
+            }
+        });
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.tracing.benchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.tracing.InProcessTracing;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures the overhead of recording a section with {@link InProcessTracing}, on a single thread
+ * and on threads recording concurrently, and the time to dump full buffers.
+ * <p>
+ * This runs on a device rather than with the JVM unit tests. Recording a section is mostly
+ * thread-local lookups and atomics, whose cost depends on ART and on the cores of the device, as
+ * does the contention between the recording threads.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class InProcessTracingBenchmark {
+    private static final int THREAD_COUNT = 4;
+
+    private static final String[] LABELS = {"measure", "layout", "draw", "bind", "inflate"};
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Before
+    public void setUp() {
+        InProcessTracing.clear();
+        InProcessTracing.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        InProcessTracing.setEnabled(false);
+        InProcessTracing.clear();
+    }
+
+    @Test
+    public void section() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            InProcessTracing.beginSection(LABELS[i++ % LABELS.length]);
+            InProcessTracing.endSection();
+        }
+    }
+
+    @Test
+    public void section_disabled() {
+        InProcessTracing.setEnabled(false);
+        final BenchmarkState state = mBenchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            InProcessTracing.beginSection(LABELS[i++ % LABELS.length]);
+            InProcessTracing.endSection();
+        }
+    }
+
+    @Test
+    public void section_concurrentThreads() throws Exception {
+        // The other threads record sections for as long as the benchmark runs on this thread, so
+        // that the measured sections contend with them.
+        final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT - 1);
+        final List<Future<Void>> futures = new ArrayList<>();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        for (int t = 0; t < THREAD_COUNT - 1; t++) {
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    int i = 0;
+                    while (running.get()) {
+                        InProcessTracing.beginSection(LABELS[i++ % LABELS.length]);
+                        InProcessTracing.endSection();
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            final BenchmarkState state = mBenchmarkRule.getState();
+            int i = 0;
+            while (state.keepRunning()) {
+                InProcessTracing.beginSection(LABELS[i++ % LABELS.length]);
+                InProcessTracing.endSection();
+            }
+        } finally {
+            running.set(false);
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void dump() throws Exception {
+        for (int i = 0; i < InProcessTracing.BUFFER_CAPACITY; i++) {
+            InProcessTracing.beginSection(LABELS[i % LABELS.length]);
+            InProcessTracing.endSection();
+        }
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            output.reset();
+            InProcessTracing.dump(output);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.tracing;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the sections of {@link Trace#beginSection(String)} and {@link Trace#endSection()} in
+ * memory, so that they can be dumped by the app itself, without capturing a system trace.
+ *
+ * <p>Recording is off by default, and can be switched on and off at any time with
+ * {@link #setEnabled(boolean)}. Each thread records in its own ring buffer of
+ * {@value #BUFFER_CAPACITY} preallocated events, which keeps the most recent events once full.
+ * Recording an event doesn't lock or allocate, except the first time a thread records an event
+ * or a label is recorded: labels are interned to ids, and up to {@value #MAX_LABEL_COUNT}
+ * distinct labels are recorded.
+ *
+ * <p>{@link #dump(OutputStream)} writes the recorded sections as a Perfetto trace, with a track
+ * per thread, which can be opened with the Perfetto UI. Timestamps are from
+ * {@link System#nanoTime()}, which is {@code CLOCK_MONOTONIC} on Android, like the timestamps of
+ * system traces.
+ *
+ * <p>Asynchronous sections and counters aren't recorded.
+ */
+public final class InProcessTracing {
+    /**
+     * Number of events each thread records before overwriting its oldest events.
+     */
+    public static final int BUFFER_CAPACITY = 4096;
+
+    /**
+     * Number of distinct labels recorded. Sections with other labels are recorded with a
+     * placeholder label.
+     */
+    public static final int MAX_LABEL_COUNT = 4096;
+
+    // Label id of the events that end a section.
+    static final int END_LABEL_ID = 0;
+    // Label id of the sections whose label couldn't be interned.
+    static final int OVERFLOW_LABEL_ID = 1;
+    private static final String OVERFLOW_LABEL = "<too many labels>";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    static volatile boolean sEnabled;
+
+    private static final Object sLock = new Object();
+
+    // Guarded by sLock.
+    private static final List<ThreadBuffer> sThreadBuffers = new ArrayList<>();
+
+    private static final ThreadLocal<ThreadBuffer> sThreadBuffer = new ThreadLocal<ThreadBuffer>() {
+        @Override
+        protected ThreadBuffer initialValue() {
+            ThreadBuffer buffer = new ThreadBuffer(Thread.currentThread());
+            synchronized (sLock) {
+                sThreadBuffers.add(buffer);
+            }
+            return buffer;
+        }
+    };
+
+    private static final ConcurrentHashMap<String, Integer> sLabelIds = new ConcurrentHashMap<>();
+    // Labels by id, replaced when a label is added. Guarded by sLock for writes.
+    private static volatile String[] sLabels = new String[] {null, OVERFLOW_LABEL};
+
+    private InProcessTracing() {
+    }
+
+    /**
+     * Starts or stops recording sections in memory.
+     *
+     * <p>The events already recorded are kept when recording stops, and can still be dumped.
+     *
+     * @param enabled whether sections should be recorded.
+     */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    /**
+     * Checks whether sections are currently recorded in memory.
+     *
+     * @return true if sections are recorded, false otherwise.
+     */
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * Discards the events recorded so far.
+     */
+    public static void clear() {
+        synchronized (sLock) {
+            for (ThreadBuffer buffer : sThreadBuffers) {
+                buffer.mClearedIndex = buffer.mHead.get();
+            }
+            removeTerminatedThreadBuffers();
+        }
+    }
+
+    /**
+     * Writes the events recorded so far as a Perfetto trace, a {@code perfetto.protos.Trace}
+     * protobuf message.
+     *
+     * <p>This can be called from any thread, while sections are being recorded. The events that
+     * are overwritten while they are dumped are left out, as well as the ends of the sections
+     * whose beginning was overwritten.
+     *
+     * @param output the stream to write the trace to. It isn't closed.
+     * @throws IOException if writing to the stream fails.
+     */
+    public static void dump(@NonNull OutputStream output) throws IOException {
+        List<ThreadBuffer> buffers;
+        synchronized (sLock) {
+            buffers = new ArrayList<>(sThreadBuffers);
+            // The events of terminated threads are only dumped once.
+            removeTerminatedThreadBuffers();
+        }
+        List<Snapshot> snapshots = new ArrayList<>(buffers.size());
+        for (ThreadBuffer buffer : buffers) {
+            snapshots.add(buffer.snapshot());
+        }
+        // Read after the events, so that it contains all of their labels.
+        String[] labels = sLabels;
+        byte[][] encodedLabels = new byte[labels.length][];
+
+        PerfettoTraceWriter writer = new PerfettoTraceWriter(output);
+        for (Snapshot snapshot : snapshots) {
+            long trackUuid = PerfettoTraceWriter.threadTrackUuid(snapshot.mThreadId);
+            long firstTimestamp = snapshot.mCount > 0 ? snapshot.mTimestamps[0] : System.nanoTime();
+            writer.writeTrackDescriptor(firstTimestamp, trackUuid,
+                    snapshot.mThreadName.getBytes(UTF_8));
+            int depth = 0;
+            long lastTimestamp = Long.MIN_VALUE;
+            for (int i = 0; i < snapshot.mCount; i++) {
+                long timestamp = snapshot.mTimestamps[i];
+                int labelId = snapshot.mLabelIds[i];
+                // Drops the events torn by a concurrent overwrite.
+                if (timestamp < lastTimestamp || labelId < 0 || labelId >= labels.length) {
+                    continue;
+                }
+                lastTimestamp = timestamp;
+                if (labelId == END_LABEL_ID) {
+                    if (depth > 0) {
+                        depth--;
+                        writer.writeSliceEnd(timestamp, trackUuid);
+                    }
+                } else {
+                    if (encodedLabels[labelId] == null) {
+                        encodedLabels[labelId] = labels[labelId].getBytes(UTF_8);
+                    }
+                    depth++;
+                    writer.writeSliceBegin(timestamp, trackUuid, encodedLabels[labelId]);
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    static void beginSection(@NonNull String label) {
+        Integer labelId = sLabelIds.get(label);
+        sThreadBuffer.get().record(labelId != null ? labelId : internLabel(label));
+    }
+
+    static void endSection() {
+        sThreadBuffer.get().record(END_LABEL_ID);
+    }
+
+    private static int internLabel(@NonNull String label) {
+        synchronized (sLock) {
+            Integer labelId = sLabelIds.get(label);
+            if (labelId != null) {
+                return labelId;
+            }
+            String[] labels = sLabels;
+            if (labels.length - 2 >= MAX_LABEL_COUNT) {
+                return OVERFLOW_LABEL_ID;
+            }
+            String[] newLabels = Arrays.copyOf(labels, labels.length + 1);
+            newLabels[labels.length] = label;
+            // Published before the id, so that the label of any recorded id can be found.
+            sLabels = newLabels;
+            sLabelIds.put(label, labels.length);
+            return labels.length;
+        }
+    }
+
+    // Guarded by sLock.
+    private static void removeTerminatedThreadBuffers() {
+        Iterator<ThreadBuffer> iterator = sThreadBuffers.iterator();
+        while (iterator.hasNext()) {
+            Thread thread = iterator.next().mThread.get();
+            if (thread == null || !thread.isAlive()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Ring buffer of the events of a thread. Only written by that thread, and read by
+     * {@link #dump(OutputStream)}.
+     */
+    static final class ThreadBuffer {
+        final WeakReference<Thread> mThread;
+        final long mThreadId;
+        private final String mThreadName;
+
+        final long[] mTimestamps = new long[BUFFER_CAPACITY];
+        final int[] mLabelIds = new int[BUFFER_CAPACITY];
+
+        // Index of the next event, set once the event is written.
+        final AtomicLong mHead = new AtomicLong();
+        // Same as mHead, for the writing thread without the memory barrier.
+        private long mNextIndex;
+        // The events before this index were cleared.
+        volatile long mClearedIndex;
+
+        ThreadBuffer(@NonNull Thread thread) {
+            mThread = new WeakReference<>(thread);
+            mThreadId = thread.getId();
+            mThreadName = thread.getName();
+        }
+
+        void record(int labelId) {
+            long index = mNextIndex;
+            int slot = (int) index & (BUFFER_CAPACITY - 1);
+            mTimestamps[slot] = System.nanoTime();
+            mLabelIds[slot] = labelId;
+            mNextIndex = index + 1;
+            mHead.lazySet(index + 1);
+        }
+
+        @NonNull
+        Snapshot snapshot() {
+            long end = mHead.get();
+            long start = Math.max(mClearedIndex, end - BUFFER_CAPACITY);
+            int count = (int) Math.max(0, end - start);
+            long[] timestamps = new long[count];
+            int[] labelIds = new int[count];
+            for (int i = 0; i < count; i++) {
+                int slot = (int) (start + i) & (BUFFER_CAPACITY - 1);
+                timestamps[i] = mTimestamps[slot];
+                labelIds[i] = mLabelIds[slot];
+            }
+            // The events overwritten since, and the one being written, are left out.
+            int overwritten = (int) Math.max(0, mHead.get() - BUFFER_CAPACITY + 1 - start);
+            if (overwritten > 0) {
+                count = Math.max(0, count - overwritten);
+                timestamps = Arrays.copyOfRange(timestamps, timestamps.length - count,
+                        timestamps.length);
+                labelIds = Arrays.copyOfRange(labelIds, labelIds.length - count,
+                        labelIds.length);
+            }
+            Thread thread = mThread.get();
+            String threadName = thread != null ? thread.getName() : mThreadName;
+            return new Snapshot(mThreadId, threadName, timestamps, labelIds);
+        }
+    }
+
+    /**
+     * Copy of the events of a {@link ThreadBuffer}, in the order they were recorded.
+     */
+    static final class Snapshot {
+        final long mThreadId;
+        final String mThreadName;
+        final long[] mTimestamps;
+        final int[] mLabelIds;
+        final int mCount;
+
+        Snapshot(long threadId, @NonNull String threadName, @NonNull long[] timestamps,
+                @NonNull int[] labelIds) {
+            mThreadId = threadId;
+            mThreadName = threadName;
+            mTimestamps = timestamps;
+            mLabelIds = labelIds;
+            mCount = timestamps.length;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.tracing;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the slices of {@link InProcessTracing} as a {@code perfetto.protos.Trace} message.
+ *
+ * <p>The messages are encoded by hand, with the subset of {@code perfetto_trace.proto} that
+ * benchmark-common uses for its userspace tracing, to keep this library free of dependencies.
+ */
+final class PerfettoTraceWriter {
+    // Field numbers of perfetto_trace.proto.
+    private static final int TRACE_PACKET = 1;
+    private static final int TRACE_PACKET_TIMESTAMP = 8;
+    private static final int TRACE_PACKET_TRUSTED_PACKET_SEQUENCE_ID = 10;
+    private static final int TRACE_PACKET_TRACK_EVENT = 11;
+    private static final int TRACE_PACKET_INCREMENTAL_STATE_CLEARED = 41;
+    private static final int TRACE_PACKET_TIMESTAMP_CLOCK_ID = 58;
+    private static final int TRACE_PACKET_TRACK_DESCRIPTOR = 60;
+    private static final int TRACK_EVENT_TYPE = 9;
+    private static final int TRACK_EVENT_TRACK_UUID = 11;
+    private static final int TRACK_EVENT_NAME = 23;
+    private static final int TRACK_DESCRIPTOR_UUID = 1;
+    private static final int TRACK_DESCRIPTOR_NAME = 2;
+
+    static final int TYPE_SLICE_BEGIN = 1;
+    static final int TYPE_SLICE_END = 2;
+
+    private static final int WIRE_TYPE_VARINT = 0;
+    private static final int WIRE_TYPE_LENGTH_DELIMITED = 2;
+
+    // CLOCK_MONOTONIC, the clock of System.nanoTime() on Android.
+    static final int CLOCK_ID = 3;
+
+    // Higher than any sequence id of the traced processes, and different from the one of the
+    // benchmark userspace tracing, so that both can be appended to a system trace.
+    static final int TRUSTED_PACKET_SEQUENCE_ID = 1_234_543_211;
+
+    // Arbitrary base of the 64 bit track uuids, which are global to the trace.
+    private static final long TRACK_UUID_BASE = 0x616e_6472_6f69_0000L;
+
+    // Written to the stream when larger.
+    private static final int FLUSH_SIZE = 8192;
+
+    private final OutputStream mOutput;
+    private final Message mTrace = new Message();
+    private final Message mPacket = new Message();
+    private final Message mPayload = new Message();
+    private boolean mStarted;
+
+    PerfettoTraceWriter(@NonNull OutputStream output) {
+        mOutput = output;
+    }
+
+    static long threadTrackUuid(long threadId) {
+        return TRACK_UUID_BASE + threadId;
+    }
+
+    void writeTrackDescriptor(long timestamp, long uuid, @NonNull byte[] name)
+            throws IOException {
+        mPayload.reset();
+        mPayload.writeVarint(TRACK_DESCRIPTOR_UUID, uuid);
+        mPayload.writeBytes(TRACK_DESCRIPTOR_NAME, name);
+        writePacket(timestamp, TRACE_PACKET_TRACK_DESCRIPTOR);
+    }
+
+    void writeSliceBegin(long timestamp, long trackUuid, @NonNull byte[] name)
+            throws IOException {
+        mPayload.reset();
+        mPayload.writeVarint(TRACK_EVENT_TYPE, TYPE_SLICE_BEGIN);
+        mPayload.writeVarint(TRACK_EVENT_TRACK_UUID, trackUuid);
+        mPayload.writeBytes(TRACK_EVENT_NAME, name);
+        writePacket(timestamp, TRACE_PACKET_TRACK_EVENT);
+    }
+
+    void writeSliceEnd(long timestamp, long trackUuid) throws IOException {
+        mPayload.reset();
+        mPayload.writeVarint(TRACK_EVENT_TYPE, TYPE_SLICE_END);
+        mPayload.writeVarint(TRACK_EVENT_TRACK_UUID, trackUuid);
+        writePacket(timestamp, TRACE_PACKET_TRACK_EVENT);
+    }
+
+    /**
+     * Writes the packets that haven't been written to the stream yet.
+     */
+    void flush() throws IOException {
+        mOutput.write(mTrace.mBytes, 0, mTrace.mSize);
+        mTrace.reset();
+        mOutput.flush();
+    }
+
+    private void writePacket(long timestamp, int payloadField) throws IOException {
+        mPacket.reset();
+        mPacket.writeVarint(TRACE_PACKET_TIMESTAMP, timestamp);
+        mPacket.writeVarint(TRACE_PACKET_TIMESTAMP_CLOCK_ID, CLOCK_ID);
+        mPacket.writeVarint(TRACE_PACKET_TRUSTED_PACKET_SEQUENCE_ID, TRUSTED_PACKET_SEQUENCE_ID);
+        if (!mStarted) {
+            mStarted = true;
+            mPacket.writeVarint(TRACE_PACKET_INCREMENTAL_STATE_CLEARED, 1);
+        }
+        mPacket.writeBytes(payloadField, mPayload.mBytes, mPayload.mSize);
+        mTrace.writeBytes(TRACE_PACKET, mPacket.mBytes, mPacket.mSize);
+        if (mTrace.mSize >= FLUSH_SIZE) {
+            mOutput.write(mTrace.mBytes, 0, mTrace.mSize);
+            mTrace.reset();
+        }
+    }
+
+    /**
+     * Growable buffer of an encoded message.
+     */
+    private static final class Message {
+        byte[] mBytes = new byte[256];
+        int mSize;
+
+        void reset() {
+            mSize = 0;
+        }
+
+        void writeVarint(int field, long value) {
+            writeRawVarint(((long) field << 3) | WIRE_TYPE_VARINT);
+            writeRawVarint(value);
+        }
+
+        void writeBytes(int field, @NonNull byte[] bytes) {
+            writeBytes(field, bytes, bytes.length);
+        }
+
+        void writeBytes(int field, @NonNull byte[] bytes, int length) {
+            writeRawVarint(((long) field << 3) | WIRE_TYPE_LENGTH_DELIMITED);
+            writeRawVarint(length);
+            ensureCapacity(length);
+            System.arraycopy(bytes, 0, mBytes, mSize, length);
+            mSize += length;
+        }
+
+        private void writeRawVarint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                mBytes[mSize++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            mBytes[mSize++] = (byte) value;
+        }
+
+        private void ensureCapacity(int length) {
+            if (mSize + length > mBytes.length) {
+                byte[] bytes = new byte[Math.max(mBytes.length * 2, mSize + length)];
+                System.arraycopy(mBytes, 0, bytes, 0, mSize);
+                mBytes = bytes;
+            }
+        }
+    }
+}
@@ -45,6 +45,9 @@ import java.lang.reflect.Method;
  *     been called</li>
  * </ul>
  *
+ * <p>Sections can also be recorded in memory and dumped by the app, see
+ * {@link InProcessTracing}.
+ *
  * <p>This tracing mechanism is independent of the method tracing mechanism offered by
  * {@link android.os.Debug#startMethodTracing}.  In particular, it enables tracing of events that
  * occur across multiple processes.
@@ -71,9 +74,14 @@ public final class Trace {
      * objects that would then be passed to those methods to reduce runtime cost when tracing
      * isn't enabled.
      *
+     * <p>Tracing is also enabled while sections are recorded with {@link InProcessTracing}.
+     *
      * @return true if tracing is currently enabled, false otherwise
      */
     public static boolean isEnabled() {
+        if (InProcessTracing.sEnabled) {
+            return true;
+        }
         if (Build.VERSION.SDK_INT >= 29) {
             return TraceApi29Impl.isEnabled();
         }
@@ -125,6 +133,9 @@ public final class Trace {
      * @param label The name of the code section to appear in the trace.
      */
     public static void beginSection(@NonNull String label) {
+        if (InProcessTracing.sEnabled) {
+            InProcessTracing.beginSection(label);
+        }
         if (Build.VERSION.SDK_INT >= 18) {
             TraceApi18Impl.beginSection(label);
         }
@@ -139,6 +150,9 @@ public final class Trace {
      * called from the same thread.
      */
     public static void endSection() {
+        if (InProcessTracing.sEnabled) {
+            InProcessTracing.endSection();
+        }
         if (Build.VERSION.SDK_INT >= 18) {
             TraceApi18Impl.endSection();
         }
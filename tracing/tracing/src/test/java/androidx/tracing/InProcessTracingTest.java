@@ -0,0 +1,268 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.tracing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(JUnit4.class)
+public class InProcessTracingTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Before
+    public void setUp() {
+        InProcessTracing.clear();
+        InProcessTracing.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        InProcessTracing.setEnabled(false);
+        InProcessTracing.clear();
+    }
+
+    @Test
+    public void setEnabled() {
+        assertTrue(InProcessTracing.isEnabled());
+        InProcessTracing.setEnabled(false);
+        assertFalse(InProcessTracing.isEnabled());
+    }
+
+    @Test
+    public void dump_writesNestedSlices() throws IOException {
+        InProcessTracing.beginSection("outer");
+        InProcessTracing.beginSection("inner");
+        InProcessTracing.endSection();
+        InProcessTracing.endSection();
+
+        List<Message> packets = dump();
+
+        long trackUuid = PerfettoTraceWriter.threadTrackUuid(Thread.currentThread().getId());
+        Message descriptor = findTrackDescriptor(packets, trackUuid);
+        assertEquals(Thread.currentThread().getName(), descriptor.getString(2));
+        assertEquals(1L, (long) packets.get(0).getLong(41));
+
+        List<Message> events = trackEvents(packets, trackUuid);
+        assertEquals(4, events.size());
+        assertEquals("outer", events.get(0).getMessage(11).getString(23));
+        assertEquals("inner", events.get(1).getMessage(11).getString(23));
+        assertEquals(PerfettoTraceWriter.TYPE_SLICE_END, (long) events.get(2).getMessage(11)
+                .getLong(9));
+        assertEquals(PerfettoTraceWriter.TYPE_SLICE_END, (long) events.get(3).getMessage(11)
+                .getLong(9));
+        long lastTimestamp = 0;
+        for (Message event : events) {
+            assertEquals(PerfettoTraceWriter.CLOCK_ID, (long) event.getLong(58));
+            assertEquals(PerfettoTraceWriter.TRUSTED_PACKET_SEQUENCE_ID, (long) event.getLong(10));
+            assertTrue(event.getLong(8) >= lastTimestamp);
+            lastTimestamp = event.getLong(8);
+        }
+    }
+
+    @Test
+    public void dump_keepsMostRecentEvents() throws IOException {
+        for (int i = 0; i < InProcessTracing.BUFFER_CAPACITY; i++) {
+            InProcessTracing.beginSection("section " + (i % 10));
+            InProcessTracing.endSection();
+        }
+        InProcessTracing.beginSection("last");
+
+        long trackUuid = PerfettoTraceWriter.threadTrackUuid(Thread.currentThread().getId());
+        List<Message> events = trackEvents(dump(), trackUuid);
+        InProcessTracing.endSection();
+
+        // The oldest event kept is the end of a section whose beginning was overwritten, it is
+        // left out.
+        assertEquals(InProcessTracing.BUFFER_CAPACITY - 1, events.size());
+        assertEquals("section 9", events.get(0).getMessage(11).getString(23));
+        assertEquals("last", events.get(events.size() - 1).getMessage(11).getString(23));
+    }
+
+    @Test
+    public void dump_recordsEachThread() throws Exception {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                InProcessTracing.beginSection("background");
+                InProcessTracing.endSection();
+            }
+        }, "InProcessTracingTest");
+        thread.start();
+        thread.join();
+
+        long trackUuid = PerfettoTraceWriter.threadTrackUuid(thread.getId());
+        List<Message> packets = dump();
+        assertEquals("InProcessTracingTest", findTrackDescriptor(packets, trackUuid).getString(2));
+        assertEquals(2, trackEvents(packets, trackUuid).size());
+
+        // The events of terminated threads are only dumped once.
+        assertEquals(0, trackEvents(dump(), trackUuid).size());
+    }
+
+    @Test
+    public void clear_discardsEvents() throws IOException {
+        InProcessTracing.beginSection("cleared");
+        InProcessTracing.endSection();
+        InProcessTracing.clear();
+        InProcessTracing.beginSection("kept");
+        InProcessTracing.endSection();
+
+        long trackUuid = PerfettoTraceWriter.threadTrackUuid(Thread.currentThread().getId());
+        List<Message> events = trackEvents(dump(), trackUuid);
+        assertEquals(2, events.size());
+        assertEquals("kept", events.get(0).getMessage(11).getString(23));
+    }
+
+    @Test
+    public void beginSection_internsLabels() throws IOException {
+        for (int i = 0; i < InProcessTracing.MAX_LABEL_COUNT + 1; i++) {
+            InProcessTracing.beginSection("label " + i);
+            InProcessTracing.endSection();
+        }
+
+        long trackUuid = PerfettoTraceWriter.threadTrackUuid(Thread.currentThread().getId());
+        List<Message> events = trackEvents(dump(), trackUuid);
+        assertEquals("<too many labels>",
+                events.get(events.size() - 2).getMessage(11).getString(23));
+    }
+
+    private static List<Message> dump() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        InProcessTracing.dump(output);
+        byte[] trace = output.toByteArray();
+        List<Message> packets = new ArrayList<>();
+        for (Object packet : Message.parse(trace, 0, trace.length).getAll(1)) {
+            byte[] bytes = (byte[]) packet;
+            packets.add(Message.parse(bytes, 0, bytes.length));
+        }
+        return packets;
+    }
+
+    @NonNull
+    private static Message findTrackDescriptor(List<Message> packets, long trackUuid) {
+        for (Message packet : packets) {
+            Message descriptor = packet.getMessage(60);
+            if (descriptor != null && descriptor.getLong(1) == trackUuid) {
+                return descriptor;
+            }
+        }
+        throw new AssertionError("No track descriptor for " + trackUuid);
+    }
+
+    private static List<Message> trackEvents(List<Message> packets, long trackUuid) {
+        List<Message> events = new ArrayList<>();
+        for (Message packet : packets) {
+            Message event = packet.getMessage(11);
+            if (event != null && event.getLong(11) == trackUuid) {
+                events.add(packet);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Decoded protobuf message, with varints as Longs and length delimited fields as byte arrays.
+     */
+    private static final class Message {
+        final Map<Integer, List<Object>> mFields = new HashMap<>();
+
+        static Message parse(byte[] bytes, int start, int end) {
+            Message message = new Message();
+            int[] position = {start};
+            while (position[0] < end) {
+                long tag = readVarint(bytes, position);
+                int field = (int) (tag >>> 3);
+                Object value;
+                switch ((int) (tag & 7)) {
+                    case 0:
+                        value = readVarint(bytes, position);
+                        break;
+                    case 2:
+                        int length = (int) readVarint(bytes, position);
+                        byte[] data = new byte[length];
+                        System.arraycopy(bytes, position[0], data, 0, length);
+                        position[0] += length;
+                        value = data;
+                        break;
+                    default:
+                        throw new AssertionError("Unexpected wire type of " + tag);
+                }
+                if (!message.mFields.containsKey(field)) {
+                    message.mFields.put(field, new ArrayList<>());
+                }
+                message.mFields.get(field).add(value);
+            }
+            return message;
+        }
+
+        private static long readVarint(byte[] bytes, int[] position) {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[position[0]++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+
+        List<Object> getAll(int field) {
+            List<Object> values = mFields.get(field);
+            return values != null ? values : new ArrayList<>();
+        }
+
+        @Nullable
+        Long getLong(int field) {
+            List<Object> values = mFields.get(field);
+            return values != null ? (Long) values.get(0) : null;
+        }
+
+        @Nullable
+        String getString(int field) {
+            List<Object> values = mFields.get(field);
+            return values != null ? new String((byte[]) values.get(0), UTF_8) : null;
+        }
+
+        @Nullable
+        Message getMessage(int field) {
+            List<Object> values = mFields.get(field);
+            if (values == null) {
+                return null;
+            }
+            byte[] bytes = (byte[]) values.get(0);
+            return parse(bytes, 0, bytes.length);
+        }
+    }
+}
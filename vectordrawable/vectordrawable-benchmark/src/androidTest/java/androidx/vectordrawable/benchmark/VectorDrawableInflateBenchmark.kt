@@ -0,0 +1,121 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.vectordrawable.benchmark
+
+import android.content.Context
+import android.util.Xml
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.core.graphics.PathParser
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.vectordrawable.benchmark.test.R
+import androidx.vectordrawable.graphics.drawable.VectorDrawableCompat
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.xmlpull.v1.XmlPullParser
+
+/**
+ * Inflates the vector icons of an icon-heavy screen, like a grid of app shortcuts or a toolbar
+ * and list with icons on every row.
+ */
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class VectorDrawableInflateBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val resources = ApplicationProvider.getApplicationContext<Context>().resources
+
+    @Test
+    fun inflateIconScreen() {
+        benchmarkRule.measureRepeated {
+            for (i in 0 until ICONS_PER_SCREEN) {
+                inflate(ICONS[i % ICONS.size])
+            }
+        }
+    }
+
+    @Test
+    fun parsePathData() {
+        benchmarkRule.measureRepeated {
+            // Never shared, so it is parsed on every call.
+            PathParser.createNodesFromPathData(UNSHARED_PATH_DATA)
+        }
+    }
+
+    @Test
+    fun sharedPathData() {
+        benchmarkRule.measureRepeated {
+            PathParser.getSharedNodesFromPathData(SETTINGS_PATH_DATA)
+        }
+    }
+
+    /**
+     * Inflates the drawable with [VectorDrawableCompat] even where it would delegate to the
+     * platform VectorDrawable.
+     */
+    private fun inflate(resId: Int): VectorDrawableCompat {
+        val parser = resources.getXml(resId)
+        try {
+            var type = parser.next()
+            while (type != XmlPullParser.START_TAG && type != XmlPullParser.END_DOCUMENT) {
+                type = parser.next()
+            }
+            return VectorDrawableCompat.createFromXmlInner(
+                resources, parser, Xml.asAttributeSet(parser), null
+            )
+        } finally {
+            parser.close()
+        }
+    }
+
+    private companion object {
+        const val ICONS_PER_SCREEN = 48
+
+        val ICONS = intArrayOf(
+            R.drawable.vector_icon_settings,
+            R.drawable.vector_icon_create,
+            R.drawable.vector_icon_delete,
+            R.drawable.vector_icon_share,
+            R.drawable.vector_icon_schedule,
+            R.drawable.vector_icon_wishlist
+        )
+
+        // Same as the path of vector_icon_settings, without the spaces.
+        const val SETTINGS_PATH_DATA = "M19.429,12.976c0.042-0.32,0.07-0.645,0.07-0.976" +
+            "s-0.029-0.655-0.07-0.976l2.113-1.654c0.188-0.151,0.243-0.422,0.118-0.639" +
+            "l-2.0-3.463c-0.125-0.217-0.386-0.304-0.612-0.218l-2.49,1.004" +
+            "c-0.516-0.396-1.081-0.731-1.69-0.984l-0.375-2.648C14.456,2.183,14.25,2.0,14.0,2.0" +
+            "l-4.0,0.0C9.75,2.0,9.544,2.183,9.506,2.422L9.131,5.07C8.521,5.323,7.957,5.657," +
+            "7.44,6.054L4.952,5.051C4.726,4.965,4.464,5.052,4.34,5.269l-2.0,3.463" +
+            "C2.215,8.948,2.27,9.219,2.458,9.37l2.112,1.653C4.528,11.344,4.5,11.669,4.5,12.0" +
+            "s0.029,0.656,0.071,0.977L2.458,14.63c-0.188,0.151-0.243,0.422-0.118,0.639" +
+            "l2.0,3.463c0.125,0.217,0.386,0.304,0.612,0.218l2.489-1.004" +
+            "c0.516,0.396,1.081,0.731,1.69,0.984l0.375,2.648C9.544,21.817,9.75,22.0,10.0,22.0" +
+            "l4.0,0.0c0.25,0.0,0.456-0.183,0.494-0.422l0.375-2.648" +
+            "c0.609-0.253,1.174-0.588,1.689-0.984l2.49,1.004c0.226,0.086,0.487-0.001,0.612-0.218" +
+            "l2.0-3.463c0.125-0.217,0.07-0.487-0.118-0.639L19.429,12.976z" +
+            "M12.0,16.0c-2.21,0.0-4.0-1.791-4.0-4.0c0.0-2.21,1.79-4.0,4.0-4.0" +
+            "c2.208,0.0,4.0,1.79,4.0,4.0C16.0,14.209,14.208,16.0,12.0,16.0z"
+
+        const val UNSHARED_PATH_DATA = "$SETTINGS_PATH_DATA "
+    }
+}
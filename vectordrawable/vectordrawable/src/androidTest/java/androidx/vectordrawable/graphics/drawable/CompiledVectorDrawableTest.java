@@ -0,0 +1,183 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.vectordrawable.graphics.drawable;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.MediumTest;
+import androidx.test.filters.SdkSuppress;
+import androidx.vectordrawable.test.R;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+/**
+ * Tests the compiled form of {@link VectorDrawableCompat}, used by its compiled cache.
+ */
+@RunWith(AndroidJUnit4.class)
+@MediumTest
+public class CompiledVectorDrawableTest {
+    private static final int IMAGE_SIZE = 64;
+
+    private static final int[] ICON_RES_IDS = new int[]{
+            R.drawable.vector_icon_settings,
+            R.drawable.vector_icon_clip_path_1,
+            R.drawable.vector_icon_transformation_1,
+            R.drawable.vector_icon_stroke_2,
+            R.drawable.vector_icon_group_clip,
+            R.drawable.vector_icon_filltype_evenodd,
+    };
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+    private final Resources mResources = mContext.getResources();
+
+    @After
+    public void tearDown() {
+        VectorDrawableCompat.setCompiledCacheEnabled(mContext, false);
+    }
+
+    @Test
+    public void compiledData_drawsLikeInflatedDrawable() {
+        for (int resId : ICON_RES_IDS) {
+            VectorDrawableCompat inflated =
+                    VectorDrawableCompat.createWithoutDelegate(mResources, resId, null);
+            assertNotNull(inflated);
+            assertTrue(inflated.mCompilable);
+
+            byte[] compiled = inflated.toCompiledData();
+            assertNotNull(compiled);
+            VectorDrawableCompat loaded = VectorDrawableCompat.createFromCompiledData(compiled);
+            assertNotNull(loaded);
+
+            String name = mResources.getResourceEntryName(resId);
+            assertEquals(name, inflated.getIntrinsicWidth(), loaded.getIntrinsicWidth());
+            assertEquals(name, inflated.getIntrinsicHeight(), loaded.getIntrinsicHeight());
+            assertArrayEquals(name, draw(inflated), draw(loaded));
+            // Loading the compiled form and writing it again gives the same data.
+            assertArrayEquals(name, compiled, loaded.toCompiledData());
+        }
+    }
+
+    @Test
+    public void compiledData_invalid_returnsNull() {
+        VectorDrawableCompat inflated = VectorDrawableCompat.createWithoutDelegate(mResources,
+                R.drawable.vector_icon_settings, null);
+        byte[] compiled = inflated.toCompiledData();
+
+        assertNull(VectorDrawableCompat.createFromCompiledData(new byte[0]));
+        assertNull(VectorDrawableCompat.createFromCompiledData(
+                Arrays.copyOf(compiled, compiled.length / 2)));
+        byte[] wrongMagic = compiled.clone();
+        wrongMagic[0]++;
+        assertNull(VectorDrawableCompat.createFromCompiledData(wrongMagic));
+    }
+
+    @Test
+    public void statefulColors_notCompilable() {
+        VectorDrawableCompat inflated = VectorDrawableCompat.createWithoutDelegate(mResources,
+                R.drawable.vector_icon_state_list, null);
+
+        assertNotNull(inflated);
+        assertFalse(inflated.mCompilable);
+    }
+
+    @Test
+    public void gradients_notCompilable() {
+        VectorDrawableCompat inflated = VectorDrawableCompat.createWithoutDelegate(mResources,
+                R.drawable.vector_icon_gradient_1, null);
+
+        assertNotNull(inflated);
+        assertFalse(inflated.mCompilable);
+    }
+
+    @Test
+    public void cache_writesAndLoadsDrawable() throws InterruptedException {
+        VectorDrawableCompat.setCompiledCacheEnabled(mContext, true);
+        String key = CompiledVectorCache.getKey(mResources, R.drawable.vector_icon_settings);
+        assertNotNull(key);
+        CompiledVectorCache.remove(key);
+        assertNull(CompiledVectorCache.read(mResources, key));
+
+        VectorDrawableCompat inflated = VectorDrawableCompat.createWithoutDelegate(mResources,
+                R.drawable.vector_icon_settings, null);
+
+        // Written in the background.
+        byte[] cached = null;
+        for (int i = 0; i < 50 && cached == null; i++) {
+            Thread.sleep(20);
+            cached = CompiledVectorCache.read(mResources, key);
+        }
+        assertArrayEquals(inflated.toCompiledData(), cached);
+
+        VectorDrawableCompat loaded = VectorDrawableCompat.createWithoutDelegate(mResources,
+                R.drawable.vector_icon_settings, null);
+        assertNotNull(loaded);
+        assertArrayEquals(draw(inflated), draw(loaded));
+        CompiledVectorCache.remove(key);
+    }
+
+    @SdkSuppress(minSdkVersion = 17)
+    @Test
+    public void cache_otherConfiguration_notLoaded() throws InterruptedException {
+        VectorDrawableCompat.setCompiledCacheEnabled(mContext, true);
+        String key = CompiledVectorCache.getKey(mResources, R.drawable.vector_icon_settings);
+        assertNotNull(key);
+        CompiledVectorCache.remove(key);
+        VectorDrawableCompat.createWithoutDelegate(mResources, R.drawable.vector_icon_settings,
+                null);
+        byte[] cached = null;
+        for (int i = 0; i < 50 && cached == null; i++) {
+            Thread.sleep(20);
+            cached = CompiledVectorCache.read(mResources, key);
+        }
+        assertNotNull(cached);
+
+        Configuration config = new Configuration(mResources.getConfiguration());
+        config.fontScale *= 2;
+        Resources otherResources = mContext.createConfigurationContext(config).getResources();
+        // Reads the same file, as if both configurations had the same hash.
+        assertNull(CompiledVectorCache.read(otherResources, key));
+        CompiledVectorCache.remove(key);
+    }
+
+    private static int[] draw(VectorDrawableCompat drawable) {
+        Bitmap bitmap = Bitmap.createBitmap(IMAGE_SIZE, IMAGE_SIZE, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(Color.TRANSPARENT);
+        drawable.setBounds(0, 0, IMAGE_SIZE, IMAGE_SIZE);
+        drawable.draw(new Canvas(bitmap));
+        int[] pixels = new int[IMAGE_SIZE * IMAGE_SIZE];
+        bitmap.getPixels(pixels, 0, IMAGE_SIZE, 0, 0, IMAGE_SIZE, IMAGE_SIZE);
+        return pixels;
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.vectordrawable.graphics.drawable;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.os.Build;
+import android.util.Log;
+import android.util.TypedValue;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+import androidx.core.os.ConfigurationCompat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Disk cache of the compiled form of the {@link VectorDrawableCompat}s inflated from resources,
+ * see {@link VectorDrawableCompat#setCompiledCacheEnabled(Context, boolean)}.
+ * <p>
+ * Each drawable is cached in its own file, named after the resource file it was inflated from
+ * and the configuration its resources were resolved with. Each file starts with that
+ * configuration, which is checked when the file is read, so that a file name collision never
+ * loads a drawable resolved with another configuration. The files are in a directory named
+ * after the last update time of the app, so that they aren't used after the resources change.
+ * <p>
+ * The files are written in the background, but read synchronously on the thread inflating the
+ * drawable, in place of the XML parsing.
+ */
+final class CompiledVectorCache {
+    private static final String LOGTAG = "CompiledVectorCache";
+
+    private static final String DIRECTORY_NAME = "androidx.vectordrawable";
+    private static final String FILE_SUFFIX = ".vdc";
+
+    // Larger files aren't drawables written by this cache.
+    private static final int MAX_FILE_SIZE = 1024 * 1024;
+
+    private static final Object sLock = new Object();
+    // The directory of the cache, or null if the cache is disabled.
+    @Nullable
+    private static volatile File sDirectory;
+    // Keys being written or already written since the cache was enabled.
+    private static final Set<String> sWrittenKeys = new HashSet<>();
+    @Nullable
+    private static Executor sWriteExecutor;
+
+    private CompiledVectorCache() {
+    }
+
+    static void setEnabled(@NonNull Context context, boolean enabled) {
+        if (!enabled) {
+            sDirectory = null;
+            return;
+        }
+        long lastUpdateTime;
+        try {
+            lastUpdateTime = context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.w(LOGTAG, "Can't find the app package, the compiled cache is disabled", e);
+            sDirectory = null;
+            return;
+        }
+        final File root = new File(ContextCompat.getCodeCacheDir(context), DIRECTORY_NAME);
+        final File directory = new File(root, Long.toHexString(lastUpdateTime));
+        synchronized (sLock) {
+            if (!directory.equals(sDirectory)) {
+                sWrittenKeys.clear();
+            }
+            sDirectory = directory;
+        }
+    }
+
+    /**
+     * Returns the key of the drawable resource in the cache, or null if the cache is disabled or
+     * the resource can't be cached.
+     */
+    @Nullable
+    static String getKey(@NonNull Resources res, int resId) {
+        if (sDirectory == null) {
+            return null;
+        }
+        final TypedValue value = new TypedValue();
+        try {
+            res.getValue(resId, value, true);
+        } catch (Resources.NotFoundException e) {
+            return null;
+        }
+        if (value.type != TypedValue.TYPE_STRING || value.string == null) {
+            return null;
+        }
+        // Attributes can reference resources that depend on the configuration too, like colors
+        // in night mode, hence the hash of the whole configuration. Different configurations
+        // can have the same hash, the configuration written in the file is checked on read.
+        return value.string.toString().replace('/', '_')
+                + '-' + Integer.toHexString(res.getConfiguration().hashCode())
+                + '-' + Integer.toHexString(Float.floatToIntBits(res.getDisplayMetrics().density))
+                + FILE_SUFFIX;
+    }
+
+    /**
+     * Reads the compiled drawable of the given key, if it was written with the configuration of
+     * the given resources.
+     * <p>
+     * This reads the file synchronously, on the thread inflating the drawable.
+     *
+     * @return the compiled drawable, or null if it isn't cached.
+     */
+    @Nullable
+    static byte[] read(@NonNull Resources res, @NonNull String key) {
+        final File directory = sDirectory;
+        if (directory == null) {
+            return null;
+        }
+        final File file = new File(directory, key);
+        final byte[] expectedHeader = getHeader(res);
+        RandomAccessFile input = null;
+        try {
+            input = new RandomAccessFile(file, "r");
+            final long length = input.length() - expectedHeader.length;
+            if (length <= 0 || length > MAX_FILE_SIZE) {
+                return null;
+            }
+            final byte[] header = new byte[expectedHeader.length];
+            input.readFully(header);
+            if (!Arrays.equals(header, expectedHeader)) {
+                // Written with another configuration, it is replaced by the next write.
+                return null;
+            }
+            final byte[] data = new byte[(int) length];
+            input.readFully(data);
+            synchronized (sLock) {
+                sWrittenKeys.add(key);
+            }
+            return data;
+        } catch (IOException e) {
+            // Not cached yet.
+            return null;
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    /**
+     * Deletes the compiled drawable of the given key, after it failed to load.
+     */
+    static void remove(@NonNull String key) {
+        final File directory = sDirectory;
+        if (directory == null) {
+            return;
+        }
+        synchronized (sLock) {
+            sWrittenKeys.remove(key);
+        }
+        //noinspection ResultOfMethodCallIgnored
+        new File(directory, key).delete();
+    }
+
+    /**
+     * Writes the compiled drawable of the given key in the background, if it isn't already,
+     * along with the configuration of the resources it was inflated with.
+     */
+    static void write(@NonNull Resources res, @NonNull final String key,
+            @NonNull final byte[] data) {
+        final File directory = sDirectory;
+        if (directory == null) {
+            return;
+        }
+        final byte[] header = getHeader(res);
+        final Executor executor;
+        synchronized (sLock) {
+            if (!sWrittenKeys.add(key)) {
+                return;
+            }
+            if (sWriteExecutor == null) {
+                sWriteExecutor = createWriteExecutor();
+            }
+            executor = sWriteExecutor;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                writeFile(directory, key, header, data);
+            }
+        });
+    }
+
+    static void writeFile(@NonNull File directory, @NonNull String key, @NonNull byte[] header,
+            @NonNull byte[] data) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(LOGTAG, "Can't create " + directory);
+            return;
+        }
+        // Written to a temporary file first, so that a partially written file is never read.
+        final File file = new File(directory, key);
+        final File tempFile = new File(directory, key + ".tmp");
+        FileOutputStream output = null;
+        try {
+            output = new FileOutputStream(tempFile);
+            output.write(header);
+            output.write(data);
+            output.getFD().sync();
+            output.close();
+            output = null;
+            if (!tempFile.renameTo(file)) {
+                Log.w(LOGTAG, "Can't write " + file);
+                //noinspection ResultOfMethodCallIgnored
+                tempFile.delete();
+            }
+        } catch (IOException e) {
+            Log.w(LOGTAG, "Can't write " + file, e);
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+        } finally {
+            closeQuietly(output);
+        }
+    }
+
+    /**
+     * Returns the header of the cache files written with the given resources, which has the
+     * parts of their configuration that resources can be qualified with.
+     */
+    @NonNull
+    private static byte[] getHeader(@NonNull Resources res) {
+        final Configuration config = res.getConfiguration();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeUTF(ConfigurationCompat.getLocales(config).toLanguageTags());
+            out.writeInt(config.mcc);
+            out.writeInt(config.mnc);
+            out.writeFloat(config.fontScale);
+            out.writeInt(config.screenLayout);
+            out.writeInt(config.smallestScreenWidthDp);
+            out.writeInt(config.screenWidthDp);
+            out.writeInt(config.screenHeightDp);
+            out.writeInt(config.orientation);
+            out.writeInt(config.uiMode);
+            out.writeInt(config.touchscreen);
+            out.writeInt(config.keyboard);
+            out.writeInt(config.keyboardHidden);
+            out.writeInt(config.hardKeyboardHidden);
+            out.writeInt(config.navigation);
+            out.writeInt(config.navigationHidden);
+            out.writeInt(Build.VERSION.SDK_INT >= 17 ? config.densityDpi : 0);
+            out.writeInt(Build.VERSION.SDK_INT >= 26 ? config.colorMode : 0);
+            out.writeFloat(res.getDisplayMetrics().density);
+            out.flush();
+        } catch (IOException e) {
+            // Not thrown by a ByteArrayOutputStream.
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Executor createWriteExecutor() {
+        // A single thread, stopped when there is nothing to write.
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "CompiledVectorCache");
+                        thread.setPriority(Thread.MIN_PRIORITY);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Ignored.
+            }
+        }
+    }
+}
@@ -27,6 +27,7 @@ import static android.graphics.Paint.Style.STROKE;
 import static androidx.annotation.RestrictTo.Scope.LIBRARY_GROUP_PREFIX;
 
 import android.annotation.SuppressLint;
+import android.content.Context;
 import android.content.res.ColorStateList;
 import android.content.res.Resources;
 import android.content.res.Resources.Theme;
@@ -68,9 +69,14 @@ import androidx.core.view.ViewCompat;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * For API 24 and above, this class delegates to the framework's {@link VectorDrawable}.
@@ -293,6 +299,15 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
     private static final int LINEJOIN_ROUND = 1;
     private static final int LINEJOIN_BEVEL = 2;
 
+    // Header of the compiled form of the drawables, see toCompiledData().
+    private static final int COMPILED_MAGIC = 0x56444331; // "VDC1"
+    private static final int COMPILED_VERSION = 2;
+
+    private static final byte COMPILED_TAG_END = 0;
+    private static final byte COMPILED_TAG_GROUP = 1;
+    private static final byte COMPILED_TAG_PATH = 2;
+    private static final byte COMPILED_TAG_CLIP_PATH = 3;
+
     // Cap the bitmap size, such that it won't hurt the performance too much
     // and it won't crash due to a very large scale.
     // The drawable will look blurry above this size.
@@ -307,6 +322,10 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
 
     private boolean mMutated;
 
+    // Whether the inflated drawable depends neither on the theme nor on the state, so that it
+    // can be cached in the compiled form.
+    boolean mCompilable;
+
     // AnimatedVectorDrawable needs to turn off the cache all the time, otherwise,
     // caching the bitmap by default is allowed.
     private boolean mAllowCaching = true;
@@ -653,6 +672,17 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
             @DrawableRes int resId,
             @Nullable Theme theme
     ) {
+        final String cacheKey = CompiledVectorCache.getKey(res, resId);
+        if (cacheKey != null) {
+            final byte[] compiled = CompiledVectorCache.read(res, cacheKey);
+            if (compiled != null) {
+                final VectorDrawableCompat drawable = createFromCompiledData(compiled);
+                if (drawable != null) {
+                    return drawable;
+                }
+                CompiledVectorCache.remove(cacheKey);
+            }
+        }
         try {
             @SuppressLint("ResourceType") final XmlPullParser parser = res.getXml(resId);
             final AttributeSet attrs = Xml.asAttributeSet(parser);
@@ -664,7 +694,14 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
             if (type != XmlPullParser.START_TAG) {
                 throw new XmlPullParserException("No start tag found");
             }
-            return createFromXmlInner(res, parser, attrs, theme);
+            final VectorDrawableCompat drawable = createFromXmlInner(res, parser, attrs, theme);
+            if (cacheKey != null && drawable.mCompilable) {
+                final byte[] compiled = drawable.toCompiledData();
+                if (compiled != null) {
+                    CompiledVectorCache.write(res, cacheKey, compiled);
+                }
+            }
+            return drawable;
         } catch (XmlPullParserException e) {
             Log.e(LOGTAG, "parser error", e);
         } catch (IOException e) {
@@ -686,6 +723,159 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
         return drawable;
     }
 
+    /**
+     * Enables or disables caching the drawables that VectorDrawableCompat inflates from
+     * resources in a compact binary form, in the code cache directory of the app.
+     * <p>
+     * Once a drawable is cached, it is loaded by reading its cache file instead of being inflated
+     * from XML. Like the XML parsing it replaces, this read is synchronous, on the thread that
+     * inflates the drawable. The cache is written in the background on the first inflation of
+     * each drawable and configuration, and is invalidated when the app is updated.
+     * <p>
+     * This only applies where VectorDrawableCompat inflates the drawables itself, which is below
+     * API 24 and for the drawables of {@code SeekableAnimatedVectorDrawable}. Drawables that use
+     * theme attributes, gradients or stateful colors are always inflated from XML.
+     * <p>
+     * This makes an IPC to the package manager, so call it once, for instance when the
+     * application is created.
+     *
+     * @param context the context of the app
+     * @param enabled whether the cache is enabled
+     */
+    public static void setCompiledCacheEnabled(@NonNull Context context, boolean enabled) {
+        CompiledVectorCache.setEnabled(context, enabled);
+    }
+
+    /**
+     * Writes the tree of this drawable in the compiled form, read by
+     * {@link #createFromCompiledData(byte[])}.
+     *
+     * @return the compiled drawable, or null if it can't be written.
+     */
+    @Nullable
+    byte[] toCompiledData() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final VectorDrawableCompatState state = mVectorState;
+        final VPathRenderer pathRenderer = state.mVPathRenderer;
+        try {
+            out.writeInt(COMPILED_MAGIC);
+            out.writeInt(COMPILED_VERSION);
+            out.writeInt(state.mChangingConfigurations);
+            writeCompiledString(out, state.mTintMode.name());
+            out.writeBoolean(state.mTint != null);
+            if (state.mTint != null) {
+                out.writeInt(state.mTint.getDefaultColor());
+            }
+            out.writeBoolean(state.mAutoMirrored);
+            out.writeFloat(pathRenderer.mBaseWidth);
+            out.writeFloat(pathRenderer.mBaseHeight);
+            out.writeFloat(pathRenderer.mViewportWidth);
+            out.writeFloat(pathRenderer.mViewportHeight);
+            out.writeInt(pathRenderer.getRootAlpha());
+            writeCompiledString(out, pathRenderer.mRootName);
+            pathRenderer.mRootGroup.writeChildren(out);
+            out.flush();
+        } catch (IOException e) {
+            Log.w(LOGTAG, "Can't write the compiled drawable", e);
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Creates a VectorDrawableCompat from its compiled form, written by {@link #toCompiledData()}.
+     *
+     * @return the drawable, or null if the data isn't a valid compiled drawable.
+     */
+    @Nullable
+    static VectorDrawableCompat createFromCompiledData(@NonNull byte[] data) {
+        final ByteBuffer in = ByteBuffer.wrap(data);
+        final VectorDrawableCompat drawable = new VectorDrawableCompat();
+        final VectorDrawableCompatState state = drawable.mVectorState;
+        final VPathRenderer pathRenderer = state.mVPathRenderer;
+        try {
+            if (in.getInt() != COMPILED_MAGIC || in.getInt() != COMPILED_VERSION) {
+                return null;
+            }
+            state.mChangingConfigurations = in.getInt();
+            state.mTintMode = Mode.valueOf(readCompiledName(in));
+            if (in.get() != 0) {
+                state.mTint = ColorStateList.valueOf(in.getInt());
+            }
+            state.mAutoMirrored = in.get() != 0;
+            pathRenderer.mBaseWidth = in.getFloat();
+            pathRenderer.mBaseHeight = in.getFloat();
+            pathRenderer.mViewportWidth = in.getFloat();
+            pathRenderer.mViewportHeight = in.getFloat();
+            pathRenderer.setRootAlpha(in.getInt());
+            final String name = readCompiledString(in);
+            if (name != null) {
+                pathRenderer.mRootName = name;
+                pathRenderer.mVGTargetsMap.put(name, pathRenderer);
+            }
+            pathRenderer.mRootGroup.readChildren(in, pathRenderer.mVGTargetsMap);
+            if (in.hasRemaining()) {
+                throw new IllegalArgumentException("Unexpected data after the root group");
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            Log.w(LOGTAG, "Invalid compiled drawable", e);
+            return null;
+        }
+        state.mCacheDirty = true;
+        drawable.mTintFilter = drawable.updateTintFilter(drawable.mTintFilter, state.mTint,
+                state.mTintMode);
+        return drawable;
+    }
+
+    static void writeCompiledString(DataOutputStream out, @Nullable String value)
+            throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.length());
+        out.writeChars(value);
+    }
+
+    @Nullable
+    static String readCompiledString(ByteBuffer in) {
+        final int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining() / 2) {
+            throw new IllegalArgumentException("Invalid string length " + length);
+        }
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = in.getChar();
+        }
+        return new String(chars);
+    }
+
+    static String readCompiledName(ByteBuffer in) {
+        final String name = readCompiledString(in);
+        if (name == null) {
+            throw new IllegalArgumentException("Missing name");
+        }
+        return name;
+    }
+
+    /**
+     * Returns whether the attributes reference theme attributes, whose values depend on the
+     * theme the drawable is inflated with.
+     */
+    private static boolean hasThemeAttributes(AttributeSet attrs) {
+        for (int i = 0; i < attrs.getAttributeCount(); i++) {
+            final String value = attrs.getAttributeValue(i);
+            if (value != null && value.startsWith("?")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     static int applyAlpha(int color, float alpha) {
         int alphaBytes = alpha(color);
         color &= 0x00FFFFFF;
@@ -723,6 +913,8 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
         a.recycle();
         state.mChangingConfigurations = getChangingConfigurations();
         state.mCacheDirty = true;
+        mCompilable = !hasThemeAttributes(attrs)
+                && (state.mTint == null || !state.mTint.isStateful());
         inflateInternal(res, parser, attrs, theme);
 
         mTintFilter = updateTintFilter(mTintFilter, state.mTint, state.mTintMode);
@@ -834,6 +1026,9 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
             if (eventType == XmlPullParser.START_TAG) {
                 final String tagName = parser.getName();
                 final VGroup currentGroup = groupStack.peek();
+                if (mCompilable && hasThemeAttributes(attrs)) {
+                    mCompilable = false;
+                }
                 if (SHAPE_PATH.equals(tagName)) {
                     final VFullPath path = new VFullPath();
                     path.inflate(res, attrs, theme, parser);
@@ -843,6 +1038,9 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
                     }
                     noPathTag = false;
                     state.mChangingConfigurations |= path.mChangingConfigurations;
+                    if (!path.isCompilable()) {
+                        mCompilable = false;
+                    }
                 } else if (SHAPE_CLIP_PATH.equals(tagName)) {
                     final VClipPath path = new VClipPath();
                     path.inflate(res, attrs, theme, parser);
@@ -1318,7 +1516,7 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
                 }
                 mRenderPath.addPath(path, mFinalPathMatrix);
 
-                if (fullPath.mFillColor.willDraw()) {
+                if (fullPath.willDrawFill()) {
                     final ComplexColorCompat fill = fullPath.mFillColor;
                     if (mFillPaint == null) {
                         mFillPaint = new Paint(ANTI_ALIAS_FLAG);
@@ -1326,7 +1524,7 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
                     }
 
                     final Paint fillPaint = mFillPaint;
-                    if (fill.isGradient()) {
+                    if (fill != null && fill.isGradient()) {
                         final Shader shader = fill.getShader();
                         shader.setLocalMatrix(mFinalPathMatrix);
                         fillPaint.setShader(shader);
@@ -1334,7 +1532,8 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
                     } else {
                         fillPaint.setShader(null);
                         fillPaint.setAlpha(255);
-                        fillPaint.setColor(applyAlpha(fill.getColor(), fullPath.mFillAlpha));
+                        fillPaint.setColor(applyAlpha(fullPath.getFillColor(),
+                                fullPath.mFillAlpha));
                     }
                     fillPaint.setColorFilter(filter);
                     mRenderPath.setFillType(fullPath.mFillRule == 0 ? Path.FillType.WINDING
@@ -1342,7 +1541,7 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
                     canvas.drawPath(mRenderPath, fillPaint);
                 }
 
-                if (fullPath.mStrokeColor.willDraw()) {
+                if (fullPath.willDrawStroke()) {
                     final ComplexColorCompat strokeColor = fullPath.mStrokeColor;
                     if (mStrokePaint == null) {
                         mStrokePaint = new Paint(ANTI_ALIAS_FLAG);
@@ -1359,7 +1558,7 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
                     }
 
                     strokePaint.setStrokeMiter(fullPath.mStrokeMiterlimit);
-                    if (strokeColor.isGradient()) {
+                    if (strokeColor != null && strokeColor.isGradient()) {
                         final Shader shader = strokeColor.getShader();
                         shader.setLocalMatrix(mFinalPathMatrix);
                         strokePaint.setShader(shader);
@@ -1367,7 +1566,7 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
                     } else {
                         strokePaint.setShader(null);
                         strokePaint.setAlpha(255);
-                        strokePaint.setColor(applyAlpha(strokeColor.getColor(),
+                        strokePaint.setColor(applyAlpha(fullPath.getStrokeColor(),
                                 fullPath.mStrokeAlpha));
                     }
                     strokePaint.setColorFilter(filter);
@@ -1570,6 +1769,89 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
             mLocalMatrix.postTranslate(mTranslateX + mPivotX, mTranslateY + mPivotY);
         }
 
+        void writeChildren(DataOutputStream out) throws IOException {
+            for (int i = 0; i < mChildren.size(); i++) {
+                final VObject child = mChildren.get(i);
+                if (child instanceof VGroup) {
+                    out.writeByte(COMPILED_TAG_GROUP);
+                    ((VGroup) child).writeTo(out);
+                } else if (child instanceof VFullPath) {
+                    out.writeByte(COMPILED_TAG_PATH);
+                    ((VFullPath) child).writeTo(out);
+                } else if (child instanceof VClipPath) {
+                    out.writeByte(COMPILED_TAG_CLIP_PATH);
+                    ((VClipPath) child).writeTo(out);
+                } else {
+                    throw new IllegalStateException("Unknown object in the tree!");
+                }
+            }
+            out.writeByte(COMPILED_TAG_END);
+        }
+
+        void readChildren(ByteBuffer in, ArrayMap<String, Object> targetsMap) {
+            byte tag;
+            while ((tag = in.get()) != COMPILED_TAG_END) {
+                switch (tag) {
+                    case COMPILED_TAG_GROUP: {
+                        final VGroup group = new VGroup();
+                        mChildren.add(group);
+                        group.readFrom(in, targetsMap);
+                        break;
+                    }
+                    case COMPILED_TAG_PATH: {
+                        final VFullPath path = new VFullPath();
+                        path.readFrom(in);
+                        mChildren.add(path);
+                        if (path.getPathName() != null) {
+                            targetsMap.put(path.getPathName(), path);
+                        }
+                        break;
+                    }
+                    case COMPILED_TAG_CLIP_PATH: {
+                        final VClipPath path = new VClipPath();
+                        path.readFrom(in);
+                        mChildren.add(path);
+                        if (path.getPathName() != null) {
+                            targetsMap.put(path.getPathName(), path);
+                        }
+                        break;
+                    }
+                    default:
+                        throw new IllegalArgumentException("Unknown tag " + tag);
+                }
+            }
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(mChangingConfigurations);
+            writeCompiledString(out, mGroupName);
+            out.writeFloat(mRotate);
+            out.writeFloat(mPivotX);
+            out.writeFloat(mPivotY);
+            out.writeFloat(mScaleX);
+            out.writeFloat(mScaleY);
+            out.writeFloat(mTranslateX);
+            out.writeFloat(mTranslateY);
+            writeChildren(out);
+        }
+
+        private void readFrom(ByteBuffer in, ArrayMap<String, Object> targetsMap) {
+            mChangingConfigurations = in.getInt();
+            mGroupName = readCompiledString(in);
+            mRotate = in.getFloat();
+            mPivotX = in.getFloat();
+            mPivotY = in.getFloat();
+            mScaleX = in.getFloat();
+            mScaleY = in.getFloat();
+            mTranslateX = in.getFloat();
+            mTranslateY = in.getFloat();
+            updateLocalMatrix();
+            if (mGroupName != null) {
+                targetsMap.put(mGroupName, this);
+            }
+            readChildren(in, targetsMap);
+        }
+
         /* Setters and Getters, used by animator from AnimatedVectorDrawable. */
         @SuppressWarnings("unused")
         public float getRotation() {
@@ -1687,7 +1969,13 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
      */
     private abstract static class VPath extends VObject {
         protected static final int FILL_TYPE_WINDING = 0;
+        // Copied to create the nodes read from the compiled form.
+        private static final PathParser.PathDataNode COMPILED_NODE_TEMPLATE =
+                PathParser.createNodesFromPathData("z")[0];
         protected PathParser.PathDataNode[] mNodes = null;
+        // Whether mNodes are shared with the copies of this path made for other constant states,
+        // and must be copied before being modified.
+        boolean mNodesShared;
         String mPathName;
         // Default fill rule is winding, or as known as "non-zero".
         int mFillRule = FILL_TYPE_WINDING;
@@ -1722,7 +2010,10 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
         VPath(VPath copy) {
             mPathName = copy.mPathName;
             mChangingConfigurations = copy.mChangingConfigurations;
-            mNodes = PathParser.deepCopyNodes(copy.mNodes);
+            // The nodes are only copied when one of the paths is animated.
+            mNodes = copy.mNodes;
+            mNodesShared = true;
+            copy.mNodesShared = true;
         }
 
         public void toPath(Path path) {
@@ -1736,6 +2027,56 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
             return mPathName;
         }
 
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(mChangingConfigurations);
+            writeCompiledString(out, mPathName);
+            out.writeInt(mFillRule);
+            if (mNodes == null) {
+                out.writeInt(-1);
+                return;
+            }
+            out.writeInt(mNodes.length);
+            for (PathParser.PathDataNode node : mNodes) {
+                out.writeChar(node.mType);
+                out.writeInt(node.mParams.length);
+                for (float param : node.mParams) {
+                    out.writeFloat(param);
+                }
+            }
+        }
+
+        void readFrom(ByteBuffer in) {
+            mChangingConfigurations = in.getInt();
+            mPathName = readCompiledString(in);
+            mFillRule = in.getInt();
+            final int nodeCount = in.getInt();
+            if (nodeCount < 0) {
+                return;
+            }
+            // Each node takes at least 6 bytes.
+            if (nodeCount > in.remaining() / 6) {
+                throw new IllegalArgumentException("Invalid node count " + nodeCount);
+            }
+            // The constructor of the nodes isn't public in core 1.1.0, they are copies of a
+            // parsed node that are then overwritten.
+            final PathParser.PathDataNode[] nodes = new PathParser.PathDataNode[nodeCount];
+            Arrays.fill(nodes, COMPILED_NODE_TEMPLATE);
+            mNodes = PathParser.deepCopyNodes(nodes);
+            for (int i = 0; i < nodeCount; i++) {
+                final char type = in.getChar();
+                final int paramCount = in.getInt();
+                if (paramCount < 0 || paramCount > in.remaining() / 4) {
+                    throw new IllegalArgumentException("Invalid param count " + paramCount);
+                }
+                final float[] params = new float[paramCount];
+                for (int j = 0; j < paramCount; j++) {
+                    params[j] = in.getFloat();
+                }
+                mNodes[i].mType = type;
+                mNodes[i].mParams = params;
+            }
+        }
+
         public boolean canApplyTheme() {
             return false;
         }
@@ -1758,7 +2099,12 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
             if (!PathParser.canMorph(mNodes, nodes)) {
                 // This should not happen in the middle of animation.
                 mNodes = PathParser.deepCopyNodes(nodes);
+                mNodesShared = false;
             } else {
+                if (mNodesShared) {
+                    mNodes = PathParser.deepCopyNodes(mNodes);
+                    mNodesShared = false;
+                }
                 PathParser.updateNodes(mNodes, nodes);
             }
         }
@@ -1825,6 +2171,12 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
         float mStrokeWidth = 0;
 
         ComplexColorCompat mFillColor;
+        // Colors of the paths read from the compiled form, which have no complex colors since
+        // ComplexColorCompat can't be created from a plain color with the API of core 1.1.0.
+        @ColorInt
+        int mCompiledStrokeColor = TRANSPARENT;
+        @ColorInt
+        int mCompiledFillColor = TRANSPARENT;
         float mStrokeAlpha = 1.0f;
         float mFillAlpha = 1.0f;
         float mTrimPathStart = 0;
@@ -1847,6 +2199,8 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
             mStrokeWidth = copy.mStrokeWidth;
             mStrokeAlpha = copy.mStrokeAlpha;
             mFillColor = copy.mFillColor;
+            mCompiledStrokeColor = copy.mCompiledStrokeColor;
+            mCompiledFillColor = copy.mCompiledFillColor;
             mFillRule = copy.mFillRule;
             mFillAlpha = copy.mFillAlpha;
             mTrimPathStart = copy.mTrimPathStart;
@@ -1858,6 +2212,61 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
             mStrokeMiterlimit = copy.mStrokeMiterlimit;
         }
 
+        /**
+         * Returns whether the colors of this path can be written in the compiled form, which
+         * only has plain colors.
+         */
+        boolean isCompilable() {
+            return isPlainColor(mFillColor) && isPlainColor(mStrokeColor);
+        }
+
+        private static boolean isPlainColor(@Nullable ComplexColorCompat color) {
+            return color == null || (!color.isGradient() && !color.isStateful());
+        }
+
+        @Override
+        void writeTo(DataOutputStream out) throws IOException {
+            super.writeTo(out);
+            out.writeInt(getFillColor());
+            out.writeFloat(mFillAlpha);
+            out.writeInt(getStrokeColor());
+            out.writeFloat(mStrokeAlpha);
+            out.writeFloat(mStrokeWidth);
+            out.writeFloat(mTrimPathStart);
+            out.writeFloat(mTrimPathEnd);
+            out.writeFloat(mTrimPathOffset);
+            writeCompiledString(out, mStrokeLineCap.name());
+            writeCompiledString(out, mStrokeLineJoin.name());
+            out.writeFloat(mStrokeMiterlimit);
+        }
+
+        @Override
+        void readFrom(ByteBuffer in) {
+            super.readFrom(in);
+            mFillColor = null;
+            mCompiledFillColor = in.getInt();
+            mFillAlpha = in.getFloat();
+            mStrokeColor = null;
+            mCompiledStrokeColor = in.getInt();
+            mStrokeAlpha = in.getFloat();
+            mStrokeWidth = in.getFloat();
+            mTrimPathStart = in.getFloat();
+            mTrimPathEnd = in.getFloat();
+            mTrimPathOffset = in.getFloat();
+            mStrokeLineCap = Cap.valueOf(readCompiledName(in));
+            mStrokeLineJoin = Join.valueOf(readCompiledName(in));
+            mStrokeMiterlimit = in.getFloat();
+        }
+
+        boolean willDrawFill() {
+            return mFillColor != null ? mFillColor.willDraw() : mCompiledFillColor != TRANSPARENT;
+        }
+
+        boolean willDrawStroke() {
+            return mStrokeColor != null ? mStrokeColor.willDraw()
+                    : mCompiledStrokeColor != TRANSPARENT;
+        }
+
         private Cap getStrokeLineCap(int id, Cap defValue) {
             switch (id) {
                 case LINECAP_BUTT:
@@ -1960,13 +2369,14 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
 
         @Override
         public boolean isStateful() {
-            return mFillColor.isStateful() || mStrokeColor.isStateful();
+            return (mFillColor != null && mFillColor.isStateful())
+                    || (mStrokeColor != null && mStrokeColor.isStateful());
         }
 
         @Override
         public boolean onStateChanged(int[] stateSet) {
-            boolean changed = mFillColor.onStateChanged(stateSet);
-            changed |= mStrokeColor.onStateChanged(stateSet);
+            boolean changed = mFillColor != null && mFillColor.onStateChanged(stateSet);
+            changed |= mStrokeColor != null && mStrokeColor.onStateChanged(stateSet);
             return changed;
         }
 
@@ -1987,12 +2397,16 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
         @SuppressWarnings("unused")
         @ColorInt
         int getStrokeColor() {
-            return mStrokeColor.getColor();
+            return mStrokeColor != null ? mStrokeColor.getColor() : mCompiledStrokeColor;
         }
 
         @SuppressWarnings("unused")
         void setStrokeColor(int strokeColor) {
-            mStrokeColor.setColor(strokeColor);
+            if (mStrokeColor != null) {
+                mStrokeColor.setColor(strokeColor);
+            } else {
+                mCompiledStrokeColor = strokeColor;
+            }
         }
 
         @SuppressWarnings("unused")
@@ -2018,12 +2432,16 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
         @SuppressWarnings("unused")
         @ColorInt
         int getFillColor() {
-            return mFillColor.getColor();
+            return mFillColor != null ? mFillColor.getColor() : mCompiledFillColor;
         }
 
         @SuppressWarnings("unused")
         void setFillColor(int fillColor) {
-            mFillColor.setColor(fillColor);
+            if (mFillColor != null) {
+                mFillColor.setColor(fillColor);
+            } else {
+                mCompiledFillColor = fillColor;
+            }
         }
 
         @SuppressWarnings("unused")
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.versionedparcelable.benchmark
+
+import android.os.Parcel
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.media2.common.MediaItem
+import androidx.media2.common.MediaItemParcelizer
+import androidx.media2.common.MediaMetadata
+import androidx.media2.common.MediaMetadataParcelizer
+import androidx.media2.common.MediaParcelUtils
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.versionedparcelable.ParcelImpl
+import androidx.versionedparcelable.ParcelUtils
+import androidx.versionedparcelable.ParcelizerRegistry
+import androidx.versionedparcelable.VersionedParcel
+import androidx.versionedparcelable.VersionedParcelizer
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+
+/**
+ * Serializes a media2 playlist, the way MediaSession sends it to its controllers.
+ */
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class PlaylistSerializationBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val playlist = List(PLAYLIST_SIZE) { index ->
+        val metadata = MediaMetadata.Builder()
+            .putString(MediaMetadata.METADATA_KEY_MEDIA_ID, "media_$index")
+            .putString(MediaMetadata.METADATA_KEY_TITLE, "Title $index")
+            .putString(MediaMetadata.METADATA_KEY_ARTIST, "Artist ${index % 50}")
+            .putString(MediaMetadata.METADATA_KEY_ALBUM_ART_URI, "content://art/$index")
+            .putLong(MediaMetadata.METADATA_KEY_DURATION, 180_000L + index)
+            .build()
+        MediaItem.Builder().setMetadata(metadata).build()
+    }
+
+    @Test
+    fun writePlaylistToParcel() {
+        benchmarkRule.measureRepeated {
+            val parcel = Parcel.obtain()
+            parcel.writeTypedList(MediaParcelUtils.toParcelableList(playlist))
+            parcel.marshall()
+            runWithTimingDisabled { parcel.recycle() }
+        }
+    }
+
+    @Test
+    fun readPlaylistFromParcel() {
+        val parcel = Parcel.obtain()
+        parcel.writeTypedList(MediaParcelUtils.toParcelableList(playlist))
+        val bytes = parcel.marshall()
+        parcel.recycle()
+
+        benchmarkRule.measureRepeated {
+            val input = Parcel.obtain()
+            input.unmarshall(bytes, 0, bytes.size)
+            input.setDataPosition(0)
+            val items = MediaParcelUtils.fromParcelableList<MediaItem>(
+                input.createTypedArrayList(ParcelImpl.CREATOR)!!
+            )
+            check(items.size == PLAYLIST_SIZE)
+            runWithTimingDisabled { input.recycle() }
+        }
+    }
+
+    @Test
+    fun writePlaylistToStream() {
+        val output = ByteArrayOutputStream()
+        benchmarkRule.measureRepeated {
+            output.reset()
+            playlist.forEach { ParcelUtils.toOutputStream(it, output) }
+        }
+    }
+
+    @Test
+    fun readPlaylistFromStream() {
+        val items = playlist.map {
+            val output = ByteArrayOutputStream()
+            ParcelUtils.toOutputStream(it, output)
+            output.toByteArray()
+        }
+
+        benchmarkRule.measureRepeated {
+            items.forEach {
+                checkNotNull(ParcelUtils.fromInputStream<MediaItem>(ByteArrayInputStream(it)))
+            }
+        }
+    }
+
+    companion object {
+        private const val PLAYLIST_SIZE = 1000
+
+        init {
+            // media2 is compiled against a versionedparcelable release that predates
+            // ParcelizerRegistry, so its parcelizers don't register themselves.
+            ParcelizerRegistry.register(
+                MediaItem::class.java,
+                MediaItemParcelizer::class.java.name,
+                object : VersionedParcelizer<MediaItem> {
+                    override fun readFromParcel(parcel: VersionedParcel) =
+                        MediaItemParcelizer.read(parcel)
+
+                    override fun writeToParcel(obj: MediaItem, parcel: VersionedParcel) =
+                        MediaItemParcelizer.write(obj, parcel)
+                }
+            )
+            ParcelizerRegistry.register(
+                MediaMetadata::class.java,
+                MediaMetadataParcelizer::class.java.name,
+                object : VersionedParcelizer<MediaMetadata> {
+                    override fun readFromParcel(parcel: VersionedParcel) =
+                        MediaMetadataParcelizer.read(parcel)
+
+                    override fun writeToParcel(obj: MediaMetadata, parcel: VersionedParcel) =
+                        MediaMetadataParcelizer.write(obj, parcel)
+                }
+            )
+        }
+    }
+}
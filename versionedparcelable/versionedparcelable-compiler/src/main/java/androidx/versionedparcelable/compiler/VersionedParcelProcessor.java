@@ -17,9 +17,11 @@ package androidx.versionedparcelable.compiler;
 
 import com.squareup.javapoet.AnnotationSpec;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 
@@ -73,6 +75,10 @@ public class VersionedParcelProcessor extends AbstractProcessor {
     private static final ClassName RESTRICT_TO_SCOPE = RESTRICT_TO.nestedClass("Scope");
     private static final ClassName VERSIONED_PARCEL =
             ClassName.get("androidx.versionedparcelable", "VersionedParcel");
+    private static final ClassName VERSIONED_PARCELIZER =
+            ClassName.get("androidx.versionedparcelable", "VersionedParcelizer");
+    private static final ClassName PARCELIZER_REGISTRY =
+            ClassName.get("androidx.versionedparcelable", "ParcelizerRegistry");
 
     private static final String GEN_SUFFIX = "Parcelizer";
     private static final String READ = "read";
@@ -306,9 +312,15 @@ public class VersionedParcelProcessor extends AbstractProcessor {
         readBuilder.addStatement("return obj");
         genClass.addMethod(readBuilder.build());
         genClass.addMethod(writeBuilder.build());
+        String pkg = getPkg(versionedParcelable);
+        String genName = pkg + "." + versionedParcelable.getSimpleName() + GEN_SUFFIX;
+        boolean registerParcelizers = isParcelizerRegistryAvailable();
+        if (registerParcelizers) {
+            addParcelizerImplementation(genClass, type, genName,
+                    versionedParcelable.getSimpleName() + GEN_SUFFIX);
+        }
         try {
             TypeSpec typeSpec = genClass.build();
-            String pkg = getPkg(versionedParcelable);
             JavaFile.builder(pkg,
                     typeSpec).build().writeTo(mEnv.getFiler());
             if (jetifyAs != null && jetifyAs.length() > 0) {
@@ -338,6 +350,13 @@ public class VersionedParcelProcessor extends AbstractProcessor {
                         .addParameter(VERSIONED_PARCEL, "parcel")
                         .addStatement("$L.write(obj, parcel)", superCls)
                         .build());
+                if (registerParcelizers) {
+                    String jetifiedName = jetifyAs.substring(index + 1, jetifyAs.length() - 1)
+                            + GEN_SUFFIX;
+                    jetifyClass.addStaticBlock(CodeBlock.of(
+                            "$T.registerAlias($S, new $L());\n",
+                            PARCELIZER_REGISTRY, jetPkg + "." + jetifiedName, jetifiedName));
+                }
                 TypeSpec jetified = jetifyClass.build();
                 JavaFile.builder(jetPkg, jetified).build().writeTo(mEnv.getFiler());
             }
@@ -346,6 +365,41 @@ public class VersionedParcelProcessor extends AbstractProcessor {
         }
     }
 
+    /**
+     * Libraries may compile against a versionedparcelable runtime that predates
+     * ParcelizerRegistry, in which case parcelizers are still looked up through reflection.
+     */
+    private boolean isParcelizerRegistryAvailable() {
+        return mEnv.getElementUtils().getTypeElement(PARCELIZER_REGISTRY.toString()) != null;
+    }
+
+    /**
+     * Makes the generated parcelizer implement VersionedParcelizer and register itself with
+     * ParcelizerRegistry when it's initialized, so that it's called without reflection.
+     */
+    private void addParcelizerImplementation(TypeSpec.Builder genClass, TypeName type,
+            String genName, String genSimpleName) {
+        genClass.addSuperinterface(ParameterizedTypeName.get(VERSIONED_PARCELIZER, type));
+        genClass.addStaticBlock(CodeBlock.of("$T.register($T.class, $S, new $L());\n",
+                PARCELIZER_REGISTRY, type, genName, genSimpleName));
+        genClass.addMethod(MethodSpec
+                .methodBuilder("readFromParcel")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(type)
+                .addParameter(VERSIONED_PARCEL, "parcel")
+                .addStatement("return $L(parcel)", READ)
+                .build());
+        genClass.addMethod(MethodSpec
+                .methodBuilder("writeToParcel")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(type, "obj")
+                .addParameter(VERSIONED_PARCEL, "parcel")
+                .addStatement("$L(obj, parcel)", WRITE)
+                .build());
+    }
+
     private String strip(String s) {
         if (!s.startsWith("\"")) return s;
         return s.substring(1, s.length() - 1);
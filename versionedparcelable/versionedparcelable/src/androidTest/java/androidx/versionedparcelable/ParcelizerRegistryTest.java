@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.versionedparcelable;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class ParcelizerRegistryTest {
+
+    @Test
+    public void generatedParcelizerRegistersItself() {
+        RegisteredParcelable parcelable = new RegisteredParcelable();
+        parcelable.mField = 42;
+
+        RegisteredParcelable result = roundTrip(parcelable);
+
+        assertThat(result.mField).isEqualTo(42);
+        ParcelizerRegistry.Entry entry = ParcelizerRegistry.forClass(RegisteredParcelable.class);
+        assertThat(entry).isNotNull();
+        assertThat(entry.mName)
+                .isEqualTo("androidx.versionedparcelable.RegisteredParcelableParcelizer");
+        assertThat(ParcelizerRegistry.forName(entry.mName)).isSameInstanceAs(entry.mParcelizer);
+    }
+
+    @Test
+    public void nestedFieldsReuseBuffers() {
+        NestedParcelable parcelable = new NestedParcelable();
+        parcelable.mChildren = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            RegisteredParcelable child = new RegisteredParcelable();
+            child.mField = i;
+            parcelable.mChildren.add(child);
+        }
+
+        NestedParcelable result = roundTrip(parcelable);
+
+        assertThat(result.mChildren).hasSize(100);
+        for (int i = 0; i < 100; i++) {
+            assertThat(result.mChildren.get(i).mField).isEqualTo(i);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends VersionedParcelable> T roundTrip(T parcelable) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ParcelUtils.toOutputStream(parcelable, output);
+        return (T) ParcelUtils.fromInputStream(new ByteArrayInputStream(output.toByteArray()));
+    }
+
+    @VersionedParcelize(allowSerialization = true)
+    public static class RegisteredParcelable implements VersionedParcelable {
+        @ParcelField(1)
+        public int mField;
+    }
+
+    @VersionedParcelize(allowSerialization = true)
+    public static class NestedParcelable implements VersionedParcelable {
+        @ParcelField(1)
+        public List<RegisteredParcelable> mChildren;
+    }
+}
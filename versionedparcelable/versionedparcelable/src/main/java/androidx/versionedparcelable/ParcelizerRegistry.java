@@ -0,0 +1,91 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.versionedparcelable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry of {@link VersionedParcelizer}s.
+ * <p>
+ * Generated parcelizers register themselves when their class is initialized, so a parcelizer is
+ * looked up through reflection at most once per process. Libraries can also register their
+ * parcelizers ahead of time to skip that lookup entirely.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+public final class ParcelizerRegistry {
+
+    private static final ConcurrentHashMap<String, VersionedParcelizer<?>> sByName =
+            new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Class<?>, Entry> sByClass =
+            new ConcurrentHashMap<>();
+
+    private ParcelizerRegistry() {
+    }
+
+    /**
+     * Registers the parcelizer of the given class.
+     *
+     * @param cls The {@link VersionedParcelable} class
+     * @param parcelizerName The name of the parcelizer class, which is what gets written to
+     *                       parcels to identify the type of an object
+     * @param parcelizer The parcelizer
+     */
+    public static <T extends VersionedParcelable> void register(@NonNull Class<T> cls,
+            @NonNull String parcelizerName, @NonNull VersionedParcelizer<T> parcelizer) {
+        sByName.putIfAbsent(parcelizerName, parcelizer);
+        sByClass.putIfAbsent(cls, new Entry(parcelizerName, parcelizer));
+    }
+
+    /**
+     * Registers a parcelizer that is only used to read parcels that reference it by name, like
+     * the ones generated for {@link VersionedParcelize#jetifyAs()}.
+     *
+     * @param parcelizerName The name of the parcelizer class
+     * @param parcelizer The parcelizer
+     */
+    public static void registerAlias(@NonNull String parcelizerName,
+            @NonNull VersionedParcelizer<?> parcelizer) {
+        sByName.putIfAbsent(parcelizerName, parcelizer);
+    }
+
+    @Nullable
+    static VersionedParcelizer<?> forName(@NonNull String parcelizerName) {
+        return sByName.get(parcelizerName);
+    }
+
+    @Nullable
+    static Entry forClass(@NonNull Class<?> cls) {
+        return sByClass.get(cls);
+    }
+
+    static final class Entry {
+        @NonNull
+        final String mName;
+        @NonNull
+        final VersionedParcelizer<?> mParcelizer;
+
+        Entry(@NonNull String name, @NonNull VersionedParcelizer<?> parcelizer) {
+            mName = name;
+            mParcelizer = parcelizer;
+        }
+    }
+}
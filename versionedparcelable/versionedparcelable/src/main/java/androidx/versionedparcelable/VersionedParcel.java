@@ -1062,6 +1062,11 @@ public abstract class VersionedParcel {
     }
 
     private void writeVersionedParcelableCreator(@NonNull VersionedParcelable p) {
+        ParcelizerRegistry.Entry registered = ParcelizerRegistry.forClass(p.getClass());
+        if (registered != null) {
+            writeString(registered.mName);
+            return;
+        }
         Class<?> name;
         try {
             name = findParcelClass(p.getClass());
@@ -1593,7 +1598,13 @@ public abstract class VersionedParcel {
             @NonNull String parcelCls,
             @NonNull VersionedParcel versionedParcel
     ) {
+        VersionedParcelizer<?> parcelizer = ParcelizerRegistry.forName(parcelCls);
+        if (parcelizer != null) {
+            return (T) parcelizer.readFromParcel(versionedParcel);
+        }
         try {
+            // parcelizers that register themselves do so while getting loaded here, so the
+            // next read of this type goes through the registry
             Method m = getReadMethod(parcelCls);
             return (T) m.invoke(null, versionedParcel);
         } catch (IllegalAccessException e) {
@@ -1616,10 +1627,16 @@ public abstract class VersionedParcel {
 
     /**
      */
+    @SuppressWarnings("unchecked")
     protected <T extends VersionedParcelable> void writeToParcel(
             @NonNull T val,
             @NonNull VersionedParcel versionedParcel
     ) {
+        ParcelizerRegistry.Entry registered = ParcelizerRegistry.forClass(val.getClass());
+        if (registered != null) {
+            ((VersionedParcelizer<T>) registered.mParcelizer).writeToParcel(val, versionedParcel);
+            return;
+        }
         try {
             Method m = getWriteMethod(val.getClass());
             m.invoke(null, val, versionedParcel);
@@ -1672,7 +1689,8 @@ public abstract class VersionedParcel {
         if (ret == null) {
             String pkg = cls.getPackage().getName();
             String c = String.format("%s.%sParcelizer", pkg, cls.getSimpleName());
-            ret = Class.forName(c, false, cls.getClassLoader());
+            // initialize the class so that it can register itself with ParcelizerRegistry
+            ret = Class.forName(c, true, cls.getClassLoader());
             mParcelizerCache.put(cls.getName(), ret);
         }
         return ret;
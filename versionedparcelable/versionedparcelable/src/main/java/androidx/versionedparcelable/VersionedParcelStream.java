@@ -26,7 +26,6 @@ import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 import androidx.collection.SimpleArrayMap;
 
-import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.FilterInputStream;
@@ -35,6 +34,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Method;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Set;
 
 /**
@@ -157,8 +157,12 @@ class VersionedParcelStream extends VersionedParcel {
                 }
             } catch (IOException e) {
                 throw new ParcelException(e);
+            } finally {
+                mFieldBuffer.recycle();
+                mFieldBuffer = null;
+                // the buffer is reused by other fields, it must not be written through anymore
+                mCurrentOutput = mMasterOutput;
             }
-            mFieldBuffer = null;
         }
     }
 
@@ -200,7 +204,7 @@ class VersionedParcelStream extends VersionedParcel {
     @Override
     public void setOutputField(int fieldId) {
         closeField();
-        mFieldBuffer = new FieldBuffer(fieldId, mMasterOutput);
+        mFieldBuffer = FieldBuffer.obtain(fieldId, mMasterOutput);
         mCurrentOutput = mFieldBuffer.mDataStream;
     }
 
@@ -556,19 +560,55 @@ class VersionedParcelStream extends VersionedParcel {
 
     // This uses extra buffers at the moment, but makes the code really clean.
     // TODO: Use less buffers
+    /**
+     * Buffers the content of a field until its size is known. Buffers are pooled process-wide
+     * since every field of every nested object needs one while it is being written.
+     */
     private static class FieldBuffer {
 
+        private static final int POOL_SIZE = 16;
+        // larger buffers are dropped instead of pooled so the pool doesn't pin a lot of memory
+        private static final int MAX_POOLED_SIZE = 64 * 1024;
+
+        private static final FieldBuffer[] sPool = new FieldBuffer[POOL_SIZE];
+        private static int sPoolCount;
+
         @NonNull
-        final ByteArrayOutputStream mOutput = new ByteArrayOutputStream();
+        final ReusableByteArrayOutputStream mOutput = new ReusableByteArrayOutputStream();
         @NonNull
         final DataOutputStream mDataStream = new DataOutputStream(mOutput);
-        private final int mFieldId;
+        private int mFieldId;
+        @Nullable
+        private DataOutputStream mTarget;
+
         @NonNull
-        private final DataOutputStream mTarget;
+        static FieldBuffer obtain(int fieldId, @NonNull DataOutputStream target) {
+            FieldBuffer buffer = null;
+            synchronized (sPool) {
+                if (sPoolCount > 0) {
+                    buffer = sPool[--sPoolCount];
+                    sPool[sPoolCount] = null;
+                }
+            }
+            if (buffer == null) {
+                buffer = new FieldBuffer();
+            }
+            buffer.mFieldId = fieldId;
+            buffer.mTarget = target;
+            return buffer;
+        }
 
-        FieldBuffer(int fieldId, @NonNull DataOutputStream target) {
-            mFieldId = fieldId;
-            mTarget = target;
+        void recycle() {
+            mTarget = null;
+            if (mOutput.size() > MAX_POOLED_SIZE) {
+                return;
+            }
+            mOutput.reset();
+            synchronized (sPool) {
+                if (sPoolCount < POOL_SIZE) {
+                    sPool[sPoolCount++] = this;
+                }
+            }
         }
 
         void flushField() throws IOException {
@@ -583,4 +623,47 @@ class VersionedParcelStream extends VersionedParcel {
         }
     }
 
+    /**
+     * Unsynchronized replacement of {@link java.io.ByteArrayOutputStream} that keeps its array
+     * across {@link #reset()}.
+     */
+    private static class ReusableByteArrayOutputStream extends OutputStream {
+        private static final int INITIAL_CAPACITY = 64;
+
+        @NonNull
+        private byte[] mBuffer = new byte[INITIAL_CAPACITY];
+        private int mCount;
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(mCount + 1);
+            mBuffer[mCount++] = (byte) b;
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) {
+            ensureCapacity(mCount + len);
+            System.arraycopy(b, off, mBuffer, mCount, len);
+            mCount += len;
+        }
+
+        int size() {
+            return mCount;
+        }
+
+        void reset() {
+            mCount = 0;
+        }
+
+        void writeTo(@NonNull OutputStream out) throws IOException {
+            out.write(mBuffer, 0, mCount);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > mBuffer.length) {
+                mBuffer = Arrays.copyOf(mBuffer, Math.max(capacity, mBuffer.length * 2));
+            }
+        }
+    }
+
 }
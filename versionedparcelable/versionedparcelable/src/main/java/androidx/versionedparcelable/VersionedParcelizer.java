@@ -0,0 +1,44 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.versionedparcelable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+/**
+ * Reads and writes one type of {@link VersionedParcelable}.
+ * <p>
+ * Parcelizers generated by versionedparcelable-compiler implement this interface and register
+ * themselves with {@link ParcelizerRegistry}, which lets {@link VersionedParcel} call them
+ * without reflection.
+ *
+ * @param <T> The type of {@link VersionedParcelable} this parcelizer handles
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+public interface VersionedParcelizer<T extends VersionedParcelable> {
+
+    /**
+     * Reads a new instance from the given parcel.
+     */
+    @NonNull
+    T readFromParcel(@NonNull VersionedParcel parcel);
+
+    /**
+     * Writes the given instance to the given parcel.
+     */
+    void writeToParcel(@NonNull T obj, @NonNull VersionedParcel parcel);
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.wear.tiles.renderer.benchmark
+
+import android.content.Context
+import android.view.View.MeasureSpec
+import android.widget.FrameLayout
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.core.content.ContextCompat
+import androidx.test.annotation.UiThreadTest
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.wear.tiles.proto.LayoutElementProto.Column
+import androidx.wear.tiles.proto.LayoutElementProto.Layout
+import androidx.wear.tiles.proto.LayoutElementProto.LayoutElement
+import androidx.wear.tiles.proto.LayoutElementProto.Row
+import androidx.wear.tiles.proto.LayoutElementProto.Text
+import androidx.wear.tiles.proto.ResourceProto.Resources
+import androidx.wear.tiles.proto.TypesProto.StringProp
+import androidx.wear.tiles.renderer.internal.StandardResourceResolvers
+import androidx.wear.tiles.renderer.internal.TileRendererInternal
+import com.google.common.truth.Truth.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Compares inflating a 200 element layout from scratch on every update with updating it with
+ * [TileRendererInternal.update], when a single Text changes between updates, like a clock.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class TileRendererUpdateBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val context: Context = ApplicationProvider.getApplicationContext()
+
+    @UiThreadTest
+    @Test
+    fun inflateEveryUpdate() {
+        val rootLayout = FrameLayout(context)
+        var tick = 0
+        benchmarkRule.measureRepeated {
+            val layout = runWithTimingDisabled { buildLayout(++tick) }
+            rootLayout.removeAllViews()
+            createRenderer(layout).inflate(rootLayout)
+            layout(rootLayout)
+        }
+    }
+
+    @UiThreadTest
+    @Test
+    fun updateEveryUpdate() {
+        val rootLayout = FrameLayout(context)
+        val renderer = createRenderer(buildLayout(0))
+        renderer.inflate(rootLayout)
+        var tick = 0
+        benchmarkRule.measureRepeated {
+            val layout = runWithTimingDisabled { buildLayout(++tick) }
+            renderer.update(rootLayout, layout)
+            layout(rootLayout)
+        }
+        // Only the changed Text is updated, in place.
+        assertThat(renderer.lastUpdateReusedPercentage).isEqualTo(100f)
+    }
+
+    private fun createRenderer(layout: Layout) = TileRendererInternal(
+        context,
+        layout,
+        StandardResourceResolvers.forLocalApp(Resources.getDefaultInstance(), context).build(),
+        ContextCompat.getMainExecutor(context),
+        { }
+    )
+
+    private fun layout(rootLayout: FrameLayout) {
+        val spec = MeasureSpec.makeMeasureSpec(SCREEN_SIZE, MeasureSpec.EXACTLY)
+        rootLayout.measure(spec, spec)
+        rootLayout.layout(0, 0, SCREEN_SIZE, SCREEN_SIZE)
+    }
+
+    private companion object {
+        const val ROW_COUNT = 20
+        // With the row itself, each row has 10 elements.
+        const val TEXTS_PER_ROW = 9
+        const val SCREEN_SIZE = 400
+
+        fun buildLayout(tick: Int): Layout {
+            val column = Column.newBuilder()
+            for (row in 0 until ROW_COUNT) {
+                val rowBuilder = Row.newBuilder()
+                for (i in 0 until TEXTS_PER_ROW) {
+                    // Only the first Text changes.
+                    val text = if (row == 0 && i == 0) "Tick $tick" else "Text $row.$i"
+                    rowBuilder.addContents(
+                        LayoutElement.newBuilder().setText(
+                            Text.newBuilder().setText(StringProp.newBuilder().setValue(text))
+                        )
+                    )
+                }
+                column.addContents(LayoutElement.newBuilder().setRow(rowBuilder))
+            }
+            return Layout.newBuilder()
+                .setRoot(LayoutElement.newBuilder().setColumn(column))
+                .build()
+        }
+    }
+}
@@ -38,7 +38,9 @@ import androidx.wear.tiles.StateBuilders
 import androidx.wear.tiles.TimelineBuilders
 import androidx.wear.tiles.checkers.TimelineChecker
 import androidx.wear.tiles.connection.DefaultTileClient
-import androidx.wear.tiles.renderer.TileRenderer
+import androidx.wear.tiles.proto.ResourceProto
+import androidx.wear.tiles.renderer.internal.StandardResourceResolvers
+import androidx.wear.tiles.renderer.internal.TileRendererInternal
 import androidx.wear.tiles.timeline.TilesTimelineManager
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
@@ -95,6 +97,11 @@ public class TileUiClient(
 
     private var isRunning = false
 
+    // Kept while the resources don't change, so that layout updates only re-inflate the elements
+    // that changed.
+    private var renderer: TileRendererInternal? = null
+    private var rendererResources: ResourceProto.Resources? = null
+
     /**
      * Initialize this {@link TileManager}. This will cause the {@link TileManager} to connect to
      * the tile service and request the first tile. It will also trigger any requested updates.
@@ -131,6 +138,8 @@ public class TileUiClient(
         updateScheduler.disableUpdates()
         timelineManager?.close()
         timelineManager = null
+        renderer = null
+        rendererResources = null
         isRunning = false
     }
 
@@ -192,16 +201,27 @@ public class TileUiClient(
     }
 
     private fun updateContents(layout: LayoutElementBuilders.Layout) {
-        parentView.removeAllViews()
-
-        val renderer = TileRenderer(
-            context,
-            layout,
-            tileResources!!,
-            ContextCompat.getMainExecutor(context),
-            { state -> coroutineScope.launch { requestTile(state) } }
-        )
-        renderer.inflate(parentView)?.apply {
+        val resources = tileResources!!.toProto()
+        val currentRenderer = renderer
+        val rootView = if (currentRenderer != null && resources == rendererResources) {
+            currentRenderer.update(parentView, layout.toProto())
+        } else {
+            parentView.removeAllViews()
+
+            val newRenderer = TileRendererInternal(
+                context,
+                layout.toProto(),
+                StandardResourceResolvers.forLocalApp(resources, context).build(),
+                ContextCompat.getMainExecutor(context),
+                { state ->
+                    coroutineScope.launch { requestTile(StateBuilders.State.fromProto(state)) }
+                }
+            )
+            renderer = newRenderer
+            rendererResources = resources
+            newRenderer.inflate(parentView)
+        }
+        rootView?.apply {
             (layoutParams as FrameLayout.LayoutParams).gravity = Gravity.CENTER
         }
     }
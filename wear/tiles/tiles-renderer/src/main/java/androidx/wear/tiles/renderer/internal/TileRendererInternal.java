@@ -125,8 +125,13 @@ import androidx.wear.widget.CurvedTextView;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
@@ -180,6 +185,20 @@ public final class TileRendererInternal {
     final Executor mLoadActionExecutor;
     final LoadActionListener mLoadActionListener;
 
+    // The resources can't change for the lifetime of this renderer, so each image resource is only
+    // resolved once, and shared by all the layouts rendered with it.
+    private final Map<String, ListenableFuture<Drawable>> mDrawableFutures = new HashMap<>();
+
+    // The elements of the last inflated layout, and their views. Used by #update to only inflate
+    // the elements that changed.
+    @Nullable private RenderedNode mRenderedRoot;
+
+    // The element being inflated, to which the inflated children are added.
+    @Nullable private RenderedNode mInflatingNode;
+
+    private int mLastUpdateNodeCount;
+    private int mLastUpdateReusedNodeCount;
+
     /**
      * Listener for clicks on Clickable objects that have an Action to (re)load the contents of a
      * tile.
@@ -913,14 +932,19 @@ public final class TileRendererInternal {
 
         layoutParams = updateLayoutParams(parent, layoutParams, width, height);
 
-        int gravity =
-                horizontalAlignmentToGravity(box.getHorizontalAlignment())
-                        | verticalAlignmentToGravity(box.getVerticalAlignment());
-
         View wrappedView = applyModifiers(frame, box.getModifiers());
 
         parent.addView(wrappedView, layoutParams);
         inflateLayoutElements(frame, box.getContentsList());
+        applyBoxLayoutToChildren(frame, box);
+
+        return wrappedView;
+    }
+
+    private void applyBoxLayoutToChildren(FrameLayout frame, Box box) {
+        int gravity =
+                horizontalAlignmentToGravity(box.getHorizontalAlignment())
+                        | verticalAlignmentToGravity(box.getVerticalAlignment());
 
         // We can't set layout gravity to a FrameLayout ahead of time (and foregroundGravity only
         // sets the gravity of the foreground Drawable). Go and apply gravity to the child.
@@ -953,8 +977,6 @@ public final class TileRendererInternal {
                     new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
             frame.addView(hackSpace, hackSpaceLp);
         }
-
-        return wrappedView;
     }
 
     @Nullable
@@ -1018,18 +1040,7 @@ public final class TileRendererInternal {
 
         LayoutParams layoutParams = generateDefaultLayoutParams();
 
-        // Underlines are applied using a Spannable here, rather than setting paint bits (or using
-        // Paint#setTextUnderline). When multiple fonts are mixed on the same line (especially when
-        // mixing anything with NotoSans-CJK), multiple underlines can appear. Using UnderlineSpan
-        // instead though causes the correct behaviour to happen (only a single underline).
-        SpannableStringBuilder ssb = new SpannableStringBuilder();
-        ssb.append(text.getText().getValue());
-
-        if (text.getFontStyle().getUnderline().getValue()) {
-            ssb.setSpan(new UnderlineSpan(), 0, ssb.length(), Spanned.SPAN_MARK_MARK);
-        }
-
-        textView.setText(ssb);
+        textView.setText(buildTextSpannable(text));
 
         textView.setEllipsize(textTruncationToEllipsize(text.getOverflow()));
         textView.setGravity(textAlignToAndroidGravity(text.getMultilineAlignment()));
@@ -1069,6 +1080,21 @@ public final class TileRendererInternal {
         return wrappedView;
     }
 
+    private static SpannableStringBuilder buildTextSpannable(Text text) {
+        // Underlines are applied using a Spannable here, rather than setting paint bits (or using
+        // Paint#setTextUnderline). When multiple fonts are mixed on the same line (especially when
+        // mixing anything with NotoSans-CJK), multiple underlines can appear. Using UnderlineSpan
+        // instead though causes the correct behaviour to happen (only a single underline).
+        SpannableStringBuilder ssb = new SpannableStringBuilder();
+        ssb.append(text.getText().getValue());
+
+        if (text.getFontStyle().getUnderline().getValue()) {
+            ssb.setSpan(new UnderlineSpan(), 0, ssb.length(), Spanned.SPAN_MARK_MARK);
+        }
+
+        return ssb;
+    }
+
     private View inflateArcText(ViewGroup parent, ArcText text) {
         CurvedTextView textView =
                 new CurvedTextView(
@@ -1219,7 +1245,7 @@ public final class TileRendererInternal {
 
         parent.addView(wrappedView, ratioWrapperLayoutParams);
 
-        ListenableFuture<Drawable> drawableFuture = mResourceResolvers.getDrawable(protoResId);
+        ListenableFuture<Drawable> drawableFuture = getDrawableFuture(protoResId);
         boolean isImageSet = false;
         if (drawableFuture.isDone() && !drawableFuture.isCancelled()) {
             // If the future is done, immediately draw.
@@ -1268,10 +1294,30 @@ public final class TileRendererInternal {
         return wrappedView;
     }
 
+    private ListenableFuture<Drawable> getDrawableFuture(String protoResId) {
+        ListenableFuture<Drawable> drawableFuture = mDrawableFutures.get(protoResId);
+        if (drawableFuture == null) {
+            drawableFuture = mResourceResolvers.getDrawable(protoResId);
+            mDrawableFutures.put(protoResId, drawableFuture);
+        }
+        return drawableFuture;
+    }
+
+    /**
+     * Gets a new instance of a resolved drawable. The instances share the loaded state (e.g. the
+     * decoded bitmap), but each one has its own bounds and tint.
+     */
+    private static Drawable getDrawableInstance(Future<Drawable> drawableFuture)
+            throws ExecutionException, InterruptedException {
+        Drawable drawable = drawableFuture.get();
+        Drawable.ConstantState state = drawable.getConstantState();
+        return state == null ? drawable : state.newDrawable();
+    }
+
     private static boolean setImageDrawable(
             ImageView imageView, Future<Drawable> drawableFuture, String protoResId) {
         try {
-            imageView.setImageDrawable(drawableFuture.get());
+            imageView.setImageDrawable(getDrawableInstance(drawableFuture));
             return true;
         } catch (ExecutionException | InterruptedException e) {
             Log.w(TAG, "Could not get drawable for image " + protoResId);
@@ -1412,11 +1458,11 @@ public final class TileRendererInternal {
             return builder;
         }
 
-        ListenableFuture<Drawable> drawableFuture = mResourceResolvers.getDrawable(protoResId);
+        ListenableFuture<Drawable> drawableFuture = getDrawableFuture(protoResId);
         if (drawableFuture.isDone()) {
             // If the future is done, immediately add drawable to builder.
             try {
-                Drawable drawable = drawableFuture.get();
+                Drawable drawable = getDrawableInstance(drawableFuture);
                 appendSpanDrawable(builder, drawable, protoImage);
             } catch (ExecutionException | InterruptedException e) {
                 Log.w(
@@ -1497,7 +1543,7 @@ public final class TileRendererInternal {
 
         try {
             // Add the image span to the same range occupied by the placeholder.
-            Drawable drawable = drawableFuture.get();
+            Drawable drawable = getDrawableInstance(drawableFuture);
             drawable.setBounds(
                     0, 0, safeDpToPx(protoImage.getWidth()), safeDpToPx(protoImage.getHeight()));
             FixedImageSpan imgSpan =
@@ -1643,6 +1689,24 @@ public final class TileRendererInternal {
 
     @Nullable
     private View inflateLayoutElement(ViewGroup parent, LayoutElement element) {
+        RenderedNode node = new RenderedNode(element);
+        RenderedNode parentNode = mInflatingNode;
+        if (parentNode != null) {
+            parentNode.mChildren.add(node);
+        }
+
+        mInflatingNode = node;
+        try {
+            node.mView = inflateLayoutElementInner(parent, element);
+        } finally {
+            mInflatingNode = parentNode;
+        }
+
+        return node.mView;
+    }
+
+    @Nullable
+    private View inflateLayoutElementInner(ViewGroup parent, LayoutElement element) {
         // What is it?
         View inflatedView = null;
         switch (element.getInnerCase()) {
@@ -1829,7 +1893,240 @@ public final class TileRendererInternal {
     @Nullable
     public View inflate(@NonNull ViewGroup parent) {
         // Go!
-        return inflateLayoutElement(parent, mLayoutProto.getRoot());
+        mRenderedRoot = inflateAndRecord(parent, mLayoutProto.getRoot());
+        mLastUpdateNodeCount = countNodes(mRenderedRoot);
+        mLastUpdateReusedNodeCount = 0;
+        return mRenderedRoot.mView;
+    }
+
+    /**
+     * Updates the Tile previously inflated into {@code parent} with {@link #inflate} or this
+     * method, to show {@code layout} instead.
+     *
+     * <p>The new layout is compared with the last one, and only the elements that changed are
+     * inflated again. The Views of the unchanged elements and of the containers whose own
+     * properties didn't change are kept, and the Text elements whose text is the only change are
+     * updated in place. If nothing was inflated yet, this is the same as {@link #inflate}.
+     *
+     * @param parent The view the tile was attached to.
+     * @param layout The new layout of the tile.
+     * @return The first child of the tile, which may not be the same View as before. This may be
+     *     null if the new layout can't be inflated, as in {@link #inflate}.
+     */
+    @Nullable
+    public View update(@NonNull ViewGroup parent, @NonNull Layout layout) {
+        RenderedNode oldRoot = mRenderedRoot;
+        if (oldRoot == null) {
+            mRenderedRoot = inflateAndRecord(parent, layout.getRoot());
+            mLastUpdateNodeCount = countNodes(mRenderedRoot);
+            mLastUpdateReusedNodeCount = 0;
+            return mRenderedRoot.mView;
+        }
+
+        mLastUpdateNodeCount = 0;
+        mLastUpdateReusedNodeCount = 0;
+        int rootIndex = oldRoot.mView == null ? -1 : parent.indexOfChild(oldRoot.mView);
+        mRenderedRoot = updateNode(parent, oldRoot, layout.getRoot());
+
+        View rootView = mRenderedRoot.mView;
+        if (rootView != null && rootIndex >= 0 && parent.getChildAt(rootIndex) != rootView) {
+            parent.removeView(rootView);
+            parent.addView(rootView, rootIndex);
+        }
+        return rootView;
+    }
+
+    /**
+     * Gets the percentage of the elements of the last rendered layout whose View was kept from the
+     * previous layout by {@link #update}. This is 0 after {@link #inflate}.
+     */
+    public float getLastUpdateReusedPercentage() {
+        if (mLastUpdateNodeCount == 0) {
+            return 0;
+        }
+        return 100f * mLastUpdateReusedNodeCount / mLastUpdateNodeCount;
+    }
+
+    private RenderedNode inflateAndRecord(ViewGroup parent, LayoutElement element) {
+        RenderedNode holder = new RenderedNode(LayoutElement.getDefaultInstance());
+        RenderedNode previousNode = mInflatingNode;
+        mInflatingNode = holder;
+        try {
+            inflateLayoutElement(parent, element);
+        } finally {
+            mInflatingNode = previousNode;
+        }
+        return holder.mChildren.get(0);
+    }
+
+    private RenderedNode updateNode(ViewGroup parent, RenderedNode oldNode, LayoutElement element) {
+        // Protos cache their hash code, so this is cheap for the subtrees compared more than once.
+        if (oldNode.mElement.hashCode() == element.hashCode() && oldNode.mElement.equals(element)) {
+            int count = countNodes(oldNode);
+            mLastUpdateNodeCount += count;
+            mLastUpdateReusedNodeCount += count;
+            return oldNode;
+        }
+
+        View oldView = oldNode.mView;
+        if (oldView != null && element.getInnerCase() == oldNode.mElement.getInnerCase()) {
+            switch (element.getInnerCase()) {
+                case COLUMN:
+                    if (withoutContents(oldNode.mElement).equals(withoutContents(element))) {
+                        return updateContainer(
+                                oldNode, element, element.getColumn().getContentsList());
+                    }
+                    break;
+                case ROW:
+                    if (withoutContents(oldNode.mElement).equals(withoutContents(element))) {
+                        return updateContainer(
+                                oldNode, element, element.getRow().getContentsList());
+                    }
+                    break;
+                case BOX:
+                    if (withoutContents(oldNode.mElement).equals(withoutContents(element))) {
+                        RenderedNode node =
+                                updateContainer(
+                                        oldNode, element, element.getBox().getContentsList());
+                        applyBoxLayoutToChildren((FrameLayout) oldView, element.getBox());
+                        return node;
+                    }
+                    break;
+                case TEXT:
+                    Text oldText = oldNode.mElement.getText();
+                    Text text = element.getText();
+                    if (oldView instanceof TextView
+                            && oldText.toBuilder()
+                                    .setText(text.getText())
+                                    .build()
+                                    .equals(text)) {
+                        ((TextView) oldView).setText(buildTextSpannable(text));
+                        RenderedNode node = new RenderedNode(element);
+                        node.mView = oldView;
+                        mLastUpdateNodeCount++;
+                        mLastUpdateReusedNodeCount++;
+                        return node;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // Inflate the element again.
+        if (oldView != null) {
+            parent.removeView(oldView);
+        }
+        RenderedNode node = inflateAndRecord(parent, element);
+        mLastUpdateNodeCount += countNodes(node);
+        return node;
+    }
+
+    /**
+     * Keeps the View of a container whose own properties didn't change, and updates its children.
+     */
+    private RenderedNode updateContainer(
+            RenderedNode oldNode, LayoutElement element, List<LayoutElement> contents) {
+        ViewGroup container = (ViewGroup) oldNode.mView;
+        RenderedNode node = new RenderedNode(element);
+        node.mView = container;
+        mLastUpdateNodeCount++;
+        mLastUpdateReusedNodeCount++;
+
+        // Unchanged children can be reused even if they moved.
+        Map<LayoutElement, ArrayDeque<RenderedNode>> oldChildrenByElement = new HashMap<>();
+        for (RenderedNode oldChild : oldNode.mChildren) {
+            ArrayDeque<RenderedNode> oldChildren = oldChildrenByElement.get(oldChild.mElement);
+            if (oldChildren == null) {
+                oldChildren = new ArrayDeque<>();
+                oldChildrenByElement.put(oldChild.mElement, oldChildren);
+            }
+            oldChildren.add(oldChild);
+        }
+
+        Set<RenderedNode> usedOldChildren = new HashSet<>();
+        for (int i = 0; i < contents.size(); i++) {
+            LayoutElement childElement = contents.get(i);
+            RenderedNode child = null;
+
+            ArrayDeque<RenderedNode> unchangedChildren = oldChildrenByElement.get(childElement);
+            while (child == null && unchangedChildren != null && !unchangedChildren.isEmpty()) {
+                RenderedNode candidate = unchangedChildren.poll();
+                if (usedOldChildren.add(candidate)) {
+                    child = candidate;
+                    int count = countNodes(child);
+                    mLastUpdateNodeCount += count;
+                    mLastUpdateReusedNodeCount += count;
+                }
+            }
+
+            if (child == null) {
+                // Otherwise, update the child at the same position, if it hasn't been reused.
+                RenderedNode oldChild =
+                        i < oldNode.mChildren.size() ? oldNode.mChildren.get(i) : null;
+                if (oldChild != null && usedOldChildren.add(oldChild)) {
+                    child = updateNode(container, oldChild, childElement);
+                } else {
+                    child = inflateAndRecord(container, childElement);
+                    mLastUpdateNodeCount += countNodes(child);
+                }
+            }
+
+            node.mChildren.add(child);
+        }
+
+        for (RenderedNode oldChild : oldNode.mChildren) {
+            if (!usedOldChildren.contains(oldChild) && oldChild.mView != null) {
+                container.removeView(oldChild.mView);
+            }
+        }
+
+        // Put the children in order. Newly inflated children were added at the end.
+        int index = 0;
+        for (RenderedNode child : node.mChildren) {
+            if (child.mView == null) {
+                continue;
+            }
+            if (container.getChildAt(index) != child.mView) {
+                container.removeView(child.mView);
+                container.addView(child.mView, index);
+            }
+            index++;
+        }
+
+        // Anything after them isn't part of the layout, e.g. the Space added to Boxes.
+        if (container.getChildCount() > index) {
+            container.removeViews(index, container.getChildCount() - index);
+        }
+
+        return node;
+    }
+
+    private static LayoutElement withoutContents(LayoutElement element) {
+        switch (element.getInnerCase()) {
+            case COLUMN:
+                return LayoutElement.newBuilder()
+                        .setColumn(element.getColumn().toBuilder().clearContents())
+                        .build();
+            case ROW:
+                return LayoutElement.newBuilder()
+                        .setRow(element.getRow().toBuilder().clearContents())
+                        .build();
+            case BOX:
+                return LayoutElement.newBuilder()
+                        .setBox(element.getBox().toBuilder().clearContents())
+                        .build();
+            default:
+                return element;
+        }
+    }
+
+    private static int countNodes(RenderedNode node) {
+        int count = 1;
+        for (RenderedNode child : node.mChildren) {
+            count += countNodes(child);
+        }
+        return count;
     }
 
     private static void applyGravityToFrameLayoutChildren(FrameLayout parent, int gravity) {
@@ -1854,6 +2151,19 @@ public final class TileRendererInternal {
         view.setImportantForAccessibility(View.IMPORTANT_FOR_ACCESSIBILITY_YES);
     }
 
+    /** An inflated LayoutElement, and the View inflated for it. */
+    private static final class RenderedNode {
+        final LayoutElement mElement;
+        final List<RenderedNode> mChildren = new ArrayList<>();
+
+        // Null if the element couldn't be inflated.
+        @Nullable View mView;
+
+        RenderedNode(LayoutElement element) {
+            mElement = element;
+        }
+    }
+
     /** Implementation of ClickableSpan for Tiles' Clickables. */
     private class TilesClickableSpan extends ClickableSpan {
         private final Clickable mClickable;
@@ -1319,6 +1319,144 @@ public class TileRendererInternalTest {
         expect.that(image2.getHeight()).isEqualTo(24);
     }
 
+    @Test
+    public void update_unchangedLayout_reusesAllViews() {
+        LayoutElement root = buildColumnOfTexts("A", "B", "C");
+        FrameLayout rootLayout = new FrameLayout(getApplicationContext());
+        TileRendererInternal renderer = createRenderer(root);
+        View column = renderer.inflate(rootLayout);
+
+        View updatedColumn = renderer.update(rootLayout, Layout.newBuilder().setRoot(root).build());
+
+        expect.that(updatedColumn).isSameInstanceAs(column);
+        expect.that(rootLayout.getChildCount()).isEqualTo(1);
+        expect.that(renderer.getLastUpdateReusedPercentage()).isEqualTo(100f);
+    }
+
+    @Test
+    public void update_changedText_updatesTextViewInPlace() {
+        FrameLayout rootLayout = new FrameLayout(getApplicationContext());
+        TileRendererInternal renderer = createRenderer(buildColumnOfTexts("A", "B", "C"));
+        ViewGroup column = (ViewGroup) renderer.inflate(rootLayout);
+        View textA = column.getChildAt(0);
+        View textB = column.getChildAt(1);
+
+        ViewGroup updatedColumn =
+                (ViewGroup) renderer.update(rootLayout,
+                        Layout.newBuilder().setRoot(buildColumnOfTexts("A", "D", "C")).build());
+
+        expect.that(updatedColumn).isSameInstanceAs(column);
+        expect.that(updatedColumn.getChildCount()).isEqualTo(3);
+        expect.that(updatedColumn.getChildAt(0)).isSameInstanceAs(textA);
+        expect.that(updatedColumn.getChildAt(1)).isSameInstanceAs(textB);
+        expect.that(((TextView) textB).getText().toString()).isEqualTo("D");
+        expect.that(renderer.getLastUpdateReusedPercentage()).isEqualTo(100f);
+    }
+
+    @Test
+    public void update_movedAndRemovedChildren_reusesViews() {
+        FrameLayout rootLayout = new FrameLayout(getApplicationContext());
+        TileRendererInternal renderer = createRenderer(buildColumnOfTexts("A", "B", "C"));
+        ViewGroup column = (ViewGroup) renderer.inflate(rootLayout);
+        View textA = column.getChildAt(0);
+        View textC = column.getChildAt(2);
+
+        ViewGroup updatedColumn =
+                (ViewGroup) renderer.update(rootLayout,
+                        Layout.newBuilder().setRoot(buildColumnOfTexts("C", "A")).build());
+
+        expect.that(updatedColumn.getChildCount()).isEqualTo(2);
+        expect.that(updatedColumn.getChildAt(0)).isSameInstanceAs(textC);
+        expect.that(updatedColumn.getChildAt(1)).isSameInstanceAs(textA);
+    }
+
+    @Test
+    public void update_changedElementType_inflatesNewView() {
+        FrameLayout rootLayout = new FrameLayout(getApplicationContext());
+        TileRendererInternal renderer = createRenderer(buildColumnOfTexts("A", "B"));
+        ViewGroup column = (ViewGroup) renderer.inflate(rootLayout);
+        View textA = column.getChildAt(0);
+
+        LayoutElement newRoot = LayoutElement.newBuilder()
+                .setColumn(Column.newBuilder()
+                        .addContents(buildText("A"))
+                        .addContents(LayoutElement.newBuilder()
+                                .setSpacer(Spacer.newBuilder()
+                                        .setWidth(SpacerDimension.newBuilder()
+                                                .setLinearDimension(DpProp.newBuilder()
+                                                        .setValue(10)))
+                                        .setHeight(SpacerDimension.newBuilder()
+                                                .setLinearDimension(DpProp.newBuilder()
+                                                        .setValue(10))))))
+                .build();
+        ViewGroup updatedColumn =
+                (ViewGroup) renderer.update(rootLayout,
+                        Layout.newBuilder().setRoot(newRoot).build());
+
+        expect.that(updatedColumn).isSameInstanceAs(column);
+        expect.that(updatedColumn.getChildCount()).isEqualTo(2);
+        expect.that(updatedColumn.getChildAt(0)).isSameInstanceAs(textA);
+        expect.that(updatedColumn.getChildAt(1)).isNotInstanceOf(TextView.class);
+        // The column and "A" out of three elements.
+        expect.that(renderer.getLastUpdateReusedPercentage()).isWithin(0.01f).of(200f / 3);
+    }
+
+    @Test
+    public void update_changedBox_keepsSingleHackSpace() {
+        FrameLayout rootLayout = new FrameLayout(getApplicationContext());
+        LayoutElement expandedText = LayoutElement.newBuilder()
+                .setBox(Box.newBuilder()
+                        .setWidth(ContainerDimension.newBuilder()
+                                .setExpandedDimension(ExpandedDimensionProp.getDefaultInstance()))
+                        .setHeight(ContainerDimension.newBuilder()
+                                .setExpandedDimension(ExpandedDimensionProp.getDefaultInstance()))
+                        .addContents(buildText("Inner")))
+                .build();
+        TileRendererInternal renderer = createRenderer(
+                LayoutElement.newBuilder()
+                        .setBox(Box.newBuilder()
+                                .addContents(buildText("A"))
+                                .addContents(expandedText))
+                        .build());
+        ViewGroup box = (ViewGroup) renderer.inflate(rootLayout);
+        int childCount = box.getChildCount();
+
+        ViewGroup updatedBox =
+                (ViewGroup) renderer.update(rootLayout,
+                        Layout.newBuilder().setRoot(LayoutElement.newBuilder()
+                                .setBox(Box.newBuilder()
+                                        .addContents(buildText("B"))
+                                        .addContents(expandedText))
+                                .build()).build());
+
+        expect.that(updatedBox).isSameInstanceAs(box);
+        expect.that(updatedBox.getChildCount()).isEqualTo(childCount);
+        expect.that(((TextView) updatedBox.getChildAt(0)).getText().toString()).isEqualTo("B");
+    }
+
+    private static LayoutElement buildText(String text) {
+        return LayoutElement.newBuilder()
+                .setText(Text.newBuilder().setText(StringProp.newBuilder().setValue(text)))
+                .build();
+    }
+
+    private static LayoutElement buildColumnOfTexts(String... texts) {
+        Column.Builder column = Column.newBuilder();
+        for (String text : texts) {
+            column.addContents(buildText(text));
+        }
+        return LayoutElement.newBuilder().setColumn(column).build();
+    }
+
+    private static TileRendererInternal createRenderer(LayoutElement rootElement) {
+        return new TileRendererInternal(
+                getApplicationContext(),
+                Layout.newBuilder().setRoot(rootElement).build(),
+                resourceResolvers().build(),
+                ContextCompat.getMainExecutor(getApplicationContext()),
+                p -> {});
+    }
+
     private static Span textSpan(String text) {
         return Span.newBuilder()
                 .setText(
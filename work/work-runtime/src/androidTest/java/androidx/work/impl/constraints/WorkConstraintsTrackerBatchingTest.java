@@ -0,0 +1,186 @@
+/*
+ * Copyright 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.impl.constraints;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+import androidx.work.RunnableScheduler;
+import androidx.work.impl.constraints.controllers.ConstraintController;
+import androidx.work.impl.model.WorkSpec;
+import androidx.work.impl.workers.ConstraintTrackingWorker;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class WorkConstraintsTrackerBatchingTest {
+    private final List<List<String>> mMetReports = new ArrayList<>();
+    private final List<List<String>> mNotMetReports = new ArrayList<>();
+    private final WorkConstraintsCallback mCallback = new WorkConstraintsCallback() {
+        @Override
+        public void onAllConstraintsMet(@NonNull List<String> workSpecIds) {
+            mMetReports.add(workSpecIds);
+        }
+
+        @Override
+        public void onAllConstraintsNotMet(@NonNull List<String> workSpecIds) {
+            mNotMetReports.add(workSpecIds);
+        }
+    };
+
+    private final List<Runnable> mScheduledRunnables = new ArrayList<>();
+    private final RunnableScheduler mScheduler = new RunnableScheduler() {
+        @Override
+        public void scheduleWithDelay(long delayInMillis, @NonNull Runnable runnable) {
+            mScheduledRunnables.add(runnable);
+        }
+
+        @Override
+        public void cancel(@NonNull Runnable runnable) {
+            mScheduledRunnables.remove(runnable);
+        }
+    };
+
+    private ConstraintController<?> mBatteryController;
+    private ConstraintController<?> mNetworkController;
+    private WorkConstraintsTracker mWorkConstraintsTracker;
+
+    @Before
+    public void setUp() {
+        mBatteryController = mock(ConstraintController.class);
+        mNetworkController = mock(ConstraintController.class);
+        // A and B need the battery, C needs the battery and the network.
+        track(mBatteryController, "A", "B", "C");
+        track(mNetworkController, "C");
+        mWorkConstraintsTracker = new WorkConstraintsTracker(mCallback,
+                new ConstraintController<?>[] {mBatteryController, mNetworkController},
+                mScheduler);
+    }
+
+    @Test
+    public void testReplace_reportsOnceAfterDelay() {
+        when(mBatteryController.isConstraintMet()).thenReturn(true);
+        mWorkConstraintsTracker.replace(workSpecs("A", "B", "C"));
+        mWorkConstraintsTracker.onConstraintMet(Arrays.asList("A", "B", "C"));
+
+        assertThat(mMetReports.isEmpty(), is(true));
+        runScheduled();
+
+        assertThat(mMetReports.size(), is(1));
+        assertThat(mMetReports.get(0), containsInAnyOrder("A", "B"));
+        assertThat(mNotMetReports.size(), is(1));
+        assertThat(mNotMetReports.get(0), containsInAnyOrder("C"));
+        assertThat(mWorkConstraintsTracker.getEvaluationCount(), is(1L));
+    }
+
+    @Test
+    public void testFlappingConstraint_notReported() {
+        when(mBatteryController.isConstraintMet()).thenReturn(true);
+        mWorkConstraintsTracker.replace(workSpecs("A", "B"));
+        runScheduled();
+        mMetReports.clear();
+
+        // Lost and regained within the delay.
+        mWorkConstraintsTracker.onConstraintNotMet(Arrays.asList("A", "B"));
+        mWorkConstraintsTracker.onConstraintMet(Arrays.asList("A", "B"));
+        assertThat(mScheduledRunnables.size(), is(1));
+        runScheduled();
+
+        assertThat(mMetReports.isEmpty(), is(true));
+        assertThat(mNotMetReports.isEmpty(), is(true));
+        assertThat(mWorkConstraintsTracker.getEvaluationCount(), is(2L));
+    }
+
+    @Test
+    public void testConstraintChange_reportsAffectedGroupOnly() {
+        when(mBatteryController.isConstraintMet()).thenReturn(true);
+        mWorkConstraintsTracker.replace(workSpecs("A", "B", "C"));
+        runScheduled();
+        mMetReports.clear();
+        mNotMetReports.clear();
+
+        when(mNetworkController.isConstraintMet()).thenReturn(true);
+        mWorkConstraintsTracker.onConstraintMet(Collections.singletonList("C"));
+        runScheduled();
+
+        assertThat(mMetReports.size(), is(1));
+        assertThat(mMetReports.get(0), containsInAnyOrder("C"));
+        assertThat(mNotMetReports.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testReplace_reportsNewWorkSpecsOnly() {
+        when(mBatteryController.isConstraintMet()).thenReturn(true);
+        mWorkConstraintsTracker.replace(workSpecs("A"));
+        runScheduled();
+        mMetReports.clear();
+
+        mWorkConstraintsTracker.replace(workSpecs("A", "B"));
+        runScheduled();
+
+        assertThat(mMetReports.size(), is(1));
+        assertThat(mMetReports.get(0), containsInAnyOrder("B"));
+    }
+
+    @Test
+    public void testReset_cancelsEvaluation() {
+        when(mBatteryController.isConstraintMet()).thenReturn(true);
+        mWorkConstraintsTracker.replace(workSpecs("A"));
+        mWorkConstraintsTracker.reset();
+
+        assertThat(mScheduledRunnables.isEmpty(), is(true));
+        assertThat(mMetReports.isEmpty(), is(true));
+    }
+
+    private void runScheduled() {
+        List<Runnable> runnables = new ArrayList<>(mScheduledRunnables);
+        mScheduledRunnables.clear();
+        for (Runnable runnable : runnables) {
+            runnable.run();
+        }
+    }
+
+    private static void track(ConstraintController<?> controller, String... workSpecIds) {
+        when(controller.isTracking(anyString())).thenReturn(false);
+        for (String workSpecId : workSpecIds) {
+            when(controller.isTracking(workSpecId)).thenReturn(true);
+        }
+    }
+
+    private static List<WorkSpec> workSpecs(String... workSpecIds) {
+        List<WorkSpec> workSpecs = new ArrayList<>();
+        for (String workSpecId : workSpecIds) {
+            workSpecs.add(new WorkSpec(workSpecId, ConstraintTrackingWorker.class.getName()));
+        }
+        return workSpecs;
+    }
+}
@@ -22,6 +22,8 @@ import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.work.Constraints;
 import androidx.work.Logger;
+import androidx.work.RunnableScheduler;
+import androidx.work.impl.DefaultRunnableScheduler;
 import androidx.work.impl.constraints.controllers.BatteryChargingController;
 import androidx.work.impl.constraints.controllers.BatteryNotLowController;
 import androidx.work.impl.constraints.controllers.ConstraintController;
@@ -34,20 +36,53 @@ import androidx.work.impl.model.WorkSpec;
 import androidx.work.impl.utils.taskexecutor.TaskExecutor;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Tracks {@link WorkSpec}s and their {@link Constraints}, and notifies an optional
  * {@link WorkConstraintsCallback} when all of their constraints are met or not met.
+ * <p>
+ * Constraint changes are evaluated in batches, {@link #EVALUATION_DELAY_MS} after the first
+ * one, so that a constraint that flaps within that delay doesn't stop and restart work. The
+ * {@link WorkSpec}s are grouped by the set of controllers tracking them, each group is evaluated
+ * once for all of its {@link WorkSpec}s, and only the {@link WorkSpec}s of the groups whose state
+ * changed are passed to the callback.
  */
 
 public class WorkConstraintsTracker implements ConstraintController.OnConstraintUpdatedCallback {
 
     private static final String TAG = Logger.tagWithPrefix("WorkConstraintsTracker");
 
+    // Delay between a constraint change and the evaluation of the affected WorkSpecs.
+    static final long EVALUATION_DELAY_MS = 50;
+
     @Nullable private final WorkConstraintsCallback mCallback;
     private final ConstraintController<?>[] mConstraintControllers;
 
+    // Schedules batched evaluations, or null if constraint changes are evaluated immediately.
+    @Nullable private final RunnableScheduler mEvaluationScheduler;
+    private final Runnable mEvaluationRunnable = new Runnable() {
+        @Override
+        public void run() {
+            evaluateChanges();
+        }
+    };
+    private boolean mEvaluationScheduled;
+
+    // Groups of WorkSpecs by mask of the indices of the controllers tracking them in
+    // mConstraintControllers.
+    private final Map<String, Integer> mWorkSpecMasks = new HashMap<>();
+    private final Map<Integer, WorkSpecGroup> mGroups = new HashMap<>();
+    // Masks of the groups to evaluate.
+    private final Set<Integer> mChangedMasks = new HashSet<>();
+
+    private long mEvaluationCount;
+    private long mEvaluationTimeNanos;
+
     // We need to keep hold a lock here for the cases where there is 1 WCT tracking a list of
     // WorkSpecs. Changes in constraints are notified on the main thread. Enqueues / Cancellations
     // occur on the task executor thread pool. So there is a chance of
@@ -77,6 +112,7 @@ public class WorkConstraintsTracker implements ConstraintController.OnConstraint
                 new NetworkNotRoamingController(appContext, taskExecutor),
                 new NetworkMeteredController(appContext, taskExecutor)
         };
+        mEvaluationScheduler = new DefaultRunnableScheduler();
         mLock = new Object();
     }
 
@@ -85,8 +121,18 @@ public class WorkConstraintsTracker implements ConstraintController.OnConstraint
             @Nullable WorkConstraintsCallback callback,
             ConstraintController<?>[] controllers) {
 
+        this(callback, controllers, null);
+    }
+
+    @VisibleForTesting
+    WorkConstraintsTracker(
+            @Nullable WorkConstraintsCallback callback,
+            ConstraintController<?>[] controllers,
+            @Nullable RunnableScheduler evaluationScheduler) {
+
         mCallback = callback;
         mConstraintControllers = controllers;
+        mEvaluationScheduler = evaluationScheduler;
         mLock = new Object();
     }
 
@@ -106,12 +152,54 @@ public class WorkConstraintsTracker implements ConstraintController.OnConstraint
                 controller.replace(workSpecs);
             }
 
+            if (mEvaluationScheduler != null) {
+                groupWorkSpecs(workSpecs);
+            }
+
             for (ConstraintController<?> controller : mConstraintControllers) {
                 controller.setCallback(this);
             }
         }
     }
 
+    private void groupWorkSpecs(@NonNull Iterable<WorkSpec> workSpecs) {
+        Map<String, Integer> workSpecMasks = new HashMap<>();
+        Map<Integer, WorkSpecGroup> groups = new HashMap<>();
+        for (WorkSpec workSpec : workSpecs) {
+            int mask = 0;
+            for (int i = 0; i < mConstraintControllers.length; i++) {
+                if (mConstraintControllers[i].isTracking(workSpec.id)) {
+                    mask |= 1 << i;
+                }
+            }
+            if (mask == 0) {
+                // Not constrained, never reported.
+                continue;
+            }
+            WorkSpecGroup group = groups.get(mask);
+            if (group == null) {
+                group = new WorkSpecGroup();
+                WorkSpecGroup previousGroup = mGroups.get(mask);
+                if (previousGroup != null) {
+                    group.mReportedMet = previousGroup.mReportedMet;
+                }
+                groups.put(mask, group);
+            }
+            group.mWorkSpecIds.add(workSpec.id);
+            Integer previousMask = mWorkSpecMasks.get(workSpec.id);
+            if (previousMask == null || previousMask != mask) {
+                group.mUnreportedWorkSpecIds.add(workSpec.id);
+                mChangedMasks.add(mask);
+            }
+            workSpecMasks.put(workSpec.id, mask);
+        }
+        mWorkSpecMasks.clear();
+        mWorkSpecMasks.putAll(workSpecMasks);
+        mGroups.clear();
+        mGroups.putAll(groups);
+        scheduleEvaluation();
+    }
+
     /**
      * Resets and clears all tracked {@link WorkSpec}s.
      */
@@ -120,6 +208,32 @@ public class WorkConstraintsTracker implements ConstraintController.OnConstraint
             for (ConstraintController<?> controller : mConstraintControllers) {
                 controller.reset();
             }
+            mWorkSpecMasks.clear();
+            mGroups.clear();
+            mChangedMasks.clear();
+            if (mEvaluationScheduled && mEvaluationScheduler != null) {
+                mEvaluationScheduler.cancel(mEvaluationRunnable);
+                mEvaluationScheduled = false;
+            }
+        }
+    }
+
+    /**
+     * @return The number of batched evaluations of constraint changes so far.
+     */
+    public long getEvaluationCount() {
+        synchronized (mLock) {
+            return mEvaluationCount;
+        }
+    }
+
+    /**
+     * @return The total time spent in batched evaluations of constraint changes, excluding the
+     * callback, in nanoseconds.
+     */
+    public long getEvaluationTimeNanos() {
+        synchronized (mLock) {
+            return mEvaluationTimeNanos;
         }
     }
 
@@ -145,6 +259,10 @@ public class WorkConstraintsTracker implements ConstraintController.OnConstraint
     @Override
     public void onConstraintMet(@NonNull List<String> workSpecIds) {
         synchronized (mLock) {
+            if (mEvaluationScheduler != null) {
+                onConstraintChanged(workSpecIds);
+                return;
+            }
             List<String> unconstrainedWorkSpecIds = new ArrayList<>();
             for (String workSpecId : workSpecIds) {
                 if (areAllConstraintsMet(workSpecId)) {
@@ -161,9 +279,98 @@ public class WorkConstraintsTracker implements ConstraintController.OnConstraint
     @Override
     public void onConstraintNotMet(@NonNull List<String> workSpecIds) {
         synchronized (mLock) {
+            if (mEvaluationScheduler != null) {
+                onConstraintChanged(workSpecIds);
+                return;
+            }
             if (mCallback != null) {
                 mCallback.onAllConstraintsNotMet(workSpecIds);
             }
         }
     }
+
+    private void onConstraintChanged(@NonNull List<String> workSpecIds) {
+        for (String workSpecId : workSpecIds) {
+            Integer mask = mWorkSpecMasks.get(workSpecId);
+            if (mask != null) {
+                mChangedMasks.add(mask);
+            }
+        }
+        scheduleEvaluation();
+    }
+
+    private void scheduleEvaluation() {
+        // Without a callback, there is nothing to notify.
+        if (mEvaluationScheduled || mChangedMasks.isEmpty() || mCallback == null
+                || mEvaluationScheduler == null) {
+            return;
+        }
+        mEvaluationScheduled = true;
+        mEvaluationScheduler.scheduleWithDelay(EVALUATION_DELAY_MS, mEvaluationRunnable);
+    }
+
+    @VisibleForTesting
+    void evaluateChanges() {
+        synchronized (mLock) {
+            mEvaluationScheduled = false;
+            long startNanos = System.nanoTime();
+            List<String> metWorkSpecIds = new ArrayList<>();
+            List<String> notMetWorkSpecIds = new ArrayList<>();
+            for (Integer mask : mChangedMasks) {
+                WorkSpecGroup group = mGroups.get(mask);
+                if (group == null) {
+                    continue;
+                }
+                boolean met = areAllConstraintsMet(mask);
+                // WorkSpecs are only reported again when the state of their group changed.
+                List<String> changedWorkSpecIds =
+                        group.mReportedMet == null || group.mReportedMet != met
+                                ? group.mWorkSpecIds : group.mUnreportedWorkSpecIds;
+                if (met) {
+                    metWorkSpecIds.addAll(changedWorkSpecIds);
+                } else {
+                    notMetWorkSpecIds.addAll(changedWorkSpecIds);
+                }
+                group.mReportedMet = met;
+                group.mUnreportedWorkSpecIds.clear();
+            }
+            int groupCount = mChangedMasks.size();
+            mChangedMasks.clear();
+            long elapsedNanos = System.nanoTime() - startNanos;
+            mEvaluationCount++;
+            mEvaluationTimeNanos += elapsedNanos;
+            Logger.get().debug(TAG, "Evaluated " + groupCount + " constraint groups in "
+                    + elapsedNanos / 1000 + " us: " + metWorkSpecIds.size() + " met, "
+                    + notMetWorkSpecIds.size() + " not met");
+
+            if (mCallback != null) {
+                if (!notMetWorkSpecIds.isEmpty()) {
+                    mCallback.onAllConstraintsNotMet(notMetWorkSpecIds);
+                }
+                if (!metWorkSpecIds.isEmpty()) {
+                    mCallback.onAllConstraintsMet(metWorkSpecIds);
+                }
+            }
+        }
+    }
+
+    private boolean areAllConstraintsMet(int mask) {
+        for (int i = 0; i < mConstraintControllers.length; i++) {
+            if ((mask & (1 << i)) != 0 && !mConstraintControllers[i].isConstraintMet()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@link WorkSpec}s tracked by the same set of controllers.
+     */
+    private static final class WorkSpecGroup {
+        final List<String> mWorkSpecIds = new ArrayList<>();
+        // WorkSpecs that joined the group after its state was reported.
+        final List<String> mUnreportedWorkSpecIds = new ArrayList<>();
+        // The state reported for the group, or null if it wasn't reported yet.
+        @Nullable Boolean mReportedMet;
+    }
 }
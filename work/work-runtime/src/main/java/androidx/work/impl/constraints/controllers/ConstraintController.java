@@ -22,7 +22,9 @@ import androidx.work.impl.constraints.trackers.ConstraintTracker;
 import androidx.work.impl.model.WorkSpec;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A controller for a particular constraint.
@@ -53,6 +55,8 @@ public abstract class ConstraintController<T> implements ConstraintListener<T> {
     }
 
     private final List<String> mMatchingWorkSpecIds = new ArrayList<>();
+    // Same ids as mMatchingWorkSpecIds, for lookups.
+    private final Set<String> mMatchingWorkSpecIdSet = new HashSet<>();
 
     private T mCurrentValue;
     private ConstraintTracker<T> mTracker;
@@ -86,10 +90,12 @@ public abstract class ConstraintController<T> implements ConstraintListener<T> {
      */
     public void replace(@NonNull Iterable<WorkSpec> workSpecs) {
         mMatchingWorkSpecIds.clear();
+        mMatchingWorkSpecIdSet.clear();
 
         for (WorkSpec workSpec : workSpecs) {
             if (hasConstraint(workSpec)) {
                 mMatchingWorkSpecIds.add(workSpec.id);
+                mMatchingWorkSpecIdSet.add(workSpec.id);
             }
         }
 
@@ -107,6 +113,7 @@ public abstract class ConstraintController<T> implements ConstraintListener<T> {
     public void reset() {
         if (!mMatchingWorkSpecIds.isEmpty()) {
             mMatchingWorkSpecIds.clear();
+            mMatchingWorkSpecIdSet.clear();
             mTracker.removeListener(this);
         }
     }
@@ -120,7 +127,29 @@ public abstract class ConstraintController<T> implements ConstraintListener<T> {
      */
     public boolean isWorkSpecConstrained(@NonNull String workSpecId) {
         return mCurrentValue != null && isConstrained(mCurrentValue)
-                && mMatchingWorkSpecIds.contains(workSpecId);
+                && mMatchingWorkSpecIdSet.contains(workSpecId);
+    }
+
+    /**
+     * Determines if a particular {@link WorkSpec} is tracked by this controller, because it has
+     * the constraint of this controller.
+     *
+     * @param workSpecId The ID of the {@link WorkSpec} to check
+     * @return {@code true} if the {@link WorkSpec} is tracked
+     */
+    public boolean isTracking(@NonNull String workSpecId) {
+        return mMatchingWorkSpecIdSet.contains(workSpecId);
+    }
+
+    /**
+     * Determines if the constraint of this controller is met. It is not met until the current
+     * value of the constraint is known.
+     *
+     * @return {@code true} if the constraint is met
+     */
+    public boolean isConstraintMet() {
+        T currentValue = mCurrentValue;
+        return currentValue != null && !isConstrained(currentValue);
     }
 
     private void updateCallback(